@@ -0,0 +1,146 @@
+package ca.letkeman.resumes.optimizer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.poi.xwpf.usermodel.ParagraphAlignment;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.commonmark.node.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * DOCX rendering through {@link DocxRenderer} against the regex converter MarkdownToDocx used
+ * before it. {@code regex} and {@code parseAndRender} both go from markdown text to DOCX bytes;
+ * {@code render} starts from the parsed tree, which generation shares with the PDF. The regex
+ * converter is kept here as it was, minus the file output. Run with
+ * {@code ./gradlew jmh -PjmhIncludes=DocxRendererBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DocxRendererBenchmark {
+
+  private static final Pattern BOLD = Pattern.compile("\\*\\*(.*?)\\*\\*");
+
+  /** A generated resume in markdown. */
+  @State(Scope.Benchmark)
+  public static class Resume {
+
+    /** Experience sections in the resume; 60 is about 27 KB. */
+    @Param({"5", "60"})
+    int sections;
+
+    String markdown;
+    Node document;
+
+    @Setup
+    public void setUp() {
+      StringBuilder text = new StringBuilder("# Jane Doe\n\n**Senior Software Engineer** | jane@example.com | ")
+          .append("[github.com/jane](https://github.com/jane)\n\n");
+      for (int i = 0; i < sections; i++) {
+        text.append("## Experience ").append(i).append("\n\n### Acme Corporation\n\n")
+            .append("Led a *team* of **six engineers** migrating `order` processing to Spring Boot, ")
+            .append("cutting latency by 40%.\n\n");
+        for (int j = 0; j < 5; j++) {
+          text.append("- Built **REST** services in Java with *Spring* and JPA ").append(j).append('\n');
+        }
+        text.append('\n');
+      }
+      markdown = text.toString();
+      document = MarkdownDocument.parse(markdown);
+    }
+  }
+
+  @Benchmark
+  public void parseAndRender(Resume resume) throws IOException {
+    MarkdownToDocx.write(MarkdownDocument.parse(resume.markdown), OutputStream.nullOutputStream());
+  }
+
+  @Benchmark
+  public void render(Resume resume) throws IOException {
+    MarkdownToDocx.write(resume.document, OutputStream.nullOutputStream());
+  }
+
+  @Benchmark
+  public void regex(Resume resume) throws IOException {
+    try (XWPFDocument document = new XWPFDocument()) {
+      for (String block : resume.markdown.split("\\n(?=\\n)")) {
+        addBlock(document, block.trim());
+      }
+      document.write(OutputStream.nullOutputStream());
+    }
+  }
+
+  private static void addBlock(XWPFDocument document, String block) {
+    if (block.isEmpty()) {
+      return;
+    }
+    if (block.startsWith("# ")) {
+      addHeading(document, block.replaceFirst("^# ", ""), 28);
+    } else if (block.startsWith("## ")) {
+      addHeading(document, block.replaceFirst("^## ", ""), 24);
+    } else if (block.startsWith("### ")) {
+      addHeading(document, block.replaceFirst("^### ", ""), 20);
+    } else if (block.startsWith("- ") || block.startsWith("* ")) {
+      XWPFParagraph para = document.createParagraph();
+      para.setIndentationLeft(720);
+      para.createRun().setText("• " + block.replaceFirst("^[-*] ", ""));
+    } else {
+      addTextWithFormatting(document.createParagraph(), stripInlineFormatting(block));
+    }
+  }
+
+  private static void addHeading(XWPFDocument document, String text, int size) {
+    XWPFParagraph para = document.createParagraph();
+    XWPFRun run = para.createRun();
+    run.setText(text);
+    run.setBold(true);
+    run.setFontSize(size);
+    para.setAlignment(ParagraphAlignment.LEFT);
+  }
+
+  private static String stripInlineFormatting(String text) {
+    String stripped = text.replaceAll("\\*\\*(.*?)\\*\\*", "$1");
+    stripped = stripped.replaceAll("__(.*?)__", "$1");
+    stripped = stripped.replaceAll("\\*(.*?)\\*", "$1");
+    stripped = stripped.replaceAll("_(.*?)_", "$1");
+    stripped = stripped.replaceAll("`(.*?)`", "$1");
+    return stripped.replaceAll("\\[(.*?)\\]\\((.*?)\\)", "$1");
+  }
+
+  private static void addTextWithFormatting(XWPFParagraph para, String text) {
+    Matcher matcher = BOLD.matcher(text);
+    int lastEnd = 0;
+    while (matcher.find()) {
+      if (matcher.start() > lastEnd) {
+        para.createRun().setText(text.substring(lastEnd, matcher.start()));
+      }
+      XWPFRun boldRun = para.createRun();
+      boldRun.setText(matcher.group(1));
+      boldRun.setBold(true);
+      lastEnd = matcher.end();
+    }
+    if (lastEnd < text.length()) {
+      para.createRun().setText(text.substring(lastEnd));
+    }
+    if (lastEnd == 0) {
+      para.createRun().setText(text);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package ca.letkeman.resumes.optimizer;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.commonmark.renderer.html.HtmlRenderer;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xhtmlrenderer.pdf.ITextRenderer;
+
+/**
+ * PDF rendering with a new renderer per document, as HtmlToPdf used to do, against the
+ * {@link PdfRendererPool}. {@code firstDocument} runs once per fresh JVM and shows what the
+ * startup warm-up saves the first request. Run with
+ * {@code ./gradlew jmh -PjmhIncludes=HtmlToPdfBenchmark}.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class HtmlToPdfBenchmark {
+
+  /** A generated resume as the XHTML HtmlToPdf renders. */
+  @State(Scope.Benchmark)
+  public static class Resume {
+
+    /** Experience sections in the resume. */
+    @Param({"5", "20"})
+    int sections;
+
+    String xhtml;
+    PdfRendererPool pool;
+
+    @Setup
+    public void setUp() {
+      StringBuilder markdown = new StringBuilder("# Jane Doe\n\n**Senior Software Engineer** | jane@example.com\n\n");
+      for (int i = 0; i < sections; i++) {
+        markdown.append("## Experience ").append(i).append("\n\n### Acme Corporation\n\n")
+            .append("Led a *team* of **six engineers** migrating `order` processing to Spring Boot, ")
+            .append("cutting latency by 40%.\n\n");
+        for (int j = 0; j < 5; j++) {
+          markdown.append("- Built **REST** services in Java with *Spring* and JPA ").append(j).append('\n');
+        }
+        markdown.append('\n');
+      }
+      String html = HtmlRenderer.builder().build().render(MarkdownDocument.parse(markdown.toString()));
+      Document document = Jsoup.parse(html);
+      document.outputSettings().syntax(Document.OutputSettings.Syntax.xml);
+      xhtml = document.html();
+      pool = new PdfRendererPool(1);
+    }
+  }
+
+  /** A pool as the application has it when the first request comes in. */
+  @State(Scope.Thread)
+  public static class Startup {
+
+    /** Whether the pool was warmed, as PdfRenderingService does at startup. */
+    @Param({"false", "true"})
+    boolean warmed;
+
+    PdfRendererPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      pool = new PdfRendererPool(1);
+      if (warmed) {
+        pool.warm(1);
+      }
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  public void newRenderer(Resume resume) {
+    ITextRenderer renderer = new ITextRenderer();
+    renderer.setDocumentFromString(resume.xhtml);
+    renderer.layout();
+    renderer.createPDF(OutputStream.nullOutputStream());
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  public void pooledRenderer(Resume resume) {
+    resume.pool.render(resume.xhtml, OutputStream.nullOutputStream());
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 0)
+  @Measurement(iterations = 1)
+  @Fork(10)
+  public void firstDocument(Resume resume, Startup startup) {
+    startup.pool.render(resume.xhtml, OutputStream.nullOutputStream());
+  }
+}
@@ -0,0 +1,87 @@
+package ca.letkeman.resumes.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Prompt expansion with chained String.replace calls, as produceFiles used to do, against a
+ * compiled {@link PromptTemplate}. Run with {@code ./gradlew jmh -PjmhIncludes=PromptTemplateBenchmark};
+ * the gc profiler reports bytes allocated per expansion (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PromptTemplateBenchmark {
+
+  private static final String RESUME_LINE =
+      "Led a team of six engineers migrating order processing to Spring Boot, cutting latency by 40%.";
+  private static final String JOB_LINE =
+      "You will design, build and operate REST services in Java on Kubernetes with PostgreSQL and Kafka.";
+
+  /** Resume and job description size together, in characters. */
+  @Param({"20000", "50000"})
+  private int inputSize;
+
+  private String template;
+  private Map<String, String> values;
+
+  @Setup
+  public void setUp() throws IOException {
+    try (InputStream in = PromptTemplateBenchmark.class.getResourceAsStream("/prompts/RESUME.md")) {
+      template = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+    values = new LinkedHashMap<>();
+    values.put("resume_string", repeat(RESUME_LINE, inputSize * 2 / 5));
+    values.put("job_description", repeat(JOB_LINE, inputSize * 3 / 5));
+    values.put("job_title", "Senior Software Engineer");
+    values.put("today", "May 01, 2025");
+    values.put("company", "Acme Corporation");
+    values.put("interviewer_name", "Jane Smith");
+  }
+
+  // Lines joined the way Utility.convertLineEndings stores them
+  private static String repeat(String line, int length) {
+    StringBuilder text = new StringBuilder(length + line.length());
+    while (text.length() < length) {
+      text.append(line).append("\\n ");
+    }
+    return text.toString();
+  }
+
+  @Benchmark
+  public String chainedReplace() {
+    String prompt = template;
+    for (Map.Entry<String, String> value : values.entrySet()) {
+      prompt = prompt.replace("{" + value.getKey() + "}", value.getValue());
+    }
+    return prompt;
+  }
+
+  @Benchmark
+  public String compiledExpand() {
+    return PromptTemplate.of(template).expand(values);
+  }
+
+  @Benchmark
+  public String compileAndExpand() {
+    return PromptTemplate.compile(template).expand(values);
+  }
+}
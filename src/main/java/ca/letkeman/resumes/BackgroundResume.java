@@ -2,6 +2,7 @@ package ca.letkeman.resumes;
 
 import ca.letkeman.resumes.model.Optimize;
 import ca.letkeman.resumes.optimizer.ApiService;
+import ca.letkeman.resumes.optimizer.GenerationListener;
 import com.google.gson.Gson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,15 +16,7 @@ public final class BackgroundResume implements Runnable {
   public Optimize getOptimize() {
     // Return defensive copy to prevent external mutation
     if (optimize != null) {
-      return new Optimize(
-          optimize.getPromptType().clone(),
-          optimize.getTemperature(),
-          optimize.getModel(),
-          optimize.getResume(),
-          optimize.getJobDescription(),
-          optimize.getJobTitle(),
-          optimize.getCompany()
-      );
+      return new Optimize(optimize);
     }
     return null;
   }
@@ -32,19 +25,35 @@ public final class BackgroundResume implements Runnable {
   private String apikey;
   private String model;
   private String root;
+  private GenerationListener listener = GenerationListener.NONE;
+  private ApiService apiService;
+
+  public ApiService getApiService() {
+    return apiService;
+  }
+
+  /**
+   * Use the Spring managed ApiService so its configuration (mock mode, streaming) applies.
+   * When not set, a plain instance is created for each run.
+   *
+   * @param apiService the service that calls the LLM
+   */
+  public void setApiService(ApiService apiService) {
+    this.apiService = apiService;
+  }
+
+  public GenerationListener getListener() {
+    return listener;
+  }
+
+  public void setListener(GenerationListener listener) {
+    this.listener = listener != null ? listener : GenerationListener.NONE;
+  }
 
   public void setOptimize(Optimize optimize) {
     // Defensive copy to prevent external mutation
     if (optimize != null) {
-      this.optimize = new Optimize(
-          optimize.getPromptType().clone(),
-          optimize.getTemperature(),
-          optimize.getModel(),
-          optimize.getResume(),
-          optimize.getJobDescription(),
-          optimize.getJobTitle(),
-          optimize.getCompany()
-      );
+      this.optimize = new Optimize(optimize);
     } else {
       this.optimize = null;
     }
@@ -64,15 +73,7 @@ public final class BackgroundResume implements Runnable {
     Config c = new Gson().fromJson(configStr, Config.class);
     // Defensive copy to prevent external mutation
     if (optimize != null) {
-      this.optimize = new Optimize(
-          optimize.getPromptType().clone(),
-          optimize.getTemperature(),
-          optimize.getModel(),
-          optimize.getResume(),
-          optimize.getJobDescription(),
-          optimize.getJobTitle(),
-          optimize.getCompany()
-      );
+      this.optimize = new Optimize(optimize);
     } else {
       this.optimize = null;
     }
@@ -94,8 +95,13 @@ public final class BackgroundResume implements Runnable {
 
   @Override
   public void run() {
-    ApiService apiService = new ApiService();
-    apiService.produceFiles(optimize, endpoint, apikey, model, root);
+    listener.onJobStarted();
+    try {
+      ApiService service = apiService != null ? apiService : new ApiService();
+      service.produceFiles(optimize, endpoint, apikey, model, root, listener);
+    } finally {
+      listener.onJobFinished();
+    }
     logger.info("all done");
   }
 }
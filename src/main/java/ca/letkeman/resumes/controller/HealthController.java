@@ -1,5 +1,6 @@
 package ca.letkeman.resumes.controller;
 
+import ca.letkeman.resumes.service.MetricsSource;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -9,6 +10,8 @@ import java.sql.DriverManager;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,6 +20,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -49,6 +53,17 @@ public final class HealthController {
   @Value("${upload.path:./uploads}")
   private String uploadPath;
 
+  private final Map<String, MetricsSource> metricsSources = new LinkedHashMap<>();
+
+  /**
+   * Create the controller.
+   *
+   * @param metricsSources every component reporting metrics, keyed by their path below /api/health
+   */
+  public HealthController(List<MetricsSource> metricsSources) {
+    metricsSources.forEach(source -> this.metricsSources.put(source.getMetricsPath(), source));
+  }
+
   /**
    * Overall system health check.
    * Returns the status of all components.
@@ -74,6 +89,9 @@ public final class HealthController {
     Map<String, Object> diskHealth = checkDiskSpace();
     health.put("disk", diskHealth);
 
+    // Report generation queue depth, LLM client state, renderer pool and batch conversion
+    metricsSources.values().forEach(source -> health.put(source.getMetricsName(), source.getMetrics()));
+
     // Set overall status based on critical components
     String overallStatus = "UP";
     if ("DOWN".equals(dbHealth.get("status"))) {
@@ -134,6 +152,23 @@ public final class HealthController {
     return ResponseEntity.status(statusCode).body(diskHealth);
   }
 
+  /**
+   * Metrics of one component: generation (executor queue and workers), cache (LLM responses),
+   * endpoints, circuits, hedging, concurrency, tokens (token budgets), tokenizer, pdf (renderer
+   * pool) or batch (batch conversion).
+   *
+   * @param path the component's path
+   * @return JSON with the component's metrics, or 404 for an unknown path
+   */
+  @GetMapping("/{path}")
+  public ResponseEntity<Map<String, Object>> checkMetricsEndpoint(@PathVariable String path) {
+    MetricsSource source = metricsSources.get(path);
+    if (source == null) {
+      return ResponseEntity.notFound().build();
+    }
+    return ResponseEntity.status(HttpStatus.OK).body(source.getMetrics());
+  }
+
   /**
    * Internal method to check database connectivity.
    *
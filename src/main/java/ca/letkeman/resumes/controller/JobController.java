@@ -0,0 +1,84 @@
+package ca.letkeman.resumes.controller;
+
+import ca.letkeman.resumes.model.GenerationJob;
+import ca.letkeman.resumes.service.JobEventPublisher;
+import ca.letkeman.resumes.service.JobRegistry;
+import java.util.List;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Status endpoints for background generation jobs.
+ * Lets clients follow a submission by job ID instead of polling the file listing.
+ */
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:5173", "http://localhost:80",
+    "http://127.0.0.1:3000", "http://127.0.0.1:5173", "http://127.0.0.1:80"},
+    allowCredentials = "true",
+    maxAge = 3600)
+@RestController
+@RequestMapping("/api/jobs")
+public final class JobController {
+
+  private final JobRegistry jobRegistry;
+
+  private final JobEventPublisher jobEventPublisher;
+
+  public JobController(JobRegistry jobRegistry, JobEventPublisher jobEventPublisher) {
+    this.jobRegistry = jobRegistry;
+    this.jobEventPublisher = jobEventPublisher;
+  }
+
+  /**
+   * List tracked jobs, newest first.
+   *
+   * @return JSON array of jobs
+   */
+  @GetMapping
+  public ResponseEntity<List<GenerationJob>> listJobs() {
+    return ResponseEntity.status(HttpStatus.OK).body(jobRegistry.list());
+  }
+
+  /**
+   * Get the state, per prompt type progress, output files and timings of a job.
+   *
+   * @param id the job ID returned on submission
+   * @return JSON with the job, or 404 if unknown or expired
+   */
+  @GetMapping("/{id}")
+  public ResponseEntity<GenerationJob> getJob(@PathVariable(name = "id") String id) {
+    return jobRegistry.find(id)
+        .map(job -> ResponseEntity.status(HttpStatus.OK).body(job))
+        .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+  }
+
+  /**
+   * Stream progress events for a job as Server-Sent Events.
+   * The first event is a snapshot of the job; the stream completes when the job finishes.
+   *
+   * @param id the job ID returned on submission
+   * @return event stream, or 404 if the job is unknown or expired
+   */
+  @GetMapping(path = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public ResponseEntity<SseEmitter> jobEvents(@PathVariable(name = "id") String id) {
+    return jobRegistry.find(id)
+        .map(job -> ResponseEntity.status(HttpStatus.OK).body(jobEventPublisher.subscribe(job)))
+        .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+  }
+
+  /**
+   * Stream progress events for every job as Server-Sent Events.
+   *
+   * @return event stream that stays open until the client disconnects or it times out
+   */
+  @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter allJobEvents() {
+    return jobEventPublisher.subscribeAll();
+  }
+}
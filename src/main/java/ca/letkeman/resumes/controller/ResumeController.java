@@ -4,13 +4,25 @@ import ca.letkeman.resumes.BackgroundResume;
 import ca.letkeman.resumes.Utility;
 import ca.letkeman.resumes.message.ResponseMessage;
 import ca.letkeman.resumes.model.FileInfo;
+import ca.letkeman.resumes.model.GenerationJob;
 import ca.letkeman.resumes.model.Optimize;
+import ca.letkeman.resumes.optimizer.ApiService;
+import ca.letkeman.resumes.optimizer.DocumentFormat;
+import ca.letkeman.resumes.optimizer.GenerationListener;
 import ca.letkeman.resumes.optimizer.HtmlToPdf;
+import ca.letkeman.resumes.optimizer.MarkdownDocument;
 import ca.letkeman.resumes.optimizer.MarkdownToDocx;
+import ca.letkeman.resumes.service.BatchConversionService;
 import ca.letkeman.resumes.service.FilesStorageService;
+import ca.letkeman.resumes.service.GenerationExecutor;
+import ca.letkeman.resumes.service.JobEventPublisher;
+import ca.letkeman.resumes.service.JobRegistry;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
@@ -18,24 +30,32 @@ import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import org.commonmark.node.Node;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.method.annotation.MvcUriComponentsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:5173", "http://localhost:80",
     "http://127.0.0.1:3000", "http://127.0.0.1:5173", "http://127.0.0.1:80"},
@@ -51,15 +71,35 @@ public final class ResumeController {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ResumeController.class);
 
+  // The sample resume renders to about 9 KB of PDF and 7 KB of DOCX
+  private static final int CONVERTED_BUFFER_SIZE = 16 * 1024;
+
   private final FilesStorageService storageService;
 
+  private final GenerationExecutor generationExecutor;
+
+  private final JobRegistry jobRegistry;
+
+  private final JobEventPublisher jobEventPublisher;
+
+  private final ApiService apiService;
+
+  private final BatchConversionService batchConversionService;
+
   @Value("${upload.path}")
   private String root;
 
 
   @SuppressWarnings("EI_EXPOSE_REP2")
-  public ResumeController(FilesStorageService storageService) {
+  public ResumeController(FilesStorageService storageService, GenerationExecutor generationExecutor,
+      JobRegistry jobRegistry, JobEventPublisher jobEventPublisher, ApiService apiService,
+      BatchConversionService batchConversionService) {
     this.storageService = storageService;
+    this.generationExecutor = generationExecutor;
+    this.jobRegistry = jobRegistry;
+    this.jobEventPublisher = jobEventPublisher;
+    this.apiService = apiService;
+    this.batchConversionService = batchConversionService;
   }
 
   @PostMapping(path = "/markdownFile2PDF")
@@ -118,6 +158,122 @@ public final class ResumeController {
     }
   }
 
+  @PostMapping(path = "/markdown2PDF", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+  public ResponseEntity<Object> markdown2PDF(@RequestParam(name = "file", required = false) MultipartFile file) {
+    return convertUpload(file, DocumentFormat.PDF);
+  }
+
+  @PostMapping(path = "/markdown2PDF", consumes = {"text/markdown", MediaType.TEXT_PLAIN_VALUE})
+  public ResponseEntity<Object> markdownBody2PDF(@RequestBody(required = false) byte[] markdown,
+      @RequestParam(name = "filename", required = false) String filename) {
+    return convert(markdown, filename, DocumentFormat.PDF);
+  }
+
+  @PostMapping(path = "/markdown2DOCX", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+  public ResponseEntity<Object> markdown2DOCX(@RequestParam(name = "file", required = false) MultipartFile file) {
+    return convertUpload(file, DocumentFormat.DOCX);
+  }
+
+  @PostMapping(path = "/markdown2DOCX", consumes = {"text/markdown", MediaType.TEXT_PLAIN_VALUE})
+  public ResponseEntity<Object> markdownBody2DOCX(@RequestBody(required = false) byte[] markdown,
+      @RequestParam(name = "filename", required = false) String filename) {
+    return convert(markdown, filename, DocumentFormat.DOCX);
+  }
+
+  private ResponseEntity<Object> convertUpload(MultipartFile file, DocumentFormat format) {
+    if (file == null || file.isEmpty()) {
+      return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ResponseMessage("No file/invalid file provided"));
+    }
+    try {
+      return convert(file.getBytes(), file.getOriginalFilename(), format);
+    } catch (IOException e) {
+      LOGGER.error("Could not read the upload: {}. Error:\n{}", file.getOriginalFilename(), e.getMessage());
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(new ResponseMessage("problem with conversion"));
+    }
+  }
+
+  // Renders into memory first so a failed conversion can still answer with an error and the
+  // response carries its Content-Length; nothing touches the upload directory
+  private static ResponseEntity<Object> convert(byte[] markdown, String source, DocumentFormat format) {
+    if (markdown == null || markdown.length == 0) {
+      return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ResponseMessage("No file/invalid file provided"));
+    }
+    String filename = format.fileName(source);
+    try {
+      Node document = MarkdownDocument.parse(new String(markdown, StandardCharsets.UTF_8));
+      ByteArrayOutputStream out = new ByteArrayOutputStream(CONVERTED_BUFFER_SIZE);
+      format.write(document, out);
+      return ResponseEntity.ok()
+          .contentType(MediaType.parseMediaType(format.getMediaType()))
+          .contentLength(out.size())
+          .header(HttpHeaders.CONTENT_DISPOSITION, attachment(filename))
+          .body(out.toByteArray());
+    } catch (Exception e) {
+      LOGGER.error("Could not convert {}. Error:\n{}", filename, e.toString());
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(new ResponseMessage("problem with conversion"));
+    }
+  }
+
+  /**
+   * Convert many markdown files, or zips of them, in one request. The converted documents are
+   * streamed back as a zip, in the order they were sent, with a conversion-report.json listing
+   * what happened to each file.
+   *
+   * @param files markdown files and/or zip archives of markdown files
+   * @param format "pdf", "docx" or "both"
+   * @return the zip stream, or a message when the request itself is invalid
+   */
+  @PostMapping(path = "/markdownBatch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+  public ResponseEntity<StreamingResponseBody> markdownBatch(
+      @RequestParam(name = "files", required = false) List<MultipartFile> files,
+      @RequestParam(name = "format", defaultValue = "pdf") String format) {
+    Set<DocumentFormat> formats;
+    try {
+      formats = "both".equalsIgnoreCase(format.trim())
+          ? EnumSet.allOf(DocumentFormat.class)
+          : EnumSet.of(DocumentFormat.of(format));
+    } catch (IllegalArgumentException e) {
+      return messageStream(HttpStatus.BAD_REQUEST, "format must be pdf, docx or both");
+    }
+    List<BatchConversionService.Source> sources;
+    try {
+      sources = batchConversionService.read(files == null ? List.of() : files);
+    } catch (IllegalArgumentException e) {
+      return messageStream(HttpStatus.BAD_REQUEST, e.getMessage());
+    } catch (IOException e) {
+      LOGGER.error("Could not read the batch upload. Error:\n{}", e.getMessage());
+      return messageStream(HttpStatus.BAD_REQUEST, "unable to read the uploaded files");
+    }
+    if (sources.isEmpty()) {
+      return messageStream(HttpStatus.BAD_REQUEST, "No file/invalid file provided");
+    }
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType("application/zip"))
+        .header(HttpHeaders.CONTENT_DISPOSITION, attachment("converted.zip"))
+        .body(out -> batchConversionService.convert(sources, formats, out));
+  }
+
+  // The batch endpoint returns a stream, so its errors are the usual ResponseMessage JSON written as one
+  private static ResponseEntity<StreamingResponseBody> messageStream(HttpStatus status, String message) {
+    byte[] json = new Gson().toJson(new ResponseMessage(message)).getBytes(StandardCharsets.UTF_8);
+    return ResponseEntity.status(status)
+        .contentType(MediaType.APPLICATION_JSON)
+        .contentLength(json.length)
+        .body(out -> out.write(json));
+  }
+
+  private static String attachment(String filename) {
+    ContentDisposition.Builder disposition = ContentDisposition.attachment();
+    if (StandardCharsets.US_ASCII.newEncoder().canEncode(filename)) {
+      disposition.filename(filename);
+    } else {
+      disposition.filename(filename, StandardCharsets.UTF_8);
+    }
+    return disposition.build().toString();
+  }
+
   @PostMapping(path = "/process/cover-letter")
   public ResponseEntity<ResponseMessage> processCoverLetter(
       @RequestParam(name = "coverLetter", required = false) MultipartFile coverLetter,
@@ -180,9 +336,7 @@ public final class ResumeController {
     LOGGER.debug("optimize: {}", optimize);
     if (optimize.isValid()) {
       // start background task here
-      Thread thread = new Thread(new BackgroundResume(optimize,  root));
-      thread.start();
-      return ResponseEntity.status(HttpStatus.OK).body(new ResponseMessage("generating"));
+      return submitGeneration(optimize, HttpStatus.OK, "generating");
     } else {
       LOGGER.warn("Validation failed");
       return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED)
@@ -219,10 +373,7 @@ public final class ResumeController {
 
     if (optimize.getJobDescription() != null && !optimize.getJobDescription().isBlank()) {
       try {
-        BackgroundResume bg = new BackgroundResume(optimize, root);
-        Thread t = new Thread(bg);
-        t.start();
-        return ResponseEntity.status(HttpStatus.OK).body(new ResponseMessage("Skills suggestion generation started"));
+        return submitGeneration(optimize, HttpStatus.OK, "Skills suggestion generation started");
       } catch (Exception e) {
         LOGGER.error("Error processing skills: {}", e.getMessage());
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -382,9 +533,7 @@ public final class ResumeController {
 
     if (optimize.isValid()) {
       // Start background task
-      Thread thread = new Thread(new BackgroundResume(optimize, root));
-      thread.start();
-      return ResponseEntity.status(HttpStatus.ACCEPTED).body(new ResponseMessage("generating"));
+      return submitGeneration(optimize, HttpStatus.ACCEPTED, "generating");
     } else {
       LOGGER.warn("Validation failed for prompt type: {}", promptType);
       return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED)
@@ -392,4 +541,44 @@ public final class ResumeController {
     }
   }
 
+  /**
+   * Queue a background generation on the bounded generation executor.
+   * Identical requests submitted while a matching job is running share that job.
+   * The response carries a job ID that can be polled at /api/jobs/{id}
+   * or followed as a Server-Sent Events stream at /api/jobs/{id}/events.
+   * When the queue is full the client is told to back off via Retry-After.
+   *
+   * @param optimize the validated request
+   * @param status status to return when the generation was queued
+   * @param message message to return when the generation was queued
+   * @return the response for the client
+   */
+  private ResponseEntity<ResponseMessage> submitGeneration(Optimize optimize, HttpStatus status, String message) {
+    JobRegistry.Submission submission = jobRegistry.submit(optimize);
+    GenerationJob job = submission.job();
+    if (submission.attached()) {
+      // Same payload is already generating; the client follows the existing job
+      return ResponseEntity.status(status).body(new ResponseMessage(message, job.getId()));
+    }
+    // Registry first so published events carry the updated job state
+    GenerationListener listener = GenerationListener.of(jobRegistry.listenerFor(job),
+        jobEventPublisher.listenerFor(job));
+    try {
+      BackgroundResume task = new BackgroundResume(optimize, root);
+      task.setApiService(apiService);
+      task.setListener(listener);
+      generationExecutor.submit(task);
+      return ResponseEntity.status(status).body(new ResponseMessage(message, job.getId()));
+    } catch (RejectedExecutionException e) {
+      // Identical submissions may already follow this job, so it fails like a generation would:
+      // their polls and event streams see it finish, and the next identical request gets a new job
+      job.getPromptTypes().forEach(promptType -> listener.onPromptFailed(promptType, "generation queue is full"));
+      listener.onJobFinished();
+      LOGGER.warn("Generation rejected: {}", e.getMessage());
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+          .header(HttpHeaders.RETRY_AFTER, String.valueOf(generationExecutor.getRetryAfterSeconds()))
+          .body(new ResponseMessage("generation queue is full, please retry later"));
+    }
+  }
+
 }
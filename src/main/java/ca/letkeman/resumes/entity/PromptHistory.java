@@ -72,6 +72,9 @@ public class PromptHistory {
   @Column(name = "token_usage_estimate")
   private Integer tokenUsageEstimate;
 
+  @Column(name = "prompt_version")
+  private String promptVersion;
+
   @Column(name = "status")
   private String status;
 
@@ -235,6 +238,14 @@ public class PromptHistory {
     this.tokenUsageEstimate = tokenUsageEstimate;
   }
 
+  public String getPromptVersion() {
+    return promptVersion;
+  }
+
+  public void setPromptVersion(String promptVersion) {
+    this.promptVersion = promptVersion;
+  }
+
   public String getStatus() {
     return status;
   }
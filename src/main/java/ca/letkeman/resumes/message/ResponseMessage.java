@@ -1,12 +1,21 @@
 package ca.letkeman.resumes.message;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public final class ResponseMessage {
   private String message;
+  private String jobId;
 
   public ResponseMessage(String message) {
     this.message = message;
   }
 
+  public ResponseMessage(String message, String jobId) {
+    this.message = message;
+    this.jobId = jobId;
+  }
+
   public String getMessage() {
     return message;
   }
@@ -15,4 +24,12 @@ public final class ResponseMessage {
     this.message = message;
   }
 
+  public String getJobId() {
+    return jobId;
+  }
+
+  public void setJobId(String jobId) {
+    this.jobId = jobId;
+  }
+
 }
@@ -0,0 +1,184 @@
+package ca.letkeman.resumes.model;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * State of a background generation submitted through the API.
+ * Updated by the generation worker and read by the job status endpoint.
+ */
+public final class GenerationJob {
+
+  public enum State {
+    QUEUED, RUNNING, COMPLETED, FAILED
+  }
+
+  private final String id;
+  private final String company;
+  private final String jobTitle;
+  private final List<String> promptTypes;
+  private final Instant submittedAt;
+  private final Map<String, PromptProgress> progress = new ConcurrentHashMap<>();
+  private final List<String> outputFiles = new CopyOnWriteArrayList<>();
+  private volatile State state = State.QUEUED;
+  private volatile Instant startedAt;
+  private volatile Instant finishedAt;
+
+  public GenerationJob(String id, Optimize optimize) {
+    this.id = id;
+    this.company = optimize.getCompany();
+    this.jobTitle = optimize.getJobTitle();
+    this.promptTypes = List.of(optimize.getPromptType());
+    this.submittedAt = Instant.now();
+    for (String promptType : promptTypes) {
+      progress.put(promptType, new PromptProgress(promptType));
+    }
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getCompany() {
+    return company;
+  }
+
+  public String getJobTitle() {
+    return jobTitle;
+  }
+
+  public List<String> getPromptTypes() {
+    return promptTypes;
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  public Instant getSubmittedAt() {
+    return submittedAt;
+  }
+
+  public Instant getStartedAt() {
+    return startedAt;
+  }
+
+  public Instant getFinishedAt() {
+    return finishedAt;
+  }
+
+  /**
+   * Per prompt type progress, in submission order.
+   *
+   * @return map of prompt type to progress
+   */
+  public Map<String, PromptProgress> getProgress() {
+    Map<String, PromptProgress> ordered = new LinkedHashMap<>();
+    for (String promptType : promptTypes) {
+      ordered.put(promptType, progress.get(promptType));
+    }
+    progress.forEach(ordered::putIfAbsent);
+    return ordered;
+  }
+
+  public List<String> getOutputFiles() {
+    return new ArrayList<>(outputFiles);
+  }
+
+  /**
+   * Time the job waited for a generation worker.
+   *
+   * @return milliseconds spent queued
+   */
+  public long getQueueWaitMs() {
+    Instant start = startedAt != null ? startedAt : Instant.now();
+    return Duration.between(submittedAt, start).toMillis();
+  }
+
+  /**
+   * Time the job has spent running.
+   *
+   * @return milliseconds spent running, or null if not started
+   */
+  public Long getDurationMs() {
+    Instant start = startedAt;
+    if (start == null) {
+      return null;
+    }
+    Instant end = finishedAt != null ? finishedAt : Instant.now();
+    return Duration.between(start, end).toMillis();
+  }
+
+  /**
+   * Whether the job has reached a terminal state.
+   *
+   * @return true if completed or failed
+   */
+  public boolean isFinished() {
+    return state == State.COMPLETED || state == State.FAILED;
+  }
+
+  public void markRunning() {
+    startedAt = Instant.now();
+    state = State.RUNNING;
+  }
+
+  /**
+   * Move the job to its terminal state based on the outcome of each prompt type.
+   */
+  public void markFinished() {
+    finishedAt = Instant.now();
+    boolean allCompleted = progress.values().stream()
+        .allMatch(p -> p.getStage() == PromptProgress.Stage.COMPLETED);
+    state = allCompleted ? State.COMPLETED : State.FAILED;
+  }
+
+  public void promptStarted(String promptType) {
+    PromptProgress p = progressFor(promptType);
+    p.setStartedAt(Instant.now());
+    p.setStage(PromptProgress.Stage.CALLING_LLM);
+  }
+
+  public void llmResponseReceived(String promptType, long elapsedMillis) {
+    PromptProgress p = progressFor(promptType);
+    p.setLlmResponseTimeMs(elapsedMillis);
+    p.setStage(PromptProgress.Stage.RENDERING);
+  }
+
+  public void fileWritten(String promptType, String fileName) {
+    progressFor(promptType).addFile(fileName);
+    outputFiles.add(fileName);
+  }
+
+  public void promptCompleted(String promptType) {
+    PromptProgress p = progressFor(promptType);
+    p.setFinishedAt(Instant.now());
+    p.setStage(PromptProgress.Stage.COMPLETED);
+  }
+
+  public void promptFailed(String promptType, String reason) {
+    PromptProgress p = progressFor(promptType);
+    p.setFinishedAt(Instant.now());
+    p.setError(reason);
+    p.setStage(PromptProgress.Stage.FAILED);
+  }
+
+  private PromptProgress progressFor(String promptType) {
+    return progress.computeIfAbsent(promptType, PromptProgress::new);
+  }
+
+  @Override
+  public String toString() {
+    return "GenerationJob{"
+        + "id='" + id + '\''
+        + ", promptTypes=" + promptTypes
+        + ", state=" + state
+        + '}';
+  }
+}
@@ -0,0 +1,20 @@
+package ca.letkeman.resumes.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.time.Instant;
+
+/**
+ * Progress event pushed to clients subscribed to a generation job.
+ *
+ * @param jobId the job the event belongs to
+ * @param type event name, e.g. "llm-request-started" or "pdf-ready"
+ * @param promptType the prompt type the event refers to, if any
+ * @param fileName output file name for file events
+ * @param detail extra information such as a failure reason or timing
+ * @param state the job state when the event was emitted
+ * @param timestamp when the event happened
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record JobEvent(String jobId, String type, String promptType, String fileName, String detail,
+    GenerationJob.State state, Instant timestamp) {
+}
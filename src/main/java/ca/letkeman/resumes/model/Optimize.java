@@ -24,6 +24,8 @@ public final class Optimize {
   @SerializedName("company")
   String company_name;
   String interviewerName;
+  // Skip the LLM response cache for this request; not part of equals/hashCode
+  boolean bypassCache;
 
   public  Optimize(String[] promptType, double temperature, String model, String resume_string, String jobDescription,
       String jobTitle, String company_name) {
@@ -40,6 +42,18 @@ public final class Optimize {
   public Optimize() {
   }
 
+  /**
+   * Copy every field of another request.
+   *
+   * @param other the request to copy
+   */
+  public Optimize(Optimize other) {
+    this(other.getPromptType(), other.getTemperature(), other.getModel(), other.getResume(),
+        other.getJobDescription(), other.getJobTitle(), other.getCompany());
+    this.interviewerName = other.getInterviewerName();
+    this.bypassCache = other.isBypassCache();
+  }
+
   public String[] getPromptType() {
     return promptType != null ? promptType.clone() : new String[]{"Resume"};
   }
@@ -104,6 +118,14 @@ public final class Optimize {
     this.interviewerName = interviewerName;
   }
 
+  public boolean isBypassCache() {
+    return bypassCache;
+  }
+
+  public void setBypassCache(boolean bypassCache) {
+    this.bypassCache = bypassCache;
+  }
+
   @Override
   public String toString() {
     final StringBuilder sb = new StringBuilder("Optimize{");
@@ -0,0 +1,95 @@
+package ca.letkeman.resumes.model;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Progress of a single prompt type within a generation job.
+ */
+public final class PromptProgress {
+
+  public enum Stage {
+    QUEUED, CALLING_LLM, RENDERING, COMPLETED, FAILED
+  }
+
+  private final String promptType;
+  private volatile Stage stage = Stage.QUEUED;
+  private volatile Instant startedAt;
+  private volatile Instant finishedAt;
+  private volatile Long llmResponseTimeMs;
+  private volatile String error;
+  private final List<String> files = new CopyOnWriteArrayList<>();
+
+  public PromptProgress(String promptType) {
+    this.promptType = promptType;
+  }
+
+  public String getPromptType() {
+    return promptType;
+  }
+
+  public Stage getStage() {
+    return stage;
+  }
+
+  public void setStage(Stage stage) {
+    this.stage = stage;
+  }
+
+  public Instant getStartedAt() {
+    return startedAt;
+  }
+
+  public void setStartedAt(Instant startedAt) {
+    this.startedAt = startedAt;
+  }
+
+  public Instant getFinishedAt() {
+    return finishedAt;
+  }
+
+  public void setFinishedAt(Instant finishedAt) {
+    this.finishedAt = finishedAt;
+  }
+
+  public Long getLlmResponseTimeMs() {
+    return llmResponseTimeMs;
+  }
+
+  public void setLlmResponseTimeMs(Long llmResponseTimeMs) {
+    this.llmResponseTimeMs = llmResponseTimeMs;
+  }
+
+  public String getError() {
+    return error;
+  }
+
+  public void setError(String error) {
+    this.error = error;
+  }
+
+  public List<String> getFiles() {
+    return new ArrayList<>(files);
+  }
+
+  public void addFile(String fileName) {
+    files.add(fileName);
+  }
+
+  /**
+   * Wall-clock time spent on this prompt type so far.
+   *
+   * @return elapsed milliseconds, or null if not started
+   */
+  public Long getDurationMs() {
+    Instant start = startedAt;
+    if (start == null) {
+      return null;
+    }
+    Instant end = finishedAt != null ? finishedAt : Instant.now();
+    return Duration.between(start, end).toMillis();
+  }
+}
@@ -3,17 +3,21 @@ package ca.letkeman.resumes.optimizer;
 import ca.letkeman.resumes.model.Optimize;
 import ca.letkeman.resumes.optimizer.responses.Choice;
 import ca.letkeman.resumes.optimizer.responses.LLMResponse;
+import ca.letkeman.resumes.service.LlmCircuitBreaker;
+import ca.letkeman.resumes.service.LlmConcurrencyLimiter;
+import ca.letkeman.resumes.service.LlmEndpointPool;
+import ca.letkeman.resumes.service.LlmHedgingPolicy;
+import ca.letkeman.resumes.service.LlmResponseCache;
+import ca.letkeman.resumes.service.LlmRetryPolicy;
+import ca.letkeman.resumes.service.LlmTokenBudget;
 import ca.letkeman.resumes.service.MockLlmService;
 import ca.letkeman.resumes.service.PromptService;
+import ca.letkeman.resumes.service.PromptTemplate;
+import ca.letkeman.resumes.service.TokenCounter;
 import com.google.gson.Gson;
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -21,7 +25,24 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import org.commonmark.node.Node;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,6 +53,16 @@ import org.springframework.stereotype.Component;
 public final class ApiService {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ApiService.class);
+  private static final Gson GSON = new Gson();
+  private static final ThreadFactory PIPELINE_THREADS =
+      Thread.ofPlatform().name("prompt-pipeline-", 1).daemon(true).factory();
+  private static final ThreadFactory VIRTUAL_PIPELINE_THREADS =
+      Thread.ofVirtual().name("prompt-pipeline-", 1).factory();
+  // Hedged calls race on virtual threads (the loser is interrupted, which aborts its exchange)
+  private static final ExecutorService LLM_CALL_EXECUTOR =
+      Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("llm-call-", 1).factory());
+  // The fitted inputs are left out when measuring what a template costs on its own
+  private static final Map<String, String> WITHOUT_INPUTS = Map.of("resume_string", "", "job_description", "");
 
   @Autowired(required = false)
   private PromptService promptService;
@@ -39,9 +70,64 @@ public final class ApiService {
   @Autowired(required = false)
   private MockLlmService mockLlmService;
 
+  @Autowired(required = false)
+  private LlmTransport transport;
+
+  // Only present when managed by Spring; plain instances never cache
+  @Autowired(required = false)
+  private LlmResponseCache responseCache;
+
+  // When it has endpoints, calls are routed across them instead of the endpoint passed in
+  @Autowired(required = false)
+  private LlmEndpointPool endpointPool;
+
+  // Plain instances make a single attempt and never fail fast
+  @Autowired(required = false)
+  private LlmRetryPolicy retryPolicy;
+
+  @Autowired(required = false)
+  private LlmCircuitBreaker circuitBreaker;
+
+  @Autowired(required = false)
+  private LlmHedgingPolicy hedgingPolicy;
+
+  @Autowired(required = false)
+  private LlmConcurrencyLimiter concurrencyLimiter;
+
+  @Autowired(required = false)
+  private LlmTokenBudget tokenBudget;
+
+  @Autowired(required = false)
+  private TokenCounter tokenCounter;
+
   @Value("${llm.mock.enabled:false}")
   private boolean mockEnabled;
 
+  @Value("${llm.streaming.enabled:false}")
+  private boolean streamingEnabled;
+
+  // Prompt types of one request generated concurrently; instances created outside Spring stay sequential
+  @Value("${generation.prompt-parallelism:2}")
+  private int promptParallelism = 1;
+
+  @Value("${spring.threads.virtual.enabled:false}")
+  private boolean virtualThreads;
+
+  @Value("${llm.prompt-layout.mode:inline}")
+  private String promptLayout = "inline";
+
+  @Value("${llm.prompt-layout.keep-alive:}")
+  private String keepAlive = "";
+
+  @Value("${llm.prompt-layout.cache-prompt:false}")
+  private boolean cachePrompt;
+
+  @Value("${llm.context-fit.enabled:true}")
+  private boolean contextFitEnabled = true;
+
+  @Value("${llm.context-fit.reserved-completion-tokens:1024}")
+  private int reservedCompletionTokens = 1024;
+
   private String jobDescription;
   private String resume;
 
@@ -87,6 +173,100 @@ public final class ApiService {
     return mockLlmService;
   }
 
+  /**
+   * Transport used to reach the LLM; falls back to the shared HttpClient transport
+   * when ApiService is created outside Spring.
+   *
+   * @return the LlmTransport instance
+   */
+  private LlmTransport getTransport() {
+    if (transport == null) {
+      transport = HttpClientLlmTransport.shared();
+    }
+    return transport;
+  }
+
+  /**
+   * Replace the transport, e.g. to route requests through a different client.
+   *
+   * @param transport the transport to use
+   */
+  public void setTransport(LlmTransport transport) {
+    this.transport = transport;
+  }
+
+  /**
+   * Use a response cache for LLM completions.
+   *
+   * @param responseCache the cache, or null to always call the LLM
+   */
+  public void setResponseCache(LlmResponseCache responseCache) {
+    this.responseCache = responseCache;
+  }
+
+  /**
+   * Route LLM calls across a pool of endpoints.
+   *
+   * @param endpointPool the pool, or null to use the endpoint given to each call
+   */
+  public void setEndpointPool(LlmEndpointPool endpointPool) {
+    this.endpointPool = endpointPool;
+  }
+
+  /**
+   * Retry failed LLM calls.
+   *
+   * @param retryPolicy the policy, or null to make a single attempt
+   */
+  public void setRetryPolicy(LlmRetryPolicy retryPolicy) {
+    this.retryPolicy = retryPolicy;
+  }
+
+  /**
+   * Fail fast on endpoints that keep failing.
+   *
+   * @param circuitBreaker the circuit breaker, or null to always send
+   */
+  public void setCircuitBreaker(LlmCircuitBreaker circuitBreaker) {
+    this.circuitBreaker = circuitBreaker;
+  }
+
+  /**
+   * Hedge slow blocking calls with a second request to another pool endpoint.
+   *
+   * @param hedgingPolicy the policy, or null to never hedge
+   */
+  public void setHedgingPolicy(LlmHedgingPolicy hedgingPolicy) {
+    this.hedgingPolicy = hedgingPolicy;
+  }
+
+  /**
+   * Limit concurrent LLM calls per model and per endpoint.
+   *
+   * @param concurrencyLimiter the limiter, or null to never wait for a slot
+   */
+  public void setConcurrencyLimiter(LlmConcurrencyLimiter concurrencyLimiter) {
+    this.concurrencyLimiter = concurrencyLimiter;
+  }
+
+  /**
+   * Budget the tokens sent to each endpoint per minute.
+   *
+   * @param tokenBudget the budget, or null to never wait for tokens
+   */
+  public void setTokenBudget(LlmTokenBudget tokenBudget) {
+    this.tokenBudget = tokenBudget;
+  }
+
+  /**
+   * Count tokens with the model's tokenizer and size completions to the context window.
+   *
+   * @param tokenCounter the counter, or null to estimate tokens and leave completion size to the server
+   */
+  public void setTokenCounter(TokenCounter tokenCounter) {
+    this.tokenCounter = tokenCounter;
+  }
+
   public ApiService() {
     // default constructor
   }
@@ -109,6 +289,60 @@ public final class ApiService {
     this.mockEnabled = enabled;
   }
 
+  /**
+   * Check if streamed (stream=true) completions are requested.
+   *
+   * @return true if streaming is enabled
+   */
+  public boolean isStreamingEnabled() {
+    return streamingEnabled;
+  }
+
+  /**
+   * Set streaming enabled/disabled.
+   *
+   * @param enabled true to consume completions as a token stream
+   */
+  public void setStreamingEnabled(boolean enabled) {
+    this.streamingEnabled = enabled;
+  }
+
+  /**
+   * Maximum number of prompt types of one request generated at the same time.
+   *
+   * @return the per-request parallelism
+   */
+  public int getPromptParallelism() {
+    return promptParallelism;
+  }
+
+  /**
+   * Set how many prompt types of one request are generated at the same time.
+   *
+   * @param promptParallelism 1 to generate them one after another
+   */
+  public void setPromptParallelism(int promptParallelism) {
+    this.promptParallelism = promptParallelism;
+  }
+
+  /**
+   * Set how prompt templates and inputs are assembled, see {@link PromptLayout#of(String)}.
+   *
+   * @param promptLayout "inline" or "shared-prefix"
+   */
+  public void setPromptLayout(String promptLayout) {
+    this.promptLayout = promptLayout;
+  }
+
+  /**
+   * Set whether the resume and job description are shortened to fit the model's context window.
+   *
+   * @param contextFitEnabled false to always send the input as is
+   */
+  public void setContextFitEnabled(boolean contextFitEnabled) {
+    this.contextFitEnabled = contextFitEnabled;
+  }
+
   /***
    *
    * @param chatBody - the object to send to the LLM endpoint
@@ -121,90 +355,375 @@ public final class ApiService {
       return getMockLlmService().generateMockResponse(chatBody);
     }
 
-    String jsonBody = new Gson().toJson(chatBody);
+    String jsonBody = GSON.toJson(chatBody);
     try {
-      URI uri = new URI(endpoint);
-      HttpURLConnection conn = (HttpURLConnection) uri.toURL().openConnection();
-
-      conn.setRequestMethod("POST");
-      conn.setRequestProperty("Authorization", "Basic " + apikey);
-      conn.setRequestProperty("Content-Type", "application/json");
-      conn.setRequestProperty("Accept", "application/json");
       LOGGER.info("Send JSON to LLM Engine");
-      conn.setDoOutput(true);
-
-      attachJSONBody(jsonBody, conn);
-      if (conn.getResponseCode() != java.net.HttpURLConnection.HTTP_OK) {
-        LOGGER.error("Invalid API response. Status code: {}", conn.getResponseCode());
-        try (BufferedReader br = new BufferedReader(
-            new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8))) {
-          StringBuilder errorResponse = new StringBuilder();
-          String line;
-          while ((line = br.readLine()) != null) {
-            errorResponse.append(line);
-          }
-          LOGGER.error("Error response from API: {}", errorResponse.toString());
-        } catch (Exception e) {
-          LOGGER.error("Could not read error response: {}", e.toString());
-        }
+      LlmTransport.Response response =
+          send(endpoint, describe(chatBody), url -> getTransport().post(url, apikey, jsonBody));
+      if (!response.isOk()) {
+        logErrorResponse(response);
       } else {
-        String response = getAPIResponse(conn);
         LOGGER.info("Saving response to object.");
-        return new Gson().fromJson(response, LLMResponse.class);
+        return GSON.fromJson(response.body(), LLMResponse.class);
       }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.error("Interrupted while waiting for the LLM response");
     } catch (Exception e) {
       LOGGER.error(e.toString());
     }
     return null;
   }
 
-  /***
+  /**
+   * Send the chat request with stream=true and consume the completion as it is generated.
+   * Each content delta is handed to onToken as soon as it arrives; the deltas are also
+   * accumulated so the caller gets the same response shape as {@link #invokeApi}.
    *
-   * @param conn - http connection to use
-   * @return - api response
+   * @param chatBody - the object to send to the LLM endpoint
+   * @param endpoint - url to post the prompt to
+   * @param apikey - openai key
+   * @param onToken - receives each content delta
+   * @return - the accumulated result, or null if the request failed
    */
-  private String getAPIResponse(HttpURLConnection conn) {
-    StringBuilder response = new StringBuilder();
-    try (BufferedReader br = new BufferedReader(
-        new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
+  public LLMResponse invokeApiStreaming(ChatBody chatBody, String endpoint, String apikey,
+      Consumer<String> onToken) {
+    if (mockEnabled) {
+      LOGGER.info("Mock mode enabled - returning simulated LLM response as a single chunk");
+      LLMResponse response = getMockLlmService().generateMockResponse(chatBody);
+      List<Choice> choices = response != null ? response.getChoices() : null;
+      if (onToken != null && choices != null && !choices.isEmpty() && choices.get(0).getMessage() != null) {
+        onToken.accept(choices.get(0).getMessage().getContent());
+      }
+      return response;
+    }
 
-      String responseLine;
-      LOGGER.info("Get API Response");
-      while ((responseLine = br.readLine()) != null) {
-        response.append(responseLine.trim());
+    chatBody.setStream(true);
+    String jsonBody = GSON.toJson(chatBody);
+    try {
+      LOGGER.info("Send JSON to LLM Engine (streaming)");
+      // A fresh accumulator per attempt; once tokens reached the caller the call is not retried
+      AtomicReference<StreamAccumulator> current = new AtomicReference<>();
+      AtomicBoolean delivered = new AtomicBoolean();
+      Consumer<String> forward = token -> {
+        delivered.set(true);
+        if (onToken != null) {
+          onToken.accept(token);
+        }
+      };
+      LlmTransport.Response response = send(endpoint, describe(chatBody), url -> {
+        StreamAccumulator attempt = new StreamAccumulator(forward);
+        current.set(attempt);
+        return getTransport().postStreaming(url, apikey, jsonBody, attempt::accept);
+      }, () -> !delivered.get());
+      StreamAccumulator accumulator = current.get();
+      if (!response.isOk()) {
+        logErrorResponse(response);
+        return null;
+      }
+      if (!accumulator.isDone()) {
+        LOGGER.warn("LLM stream ended without [DONE], using the content received so far");
       }
+      LOGGER.info("First token after {} ms", accumulator.getTimeToFirstTokenMs());
+      return accumulator.toResponse();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.error("Interrupted while streaming the LLM response");
     } catch (Exception e) {
-      LOGGER.error("Problem with api response.");
       LOGGER.error(e.toString());
     }
-    return response.toString();
+    return null;
+  }
+
+  /**
+   * One request against a concrete endpoint URL.
+   */
+  @FunctionalInterface
+  private interface Attempt {
+    LlmTransport.Response send(String url) throws IOException, InterruptedException;
+  }
+
+  /**
+   * What admission control needs to know about a request.
+   *
+   * @param model model named in the request, for concurrency limits
+   * @param estimatedTokens estimated prompt and completion tokens, for the token budget
+   */
+  private record LlmRequest(String model, int estimatedTokens) {
+  }
+
+  private LlmRequest describe(ChatBody chatBody) {
+    int expectedCompletion = tokenBudget != null ? tokenBudget.getExpectedCompletionTokens() : 0;
+    return new LlmRequest(chatBody.getModel(),
+        TokenEstimator.estimateTotal(chatBody, expectedCompletion, tokenizer()));
+  }
+
+  private Tokenizer tokenizer() {
+    return tokenCounter != null ? tokenCounter.getTokenizer() : TokenEstimator.HEURISTIC;
+  }
+
+  private LlmTransport.Response send(String endpoint, LlmRequest request, Attempt attempt)
+      throws IOException, InterruptedException {
+    return send(endpoint, request, attempt, () -> true, true);
+  }
+
+  private LlmTransport.Response send(String endpoint, LlmRequest request, Attempt attempt,
+      BooleanSupplier retryAllowed) throws IOException, InterruptedException {
+    return send(endpoint, request, attempt, retryAllowed, false);
   }
 
   /***
+   * Send a request, retrying retryable statuses and I/O failures with backoff.
+   * Each attempt goes to the endpoint chosen by the endpoint pool (another one than the
+   * previous attempt where possible), or the given endpoint when no pool is configured.
    *
-   * @param jsonBody - content to add to the http request
-   * @param conn - http connection to use
+   * @param endpoint - endpoint used when the pool is disabled
+   * @param request - model and token estimate, for admission control
+   * @param attempt - the request to send
+   * @param retryAllowed - checked after a failed attempt; false keeps its result
+   * @param hedge - whether a slow attempt may be hedged; attempts must be safe to run twice
+   * @return - the response of the last attempt
    */
-  private void attachJSONBody(String jsonBody, HttpURLConnection conn) {
-    byte[] input = jsonBody.getBytes(StandardCharsets.UTF_8);
-    try (OutputStream os = conn.getOutputStream()) {
-      encodeBody(os, input);
-    } catch (Exception e) {
-      LOGGER.error("Problem getting output steam:\n{}", e.toString());
+  private LlmTransport.Response send(String endpoint, LlmRequest request, Attempt attempt,
+      BooleanSupplier retryAllowed, boolean hedge) throws IOException, InterruptedException {
+    LlmEndpointPool.Endpoint previous = null;
+    for (int n = 1; ; n++) {
+      LlmEndpointPool.Endpoint target = isPoolEnabled() ? endpointPool.acquire(previous) : null;
+      String url = target == null ? endpoint : target.getUrl();
+      LlmTransport.Response response = null;
+      IOException failure = null;
+      try {
+        response = hedge && isHedgingActive()
+            ? sendHedged(target, request, attempt) : sendOnce(url, target, request, attempt);
+      } catch (IOException e) {
+        failure = e;
+      }
+      long waitMs = retryAllowed.getAsBoolean() ? retryDelayMs(n, response, failure) : -1;
+      if (waitMs < 0) {
+        if (failure != null) {
+          throw failure;
+        }
+        return response;
+      }
+      LOGGER.warn("LLM request to {} failed ({}), retrying in {} ms", url,
+          failure != null ? failure.getMessage() : "status " + response.statusCode(), waitMs);
+      Thread.sleep(waitMs);
+      previous = target;
     }
   }
 
   /***
+   * One attempt against a concrete endpoint, once the endpoint's token budget allows it and
+   * a concurrency slot is free, guarded by the endpoint's circuit breaker. The outcome is fed
+   * back into the token budget, concurrency limits, circuit breaker and endpoint pool.
    *
-   * @param os - the output stream containing the data to encode
-   * @param input - the data to be encoded into the output stream
+   * @param url - the endpoint to send to
+   * @param target - the pool endpoint behind url, or null when the pool is disabled
+   * @param request - model and token estimate
+   * @param attempt - the request to send
+   * @return - the response
    */
-  private void encodeBody(OutputStream os, byte[] input) {
+  private LlmTransport.Response sendOnce(String url, LlmEndpointPool.Endpoint target, LlmRequest request,
+      Attempt attempt) throws IOException, InterruptedException {
+    LlmTokenBudget.Reservation tokens = null;
+    LlmConcurrencyLimiter.Permit permit = null;
     try {
-      os.write(input, 0, input.length);
-    } catch (IOException e) {
-      LOGGER.error("Problem attaching JSON body:\n{}", e.toString());
+      tokens = reserveTokens(request, url);
+      permit = acquireSlot(request, url);
+      acquirePermission(url);
+    } catch (IOException | InterruptedException e) {
+      releaseUnsent(target, tokens, permit);
+      throw e;
     }
+    long start = System.nanoTime();
+    LlmEndpointPool.Outcome outcome = LlmEndpointPool.Outcome.FAILURE;
+    try {
+      LlmTransport.Response response = attempt.send(url);
+      outcome = LlmEndpointPool.isEndpointFailure(response.statusCode())
+          ? LlmEndpointPool.Outcome.FAILURE : LlmEndpointPool.Outcome.SUCCESS;
+      return response;
+    } catch (InterruptedException e) {
+      // our own cancellation says nothing about the endpoint
+      outcome = LlmEndpointPool.Outcome.IGNORED;
+      throw e;
+    } finally {
+      recordOutcome(url, target, tokens, permit, outcome, start);
+    }
+  }
+
+  /***
+   * Race the attempt against a hedge: when the primary endpoint has not answered within the
+   * hedging delay, the same request goes to a second endpoint. The first successful response
+   * wins and the other call is cancelled.
+   *
+   * @param primary - the pool endpoint chosen for the attempt
+   * @param request - model and token estimate
+   * @param attempt - the request to send
+   * @return - the winning response, or the last one if neither succeeded
+   */
+  private LlmTransport.Response sendHedged(LlmEndpointPool.Endpoint primary, LlmRequest request,
+      Attempt attempt) throws IOException, InterruptedException {
+    long delayMs = hedgingPolicy.hedgeDelayMs();
+    if (delayMs < 0) {
+      // Still learning what normal latency looks like
+      return sendTimed(primary, request, attempt);
+    }
+    CompletionService<LlmTransport.Response> race = new ExecutorCompletionService<>(LLM_CALL_EXECUTOR);
+    List<Future<LlmTransport.Response>> calls = new ArrayList<>();
+    try {
+      calls.add(race.submit(timed(primary, request, attempt)));
+      Future<LlmTransport.Response> done = race.poll(delayMs, TimeUnit.MILLISECONDS);
+      if (done == null) {
+        LlmEndpointPool.Endpoint secondary = endpointPool.acquire(primary);
+        if (secondary == primary) {
+          // No other endpoint is available, keep waiting on the primary
+          endpointPool.release(secondary, LlmEndpointPool.Outcome.IGNORED, 0);
+        } else {
+          LOGGER.info("No response from {} after {} ms, hedging to {}", primary, delayMs, secondary);
+          calls.add(race.submit(timed(secondary, request, attempt)));
+        }
+        done = race.take();
+        if (calls.size() > 1 && !succeeded(done)) {
+          done = race.take();
+        }
+        if (calls.size() > 1) {
+          hedgingPolicy.recordHedge(done == calls.get(1));
+        }
+      }
+      return result(done);
+    } finally {
+      calls.forEach(call -> call.cancel(true));
+    }
+  }
+
+  private Callable<LlmTransport.Response> timed(LlmEndpointPool.Endpoint target, LlmRequest request,
+      Attempt attempt) {
+    return () -> sendTimed(target, request, attempt);
+  }
+
+  private LlmTransport.Response sendTimed(LlmEndpointPool.Endpoint target, LlmRequest request, Attempt attempt)
+      throws IOException, InterruptedException {
+    long start = System.nanoTime();
+    LlmTransport.Response response = sendOnce(target.getUrl(), target, request, attempt);
+    if (response.isOk()) {
+      hedgingPolicy.recordLatency((System.nanoTime() - start) / 1_000_000L);
+    }
+    return response;
+  }
+
+  private static boolean succeeded(Future<LlmTransport.Response> call) {
+    return call.state() == Future.State.SUCCESS && call.resultNow().isOk();
+  }
+
+  private static LlmTransport.Response result(Future<LlmTransport.Response> call)
+      throws IOException, InterruptedException {
+    try {
+      return call.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException io) {
+        throw io;
+      }
+      if (e.getCause() instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  private boolean isHedgingActive() {
+    return hedgingPolicy != null && hedgingPolicy.isEnabled() && isPoolEnabled()
+        && endpointPool.getEndpoints().size() > 1;
+  }
+
+  /***
+   * Decide whether a finished attempt is retried.
+   *
+   * @param attempt - number of the attempt that finished, starting at 1
+   * @param response - its response, or null if it failed
+   * @param error - its failure, or null if a response arrived
+   * @return - milliseconds to wait before the next attempt, or -1 to keep this result
+   */
+  private long retryDelayMs(int attempt, LlmTransport.Response response, Throwable error) {
+    if (retryPolicy == null || attempt >= retryPolicy.getMaxAttempts()) {
+      return -1;
+    }
+    if (error instanceof LlmCircuitBreaker.CircuitOpenException) {
+      // Fail fast, unless the pool has another endpoint to try right away
+      return isPoolEnabled() && endpointPool.getEndpoints().size() > 1 ? 0 : -1;
+    }
+    if (error != null) {
+      return retryPolicy.isRetryable(error) ? retryPolicy.backoffMs(attempt, null) : -1;
+    }
+    if (!retryPolicy.isRetryable(response.statusCode())) {
+      return -1;
+    }
+    long waitMs = retryPolicy.backoffMs(attempt, response.headers());
+    if (waitMs < 0) {
+      LOGGER.warn("LLM endpoint answered {} with Retry-After {} ms, longer than the retry delay allows; not retrying",
+          response.statusCode(), LlmRetryPolicy.retryAfterMs(response.headers()));
+    }
+    return waitMs;
+  }
+
+  private boolean isPoolEnabled() {
+    return endpointPool != null && endpointPool.isEnabled();
+  }
+
+  private void acquirePermission(String url) throws LlmCircuitBreaker.CircuitOpenException {
+    if (circuitBreaker != null) {
+      circuitBreaker.acquirePermission(url);
+    }
+  }
+
+  private LlmTokenBudget.Reservation reserveTokens(LlmRequest request, String url)
+      throws IOException, InterruptedException {
+    return tokenBudget == null ? null : tokenBudget.reserve(url, request.estimatedTokens());
+  }
+
+  private LlmConcurrencyLimiter.Permit acquireSlot(LlmRequest request, String url)
+      throws IOException, InterruptedException {
+    return concurrencyLimiter == null ? null : concurrencyLimiter.acquire(request.model(), url);
+  }
+
+  // Give back what an attempt held when it never reached the endpoint
+  private void releaseUnsent(LlmEndpointPool.Endpoint target, LlmTokenBudget.Reservation tokens,
+      LlmConcurrencyLimiter.Permit permit) {
+    if (tokens != null) {
+      tokens.refund();
+    }
+    if (permit != null) {
+      permit.release(LlmEndpointPool.Outcome.IGNORED, 0);
+    }
+    if (target != null) {
+      endpointPool.release(target, LlmEndpointPool.Outcome.IGNORED, 0);
+    }
+  }
+
+  private void recordOutcome(String url, LlmEndpointPool.Endpoint target, LlmTokenBudget.Reservation tokens,
+      LlmConcurrencyLimiter.Permit permit, LlmEndpointPool.Outcome outcome, long startNanos) {
+    long latencyMs = (System.nanoTime() - startNanos) / 1_000_000L;
+    if (tokens != null && outcome != LlmEndpointPool.Outcome.SUCCESS) {
+      // Rejected and cancelled calls did not cost the endpoint their tokens
+      tokens.refund();
+    }
+    if (permit != null) {
+      permit.release(outcome, latencyMs);
+    }
+    if (circuitBreaker != null) {
+      circuitBreaker.record(url, outcome);
+    }
+    if (target != null) {
+      endpointPool.release(target, outcome, latencyMs);
+    }
+  }
+
+  /***
+   *
+   * @param response - a non 200 response from the LLM endpoint
+   */
+  private void logErrorResponse(LlmTransport.Response response) {
+    LOGGER.error("Invalid API response. Status code: {}", response.statusCode());
+    LOGGER.error("Error response from API: {}", response.body());
   }
 
   /**
@@ -216,12 +735,70 @@ public final class ApiService {
    * @param root - location to upload & save file tp
    */
   public void produceFiles(Optimize optimize, String endpoint, String apikey, String model, String root) {
-    if (optimize != null) {
-      for (String p : optimize.getPromptType()) {
-        produceFiles(p, optimize, endpoint, apikey, model, root);
-      }
-    } else {
+    produceFiles(optimize, endpoint, apikey, model, root, GenerationListener.NONE);
+  }
+
+  /**
+   *
+   * @param optimize api input parameters
+   * @param endpoint - url to post the prompt to
+   * @param apikey - openai key
+   * @param model - model to use for generation
+   * @param root - location to upload & save file tp
+   * @param listener - receives progress for each prompt type
+   */
+  public void produceFiles(Optimize optimize, String endpoint, String apikey, String model, String root,
+      GenerationListener listener) {
+    if (optimize == null) {
       LOGGER.error("invalid optimize");
+      return;
+    }
+    String[] promptTypes = optimize.getPromptType();
+    int parallelism = Math.min(promptParallelism, promptTypes.length);
+    if (parallelism > 1 && PromptLayout.of(promptLayout) == PromptLayout.SHARED_PREFIX) {
+      // Sent together, every prompt would process the shared prefix itself; the first one alone
+      // leaves it in the server's prompt cache for the others
+      produceFiles(promptTypes[0], optimize, endpoint, apikey, model, root, listener);
+      promptTypes = Arrays.copyOfRange(promptTypes, 1, promptTypes.length);
+      parallelism = Math.min(parallelism, promptTypes.length);
+    }
+    if (parallelism <= 1) {
+      for (String p : promptTypes) {
+        produceFiles(p, optimize, endpoint, apikey, model, root, listener);
+      }
+      return;
+    }
+
+    // Resolve lazily created collaborators once, before the pipelines share them
+    getPromptService();
+    getTransport();
+    if (mockEnabled) {
+      getMockLlmService();
+    }
+
+    LOGGER.info("Generating {} prompt types with parallelism {}", promptTypes.length, parallelism);
+    ThreadFactory threads = virtualThreads ? VIRTUAL_PIPELINE_THREADS : PIPELINE_THREADS;
+    try (ExecutorService pipelines = Executors.newFixedThreadPool(parallelism, threads)) {
+      List<Future<?>> futures = new ArrayList<>();
+      for (String p : promptTypes) {
+        futures.add(pipelines.submit(() -> produceFiles(p, optimize, endpoint, apikey, model, root, listener)));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        awaitPipeline(futures.get(i), promptTypes[i], listener);
+      }
+    }
+  }
+
+  private void awaitPipeline(Future<?> future, String promptType, GenerationListener listener) {
+    try {
+      future.get();
+    } catch (ExecutionException e) {
+      LOGGER.error("Generation of {} failed: {}", promptType, e.getCause().toString());
+      listener.onPromptFailed(promptType, "unexpected error");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.cancel(true);
+      listener.onPromptFailed(promptType, "interrupted");
     }
   }
 
@@ -237,33 +814,70 @@ public final class ApiService {
    */
   public void produceFiles(String promptType, Optimize optimize, String endpoint,
       String apikey, String model, String root) {
+    produceFiles(promptType, optimize, endpoint, apikey, model, root, GenerationListener.NONE);
+  }
+
+  /***
+   *
+   *
+   * @param promptType - cover letter or resume to generate
+   * @param optimize - the data to sent to the endpoint
+   * @param endpoint - url to post the prompt to
+   * @param apikey - openai key
+   * @param model - model to use for generation
+   * @param root - location to upload & save file tp
+   * @param listener - receives progress for this prompt type
+   */
+  public void produceFiles(String promptType, Optimize optimize, String endpoint,
+      String apikey, String model, String root, GenerationListener listener) {
+    listener.onPromptStarted(promptType);
     LocalDate myDateObj = LocalDate.now();
     String today = myDateObj.format(DateTimeFormatter.ofPattern("MMMM dd, yyyy"));
 
     // Load prompt using PromptService (hybrid: external override + bundled fallback)
-    String promptData = getPromptService().loadPrompt(promptType);
+    PromptService.Prompt prompt = getPromptService().getPrompt(promptType);
 
-    if (promptData == null || promptData.isEmpty()) {
+    if (prompt == null || prompt.content() == null || prompt.content().isEmpty()) {
       LOGGER.error("Could not load prompt: {}", promptType);
+      listener.onPromptFailed(promptType, "could not load prompt");
       return;
     }
+    String promptData = prompt.content();
+    // Hashed once when the template was loaded, not on every generation
+    String promptVersion = prompt.version();
 
-    promptData = promptData
-        .replace("{resume_string}", optimize.getResume() != null ? optimize.getResume() : "")
-        .replace("{job_description}", optimize.getJobDescription() != null ? optimize.getJobDescription() : "");
-    promptData = promptData.replace("{job_title}", optimize.getJobTitle() != null ? optimize.getJobTitle() : "");
-    promptData = promptData.replace("{today}", today != null ? today : "");
-    promptData = promptData.replace("{company}", optimize.getCompany() != null ? optimize.getCompany() : "");
-    promptData = promptData.replace("{interviewer_name}",
-        optimize.getInterviewerName() != null ? optimize.getInterviewerName() : "");
+    ContextWindowFitter.Result inputs = fitToContext(promptType, promptData, optimize, model);
+    Map<String, String> values = new LinkedHashMap<>();
+    values.put("resume_string", inputs.resume());
+    values.put("job_description", inputs.jobDescription());
+    values.put("job_title", optimize.getJobTitle() != null ? optimize.getJobTitle() : "");
+    values.put("today", today != null ? today : "");
+    values.put("company", optimize.getCompany() != null ? optimize.getCompany() : "");
+    values.put("interviewer_name", optimize.getInterviewerName() != null ? optimize.getInterviewerName() : "");
+    promptData = PromptLayout.of(promptLayout).render(promptData, values);
 
     ChatBody chatBody = getChatBody(optimize, promptData);
     chatBody.setModel(model);
+    if (keepAlive != null && !keepAlive.isBlank()) {
+      chatBody.setKeepAlive(keepAlive.trim());
+    }
+    if (cachePrompt) {
+      chatBody.setCachePrompt(true);
+    }
+    if (tokenCounter != null) {
+      // Whatever the prompt leaves of the context window, or -1 to let the server decide
+      chatBody.setMaxTokens(tokenCounter.completionBudget(chatBody));
+    }
 
-    LLMResponse llmResponse = this.invokeApi(chatBody, endpoint, apikey);
+    listener.onLlmRequestStarted(promptType);
+    long llmStart = System.nanoTime();
+    LLMResponse llmResponse = requestCompletion(promptType, optimize, chatBody, endpoint, apikey, listener);
+    long llmMs = (System.nanoTime() - llmStart) / 1_000_000L;
+    listener.onLlmResponseReceived(promptType, llmMs);
 
     if (llmResponse == null) {
       LOGGER.error("Invalid LLM Response. Please try again.");
+      listener.onPromptFailed(promptType, "invalid LLM response");
       return;
     }
 
@@ -282,56 +896,164 @@ public final class ApiService {
 
     if (result == null || result.body() == null) {
       LOGGER.error("Invalid LLM result from response. Please try again.");
+      listener.onPromptFailed(promptType, "invalid LLM result");
       return;
     }
 
     String suffixString =
         DateTimeFormatter.ofPattern("yyyy-MM-dd-HH-mm").format(LocalDateTime.now());
-    String fileName = promptType + "-" + optimize.getCompany() + "-"
-        + optimize.getJobTitle() + "-" + suffixString + ".md";
-    createResultFile(fileName, result.body(), root);
-    HtmlToPdf html = new HtmlToPdf(
-        root + File.separator + fileName,
-        root + File.separator + promptType + "-" + optimize.getCompany()
-            + "-" + optimize.getJobTitle() + "-" + suffixString + ".pdf", "");
-    if (!html.convertFile()) {
+    String baseName = promptType + "-" + optimize.getCompany() + "-"
+        + optimize.getJobTitle() + "-" + suffixString;
+    String fileName = baseName + ".md";
+    if (createResultFile(fileName, result.body(), root)) {
+      listener.onFileWritten(promptType, fileName);
+    }
+    getPromptService().savePromptToHistory(promptType, optimize, GSON.toJson(chatBody), result.body(),
+        new PromptService.Generation(fileName, llmMs, tokenUsage(chatBody, llmResponse), promptVersion));
+    // Parse once; the PDF and DOCX are rendered from the same tree without reading the file back
+    Node document = MarkdownDocument.parse(result.body());
+    HtmlToPdf html = new HtmlToPdf();
+    html.setPdfFilePath(root + File.separator + baseName + ".pdf");
+    if (html.convert(document)) {
+      listener.onFileWritten(promptType, baseName + ".pdf");
+    } else {
       LOGGER.error("Unable to save PDF file");
     }
 
     // Convert markdown to DOCX
-    MarkdownToDocx mdToDocx = new MarkdownToDocx(
-        root + File.separator + fileName,
-        root + File.separator + promptType + "-" + optimize.getCompany()
-            + "-" + optimize.getJobTitle() + "-" + suffixString + ".docx", "");
-    if (!mdToDocx.convertFile()) {
+    MarkdownToDocx mdToDocx = new MarkdownToDocx();
+    mdToDocx.setDocxFilePath(root + File.separator + baseName + ".docx");
+    if (mdToDocx.convert(document)) {
+      listener.onFileWritten(promptType, baseName + ".docx");
+    } else {
       LOGGER.error("Unable to save DOCX file");
     }
 
     if (result.suggestion() != null && !result.suggestion().isBlank()) {
       fileName = optimize.getCompany() + "-" + optimize.getJobTitle()
           + "-" + suffixString + "-suggestions.md";
-      createResultFile(fileName, result.suggestion(), root);
+      if (createResultFile(fileName, result.suggestion(), root)) {
+        listener.onFileWritten(promptType, fileName);
+      }
     }
 
+    listener.onPromptCompleted(promptType);
     LOGGER.info("Operation Complete.");
   }
 
+  /***
+   * Get the completion for an expanded prompt, from the response cache when possible.
+   * Identical requests already in flight are joined rather than sent again.
+   *
+   * @param promptType - cover letter or resume to generate
+   * @param optimize - the request, which may bypass the cache
+   * @param chatBody - the fully expanded request
+   * @param endpoint - url to post the prompt to
+   * @param apikey - openai key
+   * @param listener - receives streamed tokens
+   * @return - the LLM response, or null if the call failed
+   */
+  private LLMResponse requestCompletion(String promptType, Optimize optimize, ChatBody chatBody,
+      String endpoint, String apikey, GenerationListener listener) {
+    // Mock responses are free, so only real calls go through the cache
+    boolean useCache = responseCache != null && !mockEnabled && !optimize.isBypassCache();
+    if (!useCache) {
+      return callLlm(promptType, chatBody, endpoint, apikey, listener);
+    }
+
+    LlmResponseCache.Lookup lookup = responseCache.getOrLoad(LlmResponseCache.key(chatBody),
+        () -> callLlm(promptType, chatBody, endpoint, apikey, listener));
+    if (!lookup.loaded() && LlmResponseCache.hasContent(lookup.response())) {
+      LOGGER.info("LLM response for {} served from cache or an identical in-flight request", promptType);
+      if (streamingEnabled) {
+        listener.onToken(promptType, lookup.response().getChoices().get(0).getMessage().getContent());
+      }
+    }
+    return lookup.response();
+  }
+
+  // Tokens reported by the endpoint, or the estimate when it reports none
+  private int tokenUsage(ChatBody chatBody, LLMResponse llmResponse) {
+    if (llmResponse.getUsage() != null && llmResponse.getUsage().getTotalTokens() > 0) {
+      return llmResponse.getUsage().getTotalTokens();
+    }
+    List<Choice> choices = llmResponse.getChoices();
+    String content = choices == null || choices.isEmpty() || choices.get(0).getMessage() == null
+        ? null : choices.get(0).getMessage().getContent();
+    Tokenizer tokenizer = tokenizer();
+    return TokenEstimator.estimatePrompt(chatBody, tokenizer) + tokenizer.count(content);
+  }
+
+  private LLMResponse callLlm(String promptType, ChatBody chatBody, String endpoint, String apikey,
+      GenerationListener listener) {
+    return streamingEnabled
+        ? this.invokeApiStreaming(chatBody, endpoint, apikey, token -> listener.onToken(promptType, token))
+        : this.invokeApi(chatBody, endpoint, apikey);
+  }
+
   private ChatBody getChatBody(Optimize optimize, String promptData) {
     ChatBody chatBody = new ChatBody();
     chatBody.setTemperature(optimize.getTemperature());
     chatBody.setModel(optimize.getModel());
     chatBody.setMaxTokens(-1);
     chatBody.setStream(false);
+    chatBody.setMessages(getMessages(promptData));
+    return chatBody;
+  }
 
+  private static List<Message> getMessages(String promptData) {
     Message systemMessage = new Message();
     systemMessage.setRole("system");
     systemMessage.setContent("Expert resume writer");
     Message userMessage = new Message();
     userMessage.setRole("user");
     userMessage.setContent(promptData);
+    return List.of(systemMessage, userMessage);
+  }
 
-    chatBody.setMessages(List.of(systemMessage, userMessage));
-    return chatBody;
+  /***
+   * Shorten the resume and job description when the expanded prompt would not fit the model's
+   * context window with room left for the completion. With the shared prefix layout the budget
+   * comes from the largest template of the request's prompt types, so every prompt type gets the
+   * same inputs and therefore the same prefix.
+   *
+   * @param promptType - cover letter or resume to generate, for logging
+   * @param promptData - the prompt template, before the resume and job description are filled in
+   * @param optimize - the request, which is left unchanged
+   * @param model - model the prompt is sent to
+   * @return - the resume and job description to fill in
+   */
+  private ContextWindowFitter.Result fitToContext(String promptType, String promptData, Optimize optimize,
+      String model) {
+    String resume = optimize.getResume() != null ? optimize.getResume() : "";
+    String jobDescription = optimize.getJobDescription() != null ? optimize.getJobDescription() : "";
+    int window = tokenCounter != null && contextFitEnabled ? tokenCounter.contextWindow(model) : 0;
+    if (window == 0) {
+      return new ContextWindowFitter.Result(resume, jobDescription, 0, 0, List.of());
+    }
+    int templateTokens = templateTokens(promptData);
+    if (PromptLayout.of(promptLayout) == PromptLayout.SHARED_PREFIX && optimize.getPromptType() != null) {
+      for (String other : optimize.getPromptType()) {
+        PromptService.Prompt otherPrompt = other.equals(promptType) ? null : getPromptService().getPrompt(other);
+        if (otherPrompt != null && otherPrompt.content() != null) {
+          templateTokens = Math.max(templateTokens, templateTokens(otherPrompt.content()));
+        }
+      }
+    }
+    int budget = window - reservedCompletionTokens - templateTokens;
+    ContextWindowFitter.Result fitted = ContextWindowFitter.fit(resume, jobDescription, budget,
+        tokenCounter.getTokenizer());
+    if (fitted.changed()) {
+      LOGGER.warn("Input for {} shortened from {} to {} tokens to fit the context window of {}: {}",
+          promptType, fitted.tokensBefore(), fitted.tokensAfter(), window, String.join(", ", fitted.steps()));
+    }
+    return fitted;
+  }
+
+  private int templateTokens(String promptData) {
+    ChatBody template = new ChatBody();
+    template.setMessages(getMessages(PromptTemplate.of(promptData).expand(WITHOUT_INPUTS)));
+    return tokenCounter.countPrompt(template);
   }
 
   /***
@@ -387,18 +1109,21 @@ public final class ApiService {
    *
    * @param fileName name of the file to create
    * @param s content to save in the file
+   * @return true if the file was written
    */
-  private void createResultFile(String fileName, String s, String root) {
+  private boolean createResultFile(String fileName, String s, String root) {
 
     if (s != null && !s.isBlank()) {
       try (BufferedWriter writer = Files.newBufferedWriter(
           Paths.get(root + File.separator + fileName), StandardCharsets.UTF_8)) {
         writer.write(s);
         writer.flush();  // Data is written to OS page cache, not necessarily to the disk immediately
+        return true;
       } catch (Exception e) {
         LOGGER.error("Error writing file: {}\n{}:", fileName, e.toString());
       }
     }
+    return false;
   }
 
   /***
@@ -0,0 +1,309 @@
+package ca.letkeman.resumes.optimizer;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Byte pair encoding tokenizer loaded from a Hugging Face tokenizer.json, so prompts can be
+ * counted with the model's own vocabulary. Both byte-level vocabularies (GPT-2, Llama 3,
+ * Qwen) and SentencePiece style vocabularies with byte fallback (Mistral, Gemma) are read.
+ * Merges are held in a primitive table and the counts of recently seen words are cached,
+ * since resumes and job descriptions repeat the same words many times.
+ */
+public final class BpeTokenizer implements Tokenizer {
+
+  private static final Pattern BYTE_LEVEL_WORDS = Pattern.compile(
+      "'(?:[sdmt]|ll|ve|re)| ?\\p{L}+| ?\\p{N}+| ?[^\\s\\p{L}\\p{N}]+|\\s+(?!\\S)|\\s+");
+  private static final char METASPACE = '▁';
+
+  private final boolean byteLevel;
+  private final int vocabularySize;
+  private final int[] byteIds;
+  private final Map<Integer, Integer> codePointIds;
+  private final MergeTable merges;
+  private final Map<String, Integer> cache;
+  private final int cacheSize;
+  private final ReentrantLock cacheLock = new ReentrantLock();
+  private final AtomicLong cacheHits = new AtomicLong();
+  private final AtomicLong cacheMisses = new AtomicLong();
+
+  private BpeTokenizer(boolean byteLevel, Map<String, Integer> vocab, JsonArray mergeList, int cacheSize) {
+    this.byteLevel = byteLevel;
+    this.vocabularySize = vocab.size();
+    this.cacheSize = Math.max(0, cacheSize);
+    this.cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    this.byteIds = new int[256];
+    this.codePointIds = new HashMap<>();
+    char[] byteChars = byteToUnicode();
+    for (int b = 0; b < 256; b++) {
+      byteIds[b] = vocab.getOrDefault(String.valueOf(byteChars[b]), -1);
+    }
+    vocab.forEach((token, id) -> {
+      if (token.codePointCount(0, token.length()) == 1) {
+        codePointIds.put(token.codePointAt(0), id);
+      }
+    });
+
+    this.merges = new MergeTable(mergeList.size());
+    int rank = 0;
+    for (JsonElement merge : mergeList) {
+      String left;
+      String right;
+      if (merge.isJsonArray()) {
+        left = merge.getAsJsonArray().get(0).getAsString();
+        right = merge.getAsJsonArray().get(1).getAsString();
+      } else {
+        String pair = merge.getAsString();
+        int split = pair.indexOf(' ', 1);
+        if (split < 0) {
+          continue;
+        }
+        left = pair.substring(0, split);
+        right = pair.substring(split + 1);
+      }
+      Integer leftId = vocab.get(left);
+      Integer rightId = vocab.get(right);
+      Integer mergedId = vocab.get(left + right);
+      if (leftId != null && rightId != null && mergedId != null) {
+        merges.put(leftId, rightId, rank, mergedId);
+      }
+      rank++;
+    }
+  }
+
+  /**
+   * Load a BPE tokenizer from a Hugging Face tokenizer.json file.
+   *
+   * @param file the tokenizer.json file
+   * @param cacheSize number of word counts to cache, 0 to disable the cache
+   * @return the tokenizer
+   * @throws IOException if the file cannot be read or is not a BPE tokenizer
+   */
+  public static BpeTokenizer load(Path file, int cacheSize) throws IOException {
+    try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      JsonObject root = JsonParser.parseReader(reader).getAsJsonObject();
+      JsonObject model = root.getAsJsonObject("model");
+      if (model == null || !model.has("vocab") || !model.has("merges")
+          || model.has("type") && !"BPE".equals(model.get("type").getAsString())) {
+        throw new IOException("Not a BPE tokenizer: " + file);
+      }
+      Map<String, Integer> vocab = new HashMap<>();
+      model.getAsJsonObject("vocab").entrySet()
+          .forEach(entry -> vocab.put(entry.getKey(), entry.getValue().getAsInt()));
+      return new BpeTokenizer(isByteLevel(root), vocab, model.getAsJsonArray("merges"), cacheSize);
+    } catch (JsonParseException | IllegalStateException | ClassCastException e) {
+      throw new IOException("Unreadable tokenizer file " + file + ": " + e.getMessage(), e);
+    }
+  }
+
+  // Byte-level vocabularies declare a ByteLevel pre-tokenizer or decoder, possibly inside a Sequence
+  private static boolean isByteLevel(JsonObject root) {
+    for (String component : new String[] {"pre_tokenizer", "decoder"}) {
+      JsonElement element = root.get(component);
+      if (element != null && element.toString().contains("\"type\":\"ByteLevel\"")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public int count(String text) {
+    if (text == null || text.isEmpty()) {
+      return 0;
+    }
+    int tokens = 0;
+    if (byteLevel) {
+      Matcher words = BYTE_LEVEL_WORDS.matcher(text);
+      while (words.find()) {
+        tokens += countWord(words.group());
+      }
+    } else {
+      // SentencePiece marks word starts with U+2581 and splits before each of them
+      String spaced = METASPACE + text.replace(' ', METASPACE);
+      int start = 0;
+      for (int i = 1; i <= spaced.length(); i++) {
+        if (i == spaced.length() || spaced.charAt(i) == METASPACE) {
+          tokens += countWord(spaced.substring(start, i));
+          start = i;
+        }
+      }
+    }
+    return tokens;
+  }
+
+  public int getVocabularySize() {
+    return vocabularySize;
+  }
+
+  public long getCacheHits() {
+    return cacheHits.get();
+  }
+
+  public long getCacheMisses() {
+    return cacheMisses.get();
+  }
+
+  private int countWord(String word) {
+    if (cacheSize > 0) {
+      Integer cached;
+      cacheLock.lock();
+      try {
+        cached = cache.get(word);
+      } finally {
+        cacheLock.unlock();
+      }
+      if (cached != null) {
+        cacheHits.incrementAndGet();
+        return cached;
+      }
+      cacheMisses.incrementAndGet();
+    }
+    int tokens = byteLevel ? encodeBytes(word) : encodeCodePoints(word);
+    if (cacheSize > 0) {
+      cacheLock.lock();
+      try {
+        cache.put(word, tokens);
+        if (cache.size() > cacheSize) {
+          cache.remove(cache.keySet().iterator().next());
+        }
+      } finally {
+        cacheLock.unlock();
+      }
+    }
+    return tokens;
+  }
+
+  private int encodeBytes(String word) {
+    byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+    int[] symbols = new int[bytes.length];
+    for (int i = 0; i < bytes.length; i++) {
+      symbols[i] = byteIds[bytes[i] & 0xFF];
+    }
+    return merge(symbols, symbols.length);
+  }
+
+  private int encodeCodePoints(String word) {
+    int[] symbols = new int[word.length()];
+    int length = 0;
+    int unknownBytes = 0;
+    for (int i = 0; i < word.length(); ) {
+      int codePoint = word.codePointAt(i);
+      int charCount = Character.charCount(codePoint);
+      Integer id = codePointIds.get(codePoint);
+      symbols[length++] = id != null ? id : -1;
+      if (id == null) {
+        // Byte fallback: characters outside the vocabulary cost one token per UTF-8 byte,
+        // one of which the unmergeable -1 symbol already counts
+        unknownBytes += word.substring(i, i + charCount).getBytes(StandardCharsets.UTF_8).length - 1;
+      }
+      i += charCount;
+    }
+    return merge(symbols, length) + unknownBytes;
+  }
+
+  // Apply the lowest ranked merge until none applies; the remaining symbols are the tokens
+  private int merge(int[] symbols, int length) {
+    while (length > 1) {
+      long best = Long.MAX_VALUE;
+      int bestIndex = -1;
+      for (int i = 0; i < length - 1; i++) {
+        long merge = merges.get(symbols[i], symbols[i + 1]);
+        if (merge < best) {
+          best = merge;
+          bestIndex = i;
+        }
+      }
+      if (bestIndex < 0) {
+        break;
+      }
+      symbols[bestIndex] = (int) best;
+      System.arraycopy(symbols, bestIndex + 2, symbols, bestIndex + 1, length - bestIndex - 2);
+      length--;
+    }
+    return length;
+  }
+
+  // GPT-2's reversible mapping of bytes to printable characters
+  private static char[] byteToUnicode() {
+    char[] chars = new char[256];
+    int next = 256;
+    for (int b = 0; b < 256; b++) {
+      boolean printable = b >= '!' && b <= '~' || b >= 0xA1 && b <= 0xAC || b >= 0xAE && b <= 0xFF;
+      chars[b] = (char) (printable ? b : next++);
+    }
+    return chars;
+  }
+
+  /**
+   * Open addressing map from a symbol pair to its merge, packed as rank in the high and the
+   * merged symbol in the low 32 bits, so a lookup allocates nothing.
+   */
+  private static final class MergeTable {
+    private static final long EMPTY = -1L;
+
+    private final long[] keys;
+    private final long[] values;
+    private final int mask;
+
+    MergeTable(int expected) {
+      int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+      keys = new long[capacity];
+      values = new long[capacity];
+      mask = capacity - 1;
+      Arrays.fill(keys, EMPTY);
+    }
+
+    void put(int left, int right, int rank, int merged) {
+      long key = key(left, right);
+      int slot = slot(key);
+      while (keys[slot] != EMPTY && keys[slot] != key) {
+        slot = (slot + 1) & mask;
+      }
+      if (keys[slot] == EMPTY) {
+        // Keep the first, lowest ranked, merge of a pair
+        keys[slot] = key;
+        values[slot] = ((long) rank << 32) | (merged & 0xFFFFFFFFL);
+      }
+    }
+
+    long get(int left, int right) {
+      if (left < 0 || right < 0) {
+        return Long.MAX_VALUE;
+      }
+      long key = key(left, right);
+      for (int slot = slot(key); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+        if (keys[slot] == key) {
+          return values[slot];
+        }
+      }
+      return Long.MAX_VALUE;
+    }
+
+    private static long key(int left, int right) {
+      return ((long) left << 32) | (right & 0xFFFFFFFFL);
+    }
+
+    private int slot(long key) {
+      long hash = key * 0x9E3779B97F4A7C15L;
+      return (int) (hash >>> 32) & mask;
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package ca.letkeman.resumes.optimizer;
 
 
+import com.google.gson.annotations.SerializedName;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -11,6 +12,11 @@ public final class ChatBody {
   double temperature;
   int maxTokens;
   boolean stream;
+  // Prompt cache hints, left out of the request while null
+  @SerializedName("keep_alive")
+  String keepAlive;
+  @SerializedName("cache_prompt")
+  Boolean cachePrompt;
 
 
 
@@ -53,4 +59,20 @@ public final class ChatBody {
   public void setStream(boolean stream) {
     this.stream = stream;
   }
+
+  public String getKeepAlive() {
+    return this.keepAlive;
+  }
+
+  public void setKeepAlive(String keepAlive) {
+    this.keepAlive = keepAlive;
+  }
+
+  public Boolean getCachePrompt() {
+    return this.cachePrompt;
+  }
+
+  public void setCachePrompt(Boolean cachePrompt) {
+    this.cachePrompt = cachePrompt;
+  }
 }
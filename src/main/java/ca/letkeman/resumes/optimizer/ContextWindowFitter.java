@@ -0,0 +1,212 @@
+package ca.letkeman.resumes.optimizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Shrinks a resume and job description until they fit a token budget, so oversized input
+ * neither overflows the model's context nor makes prompt processing slow. Steps are applied
+ * only while the input is still too large, least destructive first:
+ * boilerplate sections of the job description (EEO statements, benefits, disclaimers) are
+ * dropped, repeated lines are removed, and finally the job description and then the resume
+ * are truncated at a line boundary.
+ *
+ * <p>Lines may be separated by real line breaks or by the literal "\n " that
+ * {@code Utility.convertLineEndings} stores; either is kept as found.
+ */
+public final class ContextWindowFitter {
+
+  /** Share of the budget the job description keeps before the resume is truncated. */
+  static final double JOB_DESCRIPTION_FLOOR = 0.25;
+
+  private static final Pattern LINE_BREAK = Pattern.compile("\\\\n ?|\\r?\\n");
+  private static final String ESCAPED_LINE_BREAK = "\\n ";
+  private static final int MAX_HEADING_LENGTH = 80;
+  private static final int MAX_HEADING_WORDS = 5;
+  private static final Pattern BOILERPLATE_HEADING = Pattern.compile(
+      "^[#*\\s]*(equal (employment )?opportunit|eeo\\b|benefits|perks|what we offer|our benefits"
+          + "|compensation (and|&) benefits|total rewards|accommodations?\\b|privacy (notice|policy)"
+          + "|disclaimer|diversity,? equity|pay transparency|about the benefits)",
+      Pattern.CASE_INSENSITIVE);
+  private static final Pattern BOILERPLATE_SENTENCE = Pattern.compile(
+      "equal opportunity employer|without regard to (race|age|sex|religion)|reasonable accommodation"
+          + "|e-verify|protected veteran|pay transparency|applicants? with disabilities",
+      Pattern.CASE_INSENSITIVE);
+
+  private ContextWindowFitter() {
+  }
+
+  /**
+   * Result of fitting.
+   *
+   * @param resume the resume, possibly shortened
+   * @param jobDescription the job description, possibly shortened
+   * @param tokensBefore tokens of both inputs before fitting
+   * @param tokensAfter tokens of both inputs after fitting
+   * @param steps the steps that were applied, empty when the input already fit
+   */
+  public record Result(String resume, String jobDescription, int tokensBefore, int tokensAfter, List<String> steps) {
+
+    public boolean changed() {
+      return !steps.isEmpty();
+    }
+  }
+
+  /**
+   * Fit a resume and job description into a token budget.
+   *
+   * @param resume the resume, may be null
+   * @param jobDescription the job description, may be null
+   * @param tokenBudget tokens both may use together
+   * @param tokenizer counts tokens
+   * @return the fitted inputs
+   */
+  public static Result fit(String resume, String jobDescription, int tokenBudget, Tokenizer tokenizer) {
+    String fittedResume = resume != null ? resume : "";
+    String fittedJob = jobDescription != null ? jobDescription : "";
+    int budget = Math.max(0, tokenBudget);
+    int resumeTokens = tokenizer.count(fittedResume);
+    int jobTokens = tokenizer.count(fittedJob);
+    int before = resumeTokens + jobTokens;
+    List<String> steps = new ArrayList<>();
+
+    if (resumeTokens + jobTokens > budget) {
+      String trimmed = removeBoilerplate(fittedJob);
+      if (!trimmed.equals(fittedJob)) {
+        fittedJob = trimmed;
+        jobTokens = tokenizer.count(fittedJob);
+        steps.add("removed job description boilerplate");
+      }
+    }
+    if (resumeTokens + jobTokens > budget) {
+      String deduplicatedJob = removeDuplicateLines(fittedJob);
+      String deduplicatedResume = removeDuplicateLines(fittedResume);
+      if (!deduplicatedJob.equals(fittedJob) || !deduplicatedResume.equals(fittedResume)) {
+        fittedJob = deduplicatedJob;
+        fittedResume = deduplicatedResume;
+        jobTokens = tokenizer.count(fittedJob);
+        resumeTokens = tokenizer.count(fittedResume);
+        steps.add("removed repeated lines");
+      }
+    }
+    if (resumeTokens + jobTokens > budget) {
+      // The resume is what gets rewritten, so the job description gives way first
+      int jobLimit = Math.max(budget - resumeTokens, Math.min(jobTokens, (int) (budget * JOB_DESCRIPTION_FLOOR)));
+      if (jobTokens > jobLimit) {
+        fittedJob = truncate(fittedJob, jobLimit, tokenizer);
+        jobTokens = tokenizer.count(fittedJob);
+        steps.add("truncated job description");
+      }
+    }
+    if (resumeTokens + jobTokens > budget) {
+      fittedResume = truncate(fittedResume, Math.max(0, budget - jobTokens), tokenizer);
+      resumeTokens = tokenizer.count(fittedResume);
+      steps.add("truncated resume");
+    }
+    return new Result(fittedResume, fittedJob, before, resumeTokens + jobTokens, List.copyOf(steps));
+  }
+
+  /**
+   * Drop boilerplate sections and sentences from a job description.
+   *
+   * @param text the job description
+   * @return the job description without boilerplate
+   */
+  static String removeBoilerplate(String text) {
+    List<String> kept = new ArrayList<>();
+    boolean skipping = false;
+    for (String line : LINE_BREAK.split(text, -1)) {
+      boolean heading = isHeading(line);
+      if (heading && BOILERPLATE_HEADING.matcher(line).find()) {
+        skipping = true;
+      } else if (heading) {
+        skipping = false;
+      }
+      if (!skipping && !BOILERPLATE_SENTENCE.matcher(line).find()) {
+        kept.add(line);
+      }
+    }
+    return String.join(separator(text), kept).strip();
+  }
+
+  /**
+   * Drop lines repeating an earlier line, ignoring case and surrounding whitespace.
+   * Blank lines are kept.
+   *
+   * @param text the text
+   * @return the text with each line at most once
+   */
+  static String removeDuplicateLines(String text) {
+    Set<String> seen = new HashSet<>();
+    List<String> kept = new ArrayList<>();
+    for (String line : LINE_BREAK.split(text, -1)) {
+      String key = line.strip().toLowerCase(Locale.ROOT);
+      if (key.isEmpty() || seen.add(key)) {
+        kept.add(line);
+      }
+    }
+    return String.join(separator(text), kept);
+  }
+
+  /**
+   * Cut text to at most the given number of tokens, at the last line break or word boundary.
+   *
+   * @param text the text
+   * @param maxTokens tokens the text may use
+   * @param tokenizer counts tokens
+   * @return the longest prefix within the limit
+   */
+  static String truncate(String text, int maxTokens, Tokenizer tokenizer) {
+    if (tokenizer.count(text) <= maxTokens) {
+      return text;
+    }
+    // Longest prefix within the limit; token counts grow with the prefix
+    int low = 0;
+    int high = text.length();
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (tokenizer.count(text.substring(0, mid)) <= maxTokens) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    String prefix = text.substring(0, low);
+    int cut = lastLineBreak(prefix);
+    if (cut < prefix.length() / 2) {
+      cut = Math.max(cut, prefix.lastIndexOf(' '));
+    }
+    return (cut > 0 ? prefix.substring(0, cut) : prefix).strip();
+  }
+
+  private static int lastLineBreak(String text) {
+    int escaped = text.lastIndexOf("\\n");
+    return Math.max(escaped, text.lastIndexOf('\n'));
+  }
+
+  private static String separator(String text) {
+    return text.contains("\\n") ? ESCAPED_LINE_BREAK : "\n";
+  }
+
+  // Short lines standing on their own: markdown headings, bold lines, "Title:", ALL CAPS, or a
+  // few Title Case words without closing punctuation
+  private static boolean isHeading(String line) {
+    String stripped = line.strip();
+    if (stripped.isEmpty() || stripped.length() > MAX_HEADING_LENGTH) {
+      return false;
+    }
+    if (stripped.startsWith("#") || stripped.startsWith("**") || stripped.endsWith(":")
+        || stripped.chars().anyMatch(Character::isLetter) && stripped.equals(stripped.toUpperCase(Locale.ROOT))) {
+      return true;
+    }
+    String[] words = stripped.split("\\s+");
+    return words.length <= MAX_HEADING_WORDS && ".!?;,".indexOf(stripped.charAt(stripped.length() - 1)) < 0
+        && Arrays.stream(words).allMatch(word -> word.length() <= 3 || Character.isUpperCase(word.charAt(0)))
+        && Character.isUpperCase(stripped.charAt(0));
+  }
+}
@@ -0,0 +1,72 @@
+package ca.letkeman.resumes.optimizer;
+
+import ca.letkeman.resumes.Utility;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import org.commonmark.node.Node;
+
+/**
+ * The formats a parsed markdown document can be rendered to, with the file extension and media
+ * type each is served with.
+ */
+public enum DocumentFormat {
+
+  PDF(".pdf", "application/pdf"),
+  DOCX(".docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+
+  private final String extension;
+  private final String mediaType;
+
+  DocumentFormat(String extension, String mediaType) {
+    this.extension = extension;
+    this.mediaType = mediaType;
+  }
+
+  public String getExtension() {
+    return extension;
+  }
+
+  public String getMediaType() {
+    return mediaType;
+  }
+
+  /**
+   * Name of the file rendered from a markdown file: its base name with this format's extension.
+   *
+   * @param source the markdown file name, may include a path or be null
+   * @return the output file name, "document" plus the extension when there is no usable name
+   */
+  public String fileName(String source) {
+    String name = source == null ? ""
+        : source.substring(Math.max(source.lastIndexOf('/'), source.lastIndexOf('\\')) + 1);
+    name = Utility.removeFileExtension(name, true);
+    return (name == null || name.isBlank() ? "document" : name) + extension;
+  }
+
+  /**
+   * Render a parsed markdown document.
+   *
+   * @param document the parsed markdown, see {@link MarkdownDocument}
+   * @param out receives the document; not closed
+   * @throws IOException if the document cannot be written
+   */
+  public void write(Node document, OutputStream out) throws IOException {
+    if (this == PDF) {
+      HtmlToPdf.write(document, out);
+    } else {
+      MarkdownToDocx.write(document, out);
+    }
+  }
+
+  /**
+   * Look up a format by name, ignoring case.
+   *
+   * @param name "pdf" or "docx"
+   * @return the format
+   * @throws IllegalArgumentException for any other name
+   */
+  public static DocumentFormat of(String name) {
+    return valueOf(name.trim().toUpperCase(Locale.ROOT));
+  }
+}
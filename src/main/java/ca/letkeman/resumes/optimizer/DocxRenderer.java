@@ -0,0 +1,558 @@
+package ca.letkeman.resumes.optimizer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.commonmark.node.AbstractVisitor;
+import org.commonmark.node.BlockQuote;
+import org.commonmark.node.BulletList;
+import org.commonmark.node.Code;
+import org.commonmark.node.Emphasis;
+import org.commonmark.node.FencedCodeBlock;
+import org.commonmark.node.HardLineBreak;
+import org.commonmark.node.Heading;
+import org.commonmark.node.HtmlBlock;
+import org.commonmark.node.HtmlInline;
+import org.commonmark.node.IndentedCodeBlock;
+import org.commonmark.node.Link;
+import org.commonmark.node.ListItem;
+import org.commonmark.node.Node;
+import org.commonmark.node.OrderedList;
+import org.commonmark.node.Paragraph;
+import org.commonmark.node.SoftLineBreak;
+import org.commonmark.node.StrongEmphasis;
+import org.commonmark.node.Text;
+import org.commonmark.node.ThematicBreak;
+
+/**
+ * Writes a commonmark node tree as a Word document. Headings, code and quotes use paragraph
+ * styles and lists use Word numbering, so the document keeps its structure when edited.
+ * The WordprocessingML is written straight into the package: the styles part and the list
+ * level definitions are built once, and no POI object model is built per document.
+ */
+final class DocxRenderer extends AbstractVisitor {
+
+  static final String CODE_STYLE = "Code";
+  static final String QUOTE_STYLE = "Quote";
+  static final String INLINE_CODE_STYLE = "CodeChar";
+  static final String HYPERLINK_STYLE = "Hyperlink";
+
+  private static final String CODE_FONT = "Consolas";
+  private static final int MAX_LIST_LEVEL = 8;
+  private static final int LIST_INDENT = 720;
+  private static final int LIST_HANGING = 360;
+  private static final String[] BULLETS = {"•", "◦", "▪"};
+  private static final String[] ORDERED_FORMATS = {"decimal", "lowerLetter", "lowerRoman"};
+  // Heading 1 to 6 font sizes in half points: 28, 24 and 20 points as before, then smaller
+  private static final int[] HEADING_SIZES = {56, 48, 40, 32, 28, 24};
+  // Blocks are handed to the zip stream once this much XML is waiting
+  private static final int FLUSH_CHARS = 8192;
+
+  private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+  private static final String WORD_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+  private static final String RELATIONSHIP_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+  private static final String CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.wordprocessingml.";
+
+  private static final byte[] ROOT_RELATIONSHIPS = (XML_DECLARATION
+      + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+      + "<Relationship Id=\"rId1\" Type=\"" + RELATIONSHIP_NS + "/officeDocument\" Target=\"word/document.xml\"/>"
+      + "</Relationships>").getBytes(StandardCharsets.UTF_8);
+  private static final byte[] STYLES = buildStyles().getBytes(StandardCharsets.UTF_8);
+  private static final String[] BULLET_LEVELS = buildLevels(true);
+  private static final String[] ORDERED_LEVELS = buildLevels(false);
+
+  private final StringBuilder xml = new StringBuilder(FLUSH_CHARS * 2);
+  private final Deque<Integer> lists = new ArrayDeque<>();
+  // Hyperlink targets by relationship id; the styles and numbering parts take rId1 and rId2
+  private final Map<String, String> hyperlinks = new LinkedHashMap<>();
+  private final StringBuilder nums = new StringBuilder();
+  private int numCount;
+  private int bulletNumId;
+  private int deepestBulletLevel = -1;
+  private int deepestOrderedLevel = -1;
+  private boolean paragraphOpen;
+  private boolean listItemStarted;
+  private int quoteDepth;
+  private int bold;
+  private int italic;
+  private String linkUrl;
+  private final StringBuilder pendingText = new StringBuilder();
+  private boolean pendingBold;
+  private boolean pendingItalic;
+  private String pendingLink;
+
+  private DocxRenderer() {
+  }
+
+  /**
+   * Write a markdown document as a DOCX package.
+   *
+   * @param document the parsed markdown
+   * @param out receives the DOCX; not closed
+   * @throws IOException if the package cannot be written
+   */
+  static void write(Node document, OutputStream out) throws IOException {
+    DocxRenderer renderer = new DocxRenderer();
+    ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+    Writer writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+    char[] buffer = new char[FLUSH_CHARS * 2];
+
+    zip.putNextEntry(new ZipEntry("word/document.xml"));
+    renderer.xml.append(XML_DECLARATION).append("<w:document xmlns:w=\"").append(WORD_NS)
+        .append("\" xmlns:r=\"").append(RELATIONSHIP_NS).append("\"><w:body>");
+    for (Node block = document.getFirstChild(); block != null; block = block.getNext()) {
+      block.accept(renderer);
+      if (renderer.xml.length() >= FLUSH_CHARS) {
+        renderer.drainTo(writer, buffer);
+      }
+    }
+    renderer.closeParagraph();
+    renderer.xml.append("</w:body></w:document>");
+    renderer.drainTo(writer, buffer);
+    writer.flush();
+    zip.closeEntry();
+
+    boolean numbered = renderer.numCount > 0;
+    writeEntry(zip, "[Content_Types].xml", contentTypes(numbered).getBytes(StandardCharsets.UTF_8));
+    writeEntry(zip, "_rels/.rels", ROOT_RELATIONSHIPS);
+    writeEntry(zip, "word/_rels/document.xml.rels",
+        renderer.documentRelationships(numbered).getBytes(StandardCharsets.UTF_8));
+    writeEntry(zip, "word/styles.xml", STYLES);
+    if (numbered) {
+      writeEntry(zip, "word/numbering.xml", renderer.numbering().getBytes(StandardCharsets.UTF_8));
+    }
+    zip.finish();
+  }
+
+  @Override
+  public void visit(Heading heading) {
+    startParagraph("Heading" + Math.min(heading.getLevel(), HEADING_SIZES.length));
+    visitChildren(heading);
+    closeParagraph();
+  }
+
+  @Override
+  public void visit(Paragraph node) {
+    startParagraph(null);
+    visitChildren(node);
+    closeParagraph();
+  }
+
+  @Override
+  public void visit(BlockQuote blockQuote) {
+    quoteDepth++;
+    visitChildren(blockQuote);
+    quoteDepth--;
+  }
+
+  @Override
+  public void visit(BulletList bulletList) {
+    if (bulletNumId == 0) {
+      // Bullets look the same everywhere, so all bullet lists share one numbering instance
+      bulletNumId = addNum(0, 0, 1);
+    }
+    visitList(bulletList, bulletNumId);
+  }
+
+  @Override
+  public void visit(OrderedList orderedList) {
+    // Each ordered list counts from its own start number
+    Integer start = orderedList.getMarkerStartNumber();
+    int numId = addNum(1, Math.min(lists.size(), MAX_LIST_LEVEL), start == null ? 1 : start);
+    visitList(orderedList, numId);
+  }
+
+  private void visitList(Node list, int numId) {
+    lists.push(numId);
+    visitChildren(list);
+    lists.pop();
+  }
+
+  @Override
+  public void visit(ListItem listItem) {
+    listItemStarted = true;
+    visitChildren(listItem);
+    if (listItemStarted) {
+      // An empty item still gets its number
+      startParagraph(null);
+      closeParagraph();
+    }
+  }
+
+  @Override
+  public void visit(FencedCodeBlock codeBlock) {
+    addCodeBlock(codeBlock.getLiteral());
+  }
+
+  @Override
+  public void visit(IndentedCodeBlock codeBlock) {
+    addCodeBlock(codeBlock.getLiteral());
+  }
+
+  @Override
+  public void visit(HtmlBlock htmlBlock) {
+    addCodeBlock(htmlBlock.getLiteral());
+  }
+
+  @Override
+  public void visit(ThematicBreak thematicBreak) {
+    startParagraph(null, true);
+    closeParagraph();
+  }
+
+  @Override
+  public void visit(Text text) {
+    addText(text.getLiteral());
+  }
+
+  @Override
+  public void visit(Code code) {
+    flushText(false);
+    writeRun(code.getLiteral(), currentLink(), bold > 0, italic > 0, INLINE_CODE_STYLE, false);
+  }
+
+  @Override
+  public void visit(Emphasis emphasis) {
+    italic++;
+    visitChildren(emphasis);
+    italic--;
+  }
+
+  @Override
+  public void visit(StrongEmphasis strongEmphasis) {
+    bold++;
+    visitChildren(strongEmphasis);
+    bold--;
+  }
+
+  @Override
+  public void visit(Link link) {
+    String outer = linkUrl;
+    linkUrl = link.getDestination();
+    visitChildren(link);
+    linkUrl = outer;
+  }
+
+  @Override
+  public void visit(SoftLineBreak softLineBreak) {
+    addText(" ");
+  }
+
+  @Override
+  public void visit(HardLineBreak hardLineBreak) {
+    addBreak();
+  }
+
+  @Override
+  public void visit(HtmlInline htmlInline) {
+    // Tags carry no text of their own; only line breaks matter in a document
+    if (htmlInline.getLiteral().toLowerCase(Locale.ROOT).startsWith("<br")) {
+      addBreak();
+    }
+  }
+
+  private void startParagraph(String style) {
+    startParagraph(style, false);
+  }
+
+  private void startParagraph(String style, boolean borderBelow) {
+    closeParagraph();
+    paragraphOpen = true;
+    String paragraphStyle = style == null && quoteDepth > 0 ? QUOTE_STYLE : style;
+    int level = Math.min(lists.size() - 1, MAX_LIST_LEVEL);
+    boolean numbered = !lists.isEmpty() && listItemStarted;
+    // Further paragraphs of an item line up with its text
+    boolean indented = !lists.isEmpty() && !listItemStarted;
+    xml.append("<w:p>");
+    if (paragraphStyle == null && !numbered && !indented && !borderBelow) {
+      return;
+    }
+    // Children in the order the schema requires
+    xml.append("<w:pPr>");
+    if (paragraphStyle != null) {
+      xml.append("<w:pStyle w:val=\"").append(paragraphStyle).append("\"/>");
+    }
+    if (numbered) {
+      int numId = lists.peek();
+      xml.append("<w:numPr><w:ilvl w:val=\"").append(level).append("\"/><w:numId w:val=\"").append(numId)
+          .append("\"/></w:numPr>");
+      if (numId == bulletNumId) {
+        deepestBulletLevel = Math.max(deepestBulletLevel, level);
+      } else {
+        deepestOrderedLevel = Math.max(deepestOrderedLevel, level);
+      }
+      listItemStarted = false;
+    }
+    if (borderBelow) {
+      xml.append("<w:pBdr><w:bottom w:val=\"single\" w:sz=\"4\" w:space=\"1\" w:color=\"auto\"/></w:pBdr>");
+    }
+    if (indented) {
+      xml.append("<w:ind w:left=\"").append(LIST_INDENT * (level + 1)).append("\"/>");
+    }
+    xml.append("</w:pPr>");
+  }
+
+  private void closeParagraph() {
+    if (!paragraphOpen) {
+      return;
+    }
+    flushText(false);
+    xml.append("</w:p>");
+    paragraphOpen = false;
+  }
+
+  // Adjacent text with the same formatting goes into one run; commonmark splits text at every
+  // delimiter it considered, and a run per piece makes documents several times larger
+  private void addText(String text) {
+    if (!paragraphOpen) {
+      startParagraph(null);
+    }
+    String link = currentLink();
+    boolean isBold = bold > 0;
+    boolean isItalic = italic > 0;
+    if (!pendingText.isEmpty()
+        && (isBold != pendingBold || isItalic != pendingItalic || !Objects.equals(link, pendingLink))) {
+      flushText(false);
+    }
+    pendingText.append(text);
+    pendingBold = isBold;
+    pendingItalic = isItalic;
+    pendingLink = link;
+  }
+
+  private void flushText(boolean breakAfter) {
+    if (pendingText.isEmpty()) {
+      if (breakAfter) {
+        writeRun(null, currentLink(), bold > 0, italic > 0, null, true);
+      }
+      return;
+    }
+    writeRun(pendingText, pendingLink, pendingBold, pendingItalic, null, breakAfter);
+    pendingText.setLength(0);
+  }
+
+  private void addBreak() {
+    flushText(true);
+  }
+
+  private void writeRun(CharSequence text, String link, boolean isBold, boolean isItalic, String style,
+      boolean breakAfter) {
+    if (!paragraphOpen) {
+      startParagraph(null);
+    }
+    if (link != null) {
+      xml.append("<w:hyperlink r:id=\"").append(hyperlinkId(link)).append("\">");
+    }
+    xml.append("<w:r>");
+    String runStyle = style == null && link != null ? HYPERLINK_STYLE : style;
+    if (runStyle != null || isBold || isItalic) {
+      xml.append("<w:rPr>");
+      if (runStyle != null) {
+        xml.append("<w:rStyle w:val=\"").append(runStyle).append("\"/>");
+      }
+      if (isBold) {
+        xml.append("<w:b/>");
+      }
+      if (isItalic) {
+        xml.append("<w:i/>");
+      }
+      xml.append("</w:rPr>");
+    }
+    if (text != null) {
+      appendText(text, 0, text.length());
+    }
+    if (breakAfter) {
+      xml.append("<w:br/>");
+    }
+    xml.append("</w:r>");
+    if (link != null) {
+      xml.append("</w:hyperlink>");
+    }
+  }
+
+  private String currentLink() {
+    return linkUrl != null && !linkUrl.isBlank() ? linkUrl : null;
+  }
+
+  private String hyperlinkId(String url) {
+    return hyperlinks.computeIfAbsent(url, key -> "rId" + (hyperlinks.size() + 3));
+  }
+
+  private void addCodeBlock(String literal) {
+    startParagraph(CODE_STYLE);
+    String code = literal.stripTrailing();
+    xml.append("<w:r>");
+    int lineStart = 0;
+    for (int i = 0; i <= code.length(); i++) {
+      if (i == code.length() || code.charAt(i) == '\n') {
+        int lineEnd = i > lineStart && code.charAt(i - 1) == '\r' ? i - 1 : i;
+        if (lineStart > 0) {
+          xml.append("<w:br/>");
+        }
+        appendText(code, lineStart, lineEnd);
+        lineStart = i + 1;
+      }
+    }
+    xml.append("</w:r>");
+    closeParagraph();
+  }
+
+  private void appendText(CharSequence text, int start, int end) {
+    xml.append("<w:t");
+    if (end > start && (Character.isWhitespace(text.charAt(start)) || Character.isWhitespace(text.charAt(end - 1)))) {
+      xml.append(" xml:space=\"preserve\"");
+    }
+    xml.append('>');
+    appendEscaped(xml, text, start, end);
+    xml.append("</w:t>");
+  }
+
+  private int addNum(int abstractNumId, int startLevel, int start) {
+    int numId = ++numCount;
+    nums.append("<w:num w:numId=\"").append(numId).append("\"><w:abstractNumId w:val=\"").append(abstractNumId)
+        .append("\"/>");
+    if (start != 1) {
+      nums.append("<w:lvlOverride w:ilvl=\"").append(startLevel).append("\"><w:startOverride w:val=\"")
+          .append(start).append("\"/></w:lvlOverride>");
+    }
+    nums.append("</w:num>");
+    return numId;
+  }
+
+  // Only the levels the document reaches are defined
+  private String numbering() {
+    StringBuilder part = new StringBuilder(XML_DECLARATION).append("<w:numbering xmlns:w=\"").append(WORD_NS)
+        .append("\">");
+    appendAbstractNum(part, 0, BULLET_LEVELS, deepestBulletLevel);
+    appendAbstractNum(part, 1, ORDERED_LEVELS, deepestOrderedLevel);
+    return part.append(nums).append("</w:numbering>").toString();
+  }
+
+  private static void appendAbstractNum(StringBuilder part, int id, String[] levels, int deepestLevel) {
+    part.append("<w:abstractNum w:abstractNumId=\"").append(id).append("\">");
+    for (int level = 0; level <= Math.max(deepestLevel, 0); level++) {
+      part.append(levels[level]);
+    }
+    part.append("</w:abstractNum>");
+  }
+
+  private String documentRelationships(boolean numbered) {
+    StringBuilder part = new StringBuilder(XML_DECLARATION)
+        .append("<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">")
+        .append("<Relationship Id=\"rId1\" Type=\"").append(RELATIONSHIP_NS)
+        .append("/styles\" Target=\"styles.xml\"/>");
+    if (numbered) {
+      part.append("<Relationship Id=\"rId2\" Type=\"").append(RELATIONSHIP_NS)
+          .append("/numbering\" Target=\"numbering.xml\"/>");
+    }
+    for (Map.Entry<String, String> link : hyperlinks.entrySet()) {
+      part.append("<Relationship Id=\"").append(link.getValue()).append("\" Type=\"").append(RELATIONSHIP_NS)
+          .append("/hyperlink\" Target=\"");
+      appendEscaped(part, link.getKey(), 0, link.getKey().length());
+      part.append("\" TargetMode=\"External\"/>");
+    }
+    return part.append("</Relationships>").toString();
+  }
+
+  private void drainTo(Writer writer, char[] buffer) throws IOException {
+    for (int start = 0; start < xml.length(); start += buffer.length) {
+      int end = Math.min(xml.length(), start + buffer.length);
+      xml.getChars(start, end, buffer, 0);
+      writer.write(buffer, 0, end - start);
+    }
+    xml.setLength(0);
+  }
+
+  private static void writeEntry(ZipOutputStream zip, String name, byte[] content) throws IOException {
+    zip.putNextEntry(new ZipEntry(name));
+    zip.write(content);
+    zip.closeEntry();
+  }
+
+  private static String contentTypes(boolean numbered) {
+    StringBuilder part = new StringBuilder(XML_DECLARATION)
+        .append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+        .append("<Default Extension=\"rels\" ContentType=\"")
+        .append("application/vnd.openxmlformats-package.relationships+xml\"/>")
+        .append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>")
+        .append("<Override PartName=\"/word/document.xml\" ContentType=\"").append(CONTENT_TYPE)
+        .append("document.main+xml\"/>")
+        .append("<Override PartName=\"/word/styles.xml\" ContentType=\"").append(CONTENT_TYPE).append("styles+xml\"/>");
+    if (numbered) {
+      part.append("<Override PartName=\"/word/numbering.xml\" ContentType=\"").append(CONTENT_TYPE)
+          .append("numbering+xml\"/>");
+    }
+    return part.append("</Types>").toString();
+  }
+
+  // Escapes markup characters and drops control characters XML 1.0 does not allow
+  private static void appendEscaped(StringBuilder out, CharSequence text, int start, int end) {
+    for (int i = start; i < end; i++) {
+      char c = text.charAt(i);
+      switch (c) {
+        case '&' -> out.append("&amp;");
+        case '<' -> out.append("&lt;");
+        case '>' -> out.append("&gt;");
+        case '"' -> out.append("&quot;");
+        case '\t', '\n', '\r' -> out.append(c);
+        default -> {
+          if (c >= 0x20 && c != 0xFFFE && c != 0xFFFF) {
+            out.append(c);
+          }
+        }
+      }
+    }
+  }
+
+  private static String buildStyles() {
+    StringBuilder styles = new StringBuilder(XML_DECLARATION).append("<w:styles xmlns:w=\"").append(WORD_NS)
+        .append("\">");
+    for (int level = 1; level <= HEADING_SIZES.length; level++) {
+      startStyle(styles, "Heading" + level, "heading " + level, "paragraph")
+          .append("<w:pPr><w:keepNext/><w:spacing w:before=\"").append(level == 1 ? 240 : 200)
+          .append("\"/><w:outlineLvl w:val=\"").append(level - 1).append("\"/></w:pPr>")
+          .append("<w:rPr><w:b/><w:sz w:val=\"").append(HEADING_SIZES[level - 1]).append("\"/></w:rPr></w:style>");
+    }
+    startStyle(styles, CODE_STYLE, "Code", "paragraph")
+        .append("<w:pPr><w:spacing w:after=\"0\"/></w:pPr>").append(codeFont()).append("</w:style>");
+    startStyle(styles, QUOTE_STYLE, "Quote", "paragraph")
+        .append("<w:pPr><w:ind w:left=\"").append(LIST_INDENT).append("\"/></w:pPr>")
+        .append("<w:rPr><w:i/><w:color w:val=\"595959\"/></w:rPr></w:style>");
+    startStyle(styles, INLINE_CODE_STYLE, "Code Char", "character").append(codeFont()).append("</w:style>");
+    startStyle(styles, HYPERLINK_STYLE, "Hyperlink", "character")
+        .append("<w:rPr><w:color w:val=\"0563C1\"/><w:u w:val=\"single\"/></w:rPr></w:style>");
+    return styles.append("</w:styles>").toString();
+  }
+
+  private static StringBuilder startStyle(StringBuilder styles, String id, String name, String type) {
+    return styles.append("<w:style w:type=\"").append(type).append("\" w:styleId=\"").append(id)
+        .append("\"><w:name w:val=\"").append(name).append("\"/><w:qFormat/>");
+  }
+
+  private static String codeFont() {
+    return "<w:rPr><w:rFonts w:ascii=\"" + CODE_FONT + "\" w:hAnsi=\"" + CODE_FONT + "\"/>"
+        + "<w:sz w:val=\"20\"/></w:rPr>";
+  }
+
+  private static String[] buildLevels(boolean bullets) {
+    String[] levels = new String[MAX_LIST_LEVEL + 1];
+    for (int level = 0; level <= MAX_LIST_LEVEL; level++) {
+      String format = bullets ? "bullet" : ORDERED_FORMATS[level % ORDERED_FORMATS.length];
+      String text = bullets ? BULLETS[level % BULLETS.length] : "%" + (level + 1) + ".";
+      levels[level] = "<w:lvl w:ilvl=\"" + level + "\"><w:start w:val=\"1\"/><w:numFmt w:val=\"" + format
+          + "\"/><w:lvlText w:val=\"" + text + "\"/><w:pPr><w:ind w:left=\"" + LIST_INDENT * (level + 1)
+          + "\" w:hanging=\"" + LIST_HANGING + "\"/></w:pPr></w:lvl>";
+    }
+    return levels;
+  }
+}
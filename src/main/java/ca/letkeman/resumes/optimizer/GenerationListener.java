@@ -0,0 +1,144 @@
+package ca.letkeman.resumes.optimizer;
+
+import java.util.List;
+
+/**
+ * Receives progress callbacks while a background generation runs.
+ * All methods default to no-ops so callers only override what they track.
+ */
+public interface GenerationListener {
+
+  /**
+   * Listener that ignores every callback.
+   */
+  GenerationListener NONE = new GenerationListener() {
+  };
+
+  /**
+   * Combine listeners so each callback is delivered to all of them, in order.
+   *
+   * @param listeners the listeners to notify
+   * @return a listener forwarding to every given listener
+   */
+  static GenerationListener of(GenerationListener... listeners) {
+    List<GenerationListener> targets = List.of(listeners);
+    return new GenerationListener() {
+      @Override
+      public void onJobStarted() {
+        targets.forEach(GenerationListener::onJobStarted);
+      }
+
+      @Override
+      public void onJobFinished() {
+        targets.forEach(GenerationListener::onJobFinished);
+      }
+
+      @Override
+      public void onPromptStarted(String promptType) {
+        targets.forEach(l -> l.onPromptStarted(promptType));
+      }
+
+      @Override
+      public void onLlmRequestStarted(String promptType) {
+        targets.forEach(l -> l.onLlmRequestStarted(promptType));
+      }
+
+      @Override
+      public void onToken(String promptType, String token) {
+        targets.forEach(l -> l.onToken(promptType, token));
+      }
+
+      @Override
+      public void onLlmResponseReceived(String promptType, long elapsedMillis) {
+        targets.forEach(l -> l.onLlmResponseReceived(promptType, elapsedMillis));
+      }
+
+      @Override
+      public void onFileWritten(String promptType, String fileName) {
+        targets.forEach(l -> l.onFileWritten(promptType, fileName));
+      }
+
+      @Override
+      public void onPromptCompleted(String promptType) {
+        targets.forEach(l -> l.onPromptCompleted(promptType));
+      }
+
+      @Override
+      public void onPromptFailed(String promptType, String reason) {
+        targets.forEach(l -> l.onPromptFailed(promptType, reason));
+      }
+    };
+  }
+
+  /**
+   * A worker picked up the generation.
+   */
+  default void onJobStarted() {
+  }
+
+  /**
+   * All prompt types of the generation have been processed.
+   */
+  default void onJobFinished() {
+  }
+
+  /**
+   * Processing of a single prompt type has started.
+   *
+   * @param promptType the prompt type being generated
+   */
+  default void onPromptStarted(String promptType) {
+  }
+
+  /**
+   * The expanded prompt is being sent to the LLM.
+   *
+   * @param promptType the prompt type being generated
+   */
+  default void onLlmRequestStarted(String promptType) {
+  }
+
+  /**
+   * A piece of the completion arrived while streaming.
+   *
+   * @param promptType the prompt type being generated
+   * @param token the content delta
+   */
+  default void onToken(String promptType, String token) {
+  }
+
+  /**
+   * The LLM call returned (successfully or not).
+   *
+   * @param promptType the prompt type being generated
+   * @param elapsedMillis time spent waiting on the LLM
+   */
+  default void onLlmResponseReceived(String promptType, long elapsedMillis) {
+  }
+
+  /**
+   * An output file was written to the upload directory.
+   *
+   * @param promptType the prompt type being generated
+   * @param fileName name of the file, relative to the upload directory
+   */
+  default void onFileWritten(String promptType, String fileName) {
+  }
+
+  /**
+   * All outputs for the prompt type were produced.
+   *
+   * @param promptType the prompt type being generated
+   */
+  default void onPromptCompleted(String promptType) {
+  }
+
+  /**
+   * The prompt type could not be generated.
+   *
+   * @param promptType the prompt type being generated
+   * @param reason short description of the failure
+   */
+  default void onPromptFailed(String promptType, String reason) {
+  }
+}
@@ -1,24 +1,19 @@
 package ca.letkeman.resumes.optimizer;
 
-import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import org.commonmark.node.Node;
-import org.commonmark.parser.Parser;
 import org.commonmark.renderer.html.HtmlRenderer;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.xhtmlrenderer.pdf.ITextRenderer;
 
 public final class HtmlToPdf {
 
   private static Logger logger = LoggerFactory.getLogger(HtmlToPdf.class);
+  private static final HtmlRenderer HTML_RENDERER = HtmlRenderer.builder().build();
 
   private String markdownFilePath;
   private String pdfFilePath;
@@ -74,34 +69,37 @@ public final class HtmlToPdf {
     return document.html();
   }
 
-  private static void xhtmlToPdf(String xhtml, String outFileName) throws IOException {
-    File output = new File(outFileName);
-    ITextRenderer textRenderer = new ITextRenderer();
-    textRenderer.setDocumentFromString(xhtml);
-    textRenderer.layout();
-    OutputStream os = new FileOutputStream(output);
-    textRenderer.createPDF(os);
-    os.close();
+  private static void xhtmlToPdf(String xhtml, OutputStream os) {
+    PdfRendererPool.shared().render(xhtml, os);
   }
 
   public boolean convertFile() {
-    String content = "";
+    Node document;
     if (getMarkdownContent() == null || getMarkdownContent().isBlank()) {
       try {
-        content = new String(Files.readAllBytes(Paths.get(getMarkdownFilePath())), StandardCharsets.UTF_8);
+        document = MarkdownDocument.read(getMarkdownFilePath());
       } catch (IOException e) {
         logger.error("Error unable to read markdown file:\n{}", e.toString());
         return false;
       }
     } else {
-      content = getMarkdownContent();
+      document = MarkdownDocument.parse(getMarkdownContent());
     }
-    Parser parser = Parser.builder().build();
-    Node document = parser.parse(content);
-    HtmlRenderer renderer = HtmlRenderer.builder().build();
+    return convert(document);
+  }
 
+  /**
+   * Render an already parsed markdown document to the PDF file path.
+   *
+   * @param document the parsed markdown, see {@link MarkdownDocument}
+   * @return true when the PDF was saved
+   */
+  public boolean convert(Node document) {
     try {
-      xhtmlToPdf(htmlToXhtml(renderer.render(document)), getPdfFilePath());
+      String xhtml = htmlToXhtml(HTML_RENDERER.render(document));
+      try (OutputStream os = new FileOutputStream(getPdfFilePath())) {
+        xhtmlToPdf(xhtml, os);
+      }
       logger.info("PDF saved to: {}", getPdfFilePath());
     } catch (Exception e) {
       logger.error("Error unable to save PDF file:\n{}", e.toString());
@@ -110,6 +108,16 @@ public final class HtmlToPdf {
     return true;
   }
 
+  /**
+   * Render a parsed markdown document as PDF.
+   *
+   * @param document the parsed markdown, see {@link MarkdownDocument}
+   * @param os receives the PDF; not closed
+   */
+  public static void write(Node document, OutputStream os) {
+    xhtmlToPdf(htmlToXhtml(HTML_RENDERER.render(document)), os);
+  }
+
   /*
    * sample usage:
    * HtmlToPdf htmlToPdf = new HtmlToPdf("sample/resume.md","output.pdf", "");
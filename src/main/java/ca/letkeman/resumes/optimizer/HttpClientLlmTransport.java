@@ -0,0 +1,248 @@
+package ca.letkeman.resumes.optimizer;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * LLM transport on a single shared {@link HttpClient}.
+ * The client pools connections, so repeated calls to the same endpoint reuse them (HTTP/1.1
+ * keep-alive); https endpoints negotiate HTTP/2 when the server supports it.
+ * The request timeout only covers the wait for headers, so body reads are bounded separately:
+ * a whole response must finish within the read idle timeout after its headers, and a stream
+ * is closed once no data arrives for that long.
+ */
+@Component
+public final class HttpClientLlmTransport implements LlmTransport {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientLlmTransport.class);
+
+  static final long DEFAULT_CONNECT_TIMEOUT_SECONDS = 10;
+  static final long DEFAULT_REQUEST_TIMEOUT_SECONDS = 300;
+  static final long DEFAULT_READ_IDLE_TIMEOUT_SECONDS = 120;
+
+  private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(
+      Thread.ofPlatform().name("llm-read-watchdog").daemon().factory());
+
+  private final HttpClient client;
+  private final Duration requestTimeout;
+  private final Duration readIdleTimeout;
+
+  /**
+   * Create the transport.
+   *
+   * @param connectTimeoutSeconds time allowed to open a connection
+   * @param requestTimeoutSeconds time allowed until the response headers arrive
+   * @param readIdleTimeoutSeconds time allowed without receiving body data once the headers arrived
+   */
+  public HttpClientLlmTransport(
+      @Value("${llm.http.connect-timeout-seconds:10}") long connectTimeoutSeconds,
+      @Value("${llm.http.request-timeout-seconds:300}") long requestTimeoutSeconds,
+      @Value("${llm.http.read-idle-timeout-seconds:120}") long readIdleTimeoutSeconds) {
+    this.requestTimeout = Duration.ofSeconds(Math.max(1, requestTimeoutSeconds));
+    this.readIdleTimeout = Duration.ofSeconds(Math.max(1, readIdleTimeoutSeconds));
+    this.client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .connectTimeout(Duration.ofSeconds(Math.max(1, connectTimeoutSeconds)))
+        .followRedirects(HttpClient.Redirect.NORMAL)
+        .build();
+  }
+
+  /**
+   * Transport with default timeouts, shared by ApiService instances created outside Spring.
+   *
+   * @return the shared transport
+   */
+  public static HttpClientLlmTransport shared() {
+    return SharedHolder.INSTANCE;
+  }
+
+  @Override
+  public Response post(String endpoint, String apikey, String jsonBody) throws IOException, InterruptedException {
+    HttpResponse<String> response = await(sendBounded(
+        buildRequest(endpoint, apikey, jsonBody, "application/json"),
+        HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8),
+        requestTimeout.plus(readIdleTimeout)));
+    return new Response(response.statusCode(), response.body(), response.headers().map());
+  }
+
+  @Override
+  public Response postStreaming(String endpoint, String apikey, String jsonBody, Predicate<String> lineConsumer)
+      throws IOException, InterruptedException {
+    HttpResponse<InputStream> response = await(sendBounded(
+        buildRequest(endpoint, apikey, jsonBody, "text/event-stream"),
+        HttpResponse.BodyHandlers.ofInputStream(),
+        requestTimeout));
+    IdleWatchdog watchdog = new IdleWatchdog(response.body(), readIdleTimeout);
+    try (watchdog; BufferedReader br = new BufferedReader(new InputStreamReader(watchdog, StandardCharsets.UTF_8))) {
+      if (response.statusCode() != 200) {
+        StringBuilder errorResponse = new StringBuilder();
+        String line;
+        while ((line = br.readLine()) != null) {
+          errorResponse.append(line);
+        }
+        watchdog.throwIfExpired();
+        return new Response(response.statusCode(), errorResponse.toString(), response.headers().map());
+      }
+      String line = br.readLine();
+      while (line != null && lineConsumer.test(line)) {
+        line = br.readLine();
+      }
+      // Drain anything after the end marker so the connection goes back to the pool
+      watchdog.transferTo(OutputStream.nullOutputStream());
+      watchdog.throwIfExpired();
+    } catch (IOException e) {
+      watchdog.throwIfExpired();
+      throw e;
+    }
+    return new Response(response.statusCode(), null, response.headers().map());
+  }
+
+  /**
+   * Send a request whose future fails with a {@link TimeoutException} after {@code deadline}.
+   * Timing out or cancelling the returned future aborts the exchange and frees its connection.
+   */
+  private <T> CompletableFuture<HttpResponse<T>> sendBounded(
+      HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler, Duration deadline) {
+    CompletableFuture<HttpResponse<T>> exchange = client.sendAsync(request, bodyHandler);
+    CompletableFuture<HttpResponse<T>> bounded = exchange.copy()
+        .orTimeout(deadline.toMillis(), TimeUnit.MILLISECONDS);
+    bounded.whenComplete((response, error) -> {
+      if (error != null) {
+        exchange.cancel(true);
+      }
+    });
+    return bounded;
+  }
+
+  private static <T> T await(CompletableFuture<T> pending) throws IOException, InterruptedException {
+    try {
+      return pending.get();
+    } catch (InterruptedException e) {
+      // Cancelling aborts the exchange, which hedging relies on to release the losing call
+      pending.cancel(true);
+      throw e;
+    } catch (ExecutionException e) {
+      throw asIoException(e.getCause());
+    }
+  }
+
+  private static IOException asIoException(Throwable cause) {
+    if (cause instanceof IOException io) {
+      return io;
+    }
+    if (cause instanceof TimeoutException) {
+      return new HttpTimeoutException("LLM response not complete in time");
+    }
+    return new IOException(cause);
+  }
+
+  private HttpRequest buildRequest(String endpoint, String apikey, String jsonBody, String accept) {
+    URI uri = URI.create(endpoint);
+    // Cleartext HTTP/2 needs an upgrade round trip most local LLM servers don't support
+    HttpClient.Version version = "https".equalsIgnoreCase(uri.getScheme())
+        ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1;
+    LOGGER.debug("POST {} using {}", uri, version);
+    return HttpRequest.newBuilder(uri)
+        .version(version)
+        .timeout(requestTimeout)
+        .header("Authorization", "Basic " + apikey)
+        .header("Content-Type", "application/json")
+        .header("Accept", accept)
+        .POST(HttpRequest.BodyPublishers.ofString(jsonBody, StandardCharsets.UTF_8))
+        .build();
+  }
+
+  private static final class SharedHolder {
+    private static final HttpClientLlmTransport INSTANCE =
+        new HttpClientLlmTransport(DEFAULT_CONNECT_TIMEOUT_SECONDS, DEFAULT_REQUEST_TIMEOUT_SECONDS,
+            DEFAULT_READ_IDLE_TIMEOUT_SECONDS);
+  }
+
+  /**
+   * Body stream that is closed when no data arrives within the idle timeout, which wakes up
+   * a reader blocked on a server that sent its headers and went silent.
+   */
+  private static final class IdleWatchdog extends FilterInputStream {
+    private final long idleNanos;
+    private volatile long lastReadNanos = System.nanoTime();
+    private volatile boolean expired;
+    private volatile boolean closed;
+
+    IdleWatchdog(InputStream body, Duration idleTimeout) {
+      super(body);
+      this.idleNanos = idleTimeout.toNanos();
+      schedule(idleNanos);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      lastReadNanos = System.nanoTime();
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int n = super.read(buffer, offset, length);
+      lastReadNanos = System.nanoTime();
+      return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+      closed = true;
+      super.close();
+    }
+
+    void throwIfExpired() throws HttpTimeoutException {
+      if (expired) {
+        throw new HttpTimeoutException(
+            "LLM stream sent no data for " + TimeUnit.NANOSECONDS.toSeconds(idleNanos) + "s");
+      }
+    }
+
+    private void schedule(long delayNanos) {
+      // One pending check per stream, pushed back by reads instead of rescheduled on every line
+      WATCHDOG.schedule(this::check, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void check() {
+      if (closed) {
+        return;
+      }
+      long idle = System.nanoTime() - lastReadNanos;
+      if (idle < idleNanos) {
+        schedule(idleNanos - idle);
+        return;
+      }
+      expired = true;
+      try {
+        close();
+      } catch (IOException e) {
+        LOGGER.debug("Closing idle LLM stream failed: {}", e.getMessage());
+      }
+    }
+  }
+}
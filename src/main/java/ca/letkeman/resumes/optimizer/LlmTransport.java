@@ -0,0 +1,55 @@
+package ca.letkeman.resumes.optimizer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Sends chat completion requests to an LLM endpoint.
+ * Implementations own connection management; ApiService only deals with JSON bodies.
+ */
+public interface LlmTransport {
+
+  /**
+   * Result of a request.
+   *
+   * @param statusCode HTTP status code
+   * @param body response body, or null when it was consumed as a stream
+   * @param headers response headers
+   */
+  record Response(int statusCode, String body, Map<String, List<String>> headers) {
+
+    public boolean isOk() {
+      return statusCode == 200;
+    }
+  }
+
+  /**
+   * POST a JSON body and read the whole response.
+   *
+   * @param endpoint url to post to
+   * @param apikey key sent in the Authorization header
+   * @param jsonBody request body
+   * @return the response
+   * @throws IOException if the request could not be sent or timed out
+   * @throws InterruptedException if the calling thread was interrupted
+   */
+  Response post(String endpoint, String apikey, String jsonBody) throws IOException, InterruptedException;
+
+  /**
+   * POST a JSON body and hand the response to lineConsumer one line at a time.
+   * Reading stops when the consumer returns false or the body ends.
+   * For non 200 responses the body is returned as text instead and the consumer is not called.
+   *
+   * @param endpoint url to post to
+   * @param apikey key sent in the Authorization header
+   * @param jsonBody request body
+   * @param lineConsumer receives each line; returns false to stop reading
+   * @return the response, with a null body when it was streamed
+   * @throws IOException if the request could not be sent or timed out
+   * @throws InterruptedException if the calling thread was interrupted
+   */
+  Response postStreaming(String endpoint, String apikey, String jsonBody, Predicate<String> lineConsumer)
+      throws IOException, InterruptedException;
+}
@@ -0,0 +1,43 @@
+package ca.letkeman.resumes.optimizer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import org.commonmark.node.Node;
+import org.commonmark.parser.Parser;
+
+/**
+ * Parses markdown into a commonmark node tree. A generated document is parsed once and the
+ * same tree is handed to both {@link HtmlToPdf} and {@link MarkdownToDocx}, instead of each of
+ * them reading the markdown file back and parsing it again.
+ */
+public final class MarkdownDocument {
+
+  // Parsers are immutable and safe to share between threads
+  private static final Parser PARSER = Parser.builder().build();
+
+  private MarkdownDocument() {
+  }
+
+  /**
+   * Parse markdown text.
+   *
+   * @param markdown the markdown, may be null
+   * @return the document node
+   */
+  public static Node parse(String markdown) {
+    return PARSER.parse(markdown != null ? markdown : "");
+  }
+
+  /**
+   * Read and parse a markdown file.
+   *
+   * @param markdownFilePath the file
+   * @return the document node
+   * @throws IOException if the file cannot be read
+   */
+  public static Node read(String markdownFilePath) throws IOException {
+    return parse(new String(Files.readAllBytes(Paths.get(markdownFilePath)), StandardCharsets.UTF_8));
+  }
+}
@@ -1,17 +1,9 @@
 package ca.letkeman.resumes.optimizer;
 
-import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import org.apache.poi.xwpf.usermodel.ParagraphAlignment;
-import org.apache.poi.xwpf.usermodel.XWPFDocument;
-import org.apache.poi.xwpf.usermodel.XWPFParagraph;
-import org.apache.poi.xwpf.usermodel.XWPFRun;
+import java.io.OutputStream;
+import org.commonmark.node.Node;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -67,20 +59,29 @@ public final class MarkdownToDocx {
   }
 
   public boolean convertFile() {
-    String content = "";
+    Node document;
     if (getMarkdownContent() == null || getMarkdownContent().isBlank()) {
       try {
-        content = new String(Files.readAllBytes(Paths.get(getMarkdownFilePath())), StandardCharsets.UTF_8);
+        document = MarkdownDocument.read(getMarkdownFilePath());
       } catch (IOException e) {
         logger.error("Error unable to read markdown file:\n{}", e.toString());
         return false;
       }
     } else {
-      content = getMarkdownContent();
+      document = MarkdownDocument.parse(getMarkdownContent());
     }
+    return convert(document);
+  }
 
-    try {
-      markdownToDocx(content, getDocxFilePath());
+  /**
+   * Render an already parsed markdown document to the DOCX file path.
+   *
+   * @param document the parsed markdown, see {@link MarkdownDocument}
+   * @return true when the DOCX was saved
+   */
+  public boolean convert(Node document) {
+    try (OutputStream out = new FileOutputStream(getDocxFilePath())) {
+      write(document, out);
       logger.info("DOCX saved to: {}", getDocxFilePath());
       return true;
     } catch (Exception e) {
@@ -89,110 +90,15 @@ public final class MarkdownToDocx {
     }
   }
 
-  private void markdownToDocx(String markdownContent, String outputPath) throws IOException {
-    XWPFDocument document = new XWPFDocument();
-
-    // Split content by double newlines to identify paragraphs
-    String[] blocks = markdownContent.split("\\n(?=\\n)");
-
-    for (String block : blocks) {
-      block = block.trim();
-      if (block.isEmpty()) {
-        continue;
-      }
-
-      if (block.startsWith("# ")) {
-        // H1 heading
-        XWPFParagraph para = document.createParagraph();
-        XWPFRun run = para.createRun();
-        run.setText(block.replaceFirst("^# ", ""));
-        run.setBold(true);
-        run.setFontSize(28);
-        para.setAlignment(ParagraphAlignment.LEFT);
-      } else if (block.startsWith("## ")) {
-        // H2 heading
-        XWPFParagraph para = document.createParagraph();
-        XWPFRun run = para.createRun();
-        run.setText(block.replaceFirst("^## ", ""));
-        run.setBold(true);
-        run.setFontSize(24);
-        para.setAlignment(ParagraphAlignment.LEFT);
-      } else if (block.startsWith("### ")) {
-        // H3 heading
-        XWPFParagraph para = document.createParagraph();
-        XWPFRun run = para.createRun();
-        run.setText(block.replaceFirst("^### ", ""));
-        run.setBold(true);
-        run.setFontSize(20);
-        para.setAlignment(ParagraphAlignment.LEFT);
-      } else if (block.startsWith("- ") || block.startsWith("* ")) {
-        // Bullet point
-        XWPFParagraph para = document.createParagraph();
-        para.setIndentationLeft(720); // indent for bullet
-        XWPFRun run = para.createRun();
-        run.setText("• " + block.replaceFirst("^[-*] ", ""));
-      } else {
-        // Regular paragraph
-        XWPFParagraph para = document.createParagraph();
-        String processedText = processInlineFormatting(block);
-        addTextWithFormatting(para, processedText);
-      }
-    }
-
-    // Write to file
-    try (FileOutputStream out = new FileOutputStream(new File(outputPath))) {
-      document.write(out);
-    }
-    document.close();
-  }
-
-  private String processInlineFormatting(String text) {
-    // Handle **bold** and __bold__
-    text = text.replaceAll("\\*\\*(.*?)\\*\\*", "$1");
-    text = text.replaceAll("__(.*?)__", "$1");
-    // Handle *italic* and _italic_
-    text = text.replaceAll("\\*(.*?)\\*", "$1");
-    text = text.replaceAll("_(.*?)_", "$1");
-    // Handle `code`
-    text = text.replaceAll("`(.*?)`", "$1");
-    // Handle [link](url)
-    text = text.replaceAll("\\[(.*?)\\]\\((.*?)\\)", "$1");
-    return text;
-  }
-
-  private void addTextWithFormatting(XWPFParagraph para, String text) {
-    // Simple approach: add text with basic formatting detection
-    Pattern boldPattern = Pattern.compile("\\*\\*(.*?)\\*\\*");
-
-    Matcher matcher = boldPattern.matcher(text);
-    int lastEnd = 0;
-
-    while (matcher.find()) {
-      // Add normal text before the match
-      if (matcher.start() > lastEnd) {
-        XWPFRun run = para.createRun();
-        run.setText(text.substring(lastEnd, matcher.start()));
-      }
-
-      // Add bold text
-      XWPFRun boldRun = para.createRun();
-      boldRun.setText(matcher.group(1));
-      boldRun.setBold(true);
-
-      lastEnd = matcher.end();
-    }
-
-    // Add remaining text
-    if (lastEnd < text.length()) {
-      XWPFRun run = para.createRun();
-      run.setText(text.substring(lastEnd));
-    }
-
-    // If no formatting found, just add the text
-    if (lastEnd == 0) {
-      XWPFRun run = para.createRun();
-      run.setText(text);
-    }
+  /**
+   * Render a parsed markdown document as DOCX.
+   *
+   * @param document the parsed markdown, see {@link MarkdownDocument}
+   * @param out receives the DOCX; not closed
+   * @throws IOException if the document cannot be written
+   */
+  public static void write(Node document, OutputStream out) throws IOException {
+    DocxRenderer.write(document, out);
   }
 
   /*
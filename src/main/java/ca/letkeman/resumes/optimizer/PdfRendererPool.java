@@ -0,0 +1,150 @@
+package ca.letkeman.resumes.optimizer;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xhtmlrenderer.pdf.ITextRenderer;
+
+/**
+ * Keeps PDF renderers between documents. A renderer sets up its font resolver, user agent and
+ * CSS defaults once and keeps them, so a pooled renderer skips that work on every later
+ * document. A renderer is used by one document at a time; when all are busy a new one is
+ * created, and renderers beyond the pool size are dropped when they are returned.
+ *
+ * <p>{@link #warm(int)} renders a small document with each renderer, which also loads and
+ * compiles the rendering code, so the first real document does not pay for it.
+ */
+public final class PdfRendererPool {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PdfRendererPool.class);
+
+  private static final String WARM_UP_DOCUMENT = "<html><head><title>Warm up</title></head><body>"
+      + "<h1>Warm up</h1><h2>Section</h2><p><strong>Bold</strong>, <em>italic</em> and <code>code</code>"
+      + " with a <a href=\"https://example.com\">link</a>.</p>"
+      + "<ul><li>First</li><li>Second</li></ul><ol><li>One</li></ol>"
+      + "<blockquote><p>Quote</p></blockquote><pre><code>block</code></pre><hr/></body></html>";
+
+  private static volatile PdfRendererPool shared = new PdfRendererPool(1);
+
+  private final BlockingQueue<ITextRenderer> idle;
+  private final int size;
+  private final AtomicLong created = new AtomicLong();
+  private final AtomicLong reused = new AtomicLong();
+  private final AtomicLong discarded = new AtomicLong();
+
+  /**
+   * Create a pool.
+   *
+   * @param size renderers kept between documents
+   */
+  public PdfRendererPool(int size) {
+    this.size = Math.max(1, size);
+    this.idle = new ArrayBlockingQueue<>(this.size);
+  }
+
+  /**
+   * The pool {@link HtmlToPdf} renders with.
+   *
+   * @return the shared pool
+   */
+  public static PdfRendererPool shared() {
+    return shared;
+  }
+
+  public static void setShared(PdfRendererPool pool) {
+    shared = pool;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Render an XHTML document as PDF.
+   *
+   * @param xhtml the document
+   * @param os receives the PDF; not closed
+   */
+  public void render(String xhtml, OutputStream os) {
+    ITextRenderer renderer = borrow();
+    boolean rendered = false;
+    try {
+      renderer.setDocumentFromString(xhtml);
+      renderer.layout();
+      renderer.createPDF(os);
+      rendered = true;
+    } finally {
+      if (rendered) {
+        release(renderer);
+      } else {
+        // A failed document may leave the renderer half way through; don't hand it out again
+        discarded.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Create renderers up to the given number and render a small document with each.
+   *
+   * @param count renderers to warm, at most the pool size
+   * @return the number of idle renderers afterwards
+   */
+  public int warm(int count) {
+    long start = System.nanoTime();
+    List<ITextRenderer> renderers = new ArrayList<>();
+    for (int i = 0; i < Math.min(count, size); i++) {
+      renderers.add(borrow());
+    }
+    for (ITextRenderer renderer : renderers) {
+      try {
+        renderer.setDocumentFromString(WARM_UP_DOCUMENT);
+        renderer.layout();
+        renderer.createPDF(OutputStream.nullOutputStream());
+        release(renderer);
+      } catch (RuntimeException e) {
+        discarded.incrementAndGet();
+        LOGGER.warn("Unable to warm up PDF renderer: {}", e.toString());
+      }
+    }
+    LOGGER.info("Warmed {} PDF renderers in {} ms", renderers.size(), (System.nanoTime() - start) / 1_000_000L);
+    return idle.size();
+  }
+
+  private ITextRenderer borrow() {
+    ITextRenderer renderer = idle.poll();
+    if (renderer != null) {
+      reused.incrementAndGet();
+      return renderer;
+    }
+    created.incrementAndGet();
+    return new ITextRenderer();
+  }
+
+  private void release(ITextRenderer renderer) {
+    if (!idle.offer(renderer)) {
+      discarded.incrementAndGet();
+    }
+  }
+
+  /**
+   * Snapshot for health reporting.
+   *
+   * @return map of metric name to value
+   */
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new LinkedHashMap<>();
+    metrics.put("size", size);
+    metrics.put("idle", idle.size());
+    metrics.put("created", created.get());
+    metrics.put("reused", reused.get());
+    metrics.put("discarded", discarded.get());
+    return metrics;
+  }
+}
@@ -0,0 +1,82 @@
+package ca.letkeman.resumes.optimizer;
+
+import ca.letkeman.resumes.service.PromptTemplate;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * How a prompt template and the request's inputs are assembled into the prompt text.
+ */
+public enum PromptLayout {
+
+  /**
+   * Every placeholder is replaced where it appears in the template.
+   */
+  INLINE,
+
+  /**
+   * The inputs shared by all prompt types of a request (resume, job description, job title,
+   * company) lead the prompt in a fixed order, and the template's instructions follow with the
+   * resume and job description replaced by references to it. The text up to the instructions
+   * is then identical for every prompt type of a request, so servers that cache the processed
+   * prompt prefix (Ollama, llama.cpp, vLLM) only process it once.
+   */
+  SHARED_PREFIX;
+
+  static final String RESUME = "resume_string";
+  static final String JOB_DESCRIPTION = "job_description";
+  static final String JOB_TITLE = "job_title";
+  static final String COMPANY = "company";
+  static final String INTERVIEWER_NAME = "interviewer_name";
+  static final String TODAY = "today";
+
+  /**
+   * Parse a configured layout name such as {@code shared-prefix}.
+   *
+   * @param name the name, case insensitive, '-' or '_' separated
+   * @return the layout, INLINE when the name is empty or unknown
+   */
+  public static PromptLayout of(String name) {
+    if (name == null || name.isBlank()) {
+      return INLINE;
+    }
+    try {
+      return valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      return INLINE;
+    }
+  }
+
+  /**
+   * Fill a prompt template.
+   *
+   * @param template the template with {placeholder} markers
+   * @param values placeholder name (without braces) to value
+   * @return the prompt text
+   */
+  public String render(String template, Map<String, String> values) {
+    PromptTemplate compiled = PromptTemplate.of(template);
+    if (this == INLINE) {
+      return compiled.expand(values);
+    }
+
+    Map<String, String> references = new LinkedHashMap<>(values);
+    references.put(RESUME, "(the candidate resume above)");
+    references.put(JOB_DESCRIPTION, "(the job description above)");
+    String instructions = compiled.expand(references);
+    StringBuilder prompt = new StringBuilder(instructions.length() + length(values.get(RESUME))
+        + length(values.get(JOB_DESCRIPTION)) + 256);
+    prompt.append("# Candidate Resume\n\n").append(values.getOrDefault(RESUME, "")).append("\n\n")
+        .append("# Target Job\n\n")
+        .append("**Job Title:** ").append(values.getOrDefault(JOB_TITLE, "")).append('\n')
+        .append("**Company:** ").append(values.getOrDefault(COMPANY, "")).append('\n')
+        .append("**Job Description:** ").append(values.getOrDefault(JOB_DESCRIPTION, "")).append("\n\n")
+        .append("---\n\n");
+    return prompt.append(instructions).toString();
+  }
+
+  private static int length(String value) {
+    return value != null ? value.length() : 0;
+  }
+}
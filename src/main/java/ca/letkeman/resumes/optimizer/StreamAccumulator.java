@@ -0,0 +1,155 @@
+package ca.letkeman.resumes.optimizer;
+
+import ca.letkeman.resumes.optimizer.responses.Choice;
+import ca.letkeman.resumes.optimizer.responses.LLMResponse;
+import ca.letkeman.resumes.optimizer.responses.Message;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import java.util.List;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Accumulates an OpenAI compatible streamed chat completion (stream=true).
+ * Each "data:" line carries a chunk whose first choice holds a content delta;
+ * the stream ends with "data: [DONE]". Ollama and LM Studio use the same format
+ * on their /v1/chat/completions endpoints.
+ */
+public final class StreamAccumulator {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StreamAccumulator.class);
+  private static final Gson GSON = new Gson();
+  private static final String DATA_PREFIX = "data:";
+  private static final String DONE = "[DONE]";
+
+  private final Consumer<String> onToken;
+  private final StringBuilder content = new StringBuilder();
+  private final long startNanos = System.nanoTime();
+  private long firstTokenNanos;
+  private String id;
+  private String model;
+  private long created;
+  private String finishReason;
+  private int chunks;
+  private boolean done;
+
+  /**
+   * Create an accumulator.
+   *
+   * @param onToken receives each content delta as it arrives
+   */
+  public StreamAccumulator(Consumer<String> onToken) {
+    this.onToken = onToken != null ? onToken : token -> { };
+  }
+
+  /**
+   * Consume one line of the event stream.
+   *
+   * @param line raw line read from the response body
+   * @return false once the end of the stream has been seen
+   */
+  public boolean accept(String line) {
+    if (done) {
+      return false;
+    }
+    if (line == null) {
+      return true;
+    }
+    String trimmed = line.trim();
+    // Blank lines separate events; other fields (event:, id:, comments) carry nothing we need
+    if (!trimmed.startsWith(DATA_PREFIX)) {
+      return true;
+    }
+    String data = trimmed.substring(DATA_PREFIX.length()).trim();
+    if (DONE.equals(data)) {
+      done = true;
+      return false;
+    }
+
+    LLMResponse chunk;
+    try {
+      chunk = GSON.fromJson(data, LLMResponse.class);
+    } catch (JsonSyntaxException e) {
+      LOGGER.warn("Skipping malformed stream chunk: {}", e.getMessage());
+      return true;
+    }
+    if (chunk == null) {
+      return true;
+    }
+    chunks++;
+    if (id == null) {
+      id = chunk.getId();
+      model = chunk.getModel();
+      created = chunk.getCreated();
+    }
+
+    List<Choice> choices = chunk.getChoices();
+    if (choices == null || choices.isEmpty()) {
+      return true;
+    }
+    Choice choice = choices.get(0);
+    if (choice.getFinishReason() != null) {
+      finishReason = choice.getFinishReason();
+    }
+    Message delta = choice.getDelta() != null ? choice.getDelta() : choice.getMessage();
+    if (delta != null && delta.getContent() != null && !delta.getContent().isEmpty()) {
+      if (firstTokenNanos == 0) {
+        firstTokenNanos = System.nanoTime();
+      }
+      content.append(delta.getContent());
+      onToken.accept(delta.getContent());
+    }
+    return true;
+  }
+
+  /**
+   * Whether the terminating [DONE] marker was received.
+   *
+   * @return true if the stream ended normally
+   */
+  public boolean isDone() {
+    return done;
+  }
+
+  /**
+   * Content received so far.
+   *
+   * @return concatenated deltas
+   */
+  public String getContent() {
+    return content.toString();
+  }
+
+  /**
+   * Time between creating the accumulator and the first content delta.
+   *
+   * @return milliseconds to the first token, or -1 if none arrived
+   */
+  public long getTimeToFirstTokenMs() {
+    return firstTokenNanos == 0 ? -1 : (firstTokenNanos - startNanos) / 1_000_000L;
+  }
+
+  /**
+   * Assemble the chunks into the same shape as a non streamed response.
+   *
+   * @return the complete response, or null if no chunk was received
+   */
+  public LLMResponse toResponse() {
+    if (chunks == 0) {
+      return null;
+    }
+    Message message = new Message();
+    message.setRole("assistant");
+    message.setContent(content.toString());
+    Choice choice = new Choice(0, null, finishReason, message);
+
+    LLMResponse response = new LLMResponse();
+    response.setId(id);
+    response.setObject("chat.completion");
+    response.setCreated(created);
+    response.setModel(model);
+    response.setChoices(List.of(choice));
+    return response;
+  }
+}
@@ -0,0 +1,93 @@
+package ca.letkeman.resumes.optimizer;
+
+import java.util.List;
+
+/**
+ * Token counts for prompts, used to budget LLM capacity before a request is sent.
+ * Text is counted by a {@link Tokenizer}, by default the common approximation of 4 characters
+ * per token, plus the few tokens of role/separator framing every chat message carries.
+ */
+public final class TokenEstimator {
+
+  /**
+   * Counts tokens as 4 characters each, for when the model's vocabulary is not available.
+   */
+  public static final Tokenizer HEURISTIC = TokenEstimator::estimate;
+
+  static final int TOKENS_PER_MESSAGE = 4;
+  static final int REPLY_PRIMING_TOKENS = 3;
+  private static final int CHARS_PER_TOKEN = 4;
+
+  private TokenEstimator() {
+  }
+
+  /**
+   * Estimate the tokens in a piece of text.
+   *
+   * @param text the text, may be null
+   * @return estimated token count, at least 1 for non empty text
+   */
+  public static int estimate(String text) {
+    if (text == null || text.isEmpty()) {
+      return 0;
+    }
+    return Math.max(1, text.length() / CHARS_PER_TOKEN);
+  }
+
+  /**
+   * Estimate the prompt tokens of a chat request.
+   *
+   * @param chatBody the request
+   * @return estimated prompt tokens, including per-message framing
+   */
+  public static int estimatePrompt(ChatBody chatBody) {
+    return estimatePrompt(chatBody, HEURISTIC);
+  }
+
+  /**
+   * Count the prompt tokens of a chat request.
+   *
+   * @param chatBody the request
+   * @param tokenizer counts the tokens of each message
+   * @return prompt tokens, including per-message framing
+   */
+  public static int estimatePrompt(ChatBody chatBody, Tokenizer tokenizer) {
+    List<Message> messages = chatBody == null ? null : chatBody.getMessages();
+    if (messages == null || messages.isEmpty()) {
+      return 0;
+    }
+    int tokens = REPLY_PRIMING_TOKENS;
+    for (Message message : messages) {
+      tokens += TOKENS_PER_MESSAGE + tokenizer.count(message.getRole()) + tokenizer.count(message.getContent());
+    }
+    return tokens;
+  }
+
+  /**
+   * Estimate the total tokens a chat request will consume, prompt and completion.
+   *
+   * @param chatBody the request
+   * @param expectedCompletionTokens expected completion size, capped by the request's max tokens
+   * @return estimated total tokens
+   */
+  public static int estimateTotal(ChatBody chatBody, int expectedCompletionTokens) {
+    return estimateTotal(chatBody, expectedCompletionTokens, HEURISTIC);
+  }
+
+  /**
+   * Count the total tokens a chat request will consume, prompt and completion.
+   *
+   * @param chatBody the request
+   * @param expectedCompletionTokens expected completion size, capped by the request's max tokens
+   * @param tokenizer counts the tokens of each message
+   * @return total tokens
+   */
+  public static int estimateTotal(ChatBody chatBody, int expectedCompletionTokens, Tokenizer tokenizer) {
+    int maxTokens = chatBody != null ? chatBody.getMaxTokens() : 0;
+    int completion = Math.max(0, expectedCompletionTokens);
+    if (maxTokens > 0 && (completion == 0 || maxTokens < completion)) {
+      completion = maxTokens;
+    }
+    return estimatePrompt(chatBody, tokenizer) + completion;
+  }
+}
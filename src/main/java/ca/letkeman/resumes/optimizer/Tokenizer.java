@@ -0,0 +1,16 @@
+package ca.letkeman.resumes.optimizer;
+
+/**
+ * Counts the tokens a model sees for a piece of text.
+ */
+@FunctionalInterface
+public interface Tokenizer {
+
+  /**
+   * Count the tokens in a piece of text.
+   *
+   * @param text the text, may be null
+   * @return token count, 0 for null or empty text
+   */
+  int count(String text);
+}
@@ -12,6 +12,8 @@ public final class Choice {
   @SerializedName("finish_reason")
   private String finishReason;
   private Message message;
+  // Incremental content of a streamed chunk (stream=true); message is null in that case
+  private Message delta;
 
   public Choice() {}
 
@@ -57,6 +59,14 @@ public final class Choice {
     this.message = message != null ? new Message(message) : null;
   }
 
+  public Message getDelta() {
+    return delta != null ? new Message(delta) : null;
+  }
+
+  public void setDelta(Message delta) {
+    this.delta = delta != null ? new Message(delta) : null;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -71,13 +81,13 @@ public final class Choice {
 
     return new EqualsBuilder().append(getIndex(), choice.getIndex())
         .append(getLogprobs(), choice.getLogprobs()).append(getFinishReason(), choice.getFinishReason())
-        .append(getMessage(), choice.getMessage()).isEquals();
+        .append(getMessage(), choice.getMessage()).append(getDelta(), choice.getDelta()).isEquals();
   }
 
   @Override
   public int hashCode() {
     return new HashCodeBuilder(17, 37).append(getIndex()).append(getLogprobs()).append(getFinishReason())
-        .append(getMessage()).toHashCode();
+        .append(getMessage()).append(getDelta()).toHashCode();
   }
 
   @Override
@@ -87,6 +97,7 @@ public final class Choice {
         .add("logprobs='" + logprobs + "'")
         .add("finishReason='" + finishReason + "'")
         .add("message=" + message)
+        .add("delta=" + delta)
         .toString();
   }
 }
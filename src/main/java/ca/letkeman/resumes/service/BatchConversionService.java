@@ -0,0 +1,385 @@
+package ca.letkeman.resumes.service;
+
+import ca.letkeman.resumes.optimizer.DocumentFormat;
+import ca.letkeman.resumes.optimizer.MarkdownDocument;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import org.commonmark.node.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Converts many markdown documents in one request.
+ * Documents are rendered in parallel on a fixed set of render workers, by default as many as
+ * the PDF renderer pool keeps so every worker renders with a pooled renderer, and written to a
+ * zip in the order they were sent, followed by a report of what happened to each file. Only a
+ * few documents per worker are rendered ahead of the zip, so a large batch does not pile up
+ * finished documents in memory while a slow client reads the stream.
+ */
+@Service
+public class BatchConversionService implements MetricsSource {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BatchConversionService.class);
+
+  static final String REPORT_NAME = "conversion-report.json";
+
+  private static final Set<String> MARKDOWN_EXTENSIONS = Set.of("md", "markdown", "txt");
+  private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+  private final ThreadPoolExecutor executor;
+  private final int parallelism;
+  private final int maxFiles;
+  private final long maxTotalBytes;
+  private final AtomicLong batches = new AtomicLong();
+  private final AtomicLong converted = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong skipped = new AtomicLong();
+
+  /**
+   * Create the service.
+   *
+   * @param parallelism documents rendered at the same time, across all batches
+   * @param maxFiles markdown files allowed in one batch, counting those inside zips
+   * @param maxTotalMb markdown allowed in one batch, uncompressed, in megabytes
+   */
+  public BatchConversionService(
+      @Value("${conversion.batch.parallelism:${pdf.renderer-pool.size:4}}") int parallelism,
+      @Value("${conversion.batch.max-files:500}") int maxFiles,
+      @Value("${conversion.batch.max-total-mb:20}") int maxTotalMb) {
+    this.parallelism = Math.max(1, parallelism);
+    this.maxFiles = Math.max(1, maxFiles);
+    this.maxTotalBytes = Math.max(1, maxTotalMb) * 1024L * 1024L;
+    // Rendering is CPU bound, so these stay platform threads even with virtual threads enabled;
+    // each batch caps what it has queued, which keeps the queue short
+    this.executor = new ThreadPoolExecutor(
+        this.parallelism,
+        this.parallelism,
+        60L,
+        TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(),
+        new RenderThreadFactory());
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * A markdown file from a batch upload.
+   *
+   * @param name the uploaded file name, or the entry name inside a zip
+   * @param markdown the file content, null when the file is skipped
+   * @param skipReason why the file is not converted, null when it is
+   */
+  public record Source(String name, byte[] markdown, String skipReason) {
+
+    static Source of(String name, byte[] markdown) {
+      return markdown.length == 0 ? skip(name, "empty file") : new Source(name, markdown, null);
+    }
+
+    static Source skip(String name, String reason) {
+      return new Source(name, null, reason);
+    }
+  }
+
+  /**
+   * One line of the conversion report.
+   *
+   * @param source the markdown file
+   * @param format the output format, null for a skipped file
+   * @param output the name in the zip, null unless converted
+   * @param status converted, failed or skipped
+   * @param error why the file failed or was skipped
+   */
+  record Result(String source, String format, String output, String status, String error) {
+  }
+
+  record Report(long converted, long failed, long skipped, List<Result> files) {
+  }
+
+  // format is null when the markdown itself could not be parsed
+  private record Output(DocumentFormat format, byte[] document, String error) {
+  }
+
+  private record Rendered(Source source, List<Output> outputs) {
+  }
+
+  /**
+   * Read the markdown files of a batch upload into memory, expanding zip archives.
+   *
+   * @param files uploaded markdown files and zip archives
+   * @return the files in upload order, zip entries in archive order
+   * @throws IllegalArgumentException if the batch has too many files or too much markdown
+   * @throws IOException if an upload cannot be read
+   */
+  public List<Source> read(List<MultipartFile> files) throws IOException {
+    Batch batch = new Batch();
+    for (MultipartFile file : files) {
+      if (file == null) {
+        continue;
+      }
+      String name = file.getOriginalFilename() != null ? file.getOriginalFilename() : file.getName();
+      try (InputStream in = file.getInputStream()) {
+        if (isZip(name, file.getContentType())) {
+          batch.unzip(name, in);
+        } else {
+          batch.add(name, in);
+        }
+      }
+    }
+    return batch.sources;
+  }
+
+  // Markdown read so far, checked against the batch limits as it grows
+  private final class Batch {
+    private final List<Source> sources = new ArrayList<>();
+    private long remaining = maxTotalBytes;
+    private int files;
+
+    void add(String name, InputStream in) throws IOException {
+      if (++files > maxFiles) {
+        throw new IllegalArgumentException("batch has more than " + maxFiles + " files");
+      }
+      // Read at most what is left of the allowance, so a zip bomb stops at the limit
+      byte[] markdown = in.readNBytes((int) Math.min(Integer.MAX_VALUE - 8L, remaining + 1));
+      remaining -= markdown.length;
+      if (remaining < 0) {
+        throw new IllegalArgumentException("batch has more than " + maxTotalBytes / (1024 * 1024) + " MB of markdown");
+      }
+      sources.add(Source.of(name, markdown));
+    }
+
+    void unzip(String zipName, InputStream in) throws IOException {
+      ZipInputStream zip = new ZipInputStream(in, StandardCharsets.UTF_8);
+      for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+        String name = entry.getName();
+        String baseName = name.substring(name.lastIndexOf('/') + 1);
+        if (entry.isDirectory() || name.startsWith("__MACOSX/") || baseName.startsWith(".")) {
+          continue;
+        }
+        if (MARKDOWN_EXTENSIONS.contains(extension(baseName))) {
+          add(zipName + "/" + name, zip);
+        } else {
+          sources.add(Source.skip(zipName + "/" + name, "not a markdown file"));
+        }
+      }
+    }
+  }
+
+  private static boolean isZip(String name, String contentType) {
+    return "zip".equals(extension(name))
+        || "application/zip".equals(contentType)
+        || "application/x-zip-compressed".equals(contentType);
+  }
+
+  private static String extension(String name) {
+    int dot = name.lastIndexOf('.');
+    return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Render a batch and write it to a zip: one entry per converted document, in the order of
+   * the sources, then {@value #REPORT_NAME}. A file that fails to convert is reported and the
+   * rest of the batch carries on.
+   *
+   * @param sources the batch, see {@link #read(List)}
+   * @param formats formats to render each file to
+   * @param out receives the zip; not closed
+   * @throws IOException if the zip cannot be written, typically because the client went away
+   */
+  public void convert(List<Source> sources, Set<DocumentFormat> formats, OutputStream out) throws IOException {
+    long start = System.nanoTime();
+    batches.incrementAndGet();
+    List<Result> results = new ArrayList<>();
+    Set<String> names = new HashSet<>();
+    Deque<Future<Rendered>> pending = new ArrayDeque<>();
+    Iterator<Source> next = sources.iterator();
+    ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+    try {
+      while (next.hasNext() || !pending.isEmpty()) {
+        while (next.hasNext() && pending.size() < 2 * parallelism) {
+          Source source = next.next();
+          pending.add(executor.submit(() -> render(source, formats)));
+        }
+        Rendered rendered = await(pending.poll());
+        write(zip, rendered, names, results);
+      }
+    } finally {
+      // Only left over when writing failed; don't render for a client that is gone
+      pending.forEach(future -> future.cancel(true));
+    }
+    Report report = report(results);
+    zip.putNextEntry(new ZipEntry(REPORT_NAME));
+    zip.write(GSON.toJson(report).getBytes(StandardCharsets.UTF_8));
+    zip.closeEntry();
+    zip.finish();
+    LOGGER.info("Converted batch of {} files in {} ms: {} converted, {} failed, {} skipped", sources.size(),
+        (System.nanoTime() - start) / 1_000_000L, report.converted(), report.failed(), report.skipped());
+  }
+
+  private static Rendered render(Source source, Set<DocumentFormat> formats) {
+    if (source.skipReason() != null) {
+      return new Rendered(source, List.of());
+    }
+    Node document;
+    try {
+      document = MarkdownDocument.parse(new String(source.markdown(), StandardCharsets.UTF_8));
+    } catch (Exception | StackOverflowError e) {
+      // Deeply nested markdown can overflow the parser's stack; fail this file, not the batch
+      LOGGER.warn("Could not parse {}: {}", source.name(), e.toString());
+      return new Rendered(source, List.of(new Output(null, null, "could not parse markdown: " + message(e))));
+    }
+    List<Output> outputs = new ArrayList<>();
+    for (DocumentFormat format : formats) {
+      try {
+        ByteArrayOutputStream rendered = new ByteArrayOutputStream();
+        format.write(document, rendered);
+        outputs.add(new Output(format, rendered.toByteArray(), null));
+      } catch (Exception | StackOverflowError e) {
+        LOGGER.warn("Could not convert {} to {}: {}", source.name(), format, e.toString());
+        outputs.add(new Output(format, null, message(e)));
+      }
+    }
+    return new Rendered(source, outputs);
+  }
+
+  private static String message(Throwable e) {
+    return e.getMessage() != null ? e.getMessage() : e.toString();
+  }
+
+  private static Rendered await(Future<Rendered> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("batch conversion interrupted");
+    } catch (ExecutionException e) {
+      throw new IOException("batch conversion failed", e.getCause());
+    }
+  }
+
+  private void write(ZipOutputStream zip, Rendered rendered, Set<String> names, List<Result> results)
+      throws IOException {
+    Source source = rendered.source();
+    if (source.skipReason() != null) {
+      skipped.incrementAndGet();
+      results.add(new Result(source.name(), null, null, "skipped", source.skipReason()));
+      return;
+    }
+    for (Output output : rendered.outputs()) {
+      String format = output.format() != null ? output.format().name().toLowerCase(Locale.ROOT) : null;
+      if (output.document() == null) {
+        failed.incrementAndGet();
+        results.add(new Result(source.name(), format, null, "failed", output.error()));
+        continue;
+      }
+      String name = uniqueName(output.format().fileName(source.name()), names);
+      // PDF and DOCX are compressed already; storing them saves deflating them again
+      CRC32 crc = new CRC32();
+      crc.update(output.document());
+      ZipEntry entry = new ZipEntry(name);
+      entry.setMethod(ZipEntry.STORED);
+      entry.setSize(output.document().length);
+      entry.setCompressedSize(output.document().length);
+      entry.setCrc(crc.getValue());
+      zip.putNextEntry(entry);
+      zip.write(output.document());
+      zip.closeEntry();
+      converted.incrementAndGet();
+      results.add(new Result(source.name(), format, name, "converted", null));
+    }
+  }
+
+  // resume.pdf, resume-2.pdf, resume-3.pdf, ... for files with the same name
+  private static String uniqueName(String name, Set<String> names) {
+    String unique = name;
+    int dot = name.lastIndexOf('.');
+    for (int i = 2; !names.add(unique); i++) {
+      unique = name.substring(0, dot) + "-" + i + name.substring(dot);
+    }
+    return unique;
+  }
+
+  private static Report report(List<Result> results) {
+    long convertedFiles = results.stream().filter(result -> "converted".equals(result.status())).count();
+    long failedFiles = results.stream().filter(result -> "failed".equals(result.status())).count();
+    return new Report(convertedFiles, failedFiles, results.size() - convertedFiles - failedFiles, results);
+  }
+
+  /**
+   * Snapshot for health reporting.
+   *
+   * @return map of metric name to value
+   */
+  @Override
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new LinkedHashMap<>();
+    metrics.put("parallelism", parallelism);
+    metrics.put("active_workers", executor.getActiveCount());
+    metrics.put("queue_depth", executor.getQueue().size());
+    metrics.put("batches", batches.get());
+    metrics.put("converted", converted.get());
+    metrics.put("failed", failed.get());
+    metrics.put("skipped", skipped.get());
+    metrics.put("max_files", maxFiles);
+    return metrics;
+  }
+
+  @Override
+  public String getMetricsName() {
+    return "batch_conversion";
+  }
+
+  @Override
+  public String getMetricsPath() {
+    return "batch";
+  }
+
+  /**
+   * Stop the render workers.
+   */
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private static final class RenderThreadFactory implements ThreadFactory {
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "batch-render-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package ca.letkeman.resumes.service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Bounded executor for background LLM generations.
+ * All BackgroundResume work is submitted here instead of spawning a thread per request,
+ * so a burst of uploads queues up (or is rejected) rather than exhausting the JVM.
+ * With spring.threads.virtual.enabled the workers are virtual threads, so the worker
+ * limit can be raised far beyond what platform threads allow.
+ */
+@Service
+public class GenerationExecutor implements MetricsSource {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(GenerationExecutor.class);
+
+  private final ThreadPoolExecutor executor;
+  private final int queueCapacity;
+  private final long retryAfterSeconds;
+  private final boolean virtualThreads;
+  private final AtomicLong rejectedTasks = new AtomicLong();
+
+  /**
+   * Create a generation executor on platform threads.
+   *
+   * @param poolSize number of concurrent generation workers
+   * @param queueCapacity number of generations allowed to wait for a worker
+   * @param retryAfterSeconds value suggested to clients when the queue is full
+   */
+  public GenerationExecutor(int poolSize, int queueCapacity, long retryAfterSeconds) {
+    this(poolSize, queueCapacity, retryAfterSeconds, false, poolSize);
+  }
+
+  /**
+   * Create the generation executor.
+   *
+   * @param poolSize number of concurrent generation workers on platform threads
+   * @param queueCapacity number of generations allowed to wait for a worker
+   * @param retryAfterSeconds value suggested to clients when the queue is full
+   * @param virtualThreads run workers on virtual threads
+   * @param virtualPoolSize number of concurrent generation workers on virtual threads
+   */
+  @Autowired
+  public GenerationExecutor(
+      @Value("${generation.executor.pool-size:4}") int poolSize,
+      @Value("${generation.executor.queue-capacity:50}") int queueCapacity,
+      @Value("${generation.executor.retry-after-seconds:30}") long retryAfterSeconds,
+      @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+      @Value("${generation.executor.virtual-pool-size:100}") int virtualPoolSize) {
+    int workers = Math.max(1, virtualThreads ? virtualPoolSize : poolSize);
+    this.queueCapacity = Math.max(1, queueCapacity);
+    this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+    this.virtualThreads = virtualThreads;
+    ThreadFactory threadFactory = virtualThreads
+        ? Thread.ofVirtual().name("generation-worker-", 1).factory()
+        : new WorkerThreadFactory();
+    this.executor = new ThreadPoolExecutor(
+        workers,
+        workers,
+        60L,
+        TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(this.queueCapacity),
+        threadFactory,
+        (task, pool) -> {
+          rejectedTasks.incrementAndGet();
+          throw new RejectedExecutionException("Generation queue is full");
+        });
+    this.executor.allowCoreThreadTimeOut(true);
+    LOGGER.info("Generation executor started: {} {} workers, queue capacity {}",
+        workers, virtualThreads ? "virtual" : "platform", this.queueCapacity);
+  }
+
+  /**
+   * Whether generation workers run on virtual threads.
+   *
+   * @return true in virtual-thread mode
+   */
+  public boolean isVirtualThreads() {
+    return virtualThreads;
+  }
+
+  /**
+   * Submit a generation task.
+   *
+   * @param task the work to run on a generation worker
+   * @throws RejectedExecutionException if the queue is full or the executor is shut down
+   */
+  public void submit(Runnable task) {
+    executor.execute(task);
+  }
+
+  /**
+   * Seconds a client should wait before retrying a rejected submission.
+   *
+   * @return the Retry-After value in seconds
+   */
+  public long getRetryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+
+  /**
+   * Snapshot of executor metrics for health reporting.
+   *
+   * @return map of metric name to value
+   */
+  @Override
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new LinkedHashMap<>();
+    metrics.put("active_workers", executor.getActiveCount());
+    metrics.put("pool_size", executor.getPoolSize());
+    metrics.put("max_workers", executor.getMaximumPoolSize());
+    metrics.put("queue_depth", executor.getQueue().size());
+    metrics.put("queue_capacity", queueCapacity);
+    metrics.put("completed_tasks", executor.getCompletedTaskCount());
+    metrics.put("rejected_tasks", rejectedTasks.get());
+    metrics.put("virtual_threads", virtualThreads);
+    return metrics;
+  }
+
+  @Override
+  public String getMetricsName() {
+    return "generation";
+  }
+
+  @Override
+  public String getMetricsPath() {
+    return "generation";
+  }
+
+  /**
+   * Stop accepting work and give running generations a chance to finish.
+   */
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static final class WorkerThreadFactory implements ThreadFactory {
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "generation-worker-" + counter.incrementAndGet());
+      thread.setDaemon(false);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,395 @@
+package ca.letkeman.resumes.service;
+
+import ca.letkeman.resumes.model.GenerationJob;
+import ca.letkeman.resumes.model.JobEvent;
+import ca.letkeman.resumes.optimizer.GenerationListener;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Pushes generation progress to clients over Server-Sent Events.
+ * Clients can follow a single job or every job; job streams complete when the job finishes.
+ * Publishing only queues the event for each subscriber, so a slow client never holds up the
+ * generation worker (and its LLM permit) that produced the event.
+ */
+@Service
+public class JobEventPublisher {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(JobEventPublisher.class);
+
+  static final String JOB_STARTED = "job-started";
+  static final String JOB_FINISHED = "job-finished";
+  static final String PROMPT_STARTED = "prompt-started";
+  static final String LLM_REQUEST_STARTED = "llm-request-started";
+  static final String TOKEN = "token";
+  static final String LLM_RESPONSE_RECEIVED = "llm-response-received";
+  static final String MARKDOWN_WRITTEN = "markdown-written";
+  static final String PDF_READY = "pdf-ready";
+  static final String DOCX_READY = "docx-ready";
+  static final String PROMPT_COMPLETED = "prompt-completed";
+  static final String PROMPT_FAILED = "prompt-failed";
+  static final String SNAPSHOT = "snapshot";
+
+  private final Map<String, List<Subscriber>> jobSubscribers = new ConcurrentHashMap<>();
+  private final List<Subscriber> allJobSubscribers = new CopyOnWriteArrayList<>();
+  private final long timeoutMs;
+  private final int queueCapacity;
+  // One sender per subscriber while it has events queued; a stalled client only blocks its own
+  // (virtual) sender thread, never the generation worker reading the LLM stream
+  private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+  private final AtomicLong droppedTokens = new AtomicLong();
+
+  /**
+   * Create the publisher.
+   *
+   * @param timeoutMs how long an event stream stays open
+   * @param queueCapacity events queued per subscriber before token events are coalesced or dropped
+   */
+  public JobEventPublisher(
+      @Value("${generation.events.timeout-ms:600000}") long timeoutMs,
+      @Value("${generation.events.queue-capacity:256}") int queueCapacity) {
+    this.timeoutMs = timeoutMs;
+    this.queueCapacity = Math.max(1, queueCapacity);
+  }
+
+  /**
+   * Subscribe to the events of one job.
+   * The current job state is sent first; the stream completes when the job finishes.
+   *
+   * @param job the job to follow
+   * @return the emitter to return from the controller
+   */
+  public SseEmitter subscribe(GenerationJob job) {
+    Subscriber subscriber = new Subscriber(createEmitter());
+    if (job.isFinished()) {
+      // Nothing more is published for this job, so the stream is never registered
+      subscriber.offer(SNAPSHOT, job);
+      subscriber.complete();
+      return subscriber.emitter;
+    }
+    jobSubscribers.compute(job.getId(), (id, subscribers) -> {
+      List<Subscriber> list = subscribers != null ? subscribers : new CopyOnWriteArrayList<>();
+      list.add(subscriber);
+      return list;
+    });
+    registerCleanup(subscriber, () -> unsubscribe(job.getId(), subscriber));
+
+    // Registered before the snapshot so no event between the two is lost
+    subscriber.offer(SNAPSHOT, job);
+    if (job.isFinished()) {
+      // Finished while subscribing, possibly after its subscribers were completed
+      unsubscribe(job.getId(), subscriber);
+      subscriber.complete();
+    }
+    return subscriber.emitter;
+  }
+
+  /**
+   * Subscribe to the events of every job.
+   *
+   * @return the emitter to return from the controller
+   */
+  public SseEmitter subscribeAll() {
+    Subscriber subscriber = new Subscriber(createEmitter());
+    allJobSubscribers.add(subscriber);
+    registerCleanup(subscriber, () -> allJobSubscribers.remove(subscriber));
+    return subscriber.emitter;
+  }
+
+  /**
+   * Listener that publishes the progress of the given job.
+   *
+   * @param job the job being generated
+   * @return listener to hand to the generation worker
+   */
+  public GenerationListener listenerFor(GenerationJob job) {
+    return new PublishingListener(job);
+  }
+
+  /**
+   * Number of open event streams.
+   *
+   * @return subscriber count across all streams
+   */
+  public int getSubscriberCount() {
+    return allJobSubscribers.size() + jobSubscribers.values().stream().mapToInt(List::size).sum();
+  }
+
+  /**
+   * Number of jobs with at least one event stream following them.
+   *
+   * @return followed job count
+   */
+  int getFollowedJobCount() {
+    return jobSubscribers.size();
+  }
+
+  /**
+   * Token events dropped because a subscriber fell too far behind.
+   *
+   * @return dropped token events since startup
+   */
+  public long getDroppedTokens() {
+    return droppedTokens.get();
+  }
+
+  void publish(GenerationJob job, String type, String promptType, String fileName, String detail) {
+    JobEvent event = new JobEvent(job.getId(), type, promptType, fileName, detail, job.getState(), Instant.now());
+    List<Subscriber> subscribers = jobSubscribers.get(job.getId());
+    if (subscribers != null) {
+      offerAll(subscribers, type, event);
+    }
+    // Tokens are only of interest to clients following that job
+    if (!TOKEN.equals(type)) {
+      offerAll(allJobSubscribers, type, event);
+    }
+
+    if (JOB_FINISHED.equals(type)) {
+      List<Subscriber> finished = jobSubscribers.remove(job.getId());
+      if (finished != null) {
+        finished.forEach(Subscriber::complete);
+      }
+    }
+  }
+
+  private void offerAll(List<Subscriber> subscribers, String name, Object data) {
+    // Only queues the event; the network write happens on the subscriber's sender
+    for (Subscriber subscriber : subscribers) {
+      if (!subscriber.offer(name, data)) {
+        subscribers.remove(subscriber);
+      }
+    }
+  }
+
+  private void registerCleanup(Subscriber subscriber, Runnable unsubscribe) {
+    subscriber.emitter.onCompletion(unsubscribe);
+    subscriber.emitter.onTimeout(unsubscribe);
+    subscriber.emitter.onError(e -> unsubscribe.run());
+  }
+
+  // Drops the job's entry with its last subscriber, atomically with subscribe adding one
+  private void unsubscribe(String jobId, Subscriber subscriber) {
+    jobSubscribers.computeIfPresent(jobId, (id, subscribers) -> {
+      subscribers.remove(subscriber);
+      return subscribers.isEmpty() ? null : subscribers;
+    });
+  }
+
+  SseEmitter createEmitter() {
+    return new SseEmitter(timeoutMs);
+  }
+
+  /**
+   * Stop the event senders.
+   */
+  @PreDestroy
+  public void shutdown() {
+    senders.shutdownNow();
+  }
+
+  private record Pending(String name, Object data) {
+  }
+
+  /**
+   * One event stream with a bounded queue of events waiting to be written to it.
+   * When the queue is full a token event is appended to the token event queued last for the
+   * same prompt, or dropped if there is none; any other event closes a stream that far behind.
+   */
+  private final class Subscriber {
+    private final SseEmitter emitter;
+    private final Deque<Pending> queue = new ArrayDeque<>();
+    private boolean sending;
+    private boolean completing;
+    private boolean closed;
+
+    private Subscriber(SseEmitter emitter) {
+      this.emitter = emitter;
+    }
+
+    /**
+     * Queue an event.
+     *
+     * @return false once the stream is closed
+     */
+    boolean offer(String name, Object data) {
+      boolean overflow = false;
+      synchronized (this) {
+        if (closed) {
+          return false;
+        }
+        if (queue.size() < queueCapacity) {
+          queue.addLast(new Pending(name, data));
+        } else if (TOKEN.equals(name)) {
+          if (!coalesce((JobEvent) data)) {
+            droppedTokens.incrementAndGet();
+          }
+          return true;
+        } else {
+          overflow = true;
+          closed = true;
+          queue.clear();
+        }
+      }
+      if (overflow) {
+        LOGGER.debug("Dropping event subscriber: {} events behind", queueCapacity);
+        emitter.completeWithError(new IOException("event subscriber too slow"));
+        return false;
+      }
+      startSending();
+      return true;
+    }
+
+    // Caller holds the lock
+    private boolean coalesce(JobEvent token) {
+      Pending last = queue.peekLast();
+      if (last == null || !TOKEN.equals(last.name())
+          || !Objects.equals(((JobEvent) last.data()).promptType(), token.promptType())) {
+        return false;
+      }
+      JobEvent previous = (JobEvent) last.data();
+      queue.pollLast();
+      queue.addLast(new Pending(TOKEN, new JobEvent(previous.jobId(), TOKEN, previous.promptType(), null,
+          previous.detail() + token.detail(), token.state(), previous.timestamp())));
+      return true;
+    }
+
+    /**
+     * Complete the stream once the queued events are sent.
+     */
+    void complete() {
+      synchronized (this) {
+        completing = true;
+      }
+      startSending();
+    }
+
+    private void startSending() {
+      synchronized (this) {
+        if (sending || closed) {
+          return;
+        }
+        sending = true;
+      }
+      try {
+        senders.execute(this::drain);
+      } catch (RejectedExecutionException e) {
+        synchronized (this) {
+          sending = false;
+        }
+      }
+    }
+
+    private void drain() {
+      while (true) {
+        Pending next;
+        synchronized (this) {
+          next = queue.pollFirst();
+          if (next == null) {
+            sending = false;
+            if (!completing || closed) {
+              return;
+            }
+            closed = true;
+          }
+        }
+        if (next == null) {
+          emitter.complete();
+          return;
+        }
+        try {
+          emitter.send(SseEmitter.event().name(next.name()).data(next.data(), MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+          LOGGER.debug("Dropping event subscriber: {}", e.getMessage());
+          synchronized (this) {
+            closed = true;
+            sending = false;
+            queue.clear();
+          }
+          emitter.completeWithError(e);
+          return;
+        }
+      }
+    }
+  }
+
+  private static String fileEventType(String fileName) {
+    String lower = fileName.toLowerCase();
+    if (lower.endsWith(".pdf")) {
+      return PDF_READY;
+    } else if (lower.endsWith(".docx")) {
+      return DOCX_READY;
+    }
+    return MARKDOWN_WRITTEN;
+  }
+
+  private final class PublishingListener implements GenerationListener {
+    private final GenerationJob job;
+
+    private PublishingListener(GenerationJob job) {
+      this.job = job;
+    }
+
+    @Override
+    public void onJobStarted() {
+      publish(job, JOB_STARTED, null, null, null);
+    }
+
+    @Override
+    public void onJobFinished() {
+      publish(job, JOB_FINISHED, null, null, null);
+    }
+
+    @Override
+    public void onPromptStarted(String promptType) {
+      publish(job, PROMPT_STARTED, promptType, null, null);
+    }
+
+    @Override
+    public void onLlmRequestStarted(String promptType) {
+      publish(job, LLM_REQUEST_STARTED, promptType, null, null);
+    }
+
+    @Override
+    public void onToken(String promptType, String token) {
+      publish(job, TOKEN, promptType, null, token);
+    }
+
+    @Override
+    public void onLlmResponseReceived(String promptType, long elapsedMillis) {
+      publish(job, LLM_RESPONSE_RECEIVED, promptType, null, elapsedMillis + "ms");
+    }
+
+    @Override
+    public void onFileWritten(String promptType, String fileName) {
+      publish(job, fileEventType(fileName), promptType, fileName, null);
+    }
+
+    @Override
+    public void onPromptCompleted(String promptType) {
+      publish(job, PROMPT_COMPLETED, promptType, null, null);
+    }
+
+    @Override
+    public void onPromptFailed(String promptType, String reason) {
+      publish(job, PROMPT_FAILED, promptType, null, reason);
+    }
+  }
+}
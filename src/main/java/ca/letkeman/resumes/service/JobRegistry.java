@@ -0,0 +1,233 @@
+package ca.letkeman.resumes.service;
+
+import ca.letkeman.resumes.model.GenerationJob;
+import ca.letkeman.resumes.model.Optimize;
+import ca.letkeman.resumes.optimizer.GenerationListener;
+import com.google.gson.Gson;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * In-memory registry of background generation jobs.
+ * Finished jobs are kept for a retention period so clients can read their outcome,
+ * then evicted; the registry is also capped at a maximum number of entries.
+ * Identical requests submitted while a matching job is still running attach to that job.
+ */
+@Service
+public class JobRegistry {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(JobRegistry.class);
+  private static final Gson GSON = new Gson();
+
+  private final Map<String, GenerationJob> jobs = new ConcurrentHashMap<>();
+  private final Map<String, GenerationJob> inFlight = new ConcurrentHashMap<>();
+  private final Duration retention;
+  private final int maxEntries;
+
+  /**
+   * Create the job registry.
+   *
+   * @param retentionMinutes how long finished jobs remain queryable
+   * @param maxEntries maximum number of jobs kept in memory
+   */
+  public JobRegistry(
+      @Value("${generation.jobs.retention-minutes:60}") long retentionMinutes,
+      @Value("${generation.jobs.max-entries:1000}") int maxEntries) {
+    this.retention = Duration.ofMinutes(Math.max(1, retentionMinutes));
+    this.maxEntries = Math.max(1, maxEntries);
+  }
+
+  /**
+   * Register a new queued job for the request.
+   *
+   * @param optimize the request being generated
+   * @return the new job
+   */
+  public GenerationJob create(Optimize optimize) {
+    evictExpired();
+    GenerationJob job = new GenerationJob(UUID.randomUUID().toString(), optimize);
+    jobs.put(job.getId(), job);
+    return job;
+  }
+
+  /**
+   * Result of {@link #submit(Optimize)}.
+   *
+   * @param job the job that will produce the outputs
+   * @param attached true if an identical running job was reused
+   */
+  public record Submission(GenerationJob job, boolean attached) {
+  }
+
+  /**
+   * Register a job for the request, or attach to an identical one that has not finished.
+   * Requests with bypassCache set always get their own job.
+   *
+   * @param optimize the request being generated
+   * @return the job and whether it was reused
+   */
+  public Submission submit(Optimize optimize) {
+    if (optimize.isBypassCache()) {
+      return new Submission(create(optimize), false);
+    }
+    String key = payloadKey(optimize);
+    GenerationJob existing = inFlight.get(key);
+    if (existing != null && !existing.isFinished()) {
+      LOGGER.info("Attaching identical request to running job {}", existing.getId());
+      return new Submission(existing, true);
+    }
+    GenerationJob created = create(optimize);
+    GenerationJob winner = inFlight.merge(key, created,
+        (current, candidate) -> current.isFinished() ? candidate : current);
+    if (winner != created) {
+      // Lost a race with an identical submission
+      jobs.remove(created.getId());
+      return new Submission(winner, true);
+    }
+    return new Submission(created, false);
+  }
+
+  /**
+   * Find a job by ID.
+   *
+   * @param id the job ID
+   * @return Optional containing the job if it is still tracked
+   */
+  public Optional<GenerationJob> find(String id) {
+    if (id == null) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(jobs.get(id));
+  }
+
+  /**
+   * All tracked jobs, newest first.
+   *
+   * @return list of jobs
+   */
+  public List<GenerationJob> list() {
+    return jobs.values().stream()
+        .sorted(Comparator.comparing(GenerationJob::getSubmittedAt).reversed())
+        .toList();
+  }
+
+  /**
+   * Stop tracking a job. Clients following it get 404 from then on, so a job others may have
+   * attached to is failed through its listener instead.
+   *
+   * @param id the job ID
+   */
+  public void remove(String id) {
+    GenerationJob job = jobs.remove(id);
+    if (job != null) {
+      release(job);
+    }
+  }
+
+  /**
+   * Listener that records generation progress on the given job.
+   *
+   * @param job the job to update
+   * @return listener to hand to the generation worker
+   */
+  public GenerationListener listenerFor(GenerationJob job) {
+    return new JobProgressListener(job);
+  }
+
+  private void release(GenerationJob job) {
+    inFlight.values().remove(job);
+  }
+
+  /**
+   * Hash of everything that determines the generated outputs.
+   *
+   * @param optimize the request
+   * @return hex SHA-256 of the request
+   */
+  static String payloadKey(Optimize optimize) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(GSON.toJson(optimize).getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      // every JVM ships SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void evictExpired() {
+    Instant cutoff = Instant.now().minus(retention);
+    jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+
+    int overflow = jobs.size() - maxEntries + 1;
+    if (overflow > 0) {
+      // Drop the oldest finished jobs first; running jobs are never evicted
+      jobs.values().stream()
+          .filter(GenerationJob::isFinished)
+          .sorted(Comparator.comparing(GenerationJob::getSubmittedAt))
+          .limit(overflow)
+          .map(GenerationJob::getId)
+          .toList()
+          .forEach(jobs::remove);
+      LOGGER.debug("Job registry full, evicted up to {} finished jobs", overflow);
+    }
+  }
+
+  private final class JobProgressListener implements GenerationListener {
+    private final GenerationJob job;
+
+    private JobProgressListener(GenerationJob job) {
+      this.job = job;
+    }
+
+    @Override
+    public void onJobStarted() {
+      job.markRunning();
+    }
+
+    @Override
+    public void onJobFinished() {
+      job.markFinished();
+      release(job);
+      LOGGER.info("Job {} finished: {}", job.getId(), job.getState());
+    }
+
+    @Override
+    public void onPromptStarted(String promptType) {
+      job.promptStarted(promptType);
+    }
+
+    @Override
+    public void onLlmResponseReceived(String promptType, long elapsedMillis) {
+      job.llmResponseReceived(promptType, elapsedMillis);
+    }
+
+    @Override
+    public void onFileWritten(String promptType, String fileName) {
+      job.fileWritten(promptType, fileName);
+    }
+
+    @Override
+    public void onPromptCompleted(String promptType) {
+      job.promptCompleted(promptType);
+    }
+
+    @Override
+    public void onPromptFailed(String promptType, String reason) {
+      job.promptFailed(promptType, reason);
+    }
+  }
+}
@@ -0,0 +1,214 @@
+package ca.letkeman.resumes.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Circuit breaker per LLM endpoint URL.
+ * After enough consecutive failures the circuit opens and calls fail immediately instead of
+ * tying up a worker on a backend that is down. Once the open period passes a single probe
+ * call is let through; its outcome closes the circuit again or re-opens it.
+ */
+@Service
+public class LlmCircuitBreaker implements MetricsSource {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(LlmCircuitBreaker.class);
+
+  /**
+   * Circuit state.
+   */
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+  private final boolean enabled;
+  private final int failureThreshold;
+  private final Duration openDuration;
+
+  /**
+   * Create the circuit breaker.
+   *
+   * @param enabled false to never fail fast
+   * @param failureThreshold consecutive failures that open a circuit
+   * @param openSeconds how long a circuit stays open before a probe is allowed
+   */
+  public LlmCircuitBreaker(
+      @Value("${llm.circuit-breaker.enabled:true}") boolean enabled,
+      @Value("${llm.circuit-breaker.failure-threshold:5}") int failureThreshold,
+      @Value("${llm.circuit-breaker.open-seconds:30}") long openSeconds) {
+    this.enabled = enabled;
+    this.failureThreshold = Math.max(1, failureThreshold);
+    this.openDuration = Duration.ofSeconds(Math.max(1, openSeconds));
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Ask to send a call to the endpoint.
+   * Every permitted call must be followed by {@link #record}.
+   *
+   * @param url the endpoint URL
+   * @throws CircuitOpenException if the circuit is open, or half-open with a probe in flight
+   */
+  public void acquirePermission(String url) throws CircuitOpenException {
+    if (enabled && !circuit(url).tryAcquire(Instant.now())) {
+      throw new CircuitOpenException(url);
+    }
+  }
+
+  /**
+   * Record the end of a permitted call.
+   *
+   * @param url the endpoint URL
+   * @param outcome SUCCESS closes the circuit, FAILURE counts towards opening it,
+   *     IGNORED only frees a half-open probe slot
+   */
+  public void record(String url, LlmEndpointPool.Outcome outcome) {
+    if (enabled) {
+      circuit(url).record(outcome, failureThreshold, openDuration);
+    }
+  }
+
+  /**
+   * Current state of the endpoint's circuit.
+   *
+   * @param url the endpoint URL
+   * @return the state; CLOSED for endpoints never called
+   */
+  public State getState(String url) {
+    Circuit circuit = circuits.get(url);
+    return circuit == null ? State.CLOSED : circuit.state;
+  }
+
+  /**
+   * Snapshot of every circuit for health reporting.
+   *
+   * @return map of metric name to value
+   */
+  @Override
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new LinkedHashMap<>();
+    metrics.put("enabled", enabled);
+    metrics.put("failure_threshold", failureThreshold);
+    metrics.put("open_seconds", openDuration.toSeconds());
+    metrics.put("circuits", circuits.entrySet().stream()
+        .map(entry -> entry.getValue().metrics(entry.getKey()))
+        .toList());
+    return metrics;
+  }
+
+  @Override
+  public String getMetricsName() {
+    return "llm_circuits";
+  }
+
+  @Override
+  public String getMetricsPath() {
+    return "circuits";
+  }
+
+  private Circuit circuit(String url) {
+    return circuits.computeIfAbsent(url, u -> new Circuit());
+  }
+
+  /**
+   * Thrown instead of sending a call while the endpoint's circuit is open.
+   */
+  public static class CircuitOpenException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException(String url) {
+      super("Circuit open for LLM endpoint " + url);
+    }
+  }
+
+  private static final class Circuit {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile State state = State.CLOSED;
+    private int consecutiveFailures;
+    private Instant openUntil = Instant.MIN;
+    private boolean probeInFlight;
+
+    boolean tryAcquire(Instant now) {
+      lock.lock();
+      try {
+        if (state == State.OPEN && !now.isBefore(openUntil)) {
+          state = State.HALF_OPEN;
+          probeInFlight = false;
+        }
+        boolean permitted = switch (state) {
+          case CLOSED -> true;
+          case HALF_OPEN -> !probeInFlight;
+          case OPEN -> false;
+        };
+        if (state == State.HALF_OPEN && permitted) {
+          probeInFlight = true;
+        }
+        if (!permitted) {
+          rejected.incrementAndGet();
+        }
+        return permitted;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void record(LlmEndpointPool.Outcome outcome, int threshold, Duration openDuration) {
+      lock.lock();
+      try {
+        boolean probe = state == State.HALF_OPEN;
+        if (probe) {
+          probeInFlight = false;
+        }
+        if (outcome == LlmEndpointPool.Outcome.SUCCESS) {
+          if (state != State.CLOSED) {
+            LOGGER.info("LLM circuit closed after a successful probe");
+          }
+          state = State.CLOSED;
+          consecutiveFailures = 0;
+        } else if (outcome == LlmEndpointPool.Outcome.FAILURE) {
+          consecutiveFailures++;
+          if (probe || state == State.CLOSED && consecutiveFailures >= threshold) {
+            state = State.OPEN;
+            openUntil = Instant.now().plus(openDuration);
+            LOGGER.warn("LLM circuit opened after {} consecutive failures, failing fast for {}s",
+                consecutiveFailures, openDuration.toSeconds());
+          }
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    Map<String, Object> metrics(String url) {
+      lock.lock();
+      try {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("url", url);
+        metrics.put("state", state.name());
+        metrics.put("consecutive_failures", consecutiveFailures);
+        metrics.put("rejected", rejected.get());
+        if (state == State.OPEN) {
+          metrics.put("open_until", openUntil.toString());
+        }
+        return metrics;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
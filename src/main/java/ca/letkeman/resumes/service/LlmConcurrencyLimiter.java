@@ -0,0 +1,272 @@
+package ca.letkeman.resumes.service;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Caps the number of concurrent LLM calls per model and per endpoint.
+ * Each cap is adaptive (AIMD): it grows by roughly one call per round of successful calls
+ * while latency stays near its baseline, is cut by 10% when latency climbs past the
+ * tolerance, and is halved when the backend answers 429/5xx or times out. Configured
+ * limits are ceilings, so a large model never gets more parallel calls than it can take.
+ */
+@Service
+public class LlmConcurrencyLimiter implements MetricsSource {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(LlmConcurrencyLimiter.class);
+
+  private static final double BASELINE_WEIGHT = 0.05;
+  private static final double LATENCY_BACKOFF = 0.9;
+  private static final double FAILURE_BACKOFF = 0.5;
+
+  private final Map<String, AdaptiveLimit> models = new ConcurrentHashMap<>();
+  private final Map<String, AdaptiveLimit> endpoints = new ConcurrentHashMap<>();
+  private final boolean enabled;
+  private final boolean adaptive;
+  private final int defaultModelLimit;
+  private final Map<String, Integer> modelLimits;
+  private final int endpointLimit;
+  private final double latencyTolerance;
+  private final long acquireTimeoutNanos;
+
+  /**
+   * Create the limiter.
+   *
+   * @param enabled false to never limit calls
+   * @param adaptive false to keep every limit at its configured value
+   * @param defaultModelLimit limit for models not listed in modelLimits
+   * @param modelLimits comma separated model=limit pairs, e.g. gemma3:4b=8,gemma3:27b=1
+   * @param endpointLimit limit per endpoint URL, across all models
+   * @param latencyTolerance latency, as a multiple of the baseline, above which a limit shrinks
+   * @param acquireTimeoutSeconds how long a call waits for a free slot
+   */
+  public LlmConcurrencyLimiter(
+      @Value("${llm.concurrency.enabled:true}") boolean enabled,
+      @Value("${llm.concurrency.adaptive:true}") boolean adaptive,
+      @Value("${llm.concurrency.default-limit:4}") int defaultModelLimit,
+      @Value("${llm.concurrency.models:}") String modelLimits,
+      @Value("${llm.concurrency.per-endpoint:8}") int endpointLimit,
+      @Value("${llm.concurrency.latency-tolerance:2.0}") double latencyTolerance,
+      @Value("${llm.concurrency.acquire-timeout-seconds:600}") long acquireTimeoutSeconds) {
+    this.enabled = enabled;
+    this.adaptive = adaptive;
+    this.defaultModelLimit = Math.max(1, defaultModelLimit);
+    this.modelLimits = parseModelLimits(modelLimits);
+    this.endpointLimit = Math.max(1, endpointLimit);
+    this.latencyTolerance = Math.max(1.0, latencyTolerance);
+    this.acquireTimeoutNanos = TimeUnit.SECONDS.toNanos(Math.max(1, acquireTimeoutSeconds));
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Wait for a free slot for the model and the endpoint.
+   *
+   * @param model the model named in the request, may be null
+   * @param endpoint the endpoint URL the call goes to
+   * @return the permit to release when the call ends
+   * @throws InterruptedException if interrupted while waiting
+   * @throws LimitTimeoutException if no slot became free within the acquire timeout
+   */
+  public Permit acquire(String model, String endpoint) throws InterruptedException, LimitTimeoutException {
+    if (!enabled) {
+      return Permit.NONE;
+    }
+    String modelKey = model == null || model.isBlank() ? "default" : model.trim();
+    AdaptiveLimit modelLimit = models.computeIfAbsent(modelKey,
+        m -> new AdaptiveLimit(modelLimits.getOrDefault(m, defaultModelLimit)));
+    AdaptiveLimit endpointLimit = endpoints.computeIfAbsent(endpoint, e -> new AdaptiveLimit(this.endpointLimit));
+
+    long deadline = System.nanoTime() + acquireTimeoutNanos;
+    if (!modelLimit.acquire(deadline)) {
+      throw new LimitTimeoutException("model " + modelKey);
+    }
+    try {
+      if (!endpointLimit.acquire(deadline)) {
+        throw new LimitTimeoutException("endpoint " + endpoint);
+      }
+    } catch (InterruptedException | LimitTimeoutException e) {
+      modelLimit.release(LlmEndpointPool.Outcome.IGNORED, 0);
+      throw e;
+    }
+    return new Permit(modelLimit, endpointLimit);
+  }
+
+  /**
+   * Snapshot of every limit for health reporting.
+   *
+   * @return map of metric name to value
+   */
+  @Override
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new LinkedHashMap<>();
+    metrics.put("enabled", enabled);
+    metrics.put("adaptive", adaptive);
+    metrics.put("models", snapshot(models));
+    metrics.put("endpoints", snapshot(endpoints));
+    return metrics;
+  }
+
+  @Override
+  public String getMetricsName() {
+    return "llm_concurrency";
+  }
+
+  @Override
+  public String getMetricsPath() {
+    return "concurrency";
+  }
+
+  private static Map<String, Object> snapshot(Map<String, AdaptiveLimit> limits) {
+    Map<String, Object> snapshot = new TreeMap<>();
+    limits.forEach((key, limit) -> snapshot.put(key, limit.metrics()));
+    return snapshot;
+  }
+
+  static Map<String, Integer> parseModelLimits(String modelLimits) {
+    Map<String, Integer> limits = new LinkedHashMap<>();
+    if (modelLimits == null) {
+      return limits;
+    }
+    Arrays.stream(modelLimits.split(","))
+        .map(String::trim)
+        .filter(pair -> !pair.isEmpty())
+        .forEach(pair -> {
+          // Model names contain ':' (gemma3:4b), so the limit follows the last '='
+          int split = pair.lastIndexOf('=');
+          try {
+            int limit = Integer.parseInt(pair.substring(split + 1).trim());
+            limits.put(pair.substring(0, split).trim(), Math.max(1, limit));
+          } catch (RuntimeException e) {
+            LOGGER.warn("Ignoring invalid model limit '{}'", pair);
+          }
+        });
+    return limits;
+  }
+
+  /**
+   * Slots held by one call; release exactly once.
+   */
+  public static final class Permit {
+    static final Permit NONE = new Permit(null, null);
+
+    private final AdaptiveLimit model;
+    private final AdaptiveLimit endpoint;
+
+    private Permit(AdaptiveLimit model, AdaptiveLimit endpoint) {
+      this.model = model;
+      this.endpoint = endpoint;
+    }
+
+    /**
+     * Free the slots and feed the call's outcome into the adaptive limits.
+     *
+     * @param outcome FAILURE for overload signals (429/5xx, timeouts), IGNORED for cancelled calls
+     * @param latencyMs how long the call took
+     */
+    public void release(LlmEndpointPool.Outcome outcome, long latencyMs) {
+      if (model != null) {
+        endpoint.release(outcome, latencyMs);
+        model.release(outcome, latencyMs);
+      }
+    }
+  }
+
+  /**
+   * Thrown when a call waited longer than the acquire timeout for a free slot.
+   */
+  public static class LimitTimeoutException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public LimitTimeoutException(String what) {
+      super("Timed out waiting for a free LLM slot for " + what);
+    }
+  }
+
+  private final class AdaptiveLimit {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final int maxLimit;
+    private double limit;
+    private int inFlight;
+    private double baselineMs;
+
+    private AdaptiveLimit(int maxLimit) {
+      this.maxLimit = maxLimit;
+      this.limit = maxLimit;
+    }
+
+    boolean acquire(long deadlineNanos) throws InterruptedException {
+      lock.lock();
+      try {
+        while (inFlight >= (int) limit) {
+          long remaining = deadlineNanos - System.nanoTime();
+          if (remaining <= 0) {
+            return false;
+          }
+          available.awaitNanos(remaining);
+        }
+        inFlight++;
+        return true;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void release(LlmEndpointPool.Outcome outcome, long latencyMs) {
+      lock.lock();
+      try {
+        boolean saturated = inFlight >= (int) limit;
+        inFlight--;
+        if (adaptive) {
+          adjust(outcome, latencyMs, saturated);
+        }
+        available.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void adjust(LlmEndpointPool.Outcome outcome, long latencyMs, boolean saturated) {
+      if (outcome == LlmEndpointPool.Outcome.FAILURE) {
+        limit = Math.max(1, limit * FAILURE_BACKOFF);
+      } else if (outcome == LlmEndpointPool.Outcome.SUCCESS) {
+        if (baselineMs > 0 && latencyMs > baselineMs * latencyTolerance) {
+          limit = Math.max(1, limit * LATENCY_BACKOFF);
+        } else if (saturated) {
+          // Only grow while the limit is actually what holds calls back
+          limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+        baselineMs = baselineMs == 0 ? latencyMs : baselineMs + BASELINE_WEIGHT * (latencyMs - baselineMs);
+      }
+    }
+
+    Map<String, Object> metrics() {
+      lock.lock();
+      try {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("limit", (int) limit);
+        metrics.put("max_limit", maxLimit);
+        metrics.put("in_flight", inFlight);
+        metrics.put("waiting", lock.getWaitQueueLength(available));
+        metrics.put("baseline_ms", Math.round(baselineMs));
+        return metrics;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
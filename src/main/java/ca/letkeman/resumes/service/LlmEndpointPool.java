@@ -0,0 +1,286 @@
+package ca.letkeman.resumes.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Pool of interchangeable LLM endpoints (e.g. several Ollama hosts serving the same models).
+ * Each call is routed to the healthy endpoint with the fewest outstanding requests, or the
+ * lowest expected latency when latency-weighted routing is configured. Endpoints that fail
+ * repeatedly are ejected for a while and re-admitted automatically.
+ * When no endpoints are configured the pool is disabled and callers use their own endpoint.
+ */
+@Service
+public class LlmEndpointPool implements MetricsSource {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(LlmEndpointPool.class);
+
+  /**
+   * How a finished call reflects on the endpoint's health.
+   */
+  public enum Outcome {
+    SUCCESS, FAILURE, IGNORED
+  }
+
+  /**
+   * Routing strategy.
+   */
+  public enum Routing {
+    LEAST_OUTSTANDING, LATENCY_WEIGHTED
+  }
+
+  private final List<Endpoint> endpoints;
+  private final Routing routing;
+  private final int ejectAfterFailures;
+  private final Duration ejection;
+
+  /**
+   * Create the endpoint pool.
+   *
+   * @param endpoints comma separated endpoint URLs; empty disables the pool
+   * @param routing least-outstanding or latency-weighted
+   * @param ejectAfterFailures consecutive failures before an endpoint is ejected
+   * @param ejectionSeconds how long an ejected endpoint is skipped
+   */
+  public LlmEndpointPool(
+      @Value("${llm.endpoints:}") String endpoints,
+      @Value("${llm.routing:least-outstanding}") String routing,
+      @Value("${llm.ejection.failures:3}") int ejectAfterFailures,
+      @Value("${llm.ejection.seconds:30}") long ejectionSeconds) {
+    this.endpoints = endpoints == null ? List.of() : Arrays.stream(endpoints.split(","))
+        .map(String::trim)
+        .filter(url -> !url.isEmpty())
+        .distinct()
+        .map(Endpoint::new)
+        .toList();
+    this.routing = "latency-weighted".equalsIgnoreCase(routing == null ? "" : routing.trim())
+        ? Routing.LATENCY_WEIGHTED : Routing.LEAST_OUTSTANDING;
+    this.ejectAfterFailures = Math.max(1, ejectAfterFailures);
+    this.ejection = Duration.ofSeconds(Math.max(1, ejectionSeconds));
+    if (!this.endpoints.isEmpty()) {
+      LOGGER.info("LLM endpoint pool: {} endpoints, {} routing", this.endpoints.size(), this.routing);
+    }
+  }
+
+  /**
+   * Whether any endpoints are configured.
+   *
+   * @return true if calls should be routed through the pool
+   */
+  public boolean isEnabled() {
+    return !endpoints.isEmpty();
+  }
+
+  public List<Endpoint> getEndpoints() {
+    return endpoints;
+  }
+
+  /**
+   * Pick an endpoint for a call and count it as outstanding.
+   * If every endpoint is ejected, the one that will be re-admitted first is used
+   * rather than failing the call outright.
+   *
+   * @return the chosen endpoint; pass it to {@link #release} when the call ends
+   */
+  public Endpoint acquire() {
+    return acquire(null);
+  }
+
+  /**
+   * Pick an endpoint other than the given one where possible, e.g. for a retry or hedge.
+   *
+   * @param avoid endpoint to skip if another one is available, may be null
+   * @return the chosen endpoint; pass it to {@link #release} when the call ends
+   */
+  public Endpoint acquire(Endpoint avoid) {
+    if (endpoints.isEmpty()) {
+      throw new IllegalStateException("No LLM endpoints configured");
+    }
+    Instant now = Instant.now();
+    List<Endpoint> candidates = new ArrayList<>();
+    for (Endpoint endpoint : endpoints) {
+      if (endpoint != avoid && endpoint.isAvailable(now)) {
+        candidates.add(endpoint);
+      }
+    }
+    if (candidates.isEmpty() && avoid != null && avoid.isAvailable(now)) {
+      candidates.add(avoid);
+    }
+
+    Endpoint chosen;
+    if (candidates.isEmpty()) {
+      chosen = endpoints.stream().min(Comparator.comparing(Endpoint::getEjectedUntil)).orElseThrow();
+      LOGGER.warn("All LLM endpoints are ejected, trying {}", chosen.getUrl());
+    } else if (routing == Routing.LATENCY_WEIGHTED) {
+      chosen = candidates.stream().min(Comparator.comparingDouble(Endpoint::expectedLatency)).orElseThrow();
+    } else {
+      chosen = candidates.stream()
+          .min(Comparator.comparingInt(Endpoint::getOutstanding).thenComparingDouble(Endpoint::getLatencyMs))
+          .orElseThrow();
+    }
+    chosen.outstanding.incrementAndGet();
+    return chosen;
+  }
+
+  /**
+   * Record the end of a call routed with {@link #acquire}.
+   *
+   * @param endpoint the endpoint that served the call
+   * @param outcome whether the endpoint behaved healthily
+   * @param latencyMs how long the call took
+   */
+  public void release(Endpoint endpoint, Outcome outcome, long latencyMs) {
+    endpoint.outstanding.decrementAndGet();
+    endpoint.record(outcome, latencyMs, ejectAfterFailures, ejection);
+  }
+
+  /**
+   * Whether an HTTP status says the endpoint, rather than the request, is unhealthy.
+   *
+   * @param statusCode the HTTP status code
+   * @return true for 429 and 5xx responses
+   */
+  public static boolean isEndpointFailure(int statusCode) {
+    return statusCode == 429 || statusCode >= 500;
+  }
+
+  /**
+   * Snapshot of every endpoint for health reporting.
+   *
+   * @return map of metric name to value
+   */
+  @Override
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new LinkedHashMap<>();
+    metrics.put("enabled", isEnabled());
+    metrics.put("routing", routing.name().toLowerCase().replace('_', '-'));
+    List<Map<String, Object>> list = new ArrayList<>();
+    Instant now = Instant.now();
+    for (Endpoint endpoint : endpoints) {
+      list.add(endpoint.metrics(now));
+    }
+    metrics.put("endpoints", list);
+    return metrics;
+  }
+
+  @Override
+  public String getMetricsName() {
+    return "llm_endpoints";
+  }
+
+  @Override
+  public String getMetricsPath() {
+    return "endpoints";
+  }
+
+  /**
+   * Runtime state of one endpoint.
+   */
+  public static final class Endpoint {
+    private static final double LATENCY_WEIGHT = 0.3;
+
+    private final String url;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile double latencyMs;
+    private volatile int consecutiveFailures;
+    private volatile Instant ejectedUntil = Instant.MIN;
+
+    Endpoint(String url) {
+      this.url = url;
+    }
+
+    public String getUrl() {
+      return url;
+    }
+
+    public int getOutstanding() {
+      return outstanding.get();
+    }
+
+    /**
+     * Exponentially weighted average latency of successful calls.
+     *
+     * @return average latency in milliseconds, 0 until the first success
+     */
+    public double getLatencyMs() {
+      return latencyMs;
+    }
+
+    public Instant getEjectedUntil() {
+      return ejectedUntil;
+    }
+
+    boolean isAvailable(Instant now) {
+      return !ejectedUntil.isAfter(now);
+    }
+
+    double expectedLatency() {
+      // unknown endpoints look fast so they get traffic and a latency estimate
+      return (outstanding.get() + 1) * Math.max(1.0, latencyMs);
+    }
+
+    void record(Outcome outcome, long elapsedMs, int ejectAfterFailures, Duration ejection) {
+      if (outcome == Outcome.IGNORED) {
+        return;
+      }
+      requests.incrementAndGet();
+      lock.lock();
+      try {
+        if (outcome == Outcome.SUCCESS) {
+          latencyMs = latencyMs == 0 ? elapsedMs : latencyMs + LATENCY_WEIGHT * (elapsedMs - latencyMs);
+          if (consecutiveFailures >= ejectAfterFailures) {
+            LOGGER.info("LLM endpoint {} re-admitted", url);
+          }
+          consecutiveFailures = 0;
+        } else {
+          failures.incrementAndGet();
+          consecutiveFailures++;
+          // a failure after re-admission ejects again straight away
+          if (consecutiveFailures >= ejectAfterFailures) {
+            ejectedUntil = Instant.now().plus(ejection);
+            LOGGER.warn("LLM endpoint {} ejected for {}s after {} consecutive failures",
+                url, ejection.toSeconds(), consecutiveFailures);
+          }
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    Map<String, Object> metrics(Instant now) {
+      Map<String, Object> metrics = new LinkedHashMap<>();
+      metrics.put("url", url);
+      metrics.put("state", isAvailable(now) ? "HEALTHY" : "EJECTED");
+      metrics.put("outstanding", outstanding.get());
+      metrics.put("latency_ms", Math.round(latencyMs));
+      metrics.put("requests", requests.get());
+      metrics.put("failures", failures.get());
+      metrics.put("consecutive_failures", consecutiveFailures);
+      if (!isAvailable(now)) {
+        metrics.put("ejected_until", ejectedUntil.toString());
+      }
+      return metrics;
+    }
+
+    @Override
+    public String toString() {
+      return url;
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package ca.letkeman.resumes.service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Decides when a slow LLM call is hedged with a second request to another endpoint.
+ * The delay is a percentile of recently observed latencies, so only calls slower than
+ * (for example) 95% of their peers pay for a duplicate request.
+ */
+@Service
+public class LlmHedgingPolicy implements MetricsSource {
+
+  static final int MIN_SAMPLES = 20;
+
+  private final boolean enabled;
+  private final double percentile;
+  private final long minDelayMs;
+  private final long[] window;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final AtomicLong hedged = new AtomicLong();
+  private final AtomicLong hedgeWins = new AtomicLong();
+  private int samples;
+  private int next;
+
+  /**
+   * Create the hedging policy.
+   *
+   * @param enabled false to never hedge
+   * @param percentile latency percentile after which a call is hedged, e.g. 95
+   * @param minDelayMs lower bound of the hedge delay
+   * @param windowSize number of recent latencies the percentile is taken over
+   */
+  public LlmHedgingPolicy(
+      @Value("${llm.hedging.enabled:false}") boolean enabled,
+      @Value("${llm.hedging.percentile:95}") double percentile,
+      @Value("${llm.hedging.min-delay-ms:2000}") long minDelayMs,
+      @Value("${llm.hedging.window:200}") int windowSize) {
+    this.enabled = enabled;
+    this.percentile = Math.min(100, Math.max(1, percentile));
+    this.minDelayMs = Math.max(0, minDelayMs);
+    this.window = new long[Math.max(MIN_SAMPLES, windowSize)];
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Record the latency of a completed call.
+   *
+   * @param latencyMs how long the call took
+   */
+  public void recordLatency(long latencyMs) {
+    lock.lock();
+    try {
+      window[next] = latencyMs;
+      next = (next + 1) % window.length;
+      samples = Math.min(samples + 1, window.length);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * How long to wait for the primary call before sending the hedge.
+   *
+   * @return milliseconds, or -1 when disabled or too few latencies were seen to judge
+   */
+  public long hedgeDelayMs() {
+    if (!enabled) {
+      return -1;
+    }
+    long[] sorted;
+    lock.lock();
+    try {
+      if (samples < MIN_SAMPLES) {
+        return -1;
+      }
+      sorted = Arrays.copyOf(window, samples);
+    } finally {
+      lock.unlock();
+    }
+    Arrays.sort(sorted);
+    int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+    return Math.max(minDelayMs, sorted[Math.max(0, index)]);
+  }
+
+  /**
+   * Count a hedge request.
+   *
+   * @param won whether the hedge finished before the primary call
+   */
+  public void recordHedge(boolean won) {
+    hedged.incrementAndGet();
+    if (won) {
+      hedgeWins.incrementAndGet();
+    }
+  }
+
+  /**
+   * Snapshot for health reporting.
+   *
+   * @return map of metric name to value
+   */
+  @Override
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new LinkedHashMap<>();
+    metrics.put("enabled", enabled);
+    metrics.put("percentile", percentile);
+    metrics.put("hedge_delay_ms", hedgeDelayMs());
+    metrics.put("hedged", hedged.get());
+    metrics.put("hedge_wins", hedgeWins.get());
+    return metrics;
+  }
+
+  @Override
+  public String getMetricsName() {
+    return "llm_hedging";
+  }
+
+  @Override
+  public String getMetricsPath() {
+    return "hedging";
+  }
+}
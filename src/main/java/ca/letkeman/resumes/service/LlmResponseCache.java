@@ -0,0 +1,461 @@
+package ca.letkeman.resumes.service;
+
+import ca.letkeman.resumes.optimizer.ChatBody;
+import ca.letkeman.resumes.optimizer.responses.Choice;
+import ca.letkeman.resumes.optimizer.responses.LLMResponse;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Cache of LLM responses keyed by a SHA-256 of the fully expanded chat request
+ * (messages, model, temperature and max tokens).
+ * Entries live in a size bounded LRU with a TTL; an optional directory adds a disk tier
+ * that survives restarts. The disk tier is swept at startup and periodically on write: expired
+ * entries and leftover temp files are deleted and the oldest files beyond a cap are removed.
+ * Responses are stored as JSON so callers always get a fresh copy.
+ * Concurrent loads of the same key are coalesced: one caller calls the LLM, the others wait for it.
+ */
+@Service
+public class LlmResponseCache implements MetricsSource {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(LlmResponseCache.class);
+  private static final Gson GSON = new Gson();
+  private static final Duration SWEEP_INTERVAL = Duration.ofMinutes(1);
+  // A temp file this old belongs to a write that never finished
+  private static final Duration STALE_TMP = Duration.ofMinutes(1);
+
+  private final boolean enabled;
+  private final int maxEntries;
+  private final Duration ttl;
+  private final Path diskDir;
+  private final int diskMaxEntries;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong diskHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+  private final AtomicLong diskEvictions = new AtomicLong();
+  private final AtomicInteger writesSinceSweep = new AtomicInteger();
+  private final AtomicBoolean sweeping = new AtomicBoolean();
+  private volatile Instant lastSweep = Instant.MIN;
+  private final Map<String, CompletableFuture<LLMResponse>> inFlight = new ConcurrentHashMap<>();
+
+  private record Entry(String json, Instant expiresAt) {
+  }
+
+  /**
+   * Outcome of {@link #getOrLoad}.
+   *
+   * @param response the response, or null if the load failed
+   * @param loaded true if this caller ran the loader, false if served from the cache or another caller
+   */
+  public record Lookup(LLMResponse response, boolean loaded) {
+  }
+
+  /**
+   * Create an in-memory cache.
+   *
+   * @param maxEntries maximum number of responses kept in memory
+   * @param ttlMinutes how long a response stays valid
+   */
+  public LlmResponseCache(int maxEntries, long ttlMinutes) {
+    this(true, maxEntries, ttlMinutes, "");
+  }
+
+  /**
+   * Create a response cache with the default disk tier cap.
+   *
+   * @param enabled false to disable caching entirely
+   * @param maxEntries maximum number of responses kept in memory
+   * @param ttlMinutes how long a response stays valid
+   * @param diskDir directory for the disk tier; empty to keep the cache in memory only
+   */
+  public LlmResponseCache(boolean enabled, int maxEntries, long ttlMinutes, String diskDir) {
+    this(enabled, maxEntries, ttlMinutes, diskDir, 1000);
+  }
+
+  /**
+   * Create the response cache.
+   *
+   * @param enabled false to disable caching entirely
+   * @param maxEntries maximum number of responses kept in memory
+   * @param ttlMinutes how long a response stays valid
+   * @param diskDir directory for the disk tier; empty to keep the cache in memory only
+   * @param diskMaxEntries maximum number of responses kept in the disk tier
+   */
+  @Autowired
+  public LlmResponseCache(
+      @Value("${llm.cache.enabled:true}") boolean enabled,
+      @Value("${llm.cache.max-entries:200}") int maxEntries,
+      @Value("${llm.cache.ttl-minutes:60}") long ttlMinutes,
+      @Value("${llm.cache.disk-dir:}") String diskDir,
+      @Value("${llm.cache.disk-max-entries:1000}") int diskMaxEntries) {
+    this.enabled = enabled;
+    this.maxEntries = Math.max(1, maxEntries);
+    this.ttl = Duration.ofMinutes(Math.max(1, ttlMinutes));
+    this.diskDir = diskDir == null || diskDir.isBlank() ? null : Path.of(diskDir);
+    this.diskMaxEntries = Math.max(1, diskMaxEntries);
+    if (enabled && this.diskDir != null) {
+      try {
+        Files.createDirectories(this.diskDir);
+        sweepDisk();
+      } catch (IOException e) {
+        LOGGER.error("Unable to create LLM cache directory {}: {}", this.diskDir, e.toString());
+      }
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Cache key for a chat request.
+   *
+   * @param chatBody the fully expanded request
+   * @return hex SHA-256 of model, temperature, max tokens and messages
+   */
+  public static String key(ChatBody chatBody) {
+    String material = chatBody.getModel() + "\n" + chatBody.getTemperature() + "\n"
+        + chatBody.getMaxTokens() + "\n" + GSON.toJson(chatBody.getMessages());
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(material.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      // every JVM ships SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Look up a cached response.
+   *
+   * @param key key from {@link #key(ChatBody)}
+   * @return Optional containing a copy of the response if present and not expired
+   */
+  public Optional<LLMResponse> get(String key) {
+    if (!enabled) {
+      return Optional.empty();
+    }
+    Instant now = Instant.now();
+    String json = null;
+    lock.lock();
+    try {
+      Entry entry = entries.get(key);
+      if (entry != null) {
+        if (entry.expiresAt().isAfter(now)) {
+          json = entry.json();
+        } else {
+          entries.remove(key);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    if (json != null) {
+      hits.incrementAndGet();
+      return Optional.of(GSON.fromJson(json, LLMResponse.class));
+    }
+
+    Optional<LLMResponse> fromDisk = readDisk(key, now);
+    if (fromDisk.isPresent()) {
+      diskHits.incrementAndGet();
+    } else {
+      misses.incrementAndGet();
+    }
+    return fromDisk;
+  }
+
+  /**
+   * Get a cached response, or load it once no matter how many callers ask at the same time.
+   * Callers arriving while a load for the same key is running wait for it instead of
+   * starting a second identical LLM call. Coalescing applies even when caching is disabled.
+   *
+   * @param key key from {@link #key(ChatBody)}
+   * @param loader calls the LLM; may return null on failure
+   * @return the response and whether this caller loaded it
+   */
+  public Lookup getOrLoad(String key, Supplier<LLMResponse> loader) {
+    Optional<LLMResponse> cached = get(key);
+    if (cached.isPresent()) {
+      return new Lookup(cached.get(), false);
+    }
+
+    CompletableFuture<LLMResponse> mine = new CompletableFuture<>();
+    CompletableFuture<LLMResponse> running = inFlight.putIfAbsent(key, mine);
+    if (running != null) {
+      coalesced.incrementAndGet();
+      LOGGER.info("Joining identical in-flight LLM request");
+      LLMResponse shared = running.join();
+      // each caller gets its own copy, as with cache hits
+      return new Lookup(shared == null ? null : GSON.fromJson(GSON.toJson(shared), LLMResponse.class), false);
+    }
+
+    try {
+      LLMResponse response = loader.get();
+      if (hasContent(response)) {
+        put(key, response);
+      }
+      mine.complete(response);
+      return new Lookup(response, true);
+    } catch (RuntimeException e) {
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, mine);
+    }
+  }
+
+  /**
+   * Whether a response carries generated content worth caching.
+   *
+   * @param response the response to check
+   * @return true if the first choice has message content
+   */
+  public static boolean hasContent(LLMResponse response) {
+    if (response == null) {
+      return false;
+    }
+    List<Choice> choices = response.getChoices();
+    return choices != null && !choices.isEmpty() && choices.get(0).getMessage() != null
+        && choices.get(0).getMessage().getContent() != null;
+  }
+
+  /**
+   * Store a response.
+   *
+   * @param key key from {@link #key(ChatBody)}
+   * @param response the response to cache
+   */
+  public void put(String key, LLMResponse response) {
+    if (!enabled || response == null) {
+      return;
+    }
+    String json = GSON.toJson(response);
+    putMemory(key, new Entry(json, Instant.now().plus(ttl)));
+    writeDisk(key, json);
+  }
+
+  /**
+   * Drop every cached response, in memory and on disk.
+   */
+  public void clear() {
+    lock.lock();
+    try {
+      entries.clear();
+    } finally {
+      lock.unlock();
+    }
+    if (diskDir != null) {
+      try (var files = Files.list(diskDir)) {
+        files.filter(p -> p.getFileName().toString().endsWith(".json")).forEach(p -> p.toFile().delete());
+      } catch (IOException e) {
+        LOGGER.warn("Unable to clear LLM cache directory: {}", e.toString());
+      }
+    }
+  }
+
+  /**
+   * Snapshot of cache metrics for health reporting.
+   *
+   * @return map of metric name to value
+   */
+  @Override
+  public Map<String, Object> getMetrics() {
+    long hitCount = hits.get() + diskHits.get();
+    long lookups = hitCount + misses.get();
+    Map<String, Object> metrics = new LinkedHashMap<>();
+    metrics.put("enabled", enabled);
+    metrics.put("size", size());
+    metrics.put("max_entries", maxEntries);
+    metrics.put("ttl_minutes", ttl.toMinutes());
+    metrics.put("disk_tier", diskDir != null);
+    metrics.put("disk_max_entries", diskMaxEntries);
+    metrics.put("disk_evictions", diskEvictions.get());
+    metrics.put("hits", hits.get());
+    metrics.put("disk_hits", diskHits.get());
+    metrics.put("misses", misses.get());
+    metrics.put("evictions", evictions.get());
+    metrics.put("coalesced", coalesced.get());
+    metrics.put("in_flight", inFlight.size());
+    metrics.put("hit_ratio", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+    return metrics;
+  }
+
+  @Override
+  public String getMetricsName() {
+    return "llm_cache";
+  }
+
+  @Override
+  public String getMetricsPath() {
+    return "cache";
+  }
+
+  int size() {
+    lock.lock();
+    try {
+      return entries.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void putMemory(String key, Entry entry) {
+    lock.lock();
+    try {
+      entries.put(key, entry);
+      while (entries.size() > maxEntries) {
+        // access order: the first entry is the least recently used
+        String eldest = entries.keySet().iterator().next();
+        entries.remove(eldest);
+        evictions.incrementAndGet();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Optional<LLMResponse> readDisk(String key, Instant now) {
+    if (diskDir == null) {
+      return Optional.empty();
+    }
+    Path file = diskDir.resolve(key + ".json");
+    try {
+      if (!Files.isRegularFile(file)) {
+        return Optional.empty();
+      }
+      Instant expiresAt = Files.getLastModifiedTime(file).toInstant().plus(ttl);
+      if (!expiresAt.isAfter(now)) {
+        Files.deleteIfExists(file);
+        return Optional.empty();
+      }
+      String json = Files.readString(file, StandardCharsets.UTF_8);
+      LLMResponse response = GSON.fromJson(json, LLMResponse.class);
+      if (response == null) {
+        return Optional.empty();
+      }
+      putMemory(key, new Entry(json, expiresAt));
+      return Optional.of(response);
+    } catch (IOException | JsonSyntaxException e) {
+      LOGGER.warn("Ignoring unreadable LLM cache entry {}: {}", file, e.toString());
+      return Optional.empty();
+    }
+  }
+
+  private void writeDisk(String key, String json) {
+    if (diskDir == null) {
+      return;
+    }
+    Path file = diskDir.resolve(key + ".json");
+    try {
+      Path tmp = Files.createTempFile(diskDir, key, ".tmp");
+      Files.writeString(tmp, json, StandardCharsets.UTF_8);
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      LOGGER.warn("Unable to write LLM cache entry {}: {}", file, e.toString());
+    }
+    // Listing the directory costs more than a write, so only sweep once the cap could be
+    // exceeded by a tenth or a sweep interval has passed
+    if (writesSinceSweep.incrementAndGet() >= Math.max(1, diskMaxEntries / 10)
+        || Instant.now().isAfter(lastSweep.plus(SWEEP_INTERVAL))) {
+      sweepDisk();
+    }
+  }
+
+  /**
+   * Delete expired entries and abandoned temp files from the disk tier, then the oldest
+   * entries beyond the disk cap. Only one caller sweeps at a time; others skip it.
+   */
+  private void sweepDisk() {
+    if (diskDir == null || !sweeping.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      writesSinceSweep.set(0);
+      Instant now = Instant.now();
+      lastSweep = now;
+      List<Map.Entry<Path, Instant>> live = new ArrayList<>();
+      try (var files = Files.list(diskDir)) {
+        for (Path file : (Iterable<Path>) files::iterator) {
+          String name = file.getFileName().toString();
+          Instant modified = lastModified(file);
+          if (modified == null) {
+            continue;
+          }
+          if (name.endsWith(".tmp")) {
+            if (modified.plus(STALE_TMP).isBefore(now)) {
+              delete(file);
+            }
+          } else if (name.endsWith(".json")) {
+            if (modified.plus(ttl).isAfter(now)) {
+              live.add(Map.entry(file, modified));
+            } else {
+              delete(file);
+            }
+          }
+        }
+      }
+      if (live.size() > diskMaxEntries) {
+        live.sort(Map.Entry.comparingByValue());
+        for (Map.Entry<Path, Instant> oldest : live.subList(0, live.size() - diskMaxEntries)) {
+          if (delete(oldest.getKey())) {
+            diskEvictions.incrementAndGet();
+          }
+        }
+      }
+    } catch (IOException | UncheckedIOException e) {
+      LOGGER.warn("Unable to sweep LLM cache directory {}: {}", diskDir, e.toString());
+    } finally {
+      sweeping.set(false);
+    }
+  }
+
+  private static Instant lastModified(Path file) {
+    try {
+      return Files.getLastModifiedTime(file).toInstant();
+    } catch (IOException e) {
+      // removed by a concurrent read or sweep
+      return null;
+    }
+  }
+
+  private static boolean delete(Path file) {
+    try {
+      return Files.deleteIfExists(file);
+    } catch (IOException e) {
+      LOGGER.debug("Unable to delete LLM cache file {}: {}", file, e.toString());
+      return false;
+    }
+  }
+}
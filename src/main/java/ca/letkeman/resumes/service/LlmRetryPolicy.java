@@ -0,0 +1,128 @@
+package ca.letkeman.resumes.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Decides whether a failed LLM call is retried and how long to wait first.
+ * Waits grow exponentially with full jitter, so workers retrying the same backend
+ * spread out instead of hitting it in lockstep; a Retry-After header takes precedence, and one
+ * asking for more than the maximum delay ends the retries instead of being cut short.
+ */
+@Service
+public class LlmRetryPolicy {
+
+  private final int maxAttempts;
+  private final long baseDelayMs;
+  private final long maxDelayMs;
+
+  /**
+   * Create the retry policy.
+   *
+   * @param maxAttempts total attempts per call, including the first; 1 disables retries
+   * @param baseDelayMs upper bound of the first backoff
+   * @param maxDelayMs upper bound of any backoff; a longer Retry-After is not retried
+   */
+  public LlmRetryPolicy(
+      @Value("${llm.retry.max-attempts:3}") int maxAttempts,
+      @Value("${llm.retry.base-delay-ms:500}") long baseDelayMs,
+      @Value("${llm.retry.max-delay-ms:10000}") long maxDelayMs) {
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.baseDelayMs = Math.max(1, baseDelayMs);
+    this.maxDelayMs = Math.max(this.baseDelayMs, maxDelayMs);
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  /**
+   * Whether a response status is worth retrying.
+   *
+   * @param statusCode the HTTP status code
+   * @return true for 408, 429, 502, 503 and 504
+   */
+  public boolean isRetryable(int statusCode) {
+    return statusCode == 408 || statusCode == 429 || statusCode == 502 || statusCode == 503
+        || statusCode == 504;
+  }
+
+  /**
+   * Whether a failure to get any response is worth retrying.
+   * Connection failures and timeouts are; an open circuit, a timed out wait for a
+   * concurrency slot or an exhausted token budget is not.
+   *
+   * @param error the failure
+   * @return true if another attempt may succeed
+   */
+  public boolean isRetryable(Throwable error) {
+    return error instanceof IOException && !(error instanceof LlmCircuitBreaker.CircuitOpenException)
+        && !(error instanceof LlmConcurrencyLimiter.LimitTimeoutException)
+        && !(error instanceof LlmTokenBudget.BudgetExceededException);
+  }
+
+  /**
+   * How long to wait before the next attempt.
+   *
+   * @param attempt the attempt that just failed, starting at 1
+   * @param headers response headers of the failed attempt, may be null
+   * @return milliseconds to wait, or -1 when Retry-After asks for more than the maximum delay
+   */
+  public long backoffMs(int attempt, Map<String, List<String>> headers) {
+    long retryAfter = retryAfterMs(headers);
+    if (retryAfter > maxDelayMs) {
+      return -1;
+    }
+    if (retryAfter >= 0) {
+      return retryAfter;
+    }
+    long ceiling = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+    return ThreadLocalRandom.current().nextLong(ceiling + 1);
+  }
+
+  /**
+   * Parse a Retry-After header given either as seconds or as an HTTP date.
+   *
+   * @param headers response headers, may be null
+   * @return milliseconds to wait, Long.MAX_VALUE when too long to represent, or -1 when absent
+   *     or unreadable
+   */
+  public static long retryAfterMs(Map<String, List<String>> headers) {
+    if (headers == null) {
+      return -1;
+    }
+    String value = null;
+    for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+      if ("retry-after".equalsIgnoreCase(header.getKey()) && header.getValue() != null
+          && !header.getValue().isEmpty()) {
+        value = header.getValue().get(0).trim();
+        break;
+      }
+    }
+    if (value == null || value.isEmpty()) {
+      return -1;
+    }
+    try {
+      return Math.max(0, Math.multiplyExact(Long.parseLong(value), 1000L));
+    } catch (ArithmeticException e) {
+      return Long.MAX_VALUE;
+    } catch (NumberFormatException e) {
+      // not seconds, try an HTTP date
+    }
+    try {
+      Instant at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+      return Math.max(0, Duration.between(Instant.now(), at).toMillis());
+    } catch (DateTimeParseException e) {
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,205 @@
+package ca.letkeman.resumes.service;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Tokens-per-minute budget per LLM endpoint.
+ * Each call reserves its estimated prompt and completion tokens from a token bucket that
+ * refills continuously at the configured rate. Calls wait while the bucket is short, and are
+ * rejected straight away when the wait would exceed the maximum, so a burst of long resumes
+ * is spread out instead of overloading the inference host.
+ */
+@Service
+public class LlmTokenBudget implements MetricsSource {
+
+  private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+  private final int tokensPerMinute;
+  private final long maxWaitNanos;
+  private final int expectedCompletionTokens;
+  private final AtomicLong rejected = new AtomicLong();
+
+  /**
+   * Create the token budget.
+   *
+   * @param tokensPerMinute budget per endpoint; 0 disables budgeting
+   * @param maxWaitSeconds longest a call may wait for budget before it is rejected
+   * @param expectedCompletionTokens completion size reserved, capped by a request's max tokens
+   */
+  public LlmTokenBudget(
+      @Value("${llm.token-budget.tokens-per-minute:0}") int tokensPerMinute,
+      @Value("${llm.token-budget.max-wait-seconds:120}") long maxWaitSeconds,
+      @Value("${llm.token-budget.expected-completion-tokens:1024}") int expectedCompletionTokens) {
+    this.tokensPerMinute = Math.max(0, tokensPerMinute);
+    this.maxWaitNanos = TimeUnit.SECONDS.toNanos(Math.max(0, maxWaitSeconds));
+    this.expectedCompletionTokens = Math.max(0, expectedCompletionTokens);
+  }
+
+  public boolean isEnabled() {
+    return tokensPerMinute > 0;
+  }
+
+  public int getExpectedCompletionTokens() {
+    return expectedCompletionTokens;
+  }
+
+  /**
+   * Reserve tokens for a call to the endpoint, waiting for the bucket to refill if needed.
+   * A call larger than the whole budget is admitted once the bucket is full.
+   *
+   * @param endpoint the endpoint URL
+   * @param tokens estimated tokens of the call
+   * @return the reservation; release it unconsumed if the call never reached the endpoint
+   * @throws InterruptedException if interrupted while waiting
+   * @throws BudgetExceededException if the tokens will not be available within the maximum wait
+   */
+  public Reservation reserve(String endpoint, int tokens) throws InterruptedException, BudgetExceededException {
+    if (!isEnabled() || tokens <= 0) {
+      return Reservation.NONE;
+    }
+    Bucket bucket = buckets.computeIfAbsent(endpoint, e -> new Bucket());
+    double cost = Math.min(tokens, tokensPerMinute);
+    if (!bucket.take(cost)) {
+      rejected.incrementAndGet();
+      throw new BudgetExceededException(endpoint, tokens);
+    }
+    return new Reservation(bucket, cost);
+  }
+
+  /**
+   * Snapshot of every endpoint's budget for health reporting.
+   *
+   * @return map of metric name to value
+   */
+  @Override
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new LinkedHashMap<>();
+    metrics.put("enabled", isEnabled());
+    metrics.put("tokens_per_minute", tokensPerMinute);
+    metrics.put("rejected", rejected.get());
+    Map<String, Object> endpoints = new TreeMap<>();
+    buckets.forEach((endpoint, bucket) -> endpoints.put(endpoint, bucket.metrics()));
+    metrics.put("endpoints", endpoints);
+    return metrics;
+  }
+
+  @Override
+  public String getMetricsName() {
+    return "llm_token_budget";
+  }
+
+  @Override
+  public String getMetricsPath() {
+    return "tokens";
+  }
+
+  /**
+   * Tokens held by one call.
+   */
+  public static final class Reservation {
+    static final Reservation NONE = new Reservation(null, 0);
+
+    private final Bucket bucket;
+    private final double tokens;
+
+    private Reservation(Bucket bucket, double tokens) {
+      this.bucket = bucket;
+      this.tokens = tokens;
+    }
+
+    /**
+     * Give the tokens back, for a call that was never processed by the endpoint.
+     */
+    public void refund() {
+      if (bucket != null) {
+        bucket.refund(tokens);
+      }
+    }
+  }
+
+  /**
+   * Thrown when a call cannot get its tokens within the maximum wait.
+   */
+  public static class BudgetExceededException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public BudgetExceededException(String endpoint, int tokens) {
+      super("Token budget exceeded for LLM endpoint " + endpoint + " (" + tokens + " tokens)");
+    }
+  }
+
+  private final class Bucket {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition refilled = lock.newCondition();
+    private final AtomicLong consumed = new AtomicLong();
+    private double available = tokensPerMinute;
+    private long lastRefillNanos = System.nanoTime();
+
+    boolean take(double cost) throws InterruptedException {
+      long deadline = System.nanoTime() + maxWaitNanos;
+      double perNano = tokensPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+      lock.lock();
+      try {
+        while (true) {
+          refill();
+          if (available >= cost) {
+            available -= cost;
+            consumed.addAndGet((long) cost);
+            return true;
+          }
+          long needed = (long) Math.ceil((cost - available) / perNano);
+          long remaining = deadline - System.nanoTime();
+          if (needed > remaining) {
+            // Waiting would not help, reject now rather than at the deadline
+            return false;
+          }
+          refilled.awaitNanos(needed);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void refund(double tokens) {
+      lock.lock();
+      try {
+        refill();
+        available = Math.min(tokensPerMinute, available + tokens);
+        consumed.addAndGet(-(long) tokens);
+        refilled.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void refill() {
+      long now = System.nanoTime();
+      double perNano = tokensPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+      available = Math.min(tokensPerMinute, available + (now - lastRefillNanos) * perNano);
+      lastRefillNanos = now;
+    }
+
+    Map<String, Object> metrics() {
+      lock.lock();
+      try {
+        refill();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("available_tokens", (long) available);
+        metrics.put("consumed_tokens", consumed.get());
+        metrics.put("waiting", lock.getWaitQueueLength(refilled));
+        return metrics;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package ca.letkeman.resumes.service;
+
+import java.util.Map;
+
+/**
+ * A component whose metrics are reported by the health endpoints: together with every other
+ * source in {@code GET /api/health}, and on their own in {@code GET /api/health/{path}}.
+ */
+public interface MetricsSource {
+
+  /**
+   * Key of these metrics in the overall health report, e.g. llm_cache.
+   *
+   * @return the key
+   */
+  String getMetricsName();
+
+  /**
+   * Path segment of the endpoint serving only these metrics, e.g. cache.
+   *
+   * @return the path below /api/health
+   */
+  String getMetricsPath();
+
+  /**
+   * Snapshot of the metrics.
+   *
+   * @return map of metric name to value
+   */
+  Map<String, Object> getMetrics();
+}
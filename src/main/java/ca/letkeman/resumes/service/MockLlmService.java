@@ -1,6 +1,8 @@
 package ca.letkeman.resumes.service;
 
 import ca.letkeman.resumes.optimizer.ChatBody;
+import ca.letkeman.resumes.optimizer.TokenEstimator;
+import ca.letkeman.resumes.optimizer.Tokenizer;
 import ca.letkeman.resumes.optimizer.responses.Choice;
 import ca.letkeman.resumes.optimizer.responses.LLMResponse;
 import ca.letkeman.resumes.optimizer.responses.Usage;
@@ -11,6 +13,7 @@ import java.util.List;
 import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 /**
@@ -22,6 +25,9 @@ public class MockLlmService {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(MockLlmService.class);
 
+  @Autowired(required = false)
+  private TokenCounter tokenCounter;
+
   /**
    * Generate a mock LLM response based on the chat body request.
    *
@@ -58,8 +64,9 @@ public class MockLlmService {
 
     // Set mock usage stats
     Usage usage = new Usage();
-    usage.setPromptTokens(estimateTokens(userPrompt));
-    usage.setCompletionTokens(estimateTokens(mockContent));
+    Tokenizer tokenizer = tokenCounter != null ? tokenCounter.getTokenizer() : TokenEstimator.HEURISTIC;
+    usage.setPromptTokens(tokenizer.count(userPrompt));
+    usage.setCompletionTokens(tokenizer.count(mockContent));
     usage.setTotalTokens(usage.getPromptTokens() + usage.getCompletionTokens());
     response.setUsage(usage);
 
@@ -418,14 +425,4 @@ public class MockLlmService {
         is set in application configuration.
         """;
   }
-
-  /**
-   * Estimate token count (rough approximation: 1 token ≈ 4 characters).
-   */
-  private int estimateTokens(String text) {
-    if (text == null || text.isEmpty()) {
-      return 0;
-    }
-    return Math.max(1, text.length() / 4);
-  }
 }
@@ -0,0 +1,80 @@
+package ca.letkeman.resumes.service;
+
+import ca.letkeman.resumes.optimizer.PdfRendererPool;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Sizes the PDF renderer pool {@link ca.letkeman.resumes.optimizer.HtmlToPdf} renders with and
+ * warms it once the application is up, so the first generated PDF is not the slow one.
+ */
+@Service
+public class PdfRenderingService implements MetricsSource {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PdfRenderingService.class);
+
+  private final PdfRendererPool pool;
+  private final boolean warmUp;
+
+  /**
+   * Create the service and install its pool as the shared one.
+   *
+   * @param poolSize renderers kept between documents
+   * @param warmUp false to skip warming the renderers at startup
+   */
+  public PdfRenderingService(
+      @Value("${pdf.renderer-pool.size:4}") int poolSize,
+      @Value("${pdf.renderer-pool.warm-up:true}") boolean warmUp) {
+    this.pool = new PdfRendererPool(poolSize);
+    this.warmUp = warmUp;
+    PdfRendererPool.setShared(pool);
+  }
+
+  /**
+   * Warm the renderers in the background once the application has started.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUp() {
+    if (!warmUp) {
+      return;
+    }
+    Thread.ofPlatform().name("pdf-renderer-warm-up").daemon().start(() -> {
+      try {
+        pool.warm(pool.getSize());
+      } catch (RuntimeException | LinkageError e) {
+        LOGGER.warn("PDF renderer warm-up failed: {}", e.toString());
+      }
+    });
+  }
+
+  public PdfRendererPool getPool() {
+    return pool;
+  }
+
+  /**
+   * Snapshot for health reporting.
+   *
+   * @return map of metric name to value
+   */
+  @Override
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = pool.getMetrics();
+    metrics.put("warm_up", warmUp);
+    return metrics;
+  }
+
+  @Override
+  public String getMetricsName() {
+    return "pdf_renderer_pool";
+  }
+
+  @Override
+  public String getMetricsPath() {
+    return "pdf";
+  }
+}
@@ -3,20 +3,36 @@ package ca.letkeman.resumes.service;
 import ca.letkeman.resumes.entity.PromptHistory;
 import ca.letkeman.resumes.model.Optimize;
 import ca.letkeman.resumes.repository.PromptHistoryRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.stereotype.Service;
 
 /**
@@ -24,6 +40,11 @@ import org.springframework.stereotype.Service;
  * 1. Check external prompts directory (if configured)
  * 2. Fall back to bundled resources in JAR
  *
+ * Prompts are read once into an in-memory registry and served from there. When an external
+ * directory is configured it is watched, so edited, added or removed prompt files take effect
+ * without a restart. Every prompt carries a version derived from its content, which is recorded
+ * with the history of each generation.
+ *
  * Also provides database persistence for prompt history tracking.
  * Can be used as a Spring component or instantiated directly.
  */
@@ -31,13 +52,94 @@ import org.springframework.stereotype.Service;
 public class PromptService {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(PromptService.class);
+  private static final String PROMPT_EXTENSION = ".md";
+  // Documents the prompts directory; not a prompt
+  private static final String README = "README" + PROMPT_EXTENSION;
+  private static final int VERSION_BYTES = 6;
 
   @Value("${prompts.external-dir:}")
   private String externalPromptsDir;
 
+  @Value("${prompts.watch:true}")
+  private boolean watchExternalDir = true;
+
   @Autowired(required = false)
   private PromptHistoryRepository promptHistoryRepository;
 
+  private final Map<String, Prompt> registry = new ConcurrentHashMap<>();
+  private volatile WatchService watchService;
+
+  /**
+   * A loaded prompt template.
+   *
+   * @param name the prompt file name, e.g. RESUME.md
+   * @param content the template text
+   * @param version short hash of the content; see {@link #versionOf(String)}
+   * @param source "external" or "bundled"
+   */
+  public record Prompt(String name, String content, String version, String source) {
+  }
+
+  public PromptService() {
+  }
+
+  PromptService(String externalPromptsDir, boolean watchExternalDir) {
+    this.externalPromptsDir = externalPromptsDir;
+    this.watchExternalDir = watchExternalDir;
+  }
+
+  /**
+   * Load the bundled and external prompts into the registry and start watching the external
+   * directory. Prompts are otherwise loaded on first use, so a service created without Spring
+   * works without calling this.
+   */
+  @PostConstruct
+  public void init() {
+    try {
+      Resource[] bundled = new PathMatchingResourcePatternResolver(getClass().getClassLoader())
+          .getResources("classpath*:prompts/*" + PROMPT_EXTENSION);
+      for (Resource resource : bundled) {
+        if (resource.getFilename() != null && isPrompt(resource.getFilename())) {
+          reload(registryKey(resource.getFilename()));
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Could not list bundled prompts: {}", e.getMessage());
+    }
+
+    Path externalDir = externalDirectory();
+    if (externalDir == null) {
+      return;
+    }
+    try (Stream<Path> files = Files.list(externalDir)) {
+      files.map(file -> file.getFileName().toString())
+          .filter(PromptService::isPrompt)
+          .map(PromptService::registryKey)
+          .forEach(this::reload);
+    } catch (IOException e) {
+      LOGGER.warn("Could not list external prompts in {}: {}", externalDir, e.getMessage());
+    }
+    if (watchExternalDir) {
+      startWatching(externalDir);
+    }
+  }
+
+  /**
+   * Stop watching the external prompts directory.
+   */
+  @PreDestroy
+  public void close() {
+    WatchService watcher = watchService;
+    watchService = null;
+    if (watcher != null) {
+      try {
+        watcher.close();
+      } catch (IOException e) {
+        LOGGER.debug("Could not close prompt watcher: {}", e.getMessage());
+      }
+    }
+  }
+
   /**
    * Load a prompt by name (e.g., "RESUME" or "COVER").
    * Tries external directory first, then falls back to bundled resources.
@@ -46,31 +148,145 @@ public class PromptService {
    * @return the prompt content as a string
    */
   public String loadPrompt(String promptName) {
+    Prompt prompt = getPrompt(promptName);
+    return prompt != null ? prompt.content() : "";
+  }
+
+  /**
+   * Look up a prompt with its version and source.
+   *
+   * @param promptName the name of the prompt file (without extension, e.g., "RESUME")
+   * @return the prompt, or null if it does not exist
+   */
+  public Prompt getPrompt(String promptName) {
     if (promptName == null || promptName.trim().isEmpty()) {
       LOGGER.error("Prompt name cannot be null or empty");
-      return "";
+      return null;
     }
 
-    String fileName = promptName.toUpperCase() + ".md";
+    String fileName = registryKey(promptName + PROMPT_EXTENSION);
+    Prompt prompt = registry.computeIfAbsent(fileName, this::readPrompt);
+    if (prompt == null) {
+      LOGGER.error("Could not load prompt: {}", fileName);
+    }
+    return prompt;
+  }
 
-    // Try external directory first (if configured)
-    if (externalPromptsDir != null && !externalPromptsDir.trim().isEmpty()) {
-      String externalPrompt = loadFromExternalDirectory(externalPromptsDir, fileName);
-      if (externalPrompt != null) {
-        LOGGER.info("Loaded prompt from external directory: {}", fileName);
-        return externalPrompt;
-      }
+  /**
+   * The prompts currently in the registry.
+   *
+   * @return prompt file name to prompt
+   */
+  public Map<String, Prompt> getLoadedPrompts() {
+    return Map.copyOf(registry);
+  }
+
+  /**
+   * Version of a prompt template: the first 12 hex digits of the SHA-256 of its content, so
+   * the same text always has the same version wherever it was loaded from.
+   *
+   * @param content the template text
+   * @return the version
+   */
+  public static String versionOf(String content) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256")
+          .digest((content != null ? content : "").getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest, 0, VERSION_BYTES);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
     }
+  }
+
+  // The registry holds prompts under the key getPrompt builds from the prompt name, so a
+  // changed resume.md has to reload RESUME.md
+  static String registryKey(String fileName) {
+    String promptName = fileName.substring(0, fileName.length() - PROMPT_EXTENSION.length());
+    return promptName.toUpperCase(Locale.ROOT) + PROMPT_EXTENSION;
+  }
+
+  static boolean isPrompt(String fileName) {
+    return fileName.endsWith(PROMPT_EXTENSION) && !README.equals(registryKey(fileName));
+  }
+
+  // Re-read a prompt file; a prompt that no longer exists anywhere leaves the registry
+  private void reload(String fileName) {
+    Prompt previous = registry.get(fileName);
+    Prompt current = registry.compute(fileName, (name, old) -> readPrompt(name));
+    if (previous != null && current == null) {
+      LOGGER.info("Removed prompt {}", fileName);
+    } else if (previous != null && !previous.version().equals(current.version())) {
+      LOGGER.info("Reloaded prompt {} from {} resources, version {} -> {}",
+          fileName, current.source(), previous.version(), current.version());
+    }
+  }
+
+  private Prompt readPrompt(String fileName) {
+    String source = "external";
+    String content = null;
+    Path externalDir = externalDirectory();
+    if (externalDir != null) {
+      content = loadFromExternalDirectory(externalDir, fileName);
+    }
+    if (content == null) {
+      source = "bundled";
+      content = loadFromBundledResources(fileName);
+    }
+    if (content == null) {
+      return null;
+    }
+    Prompt prompt = new Prompt(fileName, content, versionOf(content), source);
+    LOGGER.info("Loaded prompt {} version {} from {} resources", fileName, prompt.version(), source);
+    return prompt;
+  }
 
-    // Fall back to bundled resource
-    String bundledPrompt = loadFromBundledResources(fileName);
-    if (bundledPrompt != null) {
-      LOGGER.info("Loaded prompt from bundled resources: {}", fileName);
-      return bundledPrompt;
+  private Path externalDirectory() {
+    if (externalPromptsDir == null || externalPromptsDir.trim().isEmpty()) {
+      return null;
+    }
+    Path dir = Paths.get(externalPromptsDir.trim());
+    if (!Files.isDirectory(dir)) {
+      LOGGER.debug("External prompts directory does not exist: {}", dir);
+      return null;
     }
+    return dir;
+  }
 
-    LOGGER.error("Could not load prompt: {}", fileName);
-    return "";
+  private void startWatching(Path externalDir) {
+    try {
+      WatchService watcher = externalDir.getFileSystem().newWatchService();
+      externalDir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+      watchService = watcher;
+      Thread.ofPlatform().name("prompt-watcher").daemon().start(() -> watch(watcher));
+      LOGGER.info("Watching {} for prompt changes", externalDir);
+    } catch (IOException | UnsupportedOperationException e) {
+      LOGGER.warn("Could not watch {} for prompt changes: {}", externalDir, e.getMessage());
+    }
+  }
+
+  private void watch(WatchService watcher) {
+    try {
+      while (true) {
+        WatchKey key = watcher.take();
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            // Events were lost, so re-read everything that is loaded
+            registry.keySet().forEach(this::reload);
+          } else if (event.context() instanceof Path changed && isPrompt(changed.getFileName().toString())) {
+            reload(registryKey(changed.getFileName().toString()));
+          }
+        }
+        if (!key.reset()) {
+          LOGGER.warn("External prompts directory is no longer accessible, stopped watching it");
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException e) {
+      LOGGER.debug("Prompt watcher closed");
+    }
   }
 
   /**
@@ -80,13 +296,24 @@ public class PromptService {
    * @param fileName the prompt file name
    * @return the prompt content, or null if not found
    */
-  private String loadFromExternalDirectory(String externalDir, String fileName) {
+  private String loadFromExternalDirectory(Path externalDir, String fileName) {
     try {
-      Path promptPath = Paths.get(externalDir).resolve(fileName);
+      Path promptPath = externalDir.resolve(fileName);
 
       if (Files.exists(promptPath) && Files.isRegularFile(promptPath)) {
         return Files.readString(promptPath, StandardCharsets.UTF_8);
       }
+      // The registry key is upper case; also accept resume.md for RESUME.md
+      try (Stream<Path> files = Files.list(externalDir)) {
+        Optional<Path> match = files
+            .filter(file -> isPrompt(file.getFileName().toString())
+                && fileName.equals(registryKey(file.getFileName().toString())))
+            .filter(Files::isRegularFile)
+            .findFirst();
+        if (match.isPresent()) {
+          return Files.readString(match.get(), StandardCharsets.UTF_8);
+        }
+      }
     } catch (IOException e) {
       LOGGER.debug(
           "Could not load prompt from external directory: {} ({})",
@@ -98,24 +325,18 @@ public class PromptService {
   }
 
   /**
-   * Load prompt from bundled resources (in JAR).
+   * Load prompt from bundled resources (in JAR). Read as a stream, which works from a
+   * packaged JAR as well as from a directory.
    *
    * @param fileName the prompt file name
    * @return the prompt content, or null if not found
    */
   private String loadFromBundledResources(String fileName) {
-    try {
-      // Try using ClassLoader to load from resources
-      ClassLoader classLoader = getClass().getClassLoader();
-      java.net.URL resource = classLoader.getResource("prompts/" + fileName);
-
-      if (resource != null) {
-        return new String(
-            Files.readAllBytes(
-                Paths.get(resource.toURI())),
-            StandardCharsets.UTF_8);
+    try (InputStream in = getClass().getClassLoader().getResourceAsStream("prompts/" + fileName)) {
+      if (in != null) {
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
       }
-    } catch (Exception e) {
+    } catch (IOException e) {
       LOGGER.debug(
           "Could not load prompt from bundled resources: {} ({})",
           fileName,
@@ -127,6 +348,7 @@ public class PromptService {
 
   /**
    * Expand a prompt template by replacing variables with actual values.
+   * The template is parsed once and expanded in a single pass; see {@link PromptTemplate}.
    *
    * @param promptTemplate the template content with {variable} placeholders
    * @param variables map of variable names to values
@@ -137,14 +359,19 @@ public class PromptService {
       return "";
     }
 
-    String expanded = promptTemplate;
-    for (Map.Entry<String, String> entry : variables.entrySet()) {
-      String placeholder = "{" + entry.getKey() + "}";
-      String value = entry.getValue() != null ? entry.getValue() : "";
-      expanded = expanded.replace(placeholder, value);
-    }
+    return PromptTemplate.of(promptTemplate).expand(variables);
+  }
 
-    return expanded;
+  /**
+   * What a generation produced and what it cost, kept with its history record.
+   *
+   * @param filePath path to the generated file
+   * @param llmResponseTimeMs LLM response time in milliseconds
+   * @param tokenUsageEstimate prompt and completion tokens, reported or estimated; may be null
+   * @param promptVersion version of the prompt template, see {@link #versionOf(String)}; may be null
+   */
+  public record Generation(String filePath, Long llmResponseTimeMs, Integer tokenUsageEstimate,
+      String promptVersion) {
   }
 
   /**
@@ -165,6 +392,26 @@ public class PromptService {
       String generatedContent,
       String filePath,
       Long llmResponseTimeMs) {
+    return savePromptToHistory(promptType, optimize, expandedPrompt, generatedContent,
+        new Generation(filePath, llmResponseTimeMs, null, null));
+  }
+
+  /**
+   * Save prompt generation to history database, with the tokens and template version it used.
+   *
+   * @param promptType type of prompt generated
+   * @param optimize the Optimize object containing request parameters
+   * @param expandedPrompt the full expanded prompt sent to LLM
+   * @param generatedContent the LLM response
+   * @param generation the generated file, timing, tokens and prompt version
+   * @return the saved PromptHistory entity
+   */
+  public PromptHistory savePromptToHistory(
+      String promptType,
+      Optimize optimize,
+      String expandedPrompt,
+      String generatedContent,
+      Generation generation) {
 
     if (promptHistoryRepository == null) {
       LOGGER.warn("PromptHistoryRepository not available, skipping history save");
@@ -182,8 +429,10 @@ public class PromptService {
     history.setModel(optimize.getModel());
     history.setExpandedPromptJson(expandedPrompt);
     history.setGeneratedContent(generatedContent);
-    history.setGeneratedFilePath(filePath);
-    history.setLlmResponseTimeMs(llmResponseTimeMs);
+    history.setGeneratedFilePath(generation.filePath());
+    history.setLlmResponseTimeMs(generation.llmResponseTimeMs());
+    history.setTokenUsageEstimate(generation.tokenUsageEstimate());
+    history.setPromptVersion(generation.promptVersion());
     history.setStatus("completed");
 
     try {
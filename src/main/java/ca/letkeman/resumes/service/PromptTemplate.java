@@ -0,0 +1,117 @@
+package ca.letkeman.resumes.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A prompt template parsed once into literal text and {placeholder} segments.
+ * Expanding it copies each segment once into a result allocated at its final size, instead of
+ * one full copy of the prompt per placeholder. Values are inserted as is: placeholders inside a
+ * value (a resume mentioning "{company}", say) are not expanded.
+ */
+public final class PromptTemplate {
+
+  private static final int MAX_CACHED = 64;
+  private static final int MAX_NAME_LENGTH = 64;
+  private static final Map<String, PromptTemplate> COMPILED = new ConcurrentHashMap<>();
+
+  private final String[] literals;
+  private final String[] names;
+
+  private PromptTemplate(List<String> literals, List<String> names) {
+    this.literals = literals.toArray(new String[0]);
+    this.names = names.toArray(new String[0]);
+  }
+
+  /**
+   * The compiled form of a template, parsed on first use.
+   *
+   * @param template the template text
+   * @return the compiled template
+   */
+  public static PromptTemplate of(String template) {
+    String text = template != null ? template : "";
+    PromptTemplate compiled = COMPILED.get(text);
+    if (compiled == null) {
+      if (COMPILED.size() >= MAX_CACHED) {
+        // Only edited external templates add entries, so starting over is cheap and rare
+        COMPILED.clear();
+      }
+      compiled = COMPILED.computeIfAbsent(text, PromptTemplate::compile);
+    }
+    return compiled;
+  }
+
+  /**
+   * Parse a template without caching it.
+   *
+   * @param template the template text
+   * @return the compiled template
+   */
+  public static PromptTemplate compile(String template) {
+    List<String> literals = new ArrayList<>();
+    List<String> names = new ArrayList<>();
+    int literalStart = 0;
+    int open = template.indexOf('{');
+    while (open >= 0) {
+      int close = placeholderEnd(template, open);
+      if (close < 0) {
+        open = template.indexOf('{', open + 1);
+        continue;
+      }
+      literals.add(template.substring(literalStart, open));
+      names.add(template.substring(open + 1, close));
+      literalStart = close + 1;
+      open = template.indexOf('{', literalStart);
+    }
+    literals.add(template.substring(literalStart));
+    return new PromptTemplate(literals, names);
+  }
+
+  // Index of the '}' closing a placeholder opened at open, or -1 when it is just a brace
+  private static int placeholderEnd(String template, int open) {
+    int limit = Math.min(template.length(), open + MAX_NAME_LENGTH + 2);
+    for (int i = open + 1; i < limit; i++) {
+      char c = template.charAt(i);
+      if (c == '}') {
+        return i > open + 1 ? i : -1;
+      }
+      if (c == '{' || c == '\n' || c == '\r') {
+        return -1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Fill in the placeholders.
+   *
+   * @param values placeholder name (without braces) to value; null values expand to nothing
+   *     and placeholders without an entry are left as they are
+   * @return the expanded text
+   */
+  public String expand(Map<String, String> values) {
+    String[] segments = new String[literals.length + names.length];
+    for (int i = 0; i < names.length; i++) {
+      segments[2 * i] = literals[i];
+      String value = values.get(names[i]);
+      segments[2 * i + 1] = value != null ? value : values.containsKey(names[i]) ? "" : "{" + names[i] + "}";
+    }
+    segments[segments.length - 1] = literals[names.length];
+    // String.join sizes the result from all segments and copies each exactly once
+    return String.join("", segments);
+  }
+
+  /**
+   * Names of the placeholders in the template, in order of first appearance.
+   *
+   * @return placeholder names without braces
+   */
+  public Set<String> getPlaceholders() {
+    return new LinkedHashSet<>(List.of(names));
+  }
+}
@@ -0,0 +1,176 @@
+package ca.letkeman.resumes.service;
+
+import ca.letkeman.resumes.optimizer.BpeTokenizer;
+import ca.letkeman.resumes.optimizer.ChatBody;
+import ca.letkeman.resumes.optimizer.TokenEstimator;
+import ca.letkeman.resumes.optimizer.Tokenizer;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Counts prompt tokens with the model's tokenizer when its tokenizer.json is configured,
+ * and with the 4 characters per token heuristic otherwise. When the model's context window is
+ * configured, also sizes the completion of a request to what the prompt leaves of it.
+ */
+@Service
+public class TokenCounter implements MetricsSource {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TokenCounter.class);
+
+  private final Tokenizer tokenizer;
+  private final int contextWindow;
+  private final Map<String, Integer> modelContextWindows;
+
+  /**
+   * Create the token counter.
+   *
+   * @param tokenizerPath Hugging Face tokenizer.json of the model; empty to use the heuristic
+   * @param cacheSize number of word counts the tokenizer caches
+   * @param contextWindow tokens a model's context holds; 0 (the default) leaves the completion size
+   *     to the server
+   * @param modelContextWindows comma separated model=tokens pairs for models with another context size;
+   *     a later pair for the same model wins, and 0 leaves that model's completion size to the server
+   */
+  public TokenCounter(
+      @Value("${llm.tokenizer.path:}") String tokenizerPath,
+      @Value("${llm.tokenizer.cache-size:50000}") int cacheSize,
+      @Value("${llm.context-window:0}") int contextWindow,
+      @Value("${llm.context-windows:}") String modelContextWindows) {
+    this.tokenizer = loadTokenizer(tokenizerPath, cacheSize);
+    this.contextWindow = Math.max(0, contextWindow);
+    this.modelContextWindows = parseContextWindows(modelContextWindows);
+  }
+
+  // Unlike concurrency limits, 0 is meaningful here: the model has no known window
+  static Map<String, Integer> parseContextWindows(String modelContextWindows) {
+    Map<String, Integer> windows = new LinkedHashMap<>();
+    if (modelContextWindows == null) {
+      return windows;
+    }
+    Arrays.stream(modelContextWindows.split(","))
+        .map(String::trim)
+        .filter(pair -> !pair.isEmpty())
+        .forEach(pair -> {
+          // Model names contain ':' (gemma3:4b), so the window follows the last '='
+          int split = pair.lastIndexOf('=');
+          try {
+            int window = Integer.parseInt(pair.substring(split + 1).trim());
+            if (window < 0) {
+              throw new NumberFormatException("negative");
+            }
+            windows.put(pair.substring(0, split).trim(), window);
+          } catch (RuntimeException e) {
+            LOGGER.warn("Ignoring invalid context window '{}'", pair);
+          }
+        });
+    return windows;
+  }
+
+  private static Tokenizer loadTokenizer(String tokenizerPath, int cacheSize) {
+    if (tokenizerPath == null || tokenizerPath.isBlank()) {
+      return TokenEstimator.HEURISTIC;
+    }
+    try {
+      BpeTokenizer bpe = BpeTokenizer.load(Path.of(tokenizerPath.trim()), cacheSize);
+      LOGGER.info("Loaded tokenizer {} with {} tokens", tokenizerPath, bpe.getVocabularySize());
+      return bpe;
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Unable to load tokenizer {}, estimating tokens instead: {}", tokenizerPath, e.getMessage());
+      return TokenEstimator.HEURISTIC;
+    }
+  }
+
+  public Tokenizer getTokenizer() {
+    return tokenizer;
+  }
+
+  public boolean isExact() {
+    return tokenizer instanceof BpeTokenizer;
+  }
+
+  /**
+   * Count the tokens in a piece of text.
+   *
+   * @param text the text, may be null
+   * @return token count
+   */
+  public int count(String text) {
+    return tokenizer.count(text);
+  }
+
+  /**
+   * Count the prompt tokens of a chat request, including per-message framing.
+   *
+   * @param chatBody the request
+   * @return prompt tokens
+   */
+  public int countPrompt(ChatBody chatBody) {
+    return TokenEstimator.estimatePrompt(chatBody, tokenizer);
+  }
+
+  /**
+   * Tokens the model's context holds.
+   *
+   * @param model the model, may be null
+   * @return the context window, 0 when unknown
+   */
+  public int contextWindow(String model) {
+    return model == null ? contextWindow : modelContextWindows.getOrDefault(model.trim(), contextWindow);
+  }
+
+  /**
+   * The most completion tokens the request can get within its model's context window.
+   *
+   * @param chatBody the request, with its messages set
+   * @return tokens left for the completion, or -1 when the model has no configured context window
+   *     or the prompt already fills it
+   */
+  public int completionBudget(ChatBody chatBody) {
+    int window = contextWindow(chatBody.getModel());
+    if (window == 0) {
+      return -1;
+    }
+    int promptTokens = countPrompt(chatBody);
+    if (promptTokens >= window) {
+      LOGGER.warn("Prompt of {} tokens does not fit the context window of {}", promptTokens, window);
+      return -1;
+    }
+    return window - promptTokens;
+  }
+
+  /**
+   * Snapshot for health reporting.
+   *
+   * @return map of metric name to value
+   */
+  @Override
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new LinkedHashMap<>();
+    metrics.put("exact", isExact());
+    metrics.put("context_window", contextWindow);
+    metrics.put("model_context_windows", modelContextWindows);
+    if (tokenizer instanceof BpeTokenizer bpe) {
+      metrics.put("vocabulary_size", bpe.getVocabularySize());
+      metrics.put("cache_hits", bpe.getCacheHits());
+      metrics.put("cache_misses", bpe.getCacheMisses());
+    }
+    return metrics;
+  }
+
+  @Override
+  public String getMetricsName() {
+    return "llm_tokenizer";
+  }
+
+  @Override
+  public String getMetricsPath() {
+    return "tokenizer";
+  }
+}
@@ -0,0 +1,4 @@
+-- PostgreSQL migration V4 - Record which version of the prompt template produced each generation
+
+ALTER TABLE prompt_history
+  ADD COLUMN prompt_version TEXT;
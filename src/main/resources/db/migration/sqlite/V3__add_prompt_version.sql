@@ -0,0 +1,2 @@
+-- Record which version of the prompt template produced each generation
+ALTER TABLE prompt_history ADD COLUMN prompt_version TEXT;
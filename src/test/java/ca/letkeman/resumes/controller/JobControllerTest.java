@@ -0,0 +1,70 @@
+package ca.letkeman.resumes.controller;
+
+import ca.letkeman.resumes.model.GenerationJob;
+import ca.letkeman.resumes.model.Optimize;
+import ca.letkeman.resumes.service.JobRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class JobControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JobRegistry jobRegistry;
+
+    @Test
+    void testGetUnknownJobReturnsNotFound() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/jobs/does-not-exist"))
+            .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    @Test
+    void testGetJobReturnsState() throws Exception {
+        Optimize optimize = new Optimize();
+        optimize.setPromptType(new String[]{"cover"});
+        optimize.setCompany("Acme");
+        optimize.setJobTitle("Developer");
+        GenerationJob job = jobRegistry.create(optimize);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/jobs/" + job.getId()))
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(job.getId()))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.state").value("QUEUED"))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.progress.cover.stage").value("QUEUED"));
+    }
+
+    @Test
+    void testListJobs() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/jobs"))
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$").isArray());
+    }
+
+    @Test
+    void testEventsForUnknownJobReturnsNotFound() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/jobs/does-not-exist/events"))
+            .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    @Test
+    void testEventsForJobStartsAsyncStream() throws Exception {
+        Optimize optimize = new Optimize();
+        optimize.setPromptType(new String[]{"resume"});
+        optimize.setCompany("Acme");
+        optimize.setJobTitle("Developer");
+        GenerationJob job = jobRegistry.create(optimize);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/jobs/" + job.getId() + "/events"))
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.request().asyncStarted());
+    }
+}
@@ -1,15 +1,23 @@
 package ca.letkeman.resumes.controller;
 
+import ca.letkeman.resumes.model.GenerationJob;
+import ca.letkeman.resumes.service.GenerationExecutor;
+import ca.letkeman.resumes.service.JobRegistry;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
@@ -25,6 +33,12 @@ class ResumeControllerAdvancedTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private JobRegistry jobRegistry;
+
+    @MockitoBean
+    private GenerationExecutor generationExecutor;
+
     @BeforeEach
     void setUp() throws IOException {
         Path uploadsPath = Paths.get("uploads");
@@ -135,6 +149,30 @@ class ResumeControllerAdvancedTest {
             .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("Skills suggestion generation started"));
     }
 
+    @Test
+    void testRejectedGenerationFailsItsJob() throws Exception {
+        Mockito.doThrow(new RejectedExecutionException("queue full")).when(generationExecutor).submit(Mockito.any());
+        Mockito.when(generationExecutor.getRetryAfterSeconds()).thenReturn(30L);
+        String optimizeJson = "{\"jobDescription\":\"Queue test\",\"company\":\"Rejected Corp\","
+            + "\"jobTitle\":\"Developer\",\"model\":\"mistral\",\"temperature\":0.5}";
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(MockMvcRequestBuilders.multipart("/api/generate/cold-email")
+                    .param("optimize", optimizeJson))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+                .andExpect(MockMvcResultMatchers.header().string("Retry-After", "30"));
+        }
+
+        // Clients attached to a rejected job see it fail; an identical retry is not attached to it
+        List<GenerationJob> rejected = jobRegistry.list().stream()
+            .filter(job -> "Rejected Corp".equals(job.getCompany()))
+            .toList();
+        Assertions.assertEquals(2, rejected.size());
+        rejected.forEach(job -> Assertions.assertEquals(GenerationJob.State.FAILED, job.getState()));
+        Assertions.assertEquals("generation queue is full",
+            rejected.get(0).getProgress().get("cold-email").getError());
+    }
+
     @Test
     void testProcessSkillsWithInvalidJson() throws Exception {
         String optimizeJson = "invalid";
@@ -1,10 +1,17 @@
 package ca.letkeman.resumes.controller;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +20,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
@@ -70,6 +78,96 @@ class ResumeControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("file successfully converted"));
     }
 
+    @Test
+    void testMarkdownUploadStreamedAsPdf() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "resume.md", "text/markdown", "# Test Markdown".getBytes());
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.multipart("/api/markdown2PDF").file(file))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_PDF))
+                .andExpect(MockMvcResultMatchers.header().string("Content-Disposition",
+                    "attachment; filename=\"resume.pdf\""))
+                .andReturn();
+        byte[] pdf = result.getResponse().getContentAsByteArray();
+        Assertions.assertEquals("%PDF", new String(pdf, 0, 4, StandardCharsets.US_ASCII));
+        Assertions.assertEquals(pdf.length, result.getResponse().getContentLength());
+        Assertions.assertFalse(Files.exists(Paths.get("uploads", "resume.md")));
+    }
+
+    @Test
+    void testMarkdownBodyStreamedAsDocx() throws Exception {
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/api/markdown2DOCX")
+                .param("filename", "resume.md")
+                .contentType("text/markdown")
+                .content("# Test Markdown\n\n## Section\n\nContent here"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(
+                    "application/vnd.openxmlformats-officedocument.wordprocessingml.document"))
+                .andExpect(MockMvcResultMatchers.header().string("Content-Disposition",
+                    "attachment; filename=\"resume.docx\""))
+                .andReturn();
+        byte[] docx = result.getResponse().getContentAsByteArray();
+        Assertions.assertEquals("PK", new String(docx, 0, 2, StandardCharsets.US_ASCII));
+        Assertions.assertEquals(docx.length, result.getResponse().getContentLength());
+    }
+
+    @Test
+    void testMarkdownBodyToPdfWithEmptyBody() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/markdown2PDF")
+                .contentType(MediaType.TEXT_PLAIN)
+                .content(new byte[0]))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("No file/invalid file provided"));
+    }
+
+    @Test
+    void testMarkdownBatchStreamsZip() throws Exception {
+        MockMultipartFile first = new MockMultipartFile(
+                "files", "first.md", "text/markdown", "# First".getBytes());
+        MockMultipartFile second = new MockMultipartFile(
+                "files", "second.md", "text/markdown", "# Second".getBytes());
+        MvcResult started = mockMvc.perform(MockMvcRequestBuilders.multipart("/api/markdownBatch")
+                .file(first)
+                .file(second)
+                .param("format", "both"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(started))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType("application/zip"))
+                .andReturn();
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(
+                new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                names.add(entry.getName());
+            }
+        }
+        Assertions.assertEquals(
+                List.of("first.pdf", "first.docx", "second.pdf", "second.docx", "conversion-report.json"), names);
+    }
+
+    @Test
+    void testMarkdownBatchWithUnknownFormat() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+                "files", "first.md", "text/markdown", "# First".getBytes());
+        MvcResult started = mockMvc.perform(MockMvcRequestBuilders.multipart("/api/markdownBatch")
+                .file(file)
+                .param("format", "html"))
+                .andReturn();
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(started))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("format must be pdf, docx or both"));
+    }
+
+    @Test
+    void testMarkdownBatchWithoutFiles() throws Exception {
+        MvcResult started = mockMvc.perform(MockMvcRequestBuilders.multipart("/api/markdownBatch")).andReturn();
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(started))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("No file/invalid file provided"));
+    }
+
     @Test
     void testUnsuccessfulMarkdownToDocxConversion() throws Exception {
         MockMultipartFile file = new MockMultipartFile(
@@ -116,7 +214,8 @@ class ResumeControllerTest {
                 .file(job)
                 .param("optimize", optimizeJson))
                 .andExpect(MockMvcResultMatchers.status().isOk())
-                .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("generating"));
+                .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("generating"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.jobId").exists());
     }
 
     @Test
@@ -64,4 +64,11 @@ class ResponseMessageTest {
     Assertions.assertEquals(longMessage, message.getMessage());
     Assertions.assertEquals(10000, message.getMessage().length());
   }
+
+  @Test
+  void testConstructorWithJobId() {
+    ResponseMessage message = new ResponseMessage("generating", "job-1");
+    Assertions.assertEquals("generating", message.getMessage());
+    Assertions.assertEquals("job-1", message.getJobId());
+  }
 }
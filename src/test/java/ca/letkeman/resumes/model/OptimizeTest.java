@@ -309,4 +309,28 @@ class OptimizeTest {
     optimizeMixed.setPromptType(promptTypeSkillsMixed);
     Assertions.assertTrue(optimizeMixed.isSkillsPrompt(), "Should recognize 'Skills' in mixed case");
   }
+
+  @Test
+  void testCopyConstructorCopiesEveryField() {
+    Optimize optimize = new Optimize(new String[]{"cover"}, 0.3, "model", "resume\nline", "job", "Dev", "Acme");
+    optimize.setInterviewerName("Sam");
+    optimize.setBypassCache(true);
+
+    Optimize copy = new Optimize(optimize);
+
+    Assertions.assertEquals(optimize, copy);
+    Assertions.assertEquals("Sam", copy.getInterviewerName());
+    Assertions.assertTrue(copy.isBypassCache());
+    Assertions.assertEquals(optimize.getResume(), copy.getResume());
+  }
+
+  @Test
+  void testBypassCacheIsNotPartOfEquality() {
+    Optimize first = new Optimize(new String[]{"resume"}, 0.3, "model", "resume", "job", "Dev", "Acme");
+    Optimize second = new Optimize(first);
+    second.setBypassCache(true);
+
+    Assertions.assertEquals(first, second);
+    Assertions.assertEquals(first.hashCode(), second.hashCode());
+  }
 }
@@ -6,12 +6,16 @@ import ca.letkeman.resumes.optimizer.responses.LLMResponse;
 import ca.letkeman.resumes.optimizer.responses.Message;
 import ca.letkeman.resumes.service.MockLlmService;
 import ca.letkeman.resumes.service.PromptService;
+import ca.letkeman.resumes.service.TokenCounter;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -50,8 +54,8 @@ class ApiServiceExtendedTest {
     void testProduceFilesWithValidLLMResponse() {
         // Setup
         Optimize optimize = createBasicOptimize();
-        Mockito.when(promptServiceMock.loadPrompt("RESUME"))
-            .thenReturn("Resume template: {resume_string} {job_description}");
+        Mockito.when(promptServiceMock.getPrompt("RESUME"))
+            .thenReturn(prompt("Resume template: {resume_string} {job_description}"));
 
         // Create a valid LLM response
         LLMResponse mockResponse = new LLMResponse();
@@ -81,8 +85,8 @@ class ApiServiceExtendedTest {
     @Test
     void testProduceFilesWithEmptyChoices() {
         Optimize optimize = createBasicOptimize();
-        Mockito.when(promptServiceMock.loadPrompt("RESUME"))
-            .thenReturn("Template");
+        Mockito.when(promptServiceMock.getPrompt("RESUME"))
+            .thenReturn(prompt("Template"));
 
         // Empty choices
         LLMResponse mockResponse = new LLMResponse();
@@ -101,8 +105,8 @@ class ApiServiceExtendedTest {
     @Test
     void testProduceFilesWithNullChoiceMessage() {
         Optimize optimize = createBasicOptimize();
-        Mockito.when(promptServiceMock.loadPrompt("RESUME"))
-            .thenReturn("Template");
+        Mockito.when(promptServiceMock.getPrompt("RESUME"))
+            .thenReturn(prompt("Template"));
 
         // Choice with null message
         LLMResponse mockResponse = new LLMResponse();
@@ -125,7 +129,7 @@ class ApiServiceExtendedTest {
     @Test
     void testProduceFilesWithNullPromptData() {
         Optimize optimize = createBasicOptimize();
-        Mockito.when(promptServiceMock.loadPrompt("RESUME"))
+        Mockito.when(promptServiceMock.getPrompt("RESUME"))
             .thenReturn(null);
 
         // Should return early
@@ -137,8 +141,8 @@ class ApiServiceExtendedTest {
     @Test
     void testProduceFilesWithEmptyPromptData() {
         Optimize optimize = createBasicOptimize();
-        Mockito.when(promptServiceMock.loadPrompt("RESUME"))
-            .thenReturn("");
+        Mockito.when(promptServiceMock.getPrompt("RESUME"))
+            .thenReturn(prompt(""));
 
         // Should return early
         Assertions.assertDoesNotThrow(() ->
@@ -151,8 +155,8 @@ class ApiServiceExtendedTest {
         Optimize optimize = createBasicOptimize();
         String template = "Resume: {resume_string}, Job: {job_description}, Title: {job_title}, "
             + "Company: {company}, Today: {today}, Interviewer: {interviewer_name}";
-        Mockito.when(promptServiceMock.loadPrompt("RESUME"))
-            .thenReturn(template);
+        Mockito.when(promptServiceMock.getPrompt("RESUME"))
+            .thenReturn(prompt(template));
 
         LLMResponse mockResponse = new LLMResponse();
         List<Choice> choices = new ArrayList<>();
@@ -187,8 +191,8 @@ class ApiServiceExtendedTest {
         Mockito.when(optimize.getTemperature()).thenReturn(0.5);
         Mockito.when(optimize.getModel()).thenReturn("model");
 
-        Mockito.when(promptServiceMock.loadPrompt("RESUME"))
-            .thenReturn("Template");
+        Mockito.when(promptServiceMock.getPrompt("RESUME"))
+            .thenReturn(prompt("Template"));
 
         LLMResponse mockResponse = new LLMResponse();
         List<Choice> choices = new ArrayList<>();
@@ -213,8 +217,8 @@ class ApiServiceExtendedTest {
     @Test
     void testProduceFilesWithAdditionalSuggestions() {
         Optimize optimize = createBasicOptimize();
-        Mockito.when(promptServiceMock.loadPrompt("RESUME"))
-            .thenReturn("Template");
+        Mockito.when(promptServiceMock.getPrompt("RESUME"))
+            .thenReturn(prompt("Template"));
 
         // Response with additional suggestions
         LLMResponse mockResponse = new LLMResponse();
@@ -250,8 +254,8 @@ class ApiServiceExtendedTest {
     @Test
     void testProduceFilesCreatesDirectoryIfNeeded() throws IOException {
         Optimize optimize = createBasicOptimize();
-        Mockito.when(promptServiceMock.loadPrompt("RESUME"))
-            .thenReturn("Template");
+        Mockito.when(promptServiceMock.getPrompt("RESUME"))
+            .thenReturn(prompt("Template"));
 
         LLMResponse mockResponse = new LLMResponse();
         List<Choice> choices = new ArrayList<>();
@@ -280,8 +284,8 @@ class ApiServiceExtendedTest {
     @Test
     void testProduceFilesArrayMethod() {
         Optimize optimize = createBasicOptimize();
-        Mockito.when(promptServiceMock.loadPrompt(Mockito.anyString()))
-            .thenReturn("Template");
+        Mockito.when(promptServiceMock.getPrompt(Mockito.anyString()))
+            .thenReturn(prompt("Template"));
 
         LLMResponse mockResponse = new LLMResponse();
         List<Choice> choices = new ArrayList<>();
@@ -300,8 +304,8 @@ class ApiServiceExtendedTest {
         // Should iterate through all prompt types
         apiService.produceFiles(optimize, "http://test", "key", "model", tempDir.toString());
 
-        // Verify loadPrompt was called for each type
-        Mockito.verify(promptServiceMock, Mockito.times(2)).loadPrompt(Mockito.anyString());
+        // Verify getPrompt was called for each type
+        Mockito.verify(promptServiceMock, Mockito.times(2)).getPrompt(Mockito.anyString());
     }
 
     @Test
@@ -332,6 +336,121 @@ class ApiServiceExtendedTest {
         Assertions.assertFalse(apiService.isMockEnabled());
     }
 
+    @Test
+    void testProduceFilesRunsPromptTypesConcurrently() {
+        Optimize optimize = createBasicOptimize();
+        CyclicBarrier bothLoading = new CyclicBarrier(2);
+        // Each load only returns once the other prompt type is loading at the same time
+        Mockito.when(promptServiceMock.getPrompt(Mockito.anyString())).thenAnswer(invocation -> {
+            bothLoading.await(5, TimeUnit.SECONDS);
+            return prompt("Template");
+        });
+        apiService.setMockEnabled(true);
+        Mockito.when(mockLlmServiceMock.generateMockResponse(Mockito.any())).thenReturn(null);
+        apiService.setPromptParallelism(2);
+        List<String> failures = new CopyOnWriteArrayList<>();
+
+        apiService.produceFiles(optimize, "http://test", "key", "model", tempDir.toString(),
+            new GenerationListener() {
+                @Override
+                public void onPromptFailed(String promptType, String reason) {
+                    failures.add(promptType + ":" + reason);
+                }
+            });
+
+        Assertions.assertEquals(2, failures.size());
+        Assertions.assertTrue(failures.contains("RESUME:invalid LLM response"));
+        Assertions.assertTrue(failures.contains("COVERLETTER:invalid LLM response"));
+    }
+
+    @Test
+    void testSharedPrefixSendsFirstPromptTypeAlone() {
+        Optimize optimize = Mockito.mock(Optimize.class);
+        Mockito.when(optimize.getPromptType()).thenReturn(new String[]{"RESUME", "COVERLETTER", "INTERVIEW_HR"});
+        Mockito.when(promptServiceMock.getPrompt(Mockito.anyString())).thenReturn(prompt("Template {resume_string}"));
+        apiService.setMockEnabled(true);
+        List<String> events = new CopyOnWriteArrayList<>();
+        Mockito.when(mockLlmServiceMock.generateMockResponse(Mockito.any())).thenAnswer(invocation -> {
+            events.add("llm");
+            return null;
+        });
+        apiService.setPromptParallelism(2);
+        apiService.setPromptLayout("shared-prefix");
+
+        apiService.produceFiles(optimize, "http://test", "key", "model", tempDir.toString(),
+            new GenerationListener() {
+                @Override
+                public void onPromptStarted(String promptType) {
+                    events.add("start:" + promptType);
+                }
+            });
+
+        Assertions.assertEquals(List.of("start:RESUME", "llm"), events.subList(0, 2),
+            "The other prompt types should wait for the first to fill the prefix cache");
+        Assertions.assertEquals(6, events.size());
+    }
+
+    @Test
+    void testSharedPrefixFitsInputsOnceForAllPromptTypes() throws Exception {
+        Optimize optimize = Mockito.mock(Optimize.class);
+        Mockito.when(optimize.getPromptType()).thenReturn(new String[]{"RESUME", "COVERLETTER"});
+        StringBuilder resume = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            resume.append("Delivered project number ").append(i).append(" on time\n");
+        }
+        Mockito.when(optimize.getResume()).thenReturn(resume.toString());
+        Mockito.when(optimize.getJobDescription()).thenReturn("Build services");
+        Mockito.when(promptServiceMock.getPrompt("RESUME")).thenReturn(prompt("Rewrite {resume_string}"));
+        Mockito.when(promptServiceMock.getPrompt("COVERLETTER"))
+            .thenReturn(prompt("Write a cover letter. ".repeat(100) + "{resume_string}"));
+        apiService.setMockEnabled(true);
+        List<String> prompts = new CopyOnWriteArrayList<>();
+        Mockito.when(mockLlmServiceMock.generateMockResponse(Mockito.any())).thenAnswer(invocation -> {
+            ChatBody chatBody = invocation.getArgument(0);
+            prompts.add(chatBody.getMessages().get(1).getContent());
+            return null;
+        });
+        apiService.setTokenCounter(new TokenCounter("", 100, 2048, ""));
+        apiService.setContextFitEnabled(true);
+        apiService.setPromptLayout("shared-prefix");
+
+        apiService.produceFiles(optimize, "http://test", "key", "model", tempDir.toString());
+
+        Assertions.assertEquals(2, prompts.size());
+        String prefix = prompts.get(0).substring(0, prompts.get(0).indexOf("---"));
+        Assertions.assertTrue(prefix.length() < resume.length(), "Resume should be shortened to fit");
+        Assertions.assertTrue(prompts.get(1).startsWith(prefix), "Both prompt types should share the prefix");
+    }
+
+    @Test
+    void testContextFitCanBeSwitchedOff() {
+        Optimize optimize = Mockito.mock(Optimize.class);
+        Mockito.when(optimize.getPromptType()).thenReturn(new String[]{"RESUME"});
+        String resume = "Delivered the project on time\n".repeat(300);
+        Mockito.when(optimize.getResume()).thenReturn(resume);
+        Mockito.when(optimize.getJobDescription()).thenReturn("Build services");
+        Mockito.when(promptServiceMock.getPrompt("RESUME")).thenReturn(prompt("Rewrite {resume_string}"));
+        apiService.setMockEnabled(true);
+        List<String> prompts = new CopyOnWriteArrayList<>();
+        Mockito.when(mockLlmServiceMock.generateMockResponse(Mockito.any())).thenAnswer(invocation -> {
+            ChatBody chatBody = invocation.getArgument(0);
+            prompts.add(chatBody.getMessages().get(1).getContent());
+            return null;
+        });
+        apiService.setTokenCounter(new TokenCounter("", 100, 2048, ""));
+        apiService.setContextFitEnabled(false);
+
+        apiService.produceFiles(optimize, "http://test", "key", "model", tempDir.toString());
+
+        Assertions.assertEquals(1, prompts.size());
+        Assertions.assertTrue(prompts.get(0).contains(resume), "The resume should be sent as is");
+    }
+
+    @Test
+    void testProduceFilesIsSequentialByDefaultOutsideSpring() {
+        Assertions.assertEquals(1, apiService.getPromptParallelism());
+    }
+
     private Optimize createBasicOptimize() {
         Optimize optimize = Mockito.mock(Optimize.class);
         Mockito.when(optimize.getPromptType()).thenReturn(new String[]{"RESUME", "COVERLETTER"});
@@ -344,4 +463,8 @@ class ApiServiceExtendedTest {
         Mockito.when(optimize.getModel()).thenReturn("gpt-3");
         return optimize;
     }
+
+    private static PromptService.Prompt prompt(String content) {
+        return new PromptService.Prompt("TEST.md", content, PromptService.versionOf(content), "bundled");
+    }
 }
@@ -1,7 +1,12 @@
 package ca.letkeman.resumes.optimizer;
 
 import ca.letkeman.resumes.optimizer.responses.LLMResponse;
+import ca.letkeman.resumes.service.LlmCircuitBreaker;
+import ca.letkeman.resumes.service.LlmEndpointPool;
+import ca.letkeman.resumes.service.LlmHedgingPolicy;
+import ca.letkeman.resumes.service.LlmRetryPolicy;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import org.junit.jupiter.api.AfterEach;
@@ -255,4 +260,202 @@ class ApiServiceHttpErrorTest {
 
         Assertions.assertNull(response, "Should return null and handle large error response");
     }
+
+    /**
+     * Test streamed completion - chunks are forwarded as they arrive and accumulated.
+     */
+    @Test
+    void testInvokeApiStreamingAccumulatesChunks() throws InterruptedException {
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .addHeader("Content-Type", "text/event-stream")
+                .setBody("data: {\"id\":\"c1\",\"model\":\"m\",\"choices\":[{\"delta\":{\"content\":\"Hello\"}}]}\n\n"
+                        + "data: {\"id\":\"c1\",\"choices\":[{\"delta\":{\"content\":\" world\"},"
+                        + "\"finish_reason\":\"stop\"}]}\n\n"
+                        + "data: [DONE]\n\n"));
+
+        String endpoint = mockWebServer.url("/v1/chat/completions").toString();
+        ChatBody chatBody = new ChatBody();
+        chatBody.setModel("test-model");
+        java.util.List<String> tokens = new java.util.ArrayList<>();
+
+        LLMResponse response = apiService.invokeApiStreaming(chatBody, endpoint, "fake-key", tokens::add);
+
+        Assertions.assertNotNull(response);
+        Assertions.assertEquals("Hello world", response.getChoices().get(0).getMessage().getContent());
+        Assertions.assertEquals("stop", response.getChoices().get(0).getFinishReason());
+        Assertions.assertEquals(java.util.List.of("Hello", " world"), tokens);
+        Assertions.assertTrue(mockWebServer.takeRequest().getBody().readUtf8().contains("\"stream\":true"));
+    }
+
+    /**
+     * Test streamed request with HTTP error - returns null like the blocking call.
+     */
+    @Test
+    void testInvokeApiStreamingReturns500Error() {
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(500)
+                .setBody("{\"error\": \"Internal server error\"}"));
+
+        String endpoint = mockWebServer.url("/v1/chat/completions").toString();
+        ChatBody chatBody = new ChatBody();
+        chatBody.setModel("test-model");
+
+        Assertions.assertNull(apiService.invokeApiStreaming(chatBody, endpoint, "fake-key", token -> { }));
+    }
+
+    /**
+     * Test retry - a 503 honoring Retry-After is retried and the second attempt succeeds.
+     */
+    @Test
+    void testInvokeApiRetries503() {
+        apiService.setRetryPolicy(new LlmRetryPolicy(3, 1, 50));
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(503)
+                .addHeader("Retry-After", "0")
+                .setBody("{\"error\": \"loading model\"}"));
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"choices\":[{\"message\":{\"content\":\"Test response\"}}]}"));
+
+        String endpoint = mockWebServer.url("/api/chat").toString();
+        ChatBody chatBody = new ChatBody();
+        chatBody.setModel("test-model");
+
+        Assertions.assertNotNull(apiService.invokeApi(chatBody, endpoint, "fake-key"));
+        Assertions.assertEquals(2, mockWebServer.getRequestCount());
+    }
+
+    /**
+     * Test retry - a Retry-After longer than the maximum delay fails fast instead of retrying early.
+     */
+    @Test
+    void testInvokeApiDoesNotRetryBeforeLongRetryAfter() {
+        apiService.setRetryPolicy(new LlmRetryPolicy(3, 1, 50));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(429).addHeader("Retry-After", "120"));
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"choices\":[{\"message\":{\"content\":\"Test response\"}}]}"));
+
+        String endpoint = mockWebServer.url("/api/chat").toString();
+        ChatBody chatBody = new ChatBody();
+        chatBody.setModel("test-model");
+
+        Assertions.assertNull(apiService.invokeApi(chatBody, endpoint, "fake-key"));
+        Assertions.assertEquals(1, mockWebServer.getRequestCount());
+    }
+
+    /**
+     * Test retry - client errors are not retried.
+     */
+    @Test
+    void testInvokeApiDoesNotRetry400() {
+        apiService.setRetryPolicy(new LlmRetryPolicy(3, 1, 50));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(400).setBody("{\"error\": \"bad request\"}"));
+
+        String endpoint = mockWebServer.url("/api/chat").toString();
+        ChatBody chatBody = new ChatBody();
+        chatBody.setModel("test-model");
+
+        Assertions.assertNull(apiService.invokeApi(chatBody, endpoint, "fake-key"));
+        Assertions.assertEquals(1, mockWebServer.getRequestCount());
+    }
+
+    /**
+     * Test retry - attempts are bounded by max-attempts.
+     */
+    @Test
+    void testInvokeApiGivesUpAfterMaxAttempts() {
+        apiService.setRetryPolicy(new LlmRetryPolicy(2, 1, 50));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(502));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(502));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200));
+
+        String endpoint = mockWebServer.url("/api/chat").toString();
+        ChatBody chatBody = new ChatBody();
+        chatBody.setModel("test-model");
+
+        Assertions.assertNull(apiService.invokeApi(chatBody, endpoint, "fake-key"));
+        Assertions.assertEquals(2, mockWebServer.getRequestCount());
+    }
+
+    /**
+     * Test circuit breaker - once open, calls fail without reaching the endpoint.
+     */
+    @Test
+    void testInvokeApiFailsFastWhenCircuitOpen() {
+        apiService.setCircuitBreaker(new LlmCircuitBreaker(true, 1, 60));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200));
+
+        String endpoint = mockWebServer.url("/api/chat").toString();
+        ChatBody chatBody = new ChatBody();
+        chatBody.setModel("test-model");
+
+        Assertions.assertNull(apiService.invokeApi(chatBody, endpoint, "fake-key"));
+        Assertions.assertNull(apiService.invokeApi(chatBody, endpoint, "fake-key"));
+        Assertions.assertEquals(1, mockWebServer.getRequestCount());
+    }
+
+    /**
+     * Test streamed retry - a failure before any token arrived is retried.
+     */
+    @Test
+    void testInvokeApiStreamingRetriesBeforeFirstToken() {
+        apiService.setRetryPolicy(new LlmRetryPolicy(3, 1, 50));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(429).addHeader("Retry-After", "0"));
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .addHeader("Content-Type", "text/event-stream")
+                .setBody("data: {\"choices\":[{\"delta\":{\"content\":\"Hi\"}}]}\n\ndata: [DONE]\n\n"));
+
+        String endpoint = mockWebServer.url("/v1/chat/completions").toString();
+        ChatBody chatBody = new ChatBody();
+        chatBody.setModel("test-model");
+        java.util.List<String> tokens = new java.util.ArrayList<>();
+
+        LLMResponse response = apiService.invokeApiStreaming(chatBody, endpoint, "fake-key", tokens::add);
+
+        Assertions.assertNotNull(response);
+        Assertions.assertEquals(java.util.List.of("Hi"), tokens);
+        Assertions.assertEquals(2, mockWebServer.getRequestCount());
+    }
+
+    /**
+     * Test hedging - a slow primary endpoint is raced by a second endpoint, which wins.
+     */
+    @Test
+    void testInvokeApiHedgesSlowEndpoint() throws IOException {
+        try (MockWebServer secondary = new MockWebServer()) {
+            secondary.start();
+            mockWebServer.enqueue(new MockResponse()
+                    .setResponseCode(200)
+                    .setHeadersDelay(5, TimeUnit.SECONDS)
+                    .setBody("{\"choices\":[{\"message\":{\"content\":\"slow\"}}]}"));
+            secondary.enqueue(new MockResponse()
+                    .setResponseCode(200)
+                    .setBody("{\"choices\":[{\"message\":{\"content\":\"fast\"}}]}"));
+
+            String primaryUrl = mockWebServer.url("/v1/chat/completions").toString();
+            String secondaryUrl = secondary.url("/v1/chat/completions").toString();
+            apiService.setEndpointPool(
+                    new LlmEndpointPool(primaryUrl + "," + secondaryUrl, "least-outstanding", 3, 30));
+            LlmHedgingPolicy hedgingPolicy = new LlmHedgingPolicy(true, 95, 0, 200);
+            for (int i = 0; i < 20; i++) {
+                hedgingPolicy.recordLatency(100);
+            }
+            apiService.setHedgingPolicy(hedgingPolicy);
+            ChatBody chatBody = new ChatBody();
+            chatBody.setModel("test-model");
+
+            long start = System.nanoTime();
+            LLMResponse response = apiService.invokeApi(chatBody, primaryUrl, "fake-key");
+
+            Assertions.assertNotNull(response);
+            Assertions.assertEquals("fast", response.getChoices().get(0).getMessage().getContent());
+            Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(4),
+                    "Hedge should not wait for the slow call");
+            Assertions.assertEquals(1L, hedgingPolicy.getMetrics().get("hedge_wins"));
+        }
+    }
 }
@@ -57,8 +57,8 @@ class ApiServiceTest {
         Mockito.when(optimize.getModel()).thenReturn("gpt-3");
 
         // Mock PromptService to return a template
-        Mockito.when(promptServiceMock.loadPrompt("RESUME"))
-            .thenReturn("Prompt: {resume_string} {jd_string} {today}");
+        Mockito.when(promptServiceMock.getPrompt("RESUME"))
+            .thenReturn(prompt("Prompt: {resume_string} {jd_string} {today}"));
 
         // This will use the mock PromptService; invokeApi will return null (no real HTTP call)
         apiService.produceFiles("RESUME", optimize, "http://invalid-endpoint", "fakekey", "mistral", System.getProperty("java.io.tmpdir"));
@@ -113,8 +113,8 @@ class ApiServiceTest {
         Mockito.when(optimize.getResume()).thenReturn(null);
 
         // Mock PromptService to return SKILLS template
-        Mockito.when(promptServiceMock.loadPrompt("SKILLS"))
-            .thenReturn("Skills Prompt: {job_title} {job_description}");
+        Mockito.when(promptServiceMock.getPrompt("SKILLS"))
+            .thenReturn(prompt("Skills Prompt: {job_title} {job_description}"));
 
         // This will use the mock PromptService; invokeApi will return null (no real HTTP call)
         Assertions.assertDoesNotThrow(() -> apiService.produceFiles("SKILLS", optimize, "http://invalid-endpoint", "fakekey", "mistral", System.getProperty("java.io.tmpdir")));
@@ -133,7 +133,7 @@ class ApiServiceTest {
 
         // Mock PromptService with template
         String template = "Job: {job_title} Desc: {job_description}";
-        Mockito.when(promptServiceMock.loadPrompt("SKILLS")).thenReturn(template);
+        Mockito.when(promptServiceMock.getPrompt("SKILLS")).thenReturn(prompt(template));
 
         // Verify that it doesn't throw exception
         Assertions.assertDoesNotThrow(() -> apiService.produceFiles("SKILLS", optimize, "http://invalid-endpoint", "fakekey", "mistral", System.getProperty("java.io.tmpdir")));
@@ -193,8 +193,8 @@ class ApiServiceTest {
         Mockito.when(optimize.getTemperature()).thenReturn(0.7);
         Mockito.when(optimize.getModel()).thenReturn("model");
 
-        Mockito.when(promptServiceMock.loadPrompt("RESUME")).thenReturn("Resume: {resume_string}");
-        Mockito.when(promptServiceMock.loadPrompt("COVERLETTER")).thenReturn("Cover: {resume_string}");
+        Mockito.when(promptServiceMock.getPrompt("RESUME")).thenReturn(prompt("Resume: {resume_string}"));
+        Mockito.when(promptServiceMock.getPrompt("COVERLETTER")).thenReturn(prompt("Cover: {resume_string}"));
 
         // Should process multiple prompt types
         Assertions.assertDoesNotThrow(() -> apiService.produceFiles("RESUME", optimize, "http://invalid", "key", "model", "/tmp"));
@@ -212,8 +212,8 @@ class ApiServiceTest {
         Mockito.when(optimize.getTemperature()).thenReturn(0.5);
         Mockito.when(optimize.getModel()).thenReturn("model");
 
-        Mockito.when(promptServiceMock.loadPrompt("THANK-YOU-EMAIL"))
-            .thenReturn("Dear {interviewer_name}");
+        Mockito.when(promptServiceMock.getPrompt("THANK-YOU-EMAIL"))
+            .thenReturn(prompt("Dear {interviewer_name}"));
 
         Assertions.assertDoesNotThrow(() -> apiService.produceFiles("THANK-YOU-EMAIL", optimize, "http://invalid", "key", "model", "/tmp"));
     }
@@ -230,10 +230,14 @@ class ApiServiceTest {
         Mockito.when(optimize.getTemperature()).thenReturn(0.5);
         Mockito.when(optimize.getModel()).thenReturn("model");
 
-        Mockito.when(promptServiceMock.loadPrompt("THANK-YOU-EMAIL"))
-            .thenReturn("Dear {interviewer_name}");
+        Mockito.when(promptServiceMock.getPrompt("THANK-YOU-EMAIL"))
+            .thenReturn(prompt("Dear {interviewer_name}"));
 
         // Should handle null interviewer name gracefully
         Assertions.assertDoesNotThrow(() -> apiService.produceFiles("THANK-YOU-EMAIL", optimize, "http://invalid", "key", "model", "/tmp"));
     }
+
+    private static PromptService.Prompt prompt(String content) {
+        return new PromptService.Prompt("TEST.md", content, PromptService.versionOf(content), "bundled");
+    }
 }
@@ -0,0 +1,96 @@
+package ca.letkeman.resumes.optimizer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BpeTokenizerTest {
+
+  // "Ġ" is how byte-level vocabularies write a space
+  private static final String BYTE_LEVEL = """
+      {"pre_tokenizer": {"type": "ByteLevel", "add_prefix_space": false},
+       "model": {"type": "BPE",
+         "vocab": {"l": 0, "o": 1, "w": 2, "e": 3, "r": 4, "Ġ": 5, "lo": 6, "low": 7, "er": 8, "Ġlow": 9},
+         "merges": ["l o", "lo w", "e r", "Ġ low"]}}
+      """;
+
+  private static final String SENTENCE_PIECE = """
+      {"pre_tokenizer": {"type": "Metaspace", "replacement": "▁"},
+       "model": {"type": "BPE", "byte_fallback": true,
+         "vocab": {"▁": 0, "h": 1, "i": 2, "▁h": 3, "▁hi": 4},
+         "merges": [["▁", "h"], ["▁h", "i"]]}}
+      """;
+
+  @TempDir
+  Path tempDir;
+
+  private BpeTokenizer load(String json, int cacheSize) throws IOException {
+    Path file = tempDir.resolve("tokenizer.json");
+    Files.writeString(file, json, StandardCharsets.UTF_8);
+    return BpeTokenizer.load(file, cacheSize);
+  }
+
+  @Test
+  void testByteLevelAppliesMergesInRankOrder() throws IOException {
+    BpeTokenizer tokenizer = load(BYTE_LEVEL, 100);
+
+    Assertions.assertEquals(10, tokenizer.getVocabularySize());
+    Assertions.assertEquals(1, tokenizer.count("low"));
+    Assertions.assertEquals(2, tokenizer.count("lower"));
+    Assertions.assertEquals(3, tokenizer.count("lower low"));
+  }
+
+  @Test
+  void testByteLevelCountsUnknownBytesSeparately() throws IOException {
+    BpeTokenizer tokenizer = load(BYTE_LEVEL, 100);
+
+    Assertions.assertEquals(3, tokenizer.count("zzz"));
+    Assertions.assertEquals(2, tokenizer.count("é"));
+  }
+
+  @Test
+  void testSentencePieceUsesByteFallback() throws IOException {
+    BpeTokenizer tokenizer = load(SENTENCE_PIECE, 100);
+
+    Assertions.assertEquals(2, tokenizer.count("hi hi"));
+    Assertions.assertEquals(3, tokenizer.count("é"));
+  }
+
+  @Test
+  void testEmptyText() throws IOException {
+    BpeTokenizer tokenizer = load(BYTE_LEVEL, 100);
+
+    Assertions.assertEquals(0, tokenizer.count(null));
+    Assertions.assertEquals(0, tokenizer.count(""));
+  }
+
+  @Test
+  void testRepeatedWordsAreCached() throws IOException {
+    BpeTokenizer tokenizer = load(BYTE_LEVEL, 100);
+
+    Assertions.assertEquals(tokenizer.count("lower lower"), tokenizer.count("lower lower"));
+    Assertions.assertEquals(2, tokenizer.getCacheMisses());
+    Assertions.assertEquals(2, tokenizer.getCacheHits());
+  }
+
+  @Test
+  void testCacheCanBeDisabled() throws IOException {
+    BpeTokenizer tokenizer = load(BYTE_LEVEL, 0);
+
+    Assertions.assertEquals(2, tokenizer.count("lower"));
+    Assertions.assertEquals(2, tokenizer.count("lower"));
+    Assertions.assertEquals(0, tokenizer.getCacheHits());
+  }
+
+  @Test
+  void testRejectsOtherModels() {
+    Assertions.assertThrows(IOException.class,
+        () -> load("{\"model\": {\"type\": \"WordPiece\", \"vocab\": {}, \"merges\": []}}", 100));
+    Assertions.assertThrows(IOException.class, () -> load("not json", 100));
+    Assertions.assertThrows(IOException.class, () -> BpeTokenizer.load(tempDir.resolve("missing.json"), 100));
+  }
+}
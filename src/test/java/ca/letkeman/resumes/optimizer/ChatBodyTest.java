@@ -1,5 +1,6 @@
 package ca.letkeman.resumes.optimizer;
 
+import com.google.gson.Gson;
 import java.util.ArrayList;
 import java.util.List;
 import org.junit.jupiter.api.Assertions;
@@ -131,4 +132,18 @@ class ChatBodyTest {
     Assertions.assertEquals(0, newChatBody.getMaxTokens());
     Assertions.assertFalse(newChatBody.getStream());
   }
+
+  @Test
+  void testCacheHintsAreLeftOutUntilSet() {
+    Gson gson = new Gson();
+    String json = gson.toJson(chatBody);
+    Assertions.assertFalse(json.contains("keep_alive"));
+    Assertions.assertFalse(json.contains("cache_prompt"));
+
+    chatBody.setKeepAlive("10m");
+    chatBody.setCachePrompt(true);
+    json = gson.toJson(chatBody);
+    Assertions.assertTrue(json.contains("\"keep_alive\":\"10m\""));
+    Assertions.assertTrue(json.contains("\"cache_prompt\":true"));
+  }
 }
@@ -0,0 +1,97 @@
+package ca.letkeman.resumes.optimizer;
+
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ContextWindowFitterTest {
+
+  // One token per word keeps the arithmetic readable
+  private static final Tokenizer WORDS = text -> text == null || text.isBlank() ? 0 : text.strip().split("\\s+").length;
+
+  // How Utility.convertLineEndings stores line breaks
+  private static String lines(String... lines) {
+    return String.join("\\n ", lines);
+  }
+
+  @Test
+  void testInputThatFitsIsUnchanged() {
+    ContextWindowFitter.Result result = ContextWindowFitter.fit("my resume", "the job", 10, WORDS);
+
+    Assertions.assertFalse(result.changed());
+    Assertions.assertEquals("my resume", result.resume());
+    Assertions.assertEquals("the job", result.jobDescription());
+    Assertions.assertEquals(4, result.tokensAfter());
+  }
+
+  @Test
+  void testNullInputIsEmpty() {
+    ContextWindowFitter.Result result = ContextWindowFitter.fit(null, null, 10, WORDS);
+
+    Assertions.assertEquals("", result.resume());
+    Assertions.assertEquals("", result.jobDescription());
+  }
+
+  @Test
+  void testRemovesBoilerplateSectionsFirst() {
+    String job = lines("Java Developer", "Build services in Java", "Benefits",
+        "Dental and vision coverage", "Unlimited paid time off", "Requirements:", "Five years of Java",
+        "Acme is an equal opportunity employer and values diversity.");
+
+    ContextWindowFitter.Result result = ContextWindowFitter.fit("my resume", job, 20, WORDS);
+
+    Assertions.assertEquals(List.of("removed job description boilerplate"), result.steps());
+    Assertions.assertEquals(lines("Java Developer", "Build services in Java", "Requirements:", "Five years of Java"),
+        result.jobDescription());
+    Assertions.assertEquals("my resume", result.resume());
+  }
+
+  @Test
+  void testRemovesRepeatedLines() {
+    String job = lines("Write Java code", "Review pull requests", "write java code ", "", "Review pull requests");
+
+    Assertions.assertEquals(lines("Write Java code", "Review pull requests", ""),
+        ContextWindowFitter.removeDuplicateLines(job));
+
+    ContextWindowFitter.Result result = ContextWindowFitter.fit("resume", job, 8, WORDS);
+    Assertions.assertEquals(List.of("removed repeated lines"), result.steps());
+  }
+
+  @Test
+  void testKeepsRealLineBreaks() {
+    Assertions.assertEquals("a b\nc d", ContextWindowFitter.removeDuplicateLines("a b\nc d\na b"));
+  }
+
+  @Test
+  void testTruncatesJobDescriptionBeforeResume() {
+    String resume = "r ".repeat(60).strip();
+    String job = lines("j ".repeat(50).strip(), "k ".repeat(50).strip());
+
+    ContextWindowFitter.Result result = ContextWindowFitter.fit(resume, job, 120, WORDS);
+
+    Assertions.assertEquals(List.of("truncated job description"), result.steps());
+    Assertions.assertEquals(resume, result.resume());
+    Assertions.assertEquals("j ".repeat(50).strip(), result.jobDescription());
+    Assertions.assertTrue(result.tokensAfter() <= 120);
+  }
+
+  @Test
+  void testTruncatesResumeWhenJobDescriptionIsAtItsFloor() {
+    String resume = "r ".repeat(200).strip();
+    String job = "j ".repeat(200).strip();
+
+    ContextWindowFitter.Result result = ContextWindowFitter.fit(resume, job, 100, WORDS);
+
+    Assertions.assertEquals(List.of("truncated job description", "truncated resume"), result.steps());
+    Assertions.assertEquals(25, WORDS.count(result.jobDescription()));
+    Assertions.assertEquals(75, WORDS.count(result.resume()));
+  }
+
+  @Test
+  void testTruncateCutsAtWordBoundary() {
+    String truncated = ContextWindowFitter.truncate("alpha beta gamma delta", 2, TokenEstimator.HEURISTIC);
+
+    Assertions.assertEquals("alpha beta", truncated);
+    Assertions.assertTrue(TokenEstimator.HEURISTIC.count(truncated) <= 2);
+  }
+}
@@ -0,0 +1,38 @@
+package ca.letkeman.resumes.optimizer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class DocumentFormatTest {
+
+  @Test
+  void ofIgnoresCase() {
+    Assertions.assertEquals(DocumentFormat.PDF, DocumentFormat.of("pdf"));
+    Assertions.assertEquals(DocumentFormat.DOCX, DocumentFormat.of(" DOCX "));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> DocumentFormat.of("html"));
+  }
+
+  @Test
+  void fileNameUsesBaseName() {
+    Assertions.assertEquals("resume.pdf", DocumentFormat.PDF.fileName("resume.md"));
+    Assertions.assertEquals("resume.docx", DocumentFormat.DOCX.fileName("batch.zip/jane/resume.md"));
+    Assertions.assertEquals("resume.pdf", DocumentFormat.PDF.fileName("C:\\Users\\jane\\resume.md"));
+    Assertions.assertEquals("document.pdf", DocumentFormat.PDF.fileName(null));
+    Assertions.assertEquals("document.docx", DocumentFormat.DOCX.fileName("folder/"));
+  }
+
+  @Test
+  void writeRendersEachFormat() throws IOException {
+    ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+    ByteArrayOutputStream docx = new ByteArrayOutputStream();
+
+    DocumentFormat.PDF.write(MarkdownDocument.parse("# Title"), pdf);
+    DocumentFormat.DOCX.write(MarkdownDocument.parse("# Title"), docx);
+
+    Assertions.assertEquals("%PDF", new String(pdf.toByteArray(), 0, 4, StandardCharsets.US_ASCII));
+    Assertions.assertEquals("PK", new String(docx.toByteArray(), 0, 2, StandardCharsets.US_ASCII));
+  }
+}
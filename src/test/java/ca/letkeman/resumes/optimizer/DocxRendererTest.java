@@ -0,0 +1,130 @@
+package ca.letkeman.resumes.optimizer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.List;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFHyperlinkRun;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class DocxRendererTest {
+
+  // Render through a saved file, so the test sees what Word would open
+  private static XWPFDocument render(String markdown) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    MarkdownToDocx.write(MarkdownDocument.parse(markdown), out);
+    return new XWPFDocument(new ByteArrayInputStream(out.toByteArray()));
+  }
+
+  @Test
+  void headingsUseHeadingStyles() throws IOException {
+    try (XWPFDocument docx = render("# One\n\n## Two\n\n#### Four")) {
+      List<XWPFParagraph> paragraphs = docx.getParagraphs();
+      Assertions.assertEquals("Heading1", paragraphs.get(0).getStyle());
+      Assertions.assertEquals("Heading2", paragraphs.get(1).getStyle());
+      Assertions.assertEquals("Heading4", paragraphs.get(2).getStyle());
+      Assertions.assertEquals("Four", paragraphs.get(2).getText());
+      Assertions.assertTrue(docx.getStyles().styleExist("Heading1"));
+      Assertions.assertTrue(docx.getStyles().styleExist(DocxRenderer.HYPERLINK_STYLE));
+    }
+  }
+
+  @Test
+  void nestedFormattingIsKept() throws IOException {
+    try (XWPFDocument docx = render("Plain **bold *both* bold** `code`")) {
+      List<XWPFRun> runs = docx.getParagraphs().get(0).getRuns();
+      Assertions.assertEquals("Plain bold both bold code", docx.getParagraphs().get(0).getText());
+      XWPFRun both = runs.stream().filter(run -> "both".equals(run.text())).findFirst().orElseThrow();
+      Assertions.assertTrue(both.isBold());
+      Assertions.assertTrue(both.isItalic());
+      XWPFRun code = runs.get(runs.size() - 1);
+      Assertions.assertEquals(DocxRenderer.INLINE_CODE_STYLE, code.getStyle());
+      Assertions.assertFalse(code.isBold());
+    }
+  }
+
+  @Test
+  void linksBecomeHyperlinks() throws IOException {
+    try (XWPFDocument docx = render("See [my site](https://example.com) now")) {
+      XWPFHyperlinkRun link = docx.getParagraphs().get(0).getRuns().stream()
+          .filter(XWPFHyperlinkRun.class::isInstance).map(XWPFHyperlinkRun.class::cast)
+          .findFirst().orElseThrow();
+      Assertions.assertEquals("my site", link.text());
+      Assertions.assertEquals("https://example.com", link.getHyperlink(docx).getURL());
+    }
+  }
+
+  @Test
+  void listsUseNumberingLevels() throws IOException {
+    try (XWPFDocument docx = render("- Java\n  - Spring\n- SQL\n\n3. Third\n4. Fourth")) {
+      List<XWPFParagraph> paragraphs = docx.getParagraphs();
+      Assertions.assertEquals(5, paragraphs.size());
+      Assertions.assertEquals("Java", paragraphs.get(0).getText());
+      Assertions.assertEquals(BigInteger.ZERO, paragraphs.get(0).getNumIlvl());
+      Assertions.assertEquals("Spring", paragraphs.get(1).getText());
+      Assertions.assertEquals(BigInteger.ONE, paragraphs.get(1).getNumIlvl());
+      Assertions.assertEquals(paragraphs.get(0).getNumID(), paragraphs.get(2).getNumID());
+
+      BigInteger ordered = paragraphs.get(3).getNumID();
+      Assertions.assertNotEquals(paragraphs.get(0).getNumID(), ordered);
+      Assertions.assertEquals("decimal", paragraphs.get(3).getNumFmt());
+      Assertions.assertEquals(BigInteger.valueOf(3), docx.getNumbering().getNum(ordered).getCTNum()
+          .getLvlOverrideArray(0).getStartOverride().getVal());
+    }
+  }
+
+  @Test
+  void orderedListsCountSeparately() throws IOException {
+    try (XWPFDocument docx = render("1. One\n2. Two\n\nBetween\n\n1. Again")) {
+      List<XWPFParagraph> paragraphs = docx.getParagraphs();
+      Assertions.assertEquals(paragraphs.get(0).getNumID(), paragraphs.get(1).getNumID());
+      Assertions.assertNotEquals(paragraphs.get(0).getNumID(), paragraphs.get(3).getNumID());
+      Assertions.assertNull(paragraphs.get(2).getNumID());
+    }
+  }
+
+  @Test
+  void codeBlocksKeepLines() throws IOException {
+    try (XWPFDocument docx = render("```\nint a = 1;\nint b = 2;\n```")) {
+      XWPFParagraph code = docx.getParagraphs().get(0);
+      Assertions.assertEquals(DocxRenderer.CODE_STYLE, code.getStyle());
+      Assertions.assertEquals("int a = 1;\nint b = 2;", code.getText());
+    }
+  }
+
+  @Test
+  void quotesAndBreaks() throws IOException {
+    try (XWPFDocument docx = render("> Quoted\n\n---\n\nAfter")) {
+      List<XWPFParagraph> paragraphs = docx.getParagraphs();
+      Assertions.assertEquals(DocxRenderer.QUOTE_STYLE, paragraphs.get(0).getStyle());
+      Assertions.assertEquals("Quoted", paragraphs.get(0).getText());
+      Assertions.assertEquals("", paragraphs.get(1).getText());
+      Assertions.assertNull(paragraphs.get(2).getStyle());
+    }
+  }
+
+  @Test
+  void markupCharactersAreEscaped() throws IOException {
+    // The bell character is not allowed in XML and is dropped
+    String markdown = "Fish & chips < 5 > 3 \"to go\"" + (char) 7 + " [A&B](https://example.com/?a=1&b=2)";
+    try (XWPFDocument docx = render(markdown)) {
+      XWPFParagraph paragraph = docx.getParagraphs().get(0);
+      Assertions.assertEquals("Fish & chips < 5 > 3 \"to go\" A&B", paragraph.getText());
+      XWPFHyperlinkRun link = (XWPFHyperlinkRun) paragraph.getRuns().get(paragraph.getRuns().size() - 1);
+      Assertions.assertEquals("https://example.com/?a=1&b=2", link.getHyperlink(docx).getURL());
+    }
+  }
+
+  @Test
+  void documentsWithoutListsHaveNoNumbering() throws IOException {
+    try (XWPFDocument docx = render("# Title\n\nText")) {
+      Assertions.assertNull(docx.getNumbering());
+      Assertions.assertTrue(docx.getStyles().styleExist(DocxRenderer.CODE_STYLE));
+    }
+  }
+}
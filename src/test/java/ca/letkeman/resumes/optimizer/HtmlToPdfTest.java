@@ -1,7 +1,9 @@
 package ca.letkeman.resumes.optimizer;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import org.junit.jupiter.api.AfterEach;
@@ -202,4 +204,23 @@ class HtmlToPdfTest {
     Assertions.assertTrue(result);
     Assertions.assertTrue(new File(pdfFilePath).exists());
   }
+
+  @Test
+  void testConvertParsedDocument() {
+    htmlToPdf.setPdfFilePath(pdfFilePath);
+
+    boolean result = htmlToPdf.convert(MarkdownDocument.parse(markdownContent));
+
+    Assertions.assertTrue(result);
+    Assertions.assertTrue(new File(pdfFilePath).length() > 0);
+  }
+
+  @Test
+  void testWriteParsedDocumentToStream() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    HtmlToPdf.write(MarkdownDocument.parse(markdownContent), out);
+
+    Assertions.assertTrue(new String(out.toByteArray(), 0, 5, StandardCharsets.ISO_8859_1).startsWith("%PDF"));
+  }
 }
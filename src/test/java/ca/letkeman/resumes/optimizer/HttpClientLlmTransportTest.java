@@ -0,0 +1,191 @@
+package ca.letkeman.resumes.optimizer;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class HttpClientLlmTransportTest {
+
+    private HttpServer server;
+    private ExecutorService handlers;
+    private String endpoint;
+    private final AtomicReference<String> receivedBody = new AtomicReference<>();
+    private final AtomicReference<String> receivedAuth = new AtomicReference<>();
+    private final CountDownLatch silenceOver = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/ok", exchange -> {
+            receivedBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            receivedAuth.set(exchange.getRequestHeaders().getFirst("Authorization"));
+            respond(exchange, 200, "{\"id\":\"c1\"}");
+        });
+        server.createContext("/error", exchange -> respond(exchange, 503, "{\"error\":\"busy\"}"));
+        server.createContext("/stream",
+            exchange -> respond(exchange, 200, "data: one\n\ndata: two\n\ndata: [DONE]\n\n"));
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(3000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, "{}");
+        });
+        // Headers and a first chunk, then nothing until the test is over
+        server.createContext("/silent", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream os = exchange.getResponseBody();
+            os.write("data: one\n\n".getBytes(StandardCharsets.UTF_8));
+            os.flush();
+            awaitSilenceOver();
+            os.close();
+        });
+        server.createContext("/stalled", exchange -> {
+            exchange.sendResponseHeaders(200, 100);
+            OutputStream os = exchange.getResponseBody();
+            os.write("{\"id\":".getBytes(StandardCharsets.UTF_8));
+            os.flush();
+            awaitSilenceOver();
+            exchange.close();
+        });
+        handlers = Executors.newCachedThreadPool();
+        server.setExecutor(handlers);
+        server.start();
+        endpoint = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        silenceOver.countDown();
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    @Test
+    void testPostSendsBodyAndReadsResponse() throws Exception {
+        HttpClientLlmTransport transport = new HttpClientLlmTransport(5, 5, 5);
+
+        LlmTransport.Response response = transport.post(endpoint + "/ok", "key", "{\"model\":\"m\"}");
+
+        Assertions.assertTrue(response.isOk());
+        Assertions.assertEquals("{\"id\":\"c1\"}", response.body());
+        Assertions.assertEquals("{\"model\":\"m\"}", receivedBody.get());
+        Assertions.assertEquals("Basic key", receivedAuth.get());
+    }
+
+    @Test
+    void testConnectionIsReusedAcrossCalls() throws Exception {
+        HttpClientLlmTransport transport = new HttpClientLlmTransport(5, 5, 5);
+
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertTrue(transport.post(endpoint + "/ok", "key", "{}").isOk());
+        }
+    }
+
+    @Test
+    void testErrorStatusIsReturnedWithBody() throws Exception {
+        HttpClientLlmTransport transport = new HttpClientLlmTransport(5, 5, 5);
+
+        LlmTransport.Response response = transport.post(endpoint + "/error", "key", "{}");
+
+        Assertions.assertFalse(response.isOk());
+        Assertions.assertEquals(503, response.statusCode());
+        Assertions.assertEquals("{\"error\":\"busy\"}", response.body());
+    }
+
+    @Test
+    void testStreamingHandsOverLinesUntilConsumerStops() throws Exception {
+        HttpClientLlmTransport transport = new HttpClientLlmTransport(5, 5, 5);
+        List<String> lines = new ArrayList<>();
+
+        LlmTransport.Response response = transport.postStreaming(endpoint + "/stream", "key", "{}", line -> {
+            lines.add(line);
+            return !line.contains("[DONE]");
+        });
+
+        Assertions.assertTrue(response.isOk());
+        Assertions.assertNull(response.body());
+        Assertions.assertEquals(List.of("data: one", "", "data: two", "", "data: [DONE]"), lines);
+    }
+
+    @Test
+    void testStreamingErrorReturnsBodyWithoutCallingConsumer() throws Exception {
+        HttpClientLlmTransport transport = new HttpClientLlmTransport(5, 5, 5);
+        List<String> lines = new ArrayList<>();
+
+        LlmTransport.Response response = transport.postStreaming(endpoint + "/error", "key", "{}", lines::add);
+
+        Assertions.assertEquals(503, response.statusCode());
+        Assertions.assertEquals("{\"error\":\"busy\"}", response.body());
+        Assertions.assertTrue(lines.isEmpty());
+    }
+
+    @Test
+    void testRequestTimeoutIsEnforced() {
+        HttpClientLlmTransport transport = new HttpClientLlmTransport(5, 1, 5);
+
+        Assertions.assertThrows(HttpTimeoutException.class,
+            () -> transport.post(endpoint + "/slow", "key", "{}"));
+    }
+
+    @Test
+    void testStreamingFailsWhenServerGoesSilent() {
+        HttpClientLlmTransport transport = new HttpClientLlmTransport(5, 5, 1);
+        List<String> lines = new ArrayList<>();
+
+        long start = System.nanoTime();
+        Assertions.assertThrows(HttpTimeoutException.class,
+            () -> transport.postStreaming(endpoint + "/silent", "key", "{}", lines::add));
+
+        Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(4));
+        Assertions.assertEquals(List.of("data: one", ""), lines);
+    }
+
+    @Test
+    void testPostFailsWhenBodyStalls() {
+        HttpClientLlmTransport transport = new HttpClientLlmTransport(5, 1, 1);
+
+        long start = System.nanoTime();
+        Assertions.assertThrows(HttpTimeoutException.class,
+            () -> transport.post(endpoint + "/stalled", "key", "{}"));
+
+        Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(4));
+    }
+
+    @Test
+    void testSharedTransportIsSingleton() {
+        Assertions.assertSame(HttpClientLlmTransport.shared(), HttpClientLlmTransport.shared());
+    }
+
+    private void awaitSilenceOver() {
+        try {
+            silenceOver.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(com.sun.net.httpserver.HttpExchange exchange, int status, String body)
+        throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package ca.letkeman.resumes.optimizer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.commonmark.node.Heading;
+import org.commonmark.node.Node;
+import org.commonmark.node.Paragraph;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MarkdownDocumentTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void parseBuildsNodeTree() {
+    Node document = MarkdownDocument.parse("# Title\n\nBody");
+
+    Assertions.assertInstanceOf(Heading.class, document.getFirstChild());
+    Assertions.assertInstanceOf(Paragraph.class, document.getLastChild());
+  }
+
+  @Test
+  void parseNullIsEmptyDocument() {
+    Assertions.assertNull(MarkdownDocument.parse(null).getFirstChild());
+  }
+
+  @Test
+  void readParsesFile() throws IOException {
+    Path file = tempDir.resolve("resume.md");
+    Files.writeString(file, "## Skills\n\n- Java");
+
+    Node document = MarkdownDocument.read(file.toString());
+
+    Assertions.assertEquals(2, ((Heading) document.getFirstChild()).getLevel());
+  }
+
+  @Test
+  void readMissingFileFails() {
+    Assertions.assertThrows(IOException.class,
+        () -> MarkdownDocument.read(tempDir.resolve("missing.md").toString()));
+  }
+}
@@ -1,10 +1,15 @@
 package ca.letkeman.resumes.optimizer;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -124,4 +129,36 @@ class MarkdownToDocxTest {
 
     Assertions.assertFalse(result, "Conversion should fail for non-existent file");
   }
+
+  @Test
+  void testConvertParsedDocument() {
+    MarkdownToDocx converter = new MarkdownToDocx();
+    converter.setDocxFilePath(testDocxFile);
+
+    boolean result = converter.convert(MarkdownDocument.parse("# Title\n\nBody text"));
+
+    Assertions.assertTrue(result, "Conversion should succeed");
+    Assertions.assertTrue(Files.exists(Paths.get(testDocxFile)), "DOCX file should be created");
+  }
+
+  @Test
+  void testWriteParsedDocumentToStream() throws IOException {
+    String markdownContent = "# Title\n\n**Bold text** and plain text\n\n- Point 1\n- Point 2";
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    MarkdownToDocx.write(MarkdownDocument.parse(markdownContent), out);
+
+    try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(out.toByteArray()))) {
+      List<XWPFParagraph> paragraphs = document.getParagraphs();
+      Assertions.assertEquals(4, paragraphs.size());
+      Assertions.assertEquals("Title", paragraphs.get(0).getText());
+      Assertions.assertEquals("Heading1", paragraphs.get(0).getStyle());
+      Assertions.assertEquals("Bold text and plain text", paragraphs.get(1).getText());
+      Assertions.assertTrue(paragraphs.get(1).getRuns().get(0).isBold());
+      Assertions.assertFalse(paragraphs.get(1).getRuns().get(1).isBold());
+      Assertions.assertEquals("Point 1", paragraphs.get(2).getText());
+      Assertions.assertNotNull(paragraphs.get(2).getNumID());
+      Assertions.assertEquals("Point 2", paragraphs.get(3).getText());
+    }
+  }
 }
@@ -0,0 +1,74 @@
+package ca.letkeman.resumes.optimizer;
+
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.parser.PdfTextExtractor;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class PdfRendererPoolTest {
+
+  private static final String XHTML = "<html><body><h1>Resume</h1><p>Hello</p></body></html>";
+
+  private static String render(PdfRendererPool pool, String xhtml) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    pool.render(xhtml, out);
+    return new String(out.toByteArray(), 0, 5, StandardCharsets.ISO_8859_1);
+  }
+
+  @Test
+  void reusesRendererBetweenDocuments() {
+    PdfRendererPool pool = new PdfRendererPool(2);
+
+    Assertions.assertEquals("%PDF-", render(pool, XHTML));
+    Assertions.assertEquals("%PDF-", render(pool, XHTML));
+
+    Map<String, Object> metrics = pool.getMetrics();
+    Assertions.assertEquals(1L, metrics.get("created"));
+    Assertions.assertEquals(1L, metrics.get("reused"));
+    Assertions.assertEquals(1, metrics.get("idle"));
+  }
+
+  @Test
+  void reusedRendererOnlyShowsLatestDocument() throws Exception {
+    PdfRendererPool pool = new PdfRendererPool(1);
+    render(pool, XHTML);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    pool.render("<html><body><p>Second document</p></body></html>", out);
+
+    PdfReader reader = new PdfReader(out.toByteArray());
+    String text = new PdfTextExtractor(reader).getTextFromPage(1);
+    Assertions.assertEquals(1, reader.getNumberOfPages());
+    Assertions.assertTrue(text.contains("Second"));
+    Assertions.assertFalse(text.contains("Resume"));
+  }
+
+  @Test
+  void warmFillsPool() {
+    PdfRendererPool pool = new PdfRendererPool(3);
+
+    Assertions.assertEquals(2, pool.warm(2));
+    Assertions.assertEquals(3, pool.warm(5));
+    Assertions.assertEquals(3L, pool.getMetrics().get("created"));
+  }
+
+  @Test
+  void discardsRendererAfterFailedDocument() {
+    PdfRendererPool pool = new PdfRendererPool(2);
+
+    Assertions.assertThrows(RuntimeException.class, () -> render(pool, "<html><body><p>unclosed"));
+
+    Map<String, Object> metrics = pool.getMetrics();
+    Assertions.assertEquals(0, metrics.get("idle"));
+    Assertions.assertEquals(1L, metrics.get("discarded"));
+    Assertions.assertEquals("%PDF-", render(pool, XHTML));
+  }
+
+  @Test
+  void sizeIsAtLeastOne() {
+    Assertions.assertEquals(1, new PdfRendererPool(0).getSize());
+  }
+}
@@ -0,0 +1,64 @@
+package ca.letkeman.resumes.optimizer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class PromptLayoutTest {
+
+  private static Map<String, String> values(String company) {
+    Map<String, String> values = new LinkedHashMap<>();
+    values.put(PromptLayout.RESUME, "Jane Doe, Java developer");
+    values.put(PromptLayout.JOB_DESCRIPTION, "Build services");
+    values.put(PromptLayout.JOB_TITLE, "Engineer");
+    values.put(PromptLayout.TODAY, "May 01, 2025");
+    values.put(PromptLayout.COMPANY, company);
+    values.put(PromptLayout.INTERVIEWER_NAME, "");
+    return values;
+  }
+
+  @Test
+  void testParsesConfiguredNames() {
+    Assertions.assertEquals(PromptLayout.SHARED_PREFIX, PromptLayout.of("shared-prefix"));
+    Assertions.assertEquals(PromptLayout.SHARED_PREFIX, PromptLayout.of(" SHARED_PREFIX "));
+    Assertions.assertEquals(PromptLayout.INLINE, PromptLayout.of("inline"));
+    Assertions.assertEquals(PromptLayout.INLINE, PromptLayout.of(""));
+    Assertions.assertEquals(PromptLayout.INLINE, PromptLayout.of(null));
+    Assertions.assertEquals(PromptLayout.INLINE, PromptLayout.of("unknown"));
+  }
+
+  @Test
+  void testInlineFillsPlaceholdersInPlace() {
+    String prompt = PromptLayout.INLINE.render(
+        "Rewrite {resume_string} for {job_title} at {company} ({job_description}) on {today}", values("Acme"));
+
+    Assertions.assertEquals(
+        "Rewrite Jane Doe, Java developer for Engineer at Acme (Build services) on May 01, 2025", prompt);
+  }
+
+  @Test
+  void testSharedPrefixLeadsWithTheInputs() {
+    String prompt = PromptLayout.SHARED_PREFIX.render(
+        "Rewrite the resume.\n**Resume:** {resume_string}\n**Job:** {job_description} at {company}", values("Acme"));
+
+    Assertions.assertTrue(prompt.startsWith("# Candidate Resume\n\nJane Doe, Java developer"));
+    Assertions.assertTrue(prompt.contains("**Job Description:** Build services"));
+    Assertions.assertTrue(prompt.endsWith(
+        "Rewrite the resume.\n**Resume:** (the candidate resume above)\n**Job:** (the job description above) at Acme"));
+    Assertions.assertEquals(1, prompt.split("Jane Doe", -1).length - 1);
+  }
+
+  @Test
+  void testSharedPrefixIsIdenticalAcrossTemplates() {
+    String resume = PromptLayout.SHARED_PREFIX.render("Optimize {resume_string}", values("Acme"));
+    String cover = PromptLayout.SHARED_PREFIX.render("Write a cover letter for {company}", values("Acme"));
+
+    int shared = 0;
+    while (resume.charAt(shared) == cover.charAt(shared)) {
+      shared++;
+    }
+    Assertions.assertTrue(resume.substring(0, shared).endsWith("---\n\n"));
+    Assertions.assertTrue(resume.substring(0, shared).contains("Build services"));
+  }
+}
@@ -0,0 +1,55 @@
+package ca.letkeman.resumes.optimizer;
+
+import ca.letkeman.resumes.optimizer.responses.LLMResponse;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class StreamAccumulatorTest {
+
+    @Test
+    void testAccumulatesDeltasUntilDone() {
+        List<String> tokens = new ArrayList<>();
+        StreamAccumulator accumulator = new StreamAccumulator(tokens::add);
+
+        Assertions.assertTrue(accumulator.accept("data: {\"id\":\"c1\",\"model\":\"llama\",\"created\":42,"
+            + "\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":\"# Jane\"}}]}"));
+        Assertions.assertTrue(accumulator.accept(""));
+        Assertions.assertTrue(accumulator.accept("data: {\"id\":\"c1\",\"choices\":[{\"index\":0,"
+            + "\"delta\":{\"content\":\" Doe\"},\"finish_reason\":\"stop\"}]}"));
+        Assertions.assertFalse(accumulator.accept("data: [DONE]"));
+
+        LLMResponse response = accumulator.toResponse();
+        Assertions.assertTrue(accumulator.isDone());
+        Assertions.assertEquals(List.of("# Jane", " Doe"), tokens);
+        Assertions.assertEquals("# Jane Doe", response.getChoices().get(0).getMessage().getContent());
+        Assertions.assertEquals("stop", response.getChoices().get(0).getFinishReason());
+        Assertions.assertEquals("llama", response.getModel());
+        Assertions.assertEquals(42L, response.getCreated());
+        Assertions.assertTrue(accumulator.getTimeToFirstTokenMs() >= 0);
+    }
+
+    @Test
+    void testIgnoresCommentsEventFieldsAndMalformedChunks() {
+        StreamAccumulator accumulator = new StreamAccumulator(null);
+
+        Assertions.assertTrue(accumulator.accept(": keep-alive"));
+        Assertions.assertTrue(accumulator.accept("event: message"));
+        Assertions.assertTrue(accumulator.accept("data: {not json"));
+        Assertions.assertTrue(accumulator.accept("data: {\"choices\":[]}"));
+        Assertions.assertTrue(accumulator.accept("data: {\"choices\":[{\"delta\":{\"content\":\"ok\"}}]}"));
+
+        Assertions.assertFalse(accumulator.isDone());
+        Assertions.assertEquals("ok", accumulator.getContent());
+    }
+
+    @Test
+    void testNoChunksGivesNullResponse() {
+        StreamAccumulator accumulator = new StreamAccumulator(token -> { });
+
+        Assertions.assertFalse(accumulator.accept("data: [DONE]"));
+        Assertions.assertNull(accumulator.toResponse());
+        Assertions.assertEquals(-1, accumulator.getTimeToFirstTokenMs());
+    }
+}
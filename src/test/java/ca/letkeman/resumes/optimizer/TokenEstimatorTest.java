@@ -0,0 +1,64 @@
+package ca.letkeman.resumes.optimizer;
+
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TokenEstimatorTest {
+
+  private static ChatBody chatBody(String content) {
+    ChatBody chatBody = new ChatBody();
+    chatBody.setMessages(List.of(new Message("user", content)));
+    return chatBody;
+  }
+
+  @Test
+  void testEstimateText() {
+    Assertions.assertEquals(0, TokenEstimator.estimate(null));
+    Assertions.assertEquals(0, TokenEstimator.estimate(""));
+    Assertions.assertEquals(1, TokenEstimator.estimate("Hi"));
+    Assertions.assertEquals(25, TokenEstimator.estimate("x".repeat(100)));
+  }
+
+  @Test
+  void testEstimatePromptIncludesMessageFraming() {
+    int expected = TokenEstimator.REPLY_PRIMING_TOKENS + TokenEstimator.TOKENS_PER_MESSAGE
+        + TokenEstimator.estimate("user") + 100;
+
+    Assertions.assertEquals(expected, TokenEstimator.estimatePrompt(chatBody("x".repeat(400))));
+  }
+
+  @Test
+  void testEstimatePromptWithoutMessages() {
+    Assertions.assertEquals(0, TokenEstimator.estimatePrompt(null));
+    Assertions.assertEquals(0, TokenEstimator.estimatePrompt(new ChatBody()));
+  }
+
+  @Test
+  void testEstimateTotalCapsCompletionAtMaxTokens() {
+    ChatBody chatBody = chatBody("x".repeat(400));
+    int prompt = TokenEstimator.estimatePrompt(chatBody);
+
+    Assertions.assertEquals(prompt + 1024, TokenEstimator.estimateTotal(chatBody, 1024));
+    chatBody.setMaxTokens(200);
+    Assertions.assertEquals(prompt + 200, TokenEstimator.estimateTotal(chatBody, 1024));
+  }
+
+  @Test
+  void testEstimateTotalExpectsLessThanMaxTokens() {
+    ChatBody chatBody = chatBody("x".repeat(400));
+    chatBody.setMaxTokens(6000);
+    int prompt = TokenEstimator.estimatePrompt(chatBody);
+
+    Assertions.assertEquals(prompt + 1024, TokenEstimator.estimateTotal(chatBody, 1024));
+    Assertions.assertEquals(prompt + 6000, TokenEstimator.estimateTotal(chatBody, 0));
+  }
+
+  @Test
+  void testEstimatePromptWithTokenizer() {
+    Tokenizer perCharacter = text -> text == null ? 0 : text.length();
+
+    Assertions.assertEquals(TokenEstimator.REPLY_PRIMING_TOKENS + TokenEstimator.TOKENS_PER_MESSAGE + 4 + 10,
+        TokenEstimator.estimatePrompt(chatBody("x".repeat(10)), perCharacter));
+  }
+}
@@ -94,4 +94,16 @@ class ChoiceTest {
     choice3.setFinishReason("content_filter");
     Assertions.assertEquals("content_filter", choice3.getFinishReason());
   }
+
+  @Test
+  void testDeltaIsDefensivelyCopied() {
+    Choice choice = new Choice();
+    Message delta = new Message("assistant", "partial");
+    choice.setDelta(delta);
+    delta.setContent("changed");
+
+    Assertions.assertEquals("partial", choice.getDelta().getContent());
+    Assertions.assertNull(choice.getMessage());
+    Assertions.assertNotEquals(new Choice(), choice);
+  }
 }
@@ -0,0 +1,173 @@
+package ca.letkeman.resumes.service;
+
+import ca.letkeman.resumes.optimizer.DocumentFormat;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+class BatchConversionServiceTest {
+
+    private final BatchConversionService service = new BatchConversionService(2, 10, 1);
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void testConvertsInOrderWithReport() throws IOException {
+        List<BatchConversionService.Source> sources = service.read(List.of(
+            markdown("first.md", "# First"),
+            markdown("second.md", "# Second\n\n- one\n- two"),
+            markdown("third.md", "Third")));
+
+        Map<String, byte[]> zip = convert(sources, EnumSet.of(DocumentFormat.PDF));
+
+        Assertions.assertEquals(List.of("first.pdf", "second.pdf", "third.pdf", BatchConversionService.REPORT_NAME),
+            List.copyOf(zip.keySet()));
+        Assertions.assertEquals("%PDF", new String(zip.get("second.pdf"), 0, 4, StandardCharsets.US_ASCII));
+        String report = new String(zip.get(BatchConversionService.REPORT_NAME), StandardCharsets.UTF_8);
+        Assertions.assertTrue(report.contains("\"converted\": 3"));
+        Assertions.assertTrue(report.contains("\"output\": \"third.pdf\""));
+    }
+
+    @Test
+    void testBothFormats() throws IOException {
+        List<BatchConversionService.Source> sources = service.read(List.of(markdown("resume.md", "# Resume")));
+
+        Map<String, byte[]> zip = convert(sources, EnumSet.allOf(DocumentFormat.class));
+
+        Assertions.assertEquals("%PDF", new String(zip.get("resume.pdf"), 0, 4, StandardCharsets.US_ASCII));
+        Assertions.assertEquals("PK", new String(zip.get("resume.docx"), 0, 2, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void testSameNamesAreNumbered() throws IOException {
+        List<BatchConversionService.Source> sources = service.read(List.of(
+            markdown("resume.md", "# One"),
+            markdown("other/resume.md", "# Two")));
+
+        Map<String, byte[]> zip = convert(sources, EnumSet.of(DocumentFormat.PDF));
+
+        Assertions.assertTrue(zip.containsKey("resume.pdf"));
+        Assertions.assertTrue(zip.containsKey("resume-2.pdf"));
+    }
+
+    @Test
+    void testReadsZipAndReportsSkippedFiles() throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("resumes/", "");
+        entries.put("resumes/jane.md", "# Jane");
+        entries.put("resumes/photo.png", "not markdown");
+        entries.put("__MACOSX/resumes/._jane.md", "metadata");
+        entries.put("resumes/empty.md", "");
+        MockMultipartFile upload = new MockMultipartFile("files", "batch.zip", "application/zip", zip(entries));
+
+        List<BatchConversionService.Source> sources = service.read(List.of(upload, markdown("john.md", "# John")));
+
+        List<String> names = sources.stream().map(BatchConversionService.Source::name).toList();
+        Assertions.assertEquals(List.of("batch.zip/resumes/jane.md", "batch.zip/resumes/photo.png",
+            "batch.zip/resumes/empty.md", "john.md"), names);
+        Map<String, byte[]> zip = convert(sources, EnumSet.of(DocumentFormat.PDF));
+        Assertions.assertEquals(Set.of("jane.pdf", "john.pdf", BatchConversionService.REPORT_NAME), zip.keySet());
+        String report = new String(zip.get(BatchConversionService.REPORT_NAME), StandardCharsets.UTF_8);
+        Assertions.assertTrue(report.contains("\"skipped\": 2"));
+        Assertions.assertTrue(report.contains("not a markdown file"));
+        Assertions.assertTrue(report.contains("empty file"));
+        Assertions.assertEquals(2L, service.getMetrics().get("skipped"));
+    }
+
+    @Test
+    void testUnrenderableFileFailsAloneWithoutStoppingBatch() throws IOException {
+        // Nested deeply enough to overflow the stack of a render worker
+        String nested = "> ".repeat(50_000) + "too deep";
+        List<BatchConversionService.Source> sources = service.read(List.of(
+            markdown("first.md", "# First"), markdown("nested.md", nested), markdown("last.md", "# Last")));
+
+        Map<String, byte[]> zip = convert(sources, EnumSet.of(DocumentFormat.PDF));
+
+        Assertions.assertEquals(Set.of("first.pdf", "last.pdf", BatchConversionService.REPORT_NAME), zip.keySet());
+        String report = new String(zip.get(BatchConversionService.REPORT_NAME), StandardCharsets.UTF_8);
+        Assertions.assertTrue(report.contains("\"failed\": 1"));
+        Assertions.assertTrue(report.contains("\"source\": \"nested.md\""));
+    }
+
+    @Test
+    void testTooManyFiles() {
+        BatchConversionService small = new BatchConversionService(1, 2, 1);
+        try {
+            IllegalArgumentException e = Assertions.assertThrows(IllegalArgumentException.class, () -> small.read(
+                List.of(markdown("a.md", "a"), markdown("b.md", "b"), markdown("c.md", "c"))));
+            Assertions.assertEquals("batch has more than 2 files", e.getMessage());
+        } finally {
+            small.shutdown();
+        }
+    }
+
+    @Test
+    void testTooMuchMarkdown() throws IOException {
+        byte[] large = new byte[1024 * 1024 + 1];
+        MockMultipartFile upload = new MockMultipartFile("files", "batch.zip", "application/zip",
+            zip(Map.of("large.md", new String(large, StandardCharsets.US_ASCII))));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> service.read(List.of(upload)));
+    }
+
+    @Test
+    void testClientGoneStopsBatch() throws IOException {
+        List<BatchConversionService.Source> sources = service.read(List.of(
+            markdown("first.md", "# First"), markdown("second.md", "# Second")));
+        OutputStream closed = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        Assertions.assertThrows(IOException.class,
+            () -> service.convert(sources, EnumSet.of(DocumentFormat.PDF), closed));
+    }
+
+    private static MockMultipartFile markdown(String name, String content) {
+        return new MockMultipartFile("files", name, "text/markdown", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] zip(Map<String, String> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private Map<String, byte[]> convert(List<BatchConversionService.Source> sources, Set<DocumentFormat> formats)
+        throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.convert(sources, formats, out);
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.put(entry.getName(), zip.readAllBytes());
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,90 @@
+package ca.letkeman.resumes.service;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class GenerationExecutorTest {
+
+    private GenerationExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testSubmittedTaskRuns() throws InterruptedException {
+        executor = new GenerationExecutor(1, 1, 30);
+        CountDownLatch done = new CountDownLatch(1);
+
+        executor.submit(done::countDown);
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS), "Task should run on a worker");
+    }
+
+    @Test
+    void testVirtualThreadMode() throws InterruptedException {
+        executor = new GenerationExecutor(1, 1, 30, true, 8);
+        CountDownLatch done = new CountDownLatch(1);
+        boolean[] virtual = new boolean[1];
+
+        executor.submit(() -> {
+            virtual[0] = Thread.currentThread().isVirtual();
+            done.countDown();
+        });
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS), "Task should run on a worker");
+        Assertions.assertTrue(virtual[0], "Worker should be a virtual thread");
+        Assertions.assertEquals(8, executor.getMetrics().get("max_workers"));
+        Assertions.assertEquals(true, executor.getMetrics().get("virtual_threads"));
+    }
+
+    @Test
+    void testRejectsWhenQueueIsFull() throws InterruptedException {
+        executor = new GenerationExecutor(1, 1, 15);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        executor.submit(() -> {
+            started.countDown();
+            awaitQuietly(release);
+        });
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        // fills the single queue slot
+        executor.submit(() -> awaitQuietly(release));
+
+        Assertions.assertThrows(RejectedExecutionException.class, () -> executor.submit(() -> { }));
+
+        Map<String, Object> metrics = executor.getMetrics();
+        Assertions.assertEquals(1, metrics.get("active_workers"));
+        Assertions.assertEquals(1, metrics.get("queue_depth"));
+        Assertions.assertEquals(1L, metrics.get("rejected_tasks"));
+        Assertions.assertEquals(15L, executor.getRetryAfterSeconds());
+        release.countDown();
+    }
+
+    @Test
+    void testInvalidSizesAreClamped() {
+        executor = new GenerationExecutor(0, 0, 0);
+
+        Map<String, Object> metrics = executor.getMetrics();
+        Assertions.assertEquals(1, metrics.get("max_workers"));
+        Assertions.assertEquals(1, metrics.get("queue_capacity"));
+        Assertions.assertEquals(1L, executor.getRetryAfterSeconds());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package ca.letkeman.resumes.service;
+
+import ca.letkeman.resumes.model.GenerationJob;
+import ca.letkeman.resumes.model.JobEvent;
+import ca.letkeman.resumes.model.Optimize;
+import ca.letkeman.resumes.optimizer.GenerationListener;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+class JobEventPublisherTest {
+
+    private JobEventPublisher publisher;
+    private JobRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        publisher = new JobEventPublisher(60_000, 256);
+        registry = new JobRegistry(60, 100);
+    }
+
+    @Test
+    void testSubscribeToRunningJobStaysOpenUntilFinished() {
+        GenerationJob job = registry.create(createOptimize("resume"));
+        GenerationListener listener = GenerationListener.of(registry.listenerFor(job), publisher.listenerFor(job));
+
+        SseEmitter emitter = publisher.subscribe(job);
+        Assertions.assertNotNull(emitter);
+        Assertions.assertEquals(1, publisher.getSubscriberCount());
+
+        listener.onJobStarted();
+        listener.onPromptStarted("resume");
+        listener.onFileWritten("resume", "resume-Acme-Dev.pdf");
+        listener.onPromptCompleted("resume");
+        Assertions.assertEquals(1, publisher.getSubscriberCount());
+
+        listener.onJobFinished();
+        Assertions.assertEquals(0, publisher.getSubscriberCount(), "Job stream should close when the job finishes");
+    }
+
+    @Test
+    void testSubscribersOfFinishedJobsLeaveNoEntry() {
+        GenerationJob job = registry.create(createOptimize("resume"));
+        GenerationListener listener = publisher.listenerFor(job);
+        publisher.subscribe(job);
+        Assertions.assertEquals(1, publisher.getFollowedJobCount());
+
+        job.markRunning();
+        job.markFinished();
+        listener.onJobFinished();
+        for (int i = 0; i < 3; i++) {
+            publisher.subscribe(job);
+        }
+
+        Assertions.assertEquals(0, publisher.getFollowedJobCount());
+    }
+
+    @Test
+    void testSubscribeToFinishedJobCompletesImmediately() {
+        GenerationJob job = registry.create(createOptimize("resume"));
+        job.markRunning();
+        job.markFinished();
+
+        publisher.subscribe(job);
+
+        Assertions.assertEquals(0, publisher.getSubscriberCount());
+        Assertions.assertEquals(0, publisher.getFollowedJobCount());
+    }
+
+    @Test
+    void testSubscribeAllOutlivesIndividualJobs() {
+        publisher.subscribeAll();
+        GenerationJob job = registry.create(createOptimize("resume"));
+        GenerationListener listener = publisher.listenerFor(job);
+
+        listener.onJobStarted();
+        listener.onJobFinished();
+
+        Assertions.assertEquals(1, publisher.getSubscriberCount());
+    }
+
+    @Test
+    void testCompositeListenerForwardsInOrder() {
+        List<String> calls = new ArrayList<>();
+        GenerationListener first = new GenerationListener() {
+            @Override
+            public void onPromptFailed(String promptType, String reason) {
+                calls.add("first:" + promptType + ":" + reason);
+            }
+        };
+        GenerationListener second = new GenerationListener() {
+            @Override
+            public void onPromptFailed(String promptType, String reason) {
+                calls.add("second:" + promptType + ":" + reason);
+            }
+        };
+
+        GenerationListener.of(first, second).onPromptFailed("cover", "timeout");
+
+        Assertions.assertEquals(List.of("first:cover:timeout", "second:cover:timeout"), calls);
+    }
+
+    @Test
+    void testTokensCoalesceWhileClientIsSlow() throws Exception {
+        StalledEmitter emitter = new StalledEmitter();
+        JobEventPublisher slow = publisherWith(emitter, 2);
+        try {
+            GenerationJob job = registry.create(createOptimize("resume"));
+            GenerationListener listener = slow.listenerFor(job);
+            slow.subscribe(job);
+            Assertions.assertTrue(emitter.sending.await(5, TimeUnit.SECONDS), "snapshot should be sending");
+
+            listener.onToken("resume", "a");
+            listener.onToken("resume", "b");
+            listener.onToken("resume", "c");
+            listener.onToken("resume", "d");
+            emitter.release.countDown();
+
+            Assertions.assertEquals("snapshot", emitter.sent.poll(5, TimeUnit.SECONDS));
+            Assertions.assertEquals("token:a", emitter.sent.poll(5, TimeUnit.SECONDS));
+            Assertions.assertEquals("token:bcd", emitter.sent.poll(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(0, slow.getDroppedTokens());
+        } finally {
+            emitter.release.countDown();
+            slow.shutdown();
+        }
+    }
+
+    @Test
+    void testStalledClientIsDroppedWithoutBlockingPublisher() throws Exception {
+        StalledEmitter emitter = new StalledEmitter();
+        JobEventPublisher slow = publisherWith(emitter, 1);
+        try {
+            GenerationJob job = registry.create(createOptimize("resume"));
+            GenerationListener listener = slow.listenerFor(job);
+            slow.subscribe(job);
+            Assertions.assertTrue(emitter.sending.await(5, TimeUnit.SECONDS), "snapshot should be sending");
+
+            listener.onPromptStarted("resume");
+            listener.onToken("resume", "lost");
+            Assertions.assertEquals(1, slow.getDroppedTokens());
+            Assertions.assertEquals(1, slow.getSubscriberCount());
+
+            listener.onPromptCompleted("resume");
+            Assertions.assertEquals(0, slow.getSubscriberCount(), "Stream missing an event should be closed");
+        } finally {
+            emitter.release.countDown();
+            slow.shutdown();
+        }
+    }
+
+    private static JobEventPublisher publisherWith(SseEmitter emitter, int queueCapacity) {
+        return new JobEventPublisher(60_000, queueCapacity) {
+            @Override
+            SseEmitter createEmitter() {
+                return emitter;
+            }
+        };
+    }
+
+    /**
+     * Emitter whose first send blocks until released, like a client that stopped reading.
+     */
+    private static final class StalledEmitter extends SseEmitter {
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final BlockingQueue<String> sent = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            for (DataWithMediaType data : builder.build()) {
+                if (data.getData() instanceof JobEvent event) {
+                    sent.add(event.type() + ":" + event.detail());
+                } else if (data.getData() instanceof GenerationJob) {
+                    sent.add("snapshot");
+                }
+            }
+        }
+    }
+
+    private Optimize createOptimize(String... promptTypes) {
+        Optimize optimize = new Optimize();
+        optimize.setPromptType(promptTypes);
+        optimize.setCompany("Acme");
+        optimize.setJobTitle("Dev");
+        return optimize;
+    }
+}
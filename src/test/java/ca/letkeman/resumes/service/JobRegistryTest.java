@@ -0,0 +1,140 @@
+package ca.letkeman.resumes.service;
+
+import ca.letkeman.resumes.model.GenerationJob;
+import ca.letkeman.resumes.model.Optimize;
+import ca.letkeman.resumes.model.PromptProgress;
+import ca.letkeman.resumes.optimizer.GenerationListener;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class JobRegistryTest {
+
+    private JobRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new JobRegistry(60, 3);
+    }
+
+    @Test
+    void testCreateRegistersQueuedJob() {
+        GenerationJob job = registry.create(createOptimize("resume", "cover"));
+
+        Assertions.assertNotNull(job.getId());
+        Assertions.assertEquals(GenerationJob.State.QUEUED, job.getState());
+        Assertions.assertEquals(2, job.getProgress().size());
+        Assertions.assertTrue(registry.find(job.getId()).isPresent());
+    }
+
+    @Test
+    void testListenerRecordsSuccessfulProgress() {
+        GenerationJob job = registry.create(createOptimize("resume"));
+        GenerationListener listener = registry.listenerFor(job);
+
+        listener.onJobStarted();
+        Assertions.assertEquals(GenerationJob.State.RUNNING, job.getState());
+        listener.onPromptStarted("resume");
+        Assertions.assertEquals(PromptProgress.Stage.CALLING_LLM, job.getProgress().get("resume").getStage());
+        listener.onLlmResponseReceived("resume", 1200);
+        listener.onFileWritten("resume", "resume-Acme-Dev.md");
+        listener.onFileWritten("resume", "resume-Acme-Dev.pdf");
+        listener.onPromptCompleted("resume");
+        listener.onJobFinished();
+
+        PromptProgress progress = job.getProgress().get("resume");
+        Assertions.assertEquals(GenerationJob.State.COMPLETED, job.getState());
+        Assertions.assertEquals(PromptProgress.Stage.COMPLETED, progress.getStage());
+        Assertions.assertEquals(1200L, progress.getLlmResponseTimeMs());
+        Assertions.assertEquals(2, job.getOutputFiles().size());
+        Assertions.assertNotNull(job.getDurationMs());
+        Assertions.assertTrue(job.isFinished());
+    }
+
+    @Test
+    void testFailedPromptFailsJob() {
+        GenerationJob job = registry.create(createOptimize("resume", "cover"));
+        GenerationListener listener = registry.listenerFor(job);
+
+        listener.onJobStarted();
+        listener.onPromptStarted("resume");
+        listener.onPromptCompleted("resume");
+        listener.onPromptStarted("cover");
+        listener.onPromptFailed("cover", "invalid LLM response");
+        listener.onJobFinished();
+
+        Assertions.assertEquals(GenerationJob.State.FAILED, job.getState());
+        Assertions.assertEquals("invalid LLM response", job.getProgress().get("cover").getError());
+    }
+
+    @Test
+    void testRemoveAndUnknownIds() {
+        GenerationJob job = registry.create(createOptimize("resume"));
+        registry.remove(job.getId());
+
+        Assertions.assertTrue(registry.find(job.getId()).isEmpty());
+        Assertions.assertTrue(registry.find(null).isEmpty());
+        Assertions.assertTrue(registry.find("missing").isEmpty());
+    }
+
+    @Test
+    void testOldestFinishedJobsEvictedWhenFull() {
+        GenerationJob first = registry.create(createOptimize("resume"));
+        first.markRunning();
+        first.markFinished();
+        GenerationJob running = registry.create(createOptimize("resume"));
+        running.markRunning();
+        registry.create(createOptimize("resume"));
+        registry.create(createOptimize("resume"));
+
+        Assertions.assertTrue(registry.find(first.getId()).isEmpty(), "Oldest finished job should be evicted");
+        Assertions.assertTrue(registry.find(running.getId()).isPresent(), "Running jobs are never evicted");
+        Assertions.assertEquals(3, registry.list().size());
+    }
+
+    @Test
+    void testIdenticalSubmissionAttachesToRunningJob() {
+        JobRegistry.Submission first = registry.submit(createOptimize("resume"));
+        JobRegistry.Submission second = registry.submit(createOptimize("resume"));
+        JobRegistry.Submission different = registry.submit(createOptimize("cover"));
+
+        Assertions.assertFalse(first.attached());
+        Assertions.assertTrue(second.attached());
+        Assertions.assertSame(first.job(), second.job());
+        Assertions.assertFalse(different.attached());
+        Assertions.assertEquals(2, registry.list().size());
+    }
+
+    @Test
+    void testFinishedJobIsNotReused() {
+        GenerationJob first = registry.submit(createOptimize("resume")).job();
+        GenerationListener listener = registry.listenerFor(first);
+        listener.onJobStarted();
+        listener.onJobFinished();
+
+        JobRegistry.Submission again = registry.submit(createOptimize("resume"));
+
+        Assertions.assertFalse(again.attached());
+        Assertions.assertNotSame(first, again.job());
+    }
+
+    @Test
+    void testBypassCacheAndRemovedJobsAreNotReused() {
+        GenerationJob first = registry.submit(createOptimize("resume")).job();
+        Optimize bypass = createOptimize("resume");
+        bypass.setBypassCache(true);
+
+        Assertions.assertFalse(registry.submit(bypass).attached());
+
+        registry.remove(first.getId());
+        Assertions.assertFalse(registry.submit(createOptimize("resume")).attached());
+    }
+
+    private Optimize createOptimize(String... promptTypes) {
+        Optimize optimize = new Optimize();
+        optimize.setPromptType(promptTypes);
+        optimize.setCompany("Acme");
+        optimize.setJobTitle("Dev");
+        return optimize;
+    }
+}
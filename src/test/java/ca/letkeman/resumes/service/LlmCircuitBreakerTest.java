@@ -0,0 +1,86 @@
+package ca.letkeman.resumes.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LlmCircuitBreakerTest {
+
+    private static final String URL = "http://ollama:11434/v1/chat/completions";
+
+    @Test
+    void testOpensAfterConsecutiveFailures() throws Exception {
+        LlmCircuitBreaker breaker = new LlmCircuitBreaker(true, 2, 60);
+
+        fail(breaker);
+        Assertions.assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.getState(URL));
+        fail(breaker);
+
+        Assertions.assertEquals(LlmCircuitBreaker.State.OPEN, breaker.getState(URL));
+        Assertions.assertThrows(LlmCircuitBreaker.CircuitOpenException.class, () -> breaker.acquirePermission(URL));
+    }
+
+    @Test
+    void testSuccessResetsFailureCount() throws Exception {
+        LlmCircuitBreaker breaker = new LlmCircuitBreaker(true, 2, 60);
+
+        fail(breaker);
+        breaker.acquirePermission(URL);
+        breaker.record(URL, LlmEndpointPool.Outcome.SUCCESS);
+        fail(breaker);
+
+        Assertions.assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.getState(URL));
+    }
+
+    @Test
+    void testHalfOpenAllowsSingleProbe() throws Exception {
+        LlmCircuitBreaker breaker = new LlmCircuitBreaker(true, 1, 1);
+        fail(breaker);
+        Thread.sleep(1100);
+
+        breaker.acquirePermission(URL);
+        Assertions.assertEquals(LlmCircuitBreaker.State.HALF_OPEN, breaker.getState(URL));
+        Assertions.assertThrows(LlmCircuitBreaker.CircuitOpenException.class, () -> breaker.acquirePermission(URL),
+            "Only one probe is let through while half-open");
+
+        breaker.record(URL, LlmEndpointPool.Outcome.SUCCESS);
+        Assertions.assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.getState(URL));
+        breaker.acquirePermission(URL);
+    }
+
+    @Test
+    void testFailedProbeReopens() throws Exception {
+        LlmCircuitBreaker breaker = new LlmCircuitBreaker(true, 1, 1);
+        fail(breaker);
+        Thread.sleep(1100);
+
+        fail(breaker);
+
+        Assertions.assertEquals(LlmCircuitBreaker.State.OPEN, breaker.getState(URL));
+    }
+
+    @Test
+    void testCircuitsAreTrackedPerEndpoint() throws Exception {
+        LlmCircuitBreaker breaker = new LlmCircuitBreaker(true, 1, 60);
+        fail(breaker);
+
+        String other = "http://other:11434/v1/chat/completions";
+        breaker.acquirePermission(other);
+        Assertions.assertEquals(LlmCircuitBreaker.State.OPEN, breaker.getState(URL));
+        Assertions.assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.getState(other));
+    }
+
+    @Test
+    void testDisabledNeverRejects() throws Exception {
+        LlmCircuitBreaker breaker = new LlmCircuitBreaker(false, 1, 60);
+        fail(breaker);
+        fail(breaker);
+
+        breaker.acquirePermission(URL);
+        Assertions.assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.getState(URL));
+    }
+
+    private static void fail(LlmCircuitBreaker breaker) throws Exception {
+        breaker.acquirePermission(URL);
+        breaker.record(URL, LlmEndpointPool.Outcome.FAILURE);
+    }
+}
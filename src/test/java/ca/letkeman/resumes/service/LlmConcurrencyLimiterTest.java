@@ -0,0 +1,129 @@
+package ca.letkeman.resumes.service;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LlmConcurrencyLimiterTest {
+
+    private static final String ENDPOINT = "http://ollama:11434/v1/chat/completions";
+
+    private static LlmConcurrencyLimiter limiter(boolean adaptive, String models, int perEndpoint) {
+        return new LlmConcurrencyLimiter(true, adaptive, 2, models, perEndpoint, 2.0, 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> modelMetrics(LlmConcurrencyLimiter limiter, String model) {
+        return (Map<String, Object>) ((Map<String, Object>) limiter.getMetrics().get("models")).get(model);
+    }
+
+    @Test
+    void testParsesModelLimits() {
+        Map<String, Integer> limits =
+            LlmConcurrencyLimiter.parseModelLimits(" gemma3:4b=8, gemma3:27b = 1,broken,,x=y");
+
+        Assertions.assertEquals(Map.of("gemma3:4b", 8, "gemma3:27b", 1), limits);
+    }
+
+    @Test
+    void testModelLimitMakesCallsWait() throws Exception {
+        LlmConcurrencyLimiter limiter = limiter(false, "big=1", 8);
+        LlmConcurrencyLimiter.Permit first = limiter.acquire("big", ENDPOINT);
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = Thread.ofVirtual().start(() -> {
+            try {
+                limiter.acquire("big", ENDPOINT).release(LlmEndpointPool.Outcome.SUCCESS, 10);
+                acquired.countDown();
+            } catch (Exception e) {
+                // fails the await below
+            }
+        });
+
+        Assertions.assertFalse(acquired.await(200, TimeUnit.MILLISECONDS), "Second call should wait for the slot");
+        first.release(LlmEndpointPool.Outcome.SUCCESS, 10);
+        Assertions.assertTrue(acquired.await(2, TimeUnit.SECONDS));
+        waiter.join();
+    }
+
+    @Test
+    void testOtherModelsAreNotBlocked() throws Exception {
+        LlmConcurrencyLimiter limiter = limiter(false, "big=1", 8);
+        limiter.acquire("big", ENDPOINT);
+
+        LlmConcurrencyLimiter.Permit small = limiter.acquire("small", ENDPOINT);
+        Assertions.assertNotNull(small);
+        Assertions.assertEquals(2, modelMetrics(limiter, "small").get("max_limit"));
+    }
+
+    @Test
+    void testAcquireTimesOut() throws Exception {
+        LlmConcurrencyLimiter limiter = limiter(false, "big=1", 8);
+        limiter.acquire("big", ENDPOINT);
+
+        Assertions.assertThrows(LlmConcurrencyLimiter.LimitTimeoutException.class,
+            () -> limiter.acquire("big", ENDPOINT));
+    }
+
+    @Test
+    void testEndpointTimeoutFreesModelSlot() throws Exception {
+        LlmConcurrencyLimiter limiter = limiter(false, "", 1);
+        limiter.acquire("a", ENDPOINT);
+
+        Assertions.assertThrows(LlmConcurrencyLimiter.LimitTimeoutException.class,
+            () -> limiter.acquire("b", ENDPOINT));
+        Assertions.assertEquals(0, modelMetrics(limiter, "b").get("in_flight"));
+    }
+
+    @Test
+    void testFailureHalvesLimit() throws Exception {
+        LlmConcurrencyLimiter limiter = limiter(true, "m=8", 16);
+
+        limiter.acquire("m", ENDPOINT).release(LlmEndpointPool.Outcome.FAILURE, 10);
+
+        Assertions.assertEquals(4, modelMetrics(limiter, "m").get("limit"));
+    }
+
+    @Test
+    void testLimitGrowsBackWhileSaturatedButNotPastCeiling() throws Exception {
+        LlmConcurrencyLimiter limiter = limiter(true, "m=2", 16);
+        limiter.acquire("m", ENDPOINT).release(LlmEndpointPool.Outcome.FAILURE, 100);
+        Assertions.assertEquals(1, modelMetrics(limiter, "m").get("limit"));
+
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire("m", ENDPOINT).release(LlmEndpointPool.Outcome.SUCCESS, 100);
+        }
+
+        Assertions.assertEquals(2, modelMetrics(limiter, "m").get("limit"));
+    }
+
+    @Test
+    void testHighLatencyShrinksLimit() throws Exception {
+        LlmConcurrencyLimiter limiter = limiter(true, "m=8", 16);
+        limiter.acquire("m", ENDPOINT).release(LlmEndpointPool.Outcome.SUCCESS, 1000);
+
+        limiter.acquire("m", ENDPOINT).release(LlmEndpointPool.Outcome.SUCCESS, 5000);
+
+        Assertions.assertEquals(7, modelMetrics(limiter, "m").get("limit"));
+    }
+
+    @Test
+    void testIgnoredOutcomeLeavesLimit() throws Exception {
+        LlmConcurrencyLimiter limiter = limiter(true, "m=8", 16);
+
+        limiter.acquire("m", ENDPOINT).release(LlmEndpointPool.Outcome.IGNORED, 0);
+
+        Assertions.assertEquals(8, modelMetrics(limiter, "m").get("limit"));
+        Assertions.assertEquals(0, modelMetrics(limiter, "m").get("in_flight"));
+    }
+
+    @Test
+    void testDisabledNeverWaits() throws Exception {
+        LlmConcurrencyLimiter limiter = new LlmConcurrencyLimiter(false, true, 1, "", 1, 2.0, 1);
+
+        limiter.acquire("m", ENDPOINT);
+        Assertions.assertNotNull(limiter.acquire("m", ENDPOINT));
+        Assertions.assertEquals(Map.of(), limiter.getMetrics().get("models"));
+    }
+}
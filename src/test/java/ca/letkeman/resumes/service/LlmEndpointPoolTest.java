@@ -0,0 +1,102 @@
+package ca.letkeman.resumes.service;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LlmEndpointPoolTest {
+
+    @Test
+    void testEmptyPoolIsDisabled() {
+        LlmEndpointPool pool = new LlmEndpointPool("", "least-outstanding", 3, 30);
+
+        Assertions.assertFalse(pool.isEnabled());
+        Assertions.assertThrows(IllegalStateException.class, pool::acquire);
+    }
+
+    @Test
+    void testParsesCommaSeparatedEndpoints() {
+        LlmEndpointPool pool = new LlmEndpointPool(" http://a/v1 , http://b/v1,,http://a/v1", "least-outstanding", 3, 30);
+
+        Assertions.assertTrue(pool.isEnabled());
+        Assertions.assertEquals(List.of("http://a/v1", "http://b/v1"),
+            pool.getEndpoints().stream().map(LlmEndpointPool.Endpoint::getUrl).toList());
+    }
+
+    @Test
+    void testRoutesToLeastOutstanding() {
+        LlmEndpointPool pool = new LlmEndpointPool("http://a,http://b", "least-outstanding", 3, 30);
+
+        LlmEndpointPool.Endpoint first = pool.acquire();
+        LlmEndpointPool.Endpoint second = pool.acquire();
+        Assertions.assertNotSame(first, second, "Second call should go to the idle endpoint");
+
+        pool.release(first, LlmEndpointPool.Outcome.SUCCESS, 100);
+        Assertions.assertSame(first, pool.acquire());
+    }
+
+    @Test
+    void testLatencyWeightedPrefersFasterEndpoint() {
+        LlmEndpointPool pool = new LlmEndpointPool("http://slow,http://fast", "latency-weighted", 3, 30);
+        LlmEndpointPool.Endpoint slow = pool.getEndpoints().get(0);
+        LlmEndpointPool.Endpoint fast = pool.getEndpoints().get(1);
+        pool.release(pool.acquire(), LlmEndpointPool.Outcome.SUCCESS, 9000);
+        pool.release(pool.acquire(), LlmEndpointPool.Outcome.SUCCESS, 1000);
+
+        Assertions.assertEquals(9000, slow.getLatencyMs(), 0.01);
+        Assertions.assertSame(fast, pool.acquire());
+        Assertions.assertSame(fast, pool.acquire(), "Fast endpoint stays cheaper with one call outstanding");
+    }
+
+    @Test
+    void testRepeatedFailuresEjectEndpoint() {
+        LlmEndpointPool pool = new LlmEndpointPool("http://a,http://b", "least-outstanding", 2, 30);
+        LlmEndpointPool.Endpoint a = pool.getEndpoints().get(0);
+        LlmEndpointPool.Endpoint b = pool.getEndpoints().get(1);
+
+        for (int i = 0; i < 2; i++) {
+            LlmEndpointPool.Endpoint chosen = pool.acquire();
+            Assertions.assertSame(a, chosen, "Ties go to the first endpoint");
+            pool.release(chosen, LlmEndpointPool.Outcome.FAILURE, 10);
+        }
+
+        for (int i = 0; i < 3; i++) {
+            LlmEndpointPool.Endpoint chosen = pool.acquire();
+            Assertions.assertSame(b, chosen, "Ejected endpoint should not receive traffic");
+            pool.release(chosen, LlmEndpointPool.Outcome.SUCCESS, 10);
+        }
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> endpoints = (List<Map<String, Object>>) pool.getMetrics().get("endpoints");
+        Assertions.assertEquals("EJECTED", endpoints.get(0).get("state"));
+        Assertions.assertEquals("HEALTHY", endpoints.get(1).get("state"));
+    }
+
+    @Test
+    void testAllEjectedStillReturnsAnEndpoint() {
+        LlmEndpointPool pool = new LlmEndpointPool("http://only", "least-outstanding", 1, 30);
+        LlmEndpointPool.Endpoint only = pool.acquire();
+        pool.release(only, LlmEndpointPool.Outcome.FAILURE, 10);
+
+        Assertions.assertSame(only, pool.acquire());
+    }
+
+    @Test
+    void testSuccessReadmitsAfterEjection() {
+        LlmEndpointPool pool = new LlmEndpointPool("http://a", "least-outstanding", 1, 1);
+        LlmEndpointPool.Endpoint a = pool.acquire();
+        pool.release(a, LlmEndpointPool.Outcome.FAILURE, 10);
+        pool.release(pool.acquire(), LlmEndpointPool.Outcome.SUCCESS, 10);
+
+        Assertions.assertEquals(0, ((List<?>) pool.getMetrics().get("endpoints")).stream()
+            .map(m -> ((Map<?, ?>) m).get("consecutive_failures")).filter(v -> !Integer.valueOf(0).equals(v)).count());
+    }
+
+    @Test
+    void testEndpointFailureStatuses() {
+        Assertions.assertTrue(LlmEndpointPool.isEndpointFailure(429));
+        Assertions.assertTrue(LlmEndpointPool.isEndpointFailure(503));
+        Assertions.assertFalse(LlmEndpointPool.isEndpointFailure(200));
+        Assertions.assertFalse(LlmEndpointPool.isEndpointFailure(400));
+    }
+}
@@ -0,0 +1,72 @@
+package ca.letkeman.resumes.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LlmHedgingPolicyTest {
+
+    @Test
+    void testNoHedgingUntilEnoughSamples() {
+        LlmHedgingPolicy policy = new LlmHedgingPolicy(true, 95, 0, 200);
+        for (int i = 0; i < LlmHedgingPolicy.MIN_SAMPLES - 1; i++) {
+            policy.recordLatency(100);
+        }
+
+        Assertions.assertEquals(-1, policy.hedgeDelayMs());
+        policy.recordLatency(100);
+        Assertions.assertEquals(100, policy.hedgeDelayMs());
+    }
+
+    @Test
+    void testDelayIsPercentileOfRecentLatencies() {
+        LlmHedgingPolicy policy = new LlmHedgingPolicy(true, 90, 0, 100);
+        for (int i = 1; i <= 100; i++) {
+            policy.recordLatency(i * 10L);
+        }
+
+        Assertions.assertEquals(900, policy.hedgeDelayMs());
+    }
+
+    @Test
+    void testOldLatenciesLeaveTheWindow() {
+        LlmHedgingPolicy policy = new LlmHedgingPolicy(true, 50, 0, 20);
+        for (int i = 0; i < 20; i++) {
+            policy.recordLatency(10_000);
+        }
+        for (int i = 0; i < 20; i++) {
+            policy.recordLatency(500);
+        }
+
+        Assertions.assertEquals(500, policy.hedgeDelayMs());
+    }
+
+    @Test
+    void testMinimumDelay() {
+        LlmHedgingPolicy policy = new LlmHedgingPolicy(true, 95, 2000, 200);
+        for (int i = 0; i < 50; i++) {
+            policy.recordLatency(100);
+        }
+
+        Assertions.assertEquals(2000, policy.hedgeDelayMs());
+    }
+
+    @Test
+    void testDisabledNeverHedges() {
+        LlmHedgingPolicy policy = new LlmHedgingPolicy(false, 95, 0, 200);
+        for (int i = 0; i < 50; i++) {
+            policy.recordLatency(100);
+        }
+
+        Assertions.assertEquals(-1, policy.hedgeDelayMs());
+    }
+
+    @Test
+    void testHedgeMetrics() {
+        LlmHedgingPolicy policy = new LlmHedgingPolicy(true, 95, 0, 200);
+        policy.recordHedge(true);
+        policy.recordHedge(false);
+
+        Assertions.assertEquals(2L, policy.getMetrics().get("hedged"));
+        Assertions.assertEquals(1L, policy.getMetrics().get("hedge_wins"));
+    }
+}
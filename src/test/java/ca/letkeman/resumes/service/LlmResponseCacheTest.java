@@ -0,0 +1,207 @@
+package ca.letkeman.resumes.service;
+
+import ca.letkeman.resumes.optimizer.ChatBody;
+import ca.letkeman.resumes.optimizer.Message;
+import ca.letkeman.resumes.optimizer.responses.Choice;
+import ca.letkeman.resumes.optimizer.responses.LLMResponse;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LlmResponseCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testKeyDependsOnPromptModelAndTemperature() {
+        String key = LlmResponseCache.key(chatBody("prompt", "model", 0.15));
+
+        Assertions.assertEquals(64, key.length());
+        Assertions.assertEquals(key, LlmResponseCache.key(chatBody("prompt", "model", 0.15)));
+        Assertions.assertNotEquals(key, LlmResponseCache.key(chatBody("other prompt", "model", 0.15)));
+        Assertions.assertNotEquals(key, LlmResponseCache.key(chatBody("prompt", "other", 0.15)));
+        Assertions.assertNotEquals(key, LlmResponseCache.key(chatBody("prompt", "model", 0.7)));
+    }
+
+    @Test
+    void testHitReturnsCopyAndCountsMetrics() {
+        LlmResponseCache cache = new LlmResponseCache(10, 60);
+        String key = LlmResponseCache.key(chatBody("prompt", "model", 0.15));
+
+        Assertions.assertTrue(cache.get(key).isEmpty());
+        cache.put(key, response("# Resume"));
+        LLMResponse first = cache.get(key).orElseThrow();
+        first.setModel("changed");
+        LLMResponse second = cache.get(key).orElseThrow();
+
+        Assertions.assertEquals("# Resume", second.getChoices().get(0).getMessage().getContent());
+        Assertions.assertNotEquals("changed", second.getModel());
+        Map<String, Object> metrics = cache.getMetrics();
+        Assertions.assertEquals(2L, metrics.get("hits"));
+        Assertions.assertEquals(1L, metrics.get("misses"));
+        Assertions.assertEquals(1, metrics.get("size"));
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvicted() {
+        LlmResponseCache cache = new LlmResponseCache(2, 60);
+        cache.put("a", response("a"));
+        cache.put("b", response("b"));
+        cache.get("a");
+        cache.put("c", response("c"));
+
+        Assertions.assertTrue(cache.get("a").isPresent());
+        Assertions.assertTrue(cache.get("b").isEmpty(), "Least recently used entry should be evicted");
+        Assertions.assertTrue(cache.get("c").isPresent());
+        Assertions.assertEquals(1L, cache.getMetrics().get("evictions"));
+    }
+
+    @Test
+    void testDiskTierSurvivesNewInstance() {
+        LlmResponseCache cache = new LlmResponseCache(true, 10, 60, tempDir.toString());
+        cache.put("key", response("from disk"));
+
+        LlmResponseCache restarted = new LlmResponseCache(true, 10, 60, tempDir.toString());
+        LLMResponse response = restarted.get("key").orElseThrow();
+
+        Assertions.assertEquals("from disk", response.getChoices().get(0).getMessage().getContent());
+        Assertions.assertEquals(1L, restarted.getMetrics().get("disk_hits"));
+        Assertions.assertEquals(1, restarted.getMetrics().get("size"), "Disk hit should be promoted to memory");
+
+        restarted.clear();
+        Assertions.assertTrue(new LlmResponseCache(true, 10, 60, tempDir.toString()).get("key").isEmpty());
+    }
+
+    @Test
+    void testDiskTierKeepsNewestEntriesUpToCap() throws IOException {
+        LlmResponseCache cache = new LlmResponseCache(true, 10, 60, tempDir.toString(), 2);
+        cache.put("a", response("a"));
+        age(tempDir.resolve("a.json"), Duration.ofMinutes(3));
+        cache.put("b", response("b"));
+        age(tempDir.resolve("b.json"), Duration.ofMinutes(2));
+        cache.put("c", response("c"));
+
+        Assertions.assertFalse(Files.exists(tempDir.resolve("a.json")), "Oldest file should be removed");
+        Assertions.assertTrue(Files.exists(tempDir.resolve("b.json")));
+        Assertions.assertTrue(Files.exists(tempDir.resolve("c.json")));
+        Assertions.assertEquals(1L, cache.getMetrics().get("disk_evictions"));
+    }
+
+    @Test
+    void testStartupSweepDeletesExpiredEntriesAndAbandonedTempFiles() throws IOException {
+        Path expired = Files.writeString(tempDir.resolve("expired.json"), "{}");
+        age(expired, Duration.ofMinutes(90));
+        Path abandoned = Files.writeString(tempDir.resolve("abandoned123.tmp"), "{");
+        age(abandoned, Duration.ofMinutes(5));
+        Path writing = Files.writeString(tempDir.resolve("writing456.tmp"), "{");
+        Path fresh = Files.writeString(tempDir.resolve("fresh.json"), "{}");
+
+        new LlmResponseCache(true, 10, 60, tempDir.toString());
+
+        Assertions.assertFalse(Files.exists(expired));
+        Assertions.assertFalse(Files.exists(abandoned));
+        Assertions.assertTrue(Files.exists(writing), "A temp file still being written should be kept");
+        Assertions.assertTrue(Files.exists(fresh));
+    }
+
+    @Test
+    void testDisabledCacheNeverStores() {
+        LlmResponseCache cache = new LlmResponseCache(false, 10, 60, "");
+        cache.put("key", response("ignored"));
+
+        Assertions.assertFalse(cache.isEnabled());
+        Assertions.assertTrue(cache.get("key").isEmpty());
+    }
+
+    @Test
+    void testConcurrentLoadsOfSameKeyCallLoaderOnce() throws Exception {
+        LlmResponseCache cache = new LlmResponseCache(10, 60);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<LlmResponseCache.Lookup> leader = pool.submit(() -> cache.getOrLoad("key", () -> {
+                loads.incrementAndGet();
+                loaderStarted.countDown();
+                awaitQuietly(release);
+                return response("shared");
+            }));
+            Assertions.assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+            Future<LlmResponseCache.Lookup> follower = pool.submit(() -> cache.getOrLoad("key", () -> {
+                loads.incrementAndGet();
+                return response("duplicate");
+            }));
+            while (((Number) cache.getMetrics().get("coalesced")).longValue() == 0) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            Assertions.assertTrue(leader.get(5, TimeUnit.SECONDS).loaded());
+            LlmResponseCache.Lookup joined = follower.get(5, TimeUnit.SECONDS);
+            Assertions.assertFalse(joined.loaded());
+            Assertions.assertEquals("shared", joined.response().getChoices().get(0).getMessage().getContent());
+            Assertions.assertEquals(1, loads.get());
+            Assertions.assertEquals(0, cache.getMetrics().get("in_flight"));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFailedLoadIsNotCached() {
+        LlmResponseCache cache = new LlmResponseCache(10, 60);
+
+        Assertions.assertNull(cache.getOrLoad("key", () -> null).response());
+        Assertions.assertTrue(cache.getOrLoad("key", () -> response("retry")).loaded());
+    }
+
+    private static void age(Path file, Duration age) throws IOException {
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(age)));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ChatBody chatBody(String prompt, String model, double temperature) {
+        Message message = new Message();
+        message.setRole("user");
+        message.setContent(prompt);
+        ChatBody chatBody = new ChatBody();
+        chatBody.setModel(model);
+        chatBody.setTemperature(temperature);
+        chatBody.setMessages(List.of(message));
+        return chatBody;
+    }
+
+    private static LLMResponse response(String content) {
+        ca.letkeman.resumes.optimizer.responses.Message message =
+            new ca.letkeman.resumes.optimizer.responses.Message();
+        message.setRole("assistant");
+        message.setContent(content);
+        LLMResponse response = new LLMResponse();
+        response.setModel("model");
+        response.setChoices(List.of(new Choice(0, null, "stop", message)));
+        return response;
+    }
+}
@@ -0,0 +1,89 @@
+package ca.letkeman.resumes.service;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LlmRetryPolicyTest {
+
+    @Test
+    void testRetryableStatuses() {
+        LlmRetryPolicy policy = new LlmRetryPolicy(3, 500, 10000);
+
+        for (int status : new int[]{408, 429, 502, 503, 504}) {
+            Assertions.assertTrue(policy.isRetryable(status), "Expected " + status + " to be retried");
+        }
+        for (int status : new int[]{200, 400, 401, 404, 500}) {
+            Assertions.assertFalse(policy.isRetryable(status), "Expected " + status + " not to be retried");
+        }
+    }
+
+    @Test
+    void testRetryableErrors() {
+        LlmRetryPolicy policy = new LlmRetryPolicy(3, 500, 10000);
+
+        Assertions.assertTrue(policy.isRetryable(new IOException("connection reset")));
+        Assertions.assertTrue(policy.isRetryable(new HttpTimeoutException("timed out")));
+        Assertions.assertFalse(policy.isRetryable(new LlmCircuitBreaker.CircuitOpenException("http://a")));
+        Assertions.assertFalse(policy.isRetryable(new LlmConcurrencyLimiter.LimitTimeoutException("model m")));
+        Assertions.assertFalse(policy.isRetryable(new LlmTokenBudget.BudgetExceededException("http://a", 9000)));
+        Assertions.assertFalse(policy.isRetryable(new IllegalArgumentException("bad url")));
+    }
+
+    @Test
+    void testBackoffIsJitteredAndCapped() {
+        LlmRetryPolicy policy = new LlmRetryPolicy(10, 100, 1000);
+
+        for (int i = 0; i < 50; i++) {
+            Assertions.assertTrue(policy.backoffMs(1, null) <= 100);
+            Assertions.assertTrue(policy.backoffMs(3, null) <= 400);
+            long capped = policy.backoffMs(30, null);
+            Assertions.assertTrue(capped >= 0 && capped <= 1000);
+        }
+    }
+
+    @Test
+    void testRetryAfterSecondsTakesPrecedence() {
+        LlmRetryPolicy policy = new LlmRetryPolicy(3, 100, 10000);
+
+        Assertions.assertEquals(2000, policy.backoffMs(1, Map.of("retry-after", List.of("2"))));
+        Assertions.assertEquals(10000, policy.backoffMs(1, Map.of("retry-after", List.of("10"))));
+    }
+
+    @Test
+    void testRetryAfterBeyondMaximumDelayIsNotRetried() {
+        LlmRetryPolicy policy = new LlmRetryPolicy(3, 100, 10000);
+
+        Assertions.assertEquals(-1, policy.backoffMs(1, Map.of("Retry-After", List.of("120"))),
+            "Retrying before the server asked would only be rejected again");
+        Assertions.assertEquals(-1, policy.backoffMs(1, Map.of("Retry-After", List.of("9223372036854775807"))));
+    }
+
+    @Test
+    void testRetryAfterOverflowIsTooLong() {
+        Assertions.assertEquals(Long.MAX_VALUE,
+            LlmRetryPolicy.retryAfterMs(Map.of("retry-after", List.of("9223372036854775807"))));
+        Assertions.assertEquals(0, LlmRetryPolicy.retryAfterMs(Map.of("retry-after", List.of("-5"))));
+    }
+
+    @Test
+    void testRetryAfterHttpDate() {
+        String inFiveSeconds = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now().plusSeconds(5));
+
+        long wait = LlmRetryPolicy.retryAfterMs(Map.of("retry-after", List.of(inFiveSeconds)));
+
+        Assertions.assertTrue(wait > 3000 && wait <= 5000, "Unexpected wait " + wait);
+        Assertions.assertEquals(-1, LlmRetryPolicy.retryAfterMs(Map.of("retry-after", List.of("soon"))));
+        Assertions.assertEquals(-1, LlmRetryPolicy.retryAfterMs(null));
+    }
+
+    @Test
+    void testAtLeastOneAttempt() {
+        Assertions.assertEquals(1, new LlmRetryPolicy(0, 500, 10000).getMaxAttempts());
+    }
+}
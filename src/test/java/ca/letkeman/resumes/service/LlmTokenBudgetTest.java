@@ -0,0 +1,87 @@
+package ca.letkeman.resumes.service;
+
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LlmTokenBudgetTest {
+
+    private static final String ENDPOINT = "http://ollama:11434/v1/chat/completions";
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> endpointMetrics(LlmTokenBudget budget) {
+        return (Map<String, Object>) ((Map<String, Object>) budget.getMetrics().get("endpoints")).get(ENDPOINT);
+    }
+
+    @Test
+    void testDisabledBudgetNeverWaits() throws Exception {
+        LlmTokenBudget budget = new LlmTokenBudget(0, 0, 1024);
+
+        Assertions.assertFalse(budget.isEnabled());
+        Assertions.assertSame(LlmTokenBudget.Reservation.NONE, budget.reserve(ENDPOINT, 1_000_000));
+        Assertions.assertNull(endpointMetrics(budget));
+    }
+
+    @Test
+    void testReservesWithinBudget() throws Exception {
+        LlmTokenBudget budget = new LlmTokenBudget(6000, 0, 1024);
+
+        budget.reserve(ENDPOINT, 2000);
+        budget.reserve(ENDPOINT, 3000);
+
+        Assertions.assertEquals(5000L, endpointMetrics(budget).get("consumed_tokens"));
+        Assertions.assertTrue((Long) endpointMetrics(budget).get("available_tokens") < 1100);
+    }
+
+    @Test
+    void testRejectsUpFrontWhenWaitIsTooLong() throws Exception {
+        LlmTokenBudget budget = new LlmTokenBudget(6000, 1, 1024);
+        budget.reserve(ENDPOINT, 6000);
+
+        long start = System.nanoTime();
+        Assertions.assertThrows(LlmTokenBudget.BudgetExceededException.class, () -> budget.reserve(ENDPOINT, 3000));
+        Assertions.assertTrue(System.nanoTime() - start < 500_000_000L, "Rejection should not wait for the deadline");
+        Assertions.assertEquals(1L, budget.getMetrics().get("rejected"));
+    }
+
+    @Test
+    void testWaitsForBudgetToRefill() throws Exception {
+        // 6000 tokens per minute refill at 100 per second
+        LlmTokenBudget budget = new LlmTokenBudget(6000, 5, 1024);
+        budget.reserve(ENDPOINT, 6000);
+
+        long start = System.nanoTime();
+        budget.reserve(ENDPOINT, 30);
+        long waitedMs = (System.nanoTime() - start) / 1_000_000L;
+
+        Assertions.assertTrue(waitedMs >= 200, "Expected to wait for the refill, waited " + waitedMs + " ms");
+        Assertions.assertTrue(waitedMs < 2000, "Waited too long: " + waitedMs + " ms");
+    }
+
+    @Test
+    void testRefundMakesTokensAvailableAgain() throws Exception {
+        LlmTokenBudget budget = new LlmTokenBudget(6000, 0, 1024);
+        LlmTokenBudget.Reservation reservation = budget.reserve(ENDPOINT, 6000);
+
+        reservation.refund();
+
+        Assertions.assertEquals(0L, endpointMetrics(budget).get("consumed_tokens"));
+        Assertions.assertNotNull(budget.reserve(ENDPOINT, 6000));
+    }
+
+    @Test
+    void testCallLargerThanBudgetIsAdmittedWhenFull() throws Exception {
+        LlmTokenBudget budget = new LlmTokenBudget(1000, 0, 1024);
+
+        Assertions.assertNotNull(budget.reserve(ENDPOINT, 50_000));
+        Assertions.assertThrows(LlmTokenBudget.BudgetExceededException.class, () -> budget.reserve(ENDPOINT, 10));
+    }
+
+    @Test
+    void testEndpointsHaveSeparateBudgets() throws Exception {
+        LlmTokenBudget budget = new LlmTokenBudget(1000, 0, 1024);
+        budget.reserve(ENDPOINT, 1000);
+
+        Assertions.assertNotNull(budget.reserve("http://other:11434/v1/chat/completions", 1000));
+    }
+}
@@ -0,0 +1,50 @@
+package ca.letkeman.resumes.service;
+
+import ca.letkeman.resumes.optimizer.PdfRendererPool;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class PdfRenderingServiceTest {
+
+    private final PdfRendererPool original = PdfRendererPool.shared();
+
+    @AfterEach
+    void restoreSharedPool() {
+        PdfRendererPool.setShared(original);
+    }
+
+    @Test
+    void testInstallsConfiguredPool() {
+        PdfRenderingService service = new PdfRenderingService(3, false);
+
+        Assertions.assertSame(service.getPool(), PdfRendererPool.shared());
+        Assertions.assertEquals(3, service.getPool().getSize());
+    }
+
+    @Test
+    void testWarmUpDisabledCreatesNoRenderers() {
+        PdfRenderingService service = new PdfRenderingService(2, false);
+
+        service.warmUp();
+
+        Map<String, Object> metrics = service.getMetrics();
+        Assertions.assertEquals(0L, metrics.get("created"));
+        Assertions.assertEquals(false, metrics.get("warm_up"));
+    }
+
+    @Test
+    void testWarmUpFillsPoolInBackground() throws InterruptedException {
+        PdfRenderingService service = new PdfRenderingService(2, true);
+
+        service.warmUp();
+
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!service.getPool().getMetrics().get("idle").equals(2) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Assertions.assertEquals(2, service.getPool().getMetrics().get("idle"));
+        Assertions.assertEquals(true, service.getMetrics().get("warm_up"));
+    }
+}
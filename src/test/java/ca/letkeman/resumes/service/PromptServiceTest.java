@@ -2,14 +2,18 @@ package ca.letkeman.resumes.service;
 
 import ca.letkeman.resumes.entity.PromptHistory;
 import ca.letkeman.resumes.model.Optimize;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /**
  * Unit tests for PromptService.
@@ -23,6 +27,9 @@ class PromptServiceTest {
 
     private PromptService promptService;
 
+    @TempDir
+    Path tempDir;
+
     @BeforeEach
     void setUp() {
         promptService = new PromptService();
@@ -232,6 +239,20 @@ class PromptServiceTest {
         Assertions.assertNull(result, "Should return null when repository is not available");
     }
 
+    @Test
+    @DisplayName("Should save prompt with token usage returns null when repository is null")
+    void testSavePromptToHistoryWithTokenUsage() {
+        Optimize optimize = new Optimize();
+        optimize.setModel("test-model");
+
+        PromptHistory result = promptService.savePromptToHistory(
+            "RESUME", optimize, "prompt", "content",
+            new PromptService.Generation("/tmp/file.md", 1000L, 1850, PromptService.versionOf("prompt"))
+        );
+
+        Assertions.assertNull(result, "Should return null when repository is not available");
+    }
+
     @Test
     @DisplayName("Should get all history returns empty list when repository is null")
     void testGetAllHistoryWithNullRepository() {
@@ -509,4 +530,127 @@ class PromptServiceTest {
         Assertions.assertTrue(expanded.endsWith("END"));
         Assertions.assertTrue(expanded.contains("middle text"));
     }
+
+    @Test
+    @DisplayName("Should serve repeated loads from the registry")
+    void testLoadPromptIsCached() {
+        PromptService.Prompt first = promptService.getPrompt("RESUME");
+        PromptService.Prompt second = promptService.getPrompt("resume");
+
+        Assertions.assertSame(first, second, "Second load should come from the registry");
+        Assertions.assertEquals("bundled", first.source());
+        Assertions.assertEquals(PromptService.versionOf(first.content()), first.version());
+        Assertions.assertTrue(promptService.getLoadedPrompts().containsKey("RESUME.md"));
+    }
+
+    @Test
+    @DisplayName("Should derive stable versions from prompt content")
+    void testVersionOf() {
+        String version = PromptService.versionOf("Write a resume for {job_title}");
+
+        Assertions.assertEquals(12, version.length());
+        Assertions.assertEquals(version, PromptService.versionOf("Write a resume for {job_title}"));
+        Assertions.assertNotEquals(version, PromptService.versionOf("Write a resume for {company}"));
+        Assertions.assertEquals(PromptService.versionOf(""), PromptService.versionOf(null));
+    }
+
+    @Test
+    @DisplayName("Should preload bundled prompts on init")
+    void testInitPreloadsBundledPrompts() {
+        promptService.init();
+
+        Assertions.assertTrue(promptService.getLoadedPrompts().containsKey("COVER.md"));
+        Assertions.assertTrue(promptService.getLoadedPrompts().containsKey("SKILLS.md"));
+    }
+
+    @Test
+    @DisplayName("Should prefer external prompts and reload them when the file changes")
+    void testExternalPromptHotReload() throws Exception {
+        Path externalDir = tempDir.resolve("prompts");
+        Files.createDirectories(externalDir);
+        Files.writeString(externalDir.resolve("RESUME.md"), "First {job_title}");
+        PromptService watched = new PromptService(externalDir.toString(), true);
+        try {
+            watched.init();
+            PromptService.Prompt first = watched.getPrompt("RESUME");
+            Assertions.assertEquals("First {job_title}", first.content());
+            Assertions.assertEquals("external", first.source());
+
+            Files.writeString(externalDir.resolve("RESUME.md"), "Second {job_title}");
+            Assertions.assertEquals("Second {job_title}", awaitPrompt(watched, "RESUME", "Second {job_title}"));
+            Assertions.assertNotEquals(first.version(), watched.getPrompt("RESUME").version());
+
+            Files.writeString(externalDir.resolve("EXTRA.md"), "Extra prompt");
+            Assertions.assertEquals("Extra prompt", awaitPrompt(watched, "EXTRA", "Extra prompt"));
+
+            // Removing the override falls back to the bundled prompt
+            Files.delete(externalDir.resolve("RESUME.md"));
+            String bundled = promptService.loadPrompt("RESUME");
+            Assertions.assertEquals(bundled, awaitPrompt(watched, "RESUME", bundled));
+            Assertions.assertEquals("bundled", watched.getPrompt("RESUME").source());
+        } finally {
+            watched.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should map changed file names to the registry key of their prompt")
+    void testRegistryKey() {
+        Assertions.assertEquals("RESUME.md", PromptService.registryKey("resume.md"));
+        Assertions.assertEquals("THANK-YOU-EMAIL.md", PromptService.registryKey("Thank-You-Email.md"));
+        Assertions.assertEquals("COVER.md", PromptService.registryKey("COVER.md"));
+    }
+
+    @Test
+    @DisplayName("Should upper-case registry keys the same way in every default locale")
+    void testRegistryKeyIgnoresDefaultLocale() {
+        Locale previous = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+            Assertions.assertEquals("SKILLS.md", PromptService.registryKey("skills.md"));
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+
+    @Test
+    @DisplayName("Should load external prompts under their registry key and skip README.md")
+    void testInitLoadsExternalPromptsByRegistryKey() throws Exception {
+        Files.writeString(tempDir.resolve("skills.md"), "External skills");
+        Files.writeString(tempDir.resolve("README.md"), "About these prompts");
+        PromptService external = new PromptService(tempDir.toString(), false);
+        external.init();
+
+        Map<String, PromptService.Prompt> loaded = external.getLoadedPrompts();
+
+        Assertions.assertFalse(loaded.containsKey("skills.md"));
+        Assertions.assertFalse(loaded.containsKey("README.md"));
+        Assertions.assertEquals("external", loaded.get("SKILLS.md").source());
+        Assertions.assertEquals("External skills", external.loadPrompt("SKILLS"));
+        Assertions.assertEquals("bundled", loaded.get("RESUME.md").source());
+    }
+
+    @Test
+    @DisplayName("Should keep serving the loaded prompt when watching is disabled")
+    void testExternalPromptWithoutWatch() throws Exception {
+        Files.writeString(tempDir.resolve("COVER.md"), "Cover v1");
+        PromptService unwatched = new PromptService(tempDir.toString(), false);
+        unwatched.init();
+
+        Files.writeString(tempDir.resolve("COVER.md"), "Cover v2");
+
+        Assertions.assertEquals("Cover v1", unwatched.loadPrompt("COVER"));
+    }
+
+    // File watching is asynchronous, so poll until the registry catches up
+    private static String awaitPrompt(PromptService service, String name, String expected)
+        throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        String content = service.loadPrompt(name);
+        while (!expected.equals(content) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            content = service.loadPrompt(name);
+        }
+        return content;
+    }
 }
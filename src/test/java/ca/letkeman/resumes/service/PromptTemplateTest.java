@@ -0,0 +1,71 @@
+package ca.letkeman.resumes.service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class PromptTemplateTest {
+
+    @Test
+    void testExpandsEveryOccurrence() {
+        PromptTemplate template = PromptTemplate.compile("{a} and {b}, then {a} again");
+
+        Assertions.assertEquals("1 and 2, then 1 again", template.expand(Map.of("a", "1", "b", "2")));
+        Assertions.assertEquals(Set.of("a", "b"), template.getPlaceholders());
+    }
+
+    @Test
+    void testLeavesUnknownPlaceholdersAndBracesAlone() {
+        PromptTemplate template = PromptTemplate.compile("{known} {unknown} {} { \"json\": 1 } {open");
+
+        Assertions.assertEquals("x {unknown} {} { \"json\": 1 } {open", template.expand(Map.of("known", "x")));
+    }
+
+    @Test
+    void testNullValueExpandsToNothing() {
+        Map<String, String> values = new HashMap<>();
+        values.put("name", null);
+
+        Assertions.assertEquals("Hello !", PromptTemplate.compile("Hello {name}!").expand(values));
+    }
+
+    @Test
+    void testValuesAreNotExpandedAgain() {
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("resume_string", "Worked at {company}");
+        values.put("company", "Acme");
+
+        Assertions.assertEquals("Worked at {company} for Acme",
+            PromptTemplate.compile("{resume_string} for {company}").expand(values));
+    }
+
+    @Test
+    void testTemplateWithoutPlaceholders() {
+        Assertions.assertEquals("plain", PromptTemplate.compile("plain").expand(Map.of("a", "1")));
+        Assertions.assertEquals("", PromptTemplate.compile("").expand(Map.of()));
+    }
+
+    @Test
+    void testCompiledTemplatesAreReused() {
+        String text = new StringBuilder("cached {x}").toString();
+
+        Assertions.assertSame(PromptTemplate.of(text), PromptTemplate.of(new String(text)));
+        Assertions.assertEquals("", PromptTemplate.of(null).expand(Map.of()));
+    }
+
+    @Test
+    void testBundledPromptsExpandCompletely() {
+        PromptService promptService = new PromptService();
+        Map<String, String> values = Map.of("resume_string", "R", "job_description", "J", "job_title", "T",
+            "today", "D", "company", "C", "interviewer_name", "I");
+        for (String prompt : new String[] {"RESUME", "COVER", "SKILLS", "THANK-YOU-EMAIL"}) {
+            String expanded = PromptTemplate.of(promptService.loadPrompt(prompt)).expand(values);
+            for (String name : values.keySet()) {
+                Assertions.assertFalse(expanded.contains("{" + name + "}"), prompt + " still contains " + name);
+            }
+        }
+    }
+}
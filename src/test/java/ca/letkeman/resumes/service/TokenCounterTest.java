@@ -0,0 +1,112 @@
+package ca.letkeman.resumes.service;
+
+import ca.letkeman.resumes.optimizer.ChatBody;
+import ca.letkeman.resumes.optimizer.Message;
+import ca.letkeman.resumes.optimizer.TokenEstimator;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TokenCounterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static ChatBody chatBody(String content) {
+        ChatBody chatBody = new ChatBody();
+        chatBody.setMessages(List.of(new Message("user", content)));
+        return chatBody;
+    }
+
+    @Test
+    void testFallsBackToHeuristicWithoutTokenizer() {
+        TokenCounter counter = new TokenCounter("", 100, 8192, "");
+
+        Assertions.assertFalse(counter.isExact());
+        Assertions.assertSame(TokenEstimator.HEURISTIC, counter.getTokenizer());
+        Assertions.assertEquals(25, counter.count("x".repeat(100)));
+    }
+
+    @Test
+    void testFallsBackToHeuristicWhenTokenizerIsUnreadable() throws Exception {
+        Path file = tempDir.resolve("tokenizer.json");
+        Files.writeString(file, "{}");
+
+        TokenCounter counter = new TokenCounter(file.toString(), 100, 8192, "");
+
+        Assertions.assertFalse(counter.isExact());
+        Assertions.assertEquals(false, counter.getMetrics().get("exact"));
+    }
+
+    @Test
+    void testUsesConfiguredTokenizer() throws Exception {
+        Path file = tempDir.resolve("tokenizer.json");
+        Files.writeString(file, """
+            {"pre_tokenizer": {"type": "ByteLevel"},
+             "model": {"type": "BPE", "vocab": {"a": 0, "b": 1, "ab": 2}, "merges": ["a b"]}}
+            """);
+
+        TokenCounter counter = new TokenCounter(file.toString(), 100, 8192, "");
+
+        Assertions.assertTrue(counter.isExact());
+        Assertions.assertEquals(1, counter.count("ab"));
+        Assertions.assertEquals(3, counter.getMetrics().get("vocabulary_size"));
+    }
+
+    @Test
+    void testCompletionBudgetIsWhatThePromptLeaves() {
+        TokenCounter counter = new TokenCounter("", 100, 1000, "");
+        ChatBody chatBody = chatBody("x".repeat(400));
+
+        Assertions.assertEquals(1000 - counter.countPrompt(chatBody), counter.completionBudget(chatBody));
+    }
+
+    @Test
+    void testCompletionBudgetWhenPromptDoesNotFit() {
+        TokenCounter counter = new TokenCounter("", 100, 50, "");
+
+        Assertions.assertEquals(-1, counter.completionBudget(chatBody("x".repeat(400))));
+    }
+
+    @Test
+    void testCompletionBudgetWithoutContextWindow() {
+        TokenCounter counter = new TokenCounter("", 100, 0, "");
+
+        Assertions.assertEquals(-1, counter.completionBudget(chatBody("hello")));
+    }
+
+    @Test
+    void testModelContextWindowAppliesWhenDefaultIsOff() {
+        TokenCounter counter = new TokenCounter("", 100, 0, "gemma3:4b=1000");
+        ChatBody listed = chatBody("hello");
+        listed.setModel("gemma3:4b");
+        ChatBody other = chatBody("hello");
+        other.setModel("mistral");
+
+        Assertions.assertEquals(1000 - counter.countPrompt(listed), counter.completionBudget(listed));
+        Assertions.assertEquals(-1, counter.completionBudget(other));
+    }
+
+    @Test
+    void testZeroContextWindowLeavesModelToServer() {
+        TokenCounter counter = new TokenCounter("", 100, 4096, "mistral=32768, gemma3:4b=1000,mistral=0");
+        ChatBody mistral = chatBody("hello");
+        mistral.setModel("mistral");
+
+        Assertions.assertEquals(0, counter.contextWindow("mistral"), "A later pair wins, 0 unsets the window");
+        Assertions.assertEquals(-1, counter.completionBudget(mistral));
+        Assertions.assertEquals(1000, counter.contextWindow("gemma3:4b"));
+        Assertions.assertEquals(4096, counter.contextWindow("other"));
+    }
+
+    @Test
+    void testInvalidContextWindowsAreIgnored() {
+        Map<String, Integer> windows = TokenCounter.parseContextWindows("a=-5,b=many,c=0,d=8192");
+
+        Assertions.assertEquals(Map.of("c", 0, "d", 8192), windows);
+    }
+}